@@ -7,28 +7,128 @@ import org.eclipse.jetty.security.ConstraintSecurityHandler;
 import org.eclipse.jetty.server.Connector;
 import org.eclipse.jetty.server.NCSARequestLog;
 import org.eclipse.jetty.server.RequestLog;
+import org.eclipse.jetty.server.AbstractConnector;
 import org.eclipse.jetty.server.bio.SocketConnector;
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.FilterMapping;
 import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.hibernate.cache.EhCacheProvider;
+import org.hibernate.cfg.Environment;
 
 import com.codahale.shore.AbstractConfiguration;
 import com.google.inject.Stage;
+import com.wesabe.api.accounts.dao.ReplicaSessionFilter;
 import com.wesabe.api.accounts.modules.CurrencyExchangeRateMapModule;
 import com.wesabe.api.accounts.modules.HibernateJMXModule;
+import com.wesabe.api.accounts.modules.ReplicaModule;
+import com.wesabe.api.accounts.modules.TagHierarchyModule;
+import com.wesabe.api.accounts.stats.InstrumentedThreadPool;
 import com.wesabe.api.util.auth.WesabeAuthenticator;
 
 /**
  * brcm-accounts-api's Shore configuration.
+ * <p>
+ * The HTTP connector can be tuned with system properties:
+ * <dl>
+ * 	<dt>{@code brcm.connector}</dt>
+ * 	<dd>{@code nio} (the default) for a non-blocking connector, which doesn't
+ * 		tie up a thread for each idle keep-alive connection, or {@code bio}
+ * 		for a blocking one</dd>
+ * 	<dt>{@code brcm.connector.acceptors}</dt>
+ * 	<dd>the number of acceptor threads, which for {@code nio} is also the
+ * 		number of selectors (default: {@value #DEFAULT_ACCEPTORS})</dd>
+ * 	<dt>{@code brcm.connector.maxIdleTime}</dt>
+ * 	<dd>the number of milliseconds an idle connection is kept open (default:
+ * 		{@value #DEFAULT_MAX_IDLE_TIME})</dd>
+ * 	<dt>{@code brcm.threads.min}, {@code brcm.threads.max}</dt>
+ * 	<dd>the size of the request thread pool (default:
+ * 		{@value #DEFAULT_MIN_THREADS}-{@value #DEFAULT_MAX_THREADS})</dd>
+ * 	<dt>{@code brcm.threads.maxQueued}</dt>
+ * 	<dd>the number of requests which can wait for a thread before new ones
+ * 		are rejected (default: {@value #DEFAULT_MAX_QUEUED})</dd>
+ * </dl>
+ * Tag hierarchies can be built in parallel with system properties:
+ * <dl>
+ * 	<dt>{@code brcm.hierarchy.threads}</dt>
+ * 	<dd>the number of threads large subtrees of a tag hierarchy are built on,
+ * 		or {@code 0} to build them on the request thread (default:
+ * 		{@value #DEFAULT_HIERARCHY_THREADS})</dd>
+ * 	<dt>{@code brcm.hierarchy.threshold}</dt>
+ * 	<dd>the smallest number of transactions in a subtree which is built on
+ * 		another thread (default: {@value #DEFAULT_HIERARCHY_THRESHOLD})</dd>
+ * </dl>
+ * {@code GET} and {@code HEAD} requests can read from a replica database with
+ * system properties:
+ * <dl>
+ * 	<dt>{@code brcm.replica}</dt>
+ * 	<dd>the name of a file with the replica's {@code hibernate.connection.*}
+ * 		properties (default: none, so every request reads from the
+ * 		primary)</dd>
+ * 	<dt>{@code brcm.replica.maxLag}</dt>
+ * 	<dd>the most seconds the replica can be behind the primary before
+ * 		requests go back to reading from the primary (default:
+ * 		{@value #DEFAULT_REPLICA_MAX_LAG})</dd>
+ * </dl>
+ * Currency exchange rates can be loaded from a local copy at startup with a
+ * system property:
+ * <dl>
+ * 	<dt>{@code brcm.rates.file}</dt>
+ * 	<dd>the name of a file to keep a copy of the exchange rates in, so only
+ * 		rates added since it was written are fetched from the database
+ * 		(default: none, so every rate is fetched)</dd>
+ * </dl>
+ * Some entities are kept in Hibernate's second-level cache, and Hibernate
+ * won't start without a cache provider for them, so {@link EhCacheProvider}
+ * is used unless {@code hibernate.cache.provider_class} or
+ * {@code hibernate.cache.region.factory_class} is set.
  * 
  * @author coda
  */
 public class Configuration extends AbstractConfiguration {
+	public static final String CONNECTOR_PROPERTY = "brcm.connector";
+	public static final String ACCEPTORS_PROPERTY = "brcm.connector.acceptors";
+	public static final String MAX_IDLE_TIME_PROPERTY = "brcm.connector.maxIdleTime";
+	public static final String MIN_THREADS_PROPERTY = "brcm.threads.min";
+	public static final String MAX_THREADS_PROPERTY = "brcm.threads.max";
+	public static final String MAX_QUEUED_PROPERTY = "brcm.threads.maxQueued";
+	public static final String HIERARCHY_THREADS_PROPERTY = "brcm.hierarchy.threads";
+	public static final String HIERARCHY_THRESHOLD_PROPERTY = "brcm.hierarchy.threshold";
+	public static final String REPLICA_PROPERTY = "brcm.replica";
+	public static final String REPLICA_MAX_LAG_PROPERTY = "brcm.replica.maxLag";
+	public static final String RATES_FILE_PROPERTY = "brcm.rates.file";
+	
+	public static final int DEFAULT_ACCEPTORS = 2;
+	public static final int DEFAULT_MAX_IDLE_TIME = 30000;
+	public static final int DEFAULT_MIN_THREADS = 10;
+	public static final int DEFAULT_MAX_THREADS = 200;
+	public static final int DEFAULT_MAX_QUEUED = 1000;
+	public static final int DEFAULT_HIERARCHY_THREADS = 0;
+	public static final int DEFAULT_HIERARCHY_THRESHOLD = 2000;
+	public static final int DEFAULT_REPLICA_MAX_LAG = 30;
+	
 	@Override
 	protected void configure() {
+		if ((System.getProperty(Environment.CACHE_PROVIDER) == null)
+				&& (System.getProperty(Environment.CACHE_REGION_FACTORY) == null)) {
+			// Hibernate copies system properties into its defaults, which the
+			// properties file then overrides
+			System.setProperty(Environment.CACHE_PROVIDER, EhCacheProvider.class.getName());
+		}
+		
 		addEntityPackage("com.wesabe.api.accounts.entities");
 		addResourcePackage("com.wesabe.api.accounts.providers");
 		addResourcePackage("com.wesabe.api.accounts.resources");
-		addModule(new CurrencyExchangeRateMapModule());
+		addModule(new CurrencyExchangeRateMapModule(System.getProperty(RATES_FILE_PROPERTY)));
 		addModule(new HibernateJMXModule());
+		addModule(new TagHierarchyModule(
+				Integer.getInteger(HIERARCHY_THREADS_PROPERTY, DEFAULT_HIERARCHY_THREADS),
+				Integer.getInteger(HIERARCHY_THRESHOLD_PROPERTY, DEFAULT_HIERARCHY_THRESHOLD)
+		));
+		addModule(new ReplicaModule(
+				System.getProperty(REPLICA_PROPERTY),
+				Integer.getInteger(REPLICA_MAX_LAG_PROPERTY, DEFAULT_REPLICA_MAX_LAG)
+		));
 		setStage(Stage.PRODUCTION);
 	}
 
@@ -39,7 +139,22 @@ public class Configuration extends AbstractConfiguration {
 	
 	@Override
 	public Connector getConnector() {
-		return new SocketConnector();
+		final AbstractConnector connector;
+		if ("bio".equalsIgnoreCase(System.getProperty(CONNECTOR_PROPERTY))) {
+			connector = new SocketConnector();
+		} else {
+			connector = new SelectChannelConnector();
+		}
+		
+		connector.setAcceptors(Integer.getInteger(ACCEPTORS_PROPERTY, DEFAULT_ACCEPTORS));
+		connector.setMaxIdleTime(Integer.getInteger(MAX_IDLE_TIME_PROPERTY, DEFAULT_MAX_IDLE_TIME));
+		connector.setThreadPool(new InstrumentedThreadPool(
+				"brcm-accounts-api",
+				Integer.getInteger(MIN_THREADS_PROPERTY, DEFAULT_MIN_THREADS),
+				Integer.getInteger(MAX_THREADS_PROPERTY, DEFAULT_MAX_THREADS),
+				Integer.getInteger(MAX_QUEUED_PROPERTY, DEFAULT_MAX_QUEUED)
+		));
+		return connector;
 	}
 	
 	@Override
@@ -71,6 +186,7 @@ public class Configuration extends AbstractConfiguration {
 		
 		securityHandler.setConstraintMappings(new ConstraintMapping[] { authenticateAll, healthCheckExemption, statsExemption });
 		context.setSecurityHandler(securityHandler);
+		context.addFilter(new FilterHolder(new ReplicaSessionFilter()), "/*", FilterMapping.REQUEST);
 	}
 	
 	@Override
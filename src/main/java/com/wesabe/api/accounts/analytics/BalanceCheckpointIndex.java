@@ -0,0 +1,165 @@
+package com.wesabe.api.accounts.analytics;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.DateTimeUtils;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.wesabe.api.accounts.dao.AccountBalanceDAO;
+import com.wesabe.api.accounts.dao.AccountDAO;
+import com.wesabe.api.accounts.dao.BalanceCheckpoint;
+import com.wesabe.api.accounts.dao.TxactionCursor;
+import com.wesabe.api.accounts.dao.TxactionDAO;
+import com.wesabe.api.accounts.entities.Account;
+import com.wesabe.api.accounts.entities.AccountBalance;
+import com.wesabe.api.accounts.entities.Txaction;
+import com.wesabe.api.util.money.Money;
+
+/**
+ * A cache of {@link BalanceCheckpoint}s for each {@link Account}, used to find
+ * an account's balance at any point in its history by summing at most
+ * {@link #INTERVAL} transactions instead of every transaction since then.
+ * <p>
+ * Checkpoints are built with a single scan of an account's transaction amounts
+ * the first time they're needed. Transactions added after the newest
+ * checkpoint are summed on demand, and {@link AccountDAO} and
+ * {@link AccountBalanceDAO} discard an account's checkpoints whenever they
+ * change it.
+ * <p>
+ * This service doesn't write transactions, though. An edit, a deletion, or a
+ * backdated import made elsewhere changes the sums the checkpoints already
+ * hold, and the balances of cursor pages before the change will be off by
+ * its amount until the checkpoints are rebuilt, at most
+ * {@link #MAX_AGE_MILLIS} later.
+ */
+@Singleton
+public class BalanceCheckpointIndex {
+	public static final int INTERVAL = 500;
+	public static final long MAX_AGE_MILLIS = 10 * 60 * 1000;
+	private static final int MAX_ACCOUNTS = 10000;
+
+	private static class Checkpoints {
+		private final List<BalanceCheckpoint> checkpoints;
+		private final long createdAt;
+
+		public Checkpoints(List<BalanceCheckpoint> checkpoints, long createdAt) {
+			this.checkpoints = checkpoints;
+			this.createdAt = createdAt;
+		}
+	}
+
+	private final TxactionDAO txactionDAO;
+	private final Map<Integer, Checkpoints> entries = Collections.synchronizedMap(
+		new LinkedHashMap<Integer, Checkpoints>(16, 0.75f, true) {
+			private static final long serialVersionUID = -6237413834154567385L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Checkpoints> eldest) {
+				return size() > MAX_ACCOUNTS;
+			}
+		}
+	);
+
+	@Inject
+	public BalanceCheckpointIndex(TxactionDAO txactionDAO) {
+		this.txactionDAO = txactionDAO;
+	}
+
+	/**
+	 * Returns the balance of each account immediately after the visible
+	 * {@link Txaction}s at or after {@code cursor} &mdash; that is, the
+	 * running balance of the transaction following {@code cursor}. Accounts
+	 * without balances are skipped.
+	 *
+	 * @param accounts a set of accounts
+	 * @param cursor the position of the last transaction of the previous page
+	 * @return the balance of each account, dated at {@code cursor}
+	 */
+	public Map<Account, AccountBalance> getBalancesAfter(Collection<Account> accounts, TxactionCursor cursor) {
+		final ImmutableMap.Builder<Account, AccountBalance> balances = ImmutableMap.builder();
+		for (Account account : accounts) {
+			if (account.hasBalance()) {
+				final Money currentBalance = account.getBalance();
+				final BigDecimal newer = sumAtOrAfter(account, cursor);
+				balances.put(account, new AccountBalance(
+						account,
+						currentBalance.subtract(new Money(newer, currentBalance.getCurrency())),
+						cursor.getDatePosted()
+				));
+			}
+		}
+		return balances.build();
+	}
+
+	/**
+	 * Discards the checkpoints for {@code account}, so they're rebuilt the
+	 * next time they're needed.
+	 */
+	public void invalidate(Account account) {
+		entries.remove(account.getId());
+	}
+
+	/**
+	 * Returns the sum of the amounts of the transactions in {@code account}
+	 * which sort at or after {@code cursor}.
+	 */
+	private BigDecimal sumAtOrAfter(Account account, TxactionCursor cursor) {
+		final List<BalanceCheckpoint> checkpoints = getCheckpoints(account);
+		if (checkpoints.isEmpty()) {
+			return txactionDAO.sumAmountsBetween(account, null, null)
+						.subtract(txactionDAO.sumAmountsBetween(account, null, cursor));
+		}
+
+		final BalanceCheckpoint newest = checkpoints.get(checkpoints.size() - 1);
+		final BigDecimal total = newest.getSum().add(txactionDAO.sumAmountsBetween(account, newest.getKey(), null));
+
+		final BalanceCheckpoint floor = findFloor(checkpoints, cursor);
+		final BigDecimal before;
+		if (floor == null) {
+			before = txactionDAO.sumAmountsBetween(account, null, cursor);
+		} else {
+			before = floor.getSum().add(txactionDAO.sumAmountsBetween(account, floor.getKey(), cursor));
+		}
+
+		return total.subtract(before);
+	}
+
+	/**
+	 * Returns the newest checkpoint which sorts strictly before {@code cursor},
+	 * or {@code null}.
+	 */
+	private BalanceCheckpoint findFloor(List<BalanceCheckpoint> checkpoints, TxactionCursor cursor) {
+		int low = 0, high = checkpoints.size() - 1;
+		BalanceCheckpoint floor = null;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			final BalanceCheckpoint checkpoint = checkpoints.get(mid);
+			if (checkpoint.getKey().compareTo(cursor) < 0) {
+				floor = checkpoint;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return floor;
+	}
+
+	private List<BalanceCheckpoint> getCheckpoints(Account account) {
+		final long now = DateTimeUtils.currentTimeMillis();
+		final Checkpoints entry = entries.get(account.getId());
+		if ((entry != null) && ((now - entry.createdAt) < MAX_AGE_MILLIS)) {
+			return entry.checkpoints;
+		}
+
+		final List<BalanceCheckpoint> checkpoints = txactionDAO.findBalanceCheckpoints(account, INTERVAL);
+		entries.put(account.getId(), new Checkpoints(checkpoints, now));
+		return checkpoints;
+	}
+}
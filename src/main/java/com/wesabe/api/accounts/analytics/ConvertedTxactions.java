@@ -0,0 +1,314 @@
+package com.wesabe.api.accounts.analytics;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.joda.time.DateTime;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.wesabe.api.accounts.entities.Tag;
+import com.wesabe.api.accounts.entities.Txaction;
+import com.wesabe.api.util.money.CurrencyExchangeRates;
+
+/**
+ * A set of analyzable {@link Txaction}s, converted into a single currency.
+ * <p>
+ * Each transaction and tagged amount is converted exactly once, and stored as
+ * a number of minor units (e.g., cents) in a set of parallel arrays, which
+ * {@link TagSummarizer}, {@link TagHierarchyBuilder}, and
+ * {@link IntervalSummarizer} can summarize as many times as they need to
+ * without touching the transactions or exchange rates again.
+ * <p>
+ * Transactions are indexed from {@code 0} to {@link #size()}. Each
+ * transaction's tagged amounts are indexed from
+ * {@link #getTaggedAmountsStart(int)} to {@link #getTaggedAmountsEnd(int)},
+ * and each distinct tag is given an id from {@code 0} to
+ * {@link #getTagCount()}, in the order the tags first appear.
+ */
+public final class ConvertedTxactions {
+	/**
+	 * Converts the analyzable transactions in {@code txactions} &mdash; those
+	 * which aren't deleted, disabled, or transfers.
+	 *
+	 * @param txactions the transactions to convert
+	 * @param currency the currency to convert into
+	 * @param filteredTags the tags whose amounts should be filtered out of
+	 * 			{@link #getFilteredAmount(int)}, or {@code null}
+	 * @param exchangeRates the exchange rates to convert with
+	 * @return the converted transactions
+	 * @throws ArithmeticException if a converted amount has more minor units
+	 * 			than fit in a {@code long}
+	 */
+	public static ConvertedTxactions convert(Iterable<Txaction> txactions, Currency currency,
+			Set<Tag> filteredTags, CurrencyExchangeRates exchangeRates) {
+		final TxactionFrame frame = TxactionFrame.of(txactions);
+		return convert(frame, frame.all(), currency, filteredTags, exchangeRates);
+	}
+
+	/**
+	 * Converts the analyzable transactions in {@code rows} of {@code frame}
+	 * &mdash; those which aren't deleted, disabled, or transfers.
+	 *
+	 * @param frame the transactions to convert
+	 * @param rows the rows of {@code frame} to convert
+	 * @param currency the currency to convert into
+	 * @param filteredTags the tags whose amounts should be filtered out of
+	 * 			{@link #getFilteredAmount(int)}, or {@code null}
+	 * @param exchangeRates the exchange rates to convert with
+	 * @return the converted transactions
+	 * @throws ArithmeticException if a converted amount has more minor units
+	 * 			than fit in a {@code long}
+	 */
+	public static ConvertedTxactions convert(TxactionFrame frame, BitSet rows, Currency currency,
+			Set<Tag> filteredTags, CurrencyExchangeRates exchangeRates) {
+		final ConvertedTxactions converted = new ConvertedTxactions(frame, currency,
+				(filteredTags == null) ? ImmutableSet.<Tag>of() : filteredTags);
+		final BitSet analyzableRows = frame.analyzable();
+		analyzableRows.and(rows);
+		for (int row = analyzableRows.nextSetBit(0); row >= 0; row = analyzableRows.nextSetBit(row + 1)) {
+			converted.add(row, exchangeRates);
+		}
+		return converted;
+	}
+
+	private final TxactionFrame frame;
+	private final Currency currency;
+	private final BitSet filteredTagIds;
+	private final int[] frameTagIds;
+	private final List<Tag> tags = Lists.newArrayList();
+	private final Map<Tag, Integer> tagIds = Maps.newHashMap();
+
+	private int size = 0;
+	private DateTime[] datesPosted = new DateTime[16];
+	private byte[] signums = new byte[16];
+	private long[] amounts = new long[16];
+	private long[] filteredAmounts = new long[16];
+	private final BitSet tagged = new BitSet();
+	private final BitSet hasFilteredTag = new BitSet();
+	private int[] taggedAmountsStarts = new int[17];
+
+	private int taggedAmountCount = 0;
+	private int[] taggedAmountTagIds = new int[16];
+	private long[] taggedAmounts = new long[16];
+	private final BitSet splits = new BitSet();
+
+	private ConvertedTxactions(TxactionFrame frame, Currency currency, Set<Tag> filteredTags) {
+		this.frame = frame;
+		this.currency = currency;
+		this.filteredTagIds = new BitSet(frame.getTagCount());
+		this.frameTagIds = new int[frame.getTagCount()];
+		for (int frameTagId = 0; frameTagId < frame.getTagCount(); frameTagId++) {
+			if (filteredTags.contains(frame.getTag(frameTagId))) {
+				filteredTagIds.set(frameTagId);
+			}
+			frameTagIds[frameTagId] = -1;
+		}
+	}
+
+	/**
+	 * Returns the currency the transactions were converted into.
+	 */
+	public Currency getCurrency() {
+		return currency;
+	}
+
+	/**
+	 * Returns the number of transactions.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the date transaction {@code index} was posted.
+	 */
+	public DateTime getDatePosted(int index) {
+		return datesPosted[index];
+	}
+
+	/**
+	 * Returns the signum function of transaction {@code index}'s unconverted
+	 * amount.
+	 */
+	public int getSignum(int index) {
+		return signums[index];
+	}
+
+	/**
+	 * Returns transaction {@code index}'s converted amount, in minor units.
+	 */
+	public long getAmount(int index) {
+		return amounts[index];
+	}
+
+	/**
+	 * Returns transaction {@code index}'s converted amount with the amounts of
+	 * any filtered tags removed, in minor units.
+	 *
+	 * @see Txaction#getConvertedAmountByFilteringTags(Set, Currency, CurrencyExchangeRates)
+	 */
+	public long getFilteredAmount(int index) {
+		return filteredAmounts[index];
+	}
+
+	/**
+	 * Returns {@code true} if transaction {@code index} has been tagged.
+	 *
+	 * @see Txaction#isTagged()
+	 */
+	public boolean isTagged(int index) {
+		return tagged.get(index);
+	}
+
+	/**
+	 * Returns {@code true} if transaction {@code index} is tagged with any of
+	 * the filtered tags.
+	 */
+	public boolean hasFilteredTag(int index) {
+		return hasFilteredTag.get(index);
+	}
+
+	/**
+	 * Returns the index of transaction {@code index}'s first tagged amount.
+	 */
+	public int getTaggedAmountsStart(int index) {
+		return taggedAmountsStarts[index];
+	}
+
+	/**
+	 * Returns the index after transaction {@code index}'s last tagged amount.
+	 */
+	public int getTaggedAmountsEnd(int index) {
+		return taggedAmountsStarts[index + 1];
+	}
+
+	/**
+	 * Returns the id of tagged amount {@code index}'s tag.
+	 */
+	public int getTagId(int index) {
+		return taggedAmountTagIds[index];
+	}
+
+	/**
+	 * Returns tagged amount {@code index}'s converted amount, in minor units.
+	 */
+	public long getTaggedAmount(int index) {
+		return taggedAmounts[index];
+	}
+
+	/**
+	 * Returns {@code true} if tagged amount {@code index} is a split.
+	 *
+	 * @see TaggedAmount#isSplit()
+	 */
+	public boolean isSplit(int index) {
+		return splits.get(index);
+	}
+
+	/**
+	 * Returns the number of distinct tags.
+	 */
+	public int getTagCount() {
+		return tags.size();
+	}
+
+	/**
+	 * Returns the tag with the id {@code tagId}.
+	 */
+	public Tag getTag(int tagId) {
+		return tags.get(tagId);
+	}
+
+	/**
+	 * Returns the id of {@code tag}, or {@code -1} if none of the transactions
+	 * are tagged with it.
+	 */
+	public int getTagId(Tag tag) {
+		final Integer tagId = tagIds.get(tag);
+		return (tagId == null) ? -1 : tagId;
+	}
+
+	private void add(int row, CurrencyExchangeRates exchangeRates) {
+		ensureTxactionCapacity(size + 1);
+
+		final DateTime datePosted = frame.getDatePosted(row);
+		final Currency accountCurrency = frame.getCurrency(row);
+		final long amount = frame.getAmount(row);
+		final long convertedAmount = convert(amount, accountCurrency, datePosted, exchangeRates);
+		long filteredTagsAmount = 0;
+		boolean filtered = false;
+		for (int i = frame.getTaggedAmountsStart(row); i < frame.getTaggedAmountsEnd(row); i++) {
+			ensureTaggedAmountCapacity(taggedAmountCount + 1);
+
+			final int frameTagId = frame.getTagId(i);
+			taggedAmountTagIds[taggedAmountCount] = internTag(frameTagId);
+			if (frame.isSplit(i)) {
+				taggedAmounts[taggedAmountCount] = convert(frame.getTaggedAmount(i), accountCurrency, datePosted, exchangeRates);
+				splits.set(taggedAmountCount);
+			} else {
+				// an unsplit tagged amount is the transaction's amount
+				taggedAmounts[taggedAmountCount] = convertedAmount;
+			}
+			taggedAmountCount++;
+
+			if (filteredTagIds.get(frameTagId)) {
+				filteredTagsAmount += Math.abs(frame.getTaggedAmount(i));
+				filtered = true;
+			}
+		}
+
+		datesPosted[size] = datePosted;
+		signums[size] = (byte) Long.signum(amount);
+		amounts[size] = convertedAmount;
+		if (filtered) {
+			// see Txaction#getAmountByFilteringTags(Set)
+			final long remainder = Math.abs(amount) - filteredTagsAmount;
+			filteredAmounts[size] = (remainder <= 0) ? 0
+					: convert(remainder * Long.signum(amount), accountCurrency, datePosted, exchangeRates);
+			hasFilteredTag.set(size);
+		} else {
+			filteredAmounts[size] = convertedAmount;
+		}
+		tagged.set(size, frame.isTagged(row));
+		size++;
+		taggedAmountsStarts[size] = taggedAmountCount;
+	}
+
+	private long convert(long units, Currency from, DateTime date, CurrencyExchangeRates exchangeRates) {
+		return TxactionFrame.toUnits(TxactionFrame.toMoney(units, from).convert(exchangeRates, currency, date));
+	}
+
+	private int internTag(int frameTagId) {
+		if (frameTagIds[frameTagId] < 0) {
+			frameTagIds[frameTagId] = tags.size();
+			tagIds.put(frame.getTag(frameTagId), tags.size());
+			tags.add(frame.getTag(frameTagId));
+		}
+		return frameTagIds[frameTagId];
+	}
+
+	private void ensureTxactionCapacity(int capacity) {
+		if (capacity > amounts.length) {
+			final int newCapacity = Math.max(capacity, amounts.length * 2);
+			this.datesPosted = Arrays.copyOf(datesPosted, newCapacity);
+			this.signums = Arrays.copyOf(signums, newCapacity);
+			this.amounts = Arrays.copyOf(amounts, newCapacity);
+			this.filteredAmounts = Arrays.copyOf(filteredAmounts, newCapacity);
+			this.taggedAmountsStarts = Arrays.copyOf(taggedAmountsStarts, newCapacity + 1);
+		}
+	}
+
+	private void ensureTaggedAmountCapacity(int capacity) {
+		if (capacity > taggedAmounts.length) {
+			final int newCapacity = Math.max(capacity, taggedAmounts.length * 2);
+			this.taggedAmountTagIds = Arrays.copyOf(taggedAmountTagIds, newCapacity);
+			this.taggedAmounts = Arrays.copyOf(taggedAmounts, newCapacity);
+		}
+	}
+}
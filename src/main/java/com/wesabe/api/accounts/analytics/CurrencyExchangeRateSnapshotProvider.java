@@ -0,0 +1,24 @@
+package com.wesabe.api.accounts.analytics;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+import com.wesabe.api.util.money.CurrencyExchangeRateSnapshot;
+
+/**
+ * A {@link Provider} of fresh {@link CurrencyExchangeRateSnapshot}s of the
+ * application's {@link CurrencyExchangeRateMap}.
+ */
+public class CurrencyExchangeRateSnapshotProvider implements Provider<CurrencyExchangeRateSnapshot> {
+	private final CurrencyExchangeRateMap exchangeRateMap;
+	
+	@Inject
+	public CurrencyExchangeRateSnapshotProvider(CurrencyExchangeRateMap exchangeRateMap) {
+		this.exchangeRateMap = exchangeRateMap;
+	}
+
+	@Override
+	public CurrencyExchangeRateSnapshot get() {
+		return new CurrencyExchangeRateSnapshot(exchangeRateMap);
+	}
+}
@@ -2,64 +2,99 @@ package com.wesabe.api.accounts.analytics;
 
 import static com.google.common.base.Preconditions.*;
 
-import java.util.Collection;
+import java.util.BitSet;
 import java.util.Currency;
 import java.util.Map;
 import java.util.Set;
 
 import org.joda.time.Interval;
 
-import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
 import com.google.inject.Inject;
 import com.wesabe.api.accounts.entities.Tag;
-import com.wesabe.api.accounts.entities.TaggedAmount;
 import com.wesabe.api.accounts.entities.Txaction;
-import com.wesabe.api.util.money.CurrencyExchangeRateMap;
-import com.wesabe.api.util.money.Money;
+import com.wesabe.api.util.money.CurrencyExchangeRateSnapshot;
 
 public class IntervalSummarizer {
-	private final CurrencyExchangeRateMap exchangeRateMap;
+	private final CurrencyExchangeRateSnapshot exchangeRateMap;
 
 	@Inject
-	public IntervalSummarizer(CurrencyExchangeRateMap exchangeRateMap) {
+	public IntervalSummarizer(CurrencyExchangeRateSnapshot exchangeRateMap) {
 		this.exchangeRateMap = checkNotNull(exchangeRateMap);
 	}
 	
+	/**
+	 * Returns the version of the exchange rates amounts are converted with.
+	 * 
+	 * @see CurrencyExchangeRateSnapshot#getVersion()
+	 */
+	public long getExchangeRateVersion() {
+		return exchangeRateMap.getVersion();
+	}
+	
 	public ImmutableMap<Interval, MonetarySummaryWithSplits> summarize(Iterable<Txaction> txactions,
 		Interval dateRange, IntervalType intervalType, Currency currency, Set<Tag> filteredTags) {
 
 		final Set<Tag> validFilteredTags = fixNullTags(filteredTags);
-		
-		final Multimap<Interval, Money> groupedAmounts = ArrayListMultimap.create();
-		final Map<Interval, Multimap<Tag, Money>> groupedSplitAmounts = Maps.newHashMap();
-		for (Txaction txaction : txactions) {
-			if (isAnalyzable(txaction)) {
-				final Interval interval = intervalType.currentInterval(txaction.getDatePosted());
-				final Money filteredAmount = txaction.getConvertedAmountByFilteringTags(
-					validFilteredTags, currency, exchangeRateMap);
+		return summarize(ConvertedTxactions.convert(txactions, currency, validFilteredTags, exchangeRateMap),
+				dateRange, intervalType);
+	}
+	
+	public ImmutableMap<Interval, MonetarySummaryWithSplits> summarize(TxactionFrame frame, BitSet rows,
+		Interval dateRange, IntervalType intervalType, Currency currency, Set<Tag> filteredTags) {
 
-				groupedAmounts.put(interval, filteredAmount);
-				
-				if (!groupedSplitAmounts.containsKey(interval)) {
-					groupedSplitAmounts.put(interval, ArrayListMultimap.<Tag, Money>create());
-				}
-				
-				for (TaggedAmount taggedAmount : txaction.getTaggedAmounts()) {
-					groupedSplitAmounts.get(interval).put(taggedAmount.getTag(), taggedAmount.getConvertedAmount(currency, exchangeRateMap));
+		final Set<Tag> validFilteredTags = fixNullTags(filteredTags);
+		return summarize(ConvertedTxactions.convert(frame, rows, currency, validFilteredTags, exchangeRateMap),
+				dateRange, intervalType);
+	}
+	
+	public ImmutableMap<Interval, MonetarySummaryWithSplits> summarize(ConvertedTxactions txactions,
+		Interval dateRange, IntervalType intervalType) {
+
+		final Currency currency = txactions.getCurrency();
+		final Map<Interval, MonetarySummaryAccumulator> groupedAmounts = Maps.newHashMap();
+		final Map<Interval, Map<Tag, MonetarySummaryAccumulator>> groupedSplitAmounts = Maps.newHashMap();
+		for (int i = 0; i < txactions.size(); i++) {
+			final Interval interval = intervalType.currentInterval(txactions.getDatePosted(i));
+			
+			MonetarySummaryAccumulator amounts = groupedAmounts.get(interval);
+			if (amounts == null) {
+				amounts = new MonetarySummaryAccumulator(currency);
+				groupedAmounts.put(interval, amounts);
+				groupedSplitAmounts.put(interval, Maps.<Tag, MonetarySummaryAccumulator>newHashMap());
+			}
+			amounts.add(txactions.getFilteredAmount(i));
+			
+			final Map<Tag, MonetarySummaryAccumulator> splits = groupedSplitAmounts.get(interval);
+			for (int j = txactions.getTaggedAmountsStart(i); j < txactions.getTaggedAmountsEnd(i); j++) {
+				final Tag tag = txactions.getTag(txactions.getTagId(j));
+				MonetarySummaryAccumulator splitAmounts = splits.get(tag);
+				if (splitAmounts == null) {
+					splitAmounts = new MonetarySummaryAccumulator(currency);
+					splits.put(tag, splitAmounts);
 				}
+				splitAmounts.add(txactions.getTaggedAmount(j));
 			}
 		}
 		
 		final ImmutableMap.Builder<Interval, MonetarySummaryWithSplits> results = ImmutableMap.builder();
 		
 		for (Interval summaryInterval : intervalType.getIntervals(dateRange)) {
-			final Collection<Money> amounts = groupedAmounts.get(summaryInterval);
-			final Multimap<Tag, Money> splits = groupedSplitAmounts.get(summaryInterval);
-			results.put(summaryInterval, MonetarySummaryWithSplits.summarize(amounts, currency, splits == null ? ArrayListMultimap.<Tag, Money>create() : splits));
+			MonetarySummaryAccumulator amounts = groupedAmounts.get(summaryInterval);
+			Map<Tag, MonetarySummaryAccumulator> splits = groupedSplitAmounts.get(summaryInterval);
+			if (amounts == null) {
+				amounts = new MonetarySummaryAccumulator(currency);
+				splits = ImmutableMap.of();
+			}
+			
+			final ImmutableMap.Builder<Tag, MonetarySummary> splitSummaries = ImmutableMap.builder();
+			for (Map.Entry<Tag, MonetarySummaryAccumulator> split : splits.entrySet()) {
+				splitSummaries.put(split.getKey(), split.getValue().toSummary());
+			}
+			results.put(summaryInterval, new MonetarySummaryWithSplits(amounts.getSpending(),
+					amounts.getEarnings(), splitSummaries.build()));
 		}
 
 		return results.build();
@@ -72,8 +107,4 @@ public class IntervalSummarizer {
 		
 		return filteredTags;
 	}
-
-	private boolean isAnalyzable(Txaction txaction) {
-		return !(txaction.isDeleted() || txaction.isTransfer() || txaction.isDisabled());
-	}
 }
@@ -0,0 +1,276 @@
+package com.wesabe.api.accounts.analytics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeUtils;
+import org.joda.time.Interval;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.wesabe.api.accounts.dao.TxactionDAO;
+import com.wesabe.api.accounts.entities.Account;
+import com.wesabe.api.accounts.entities.Tag;
+
+/**
+ * A store of daily {@link MonetarySummaryWithSplits}s for each
+ * {@link Account}, used to summarize an account's transactions by week, month,
+ * quarter, or year without loading the transactions of intervals which have
+ * already closed.
+ * <p>
+ * Each account's days are summarized the first time they're needed, in the
+ * currency and with the ignored tags of the request, and the rollup only ever
+ * loads the days it doesn't already have &mdash; as intervals close, their
+ * days are added to the rollup. The interval which contains the current
+ * time is always summarized from its transactions. Rollups are rebuilt after
+ * {@link #MAX_AGE_MILLIS}, or when {@link #invalidate(Account)} is called, to
+ * pick up any edits to older transactions, and whenever the summarizer's
+ * exchange rates are a different version than the ones the days were
+ * converted with.
+ * <p>
+ * The rollup holds at most {@link #DEFAULT_MAX_DAYS} days across all accounts;
+ * the least recently used accounts are discarded first.
+ */
+@Singleton
+public class IntervalSummaryRollup {
+	public static final long MAX_AGE_MILLIS = 60 * 60 * 1000;
+	public static final int DEFAULT_MAX_DAYS = 250000;
+
+	private static class Key {
+		private final Integer accountId;
+		private final Currency currency;
+		private final Set<Tag> ignoredTags;
+
+		public Key(Integer accountId, Currency currency, Set<Tag> ignoredTags) {
+			this.accountId = accountId;
+			this.currency = currency;
+			this.ignoredTags = ignoredTags;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(accountId, currency, ignoredTags);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof Key) {
+				final Key other = (Key) obj;
+				return Objects.equal(accountId, other.accountId) && currency.equals(other.currency)
+						&& ignoredTags.equals(other.ignoredTags);
+			}
+
+			return false;
+		}
+	}
+
+	private static class Entry {
+		private final SortedMap<DateTime, MonetarySummaryWithSplits> days =
+							new TreeMap<DateTime, MonetarySummaryWithSplits>();
+		private final long createdAt;
+		private final long ratesVersion;
+		private DateTime start, end;
+		private int weight;
+
+		public Entry(long createdAt, long ratesVersion) {
+			this.createdAt = createdAt;
+			this.ratesVersion = ratesVersion;
+		}
+	}
+
+	private final TxactionDAO txactionDAO;
+	private final int maxDays;
+	private final Map<Key, Entry> entries = Collections.synchronizedMap(
+		new LinkedHashMap<Key, Entry>(16, 0.75f, true)
+	);
+	private int totalDays = 0;
+
+	@Inject
+	public IntervalSummaryRollup(TxactionDAO txactionDAO) {
+		this(txactionDAO, DEFAULT_MAX_DAYS);
+	}
+
+	public IntervalSummaryRollup(TxactionDAO txactionDAO, int maxDays) {
+		this.txactionDAO = txactionDAO;
+		this.maxDays = maxDays;
+	}
+
+	/**
+	 * Summarizes the transactions in {@code accounts} by {@code intervalType},
+	 * exactly as {@link IntervalSummarizer#summarize(Iterable, Interval, IntervalType, Currency, Set)}
+	 * would.
+	 *
+	 * @param accounts the accounts to summarize
+	 * @param dateRange the range of intervals to summarize
+	 * @param intervalType the type of intervals to summarize by
+	 * @param currency the currency to summarize in
+	 * @param ignoredTags the tags whose amounts should be ignored, or
+	 * 			{@code null}
+	 * @param summarizer the summarizer to summarize transactions with
+	 * @return a summary of each interval in {@code dateRange}
+	 */
+	public ImmutableMap<Interval, MonetarySummaryWithSplits> summarize(Collection<Account> accounts,
+			Interval dateRange, IntervalType intervalType, Currency currency, Set<Tag> ignoredTags,
+			IntervalSummarizer summarizer) {
+
+		final DateTime now = new DateTime(DateTimeUtils.currentTimeMillis());
+		final DateTime openStart = intervalType.currentInterval(now).getStart();
+		final Interval closedRange = new Interval(dateRange.getStart(),
+				max(dateRange.getStart(), min(openStart, dateRange.getEnd())));
+
+		Map<Interval, MonetarySummaryWithSplits> openSummaries = ImmutableMap.of();
+		if (closedRange.getEnd().isBefore(dateRange.getEnd())) {
+			final Interval openRange = new Interval(closedRange.getEnd(), dateRange.getEnd());
+			openSummaries = summarizer.summarize(txactionDAO.findTxactionsInDateRange(accounts, openRange),
+					openRange, intervalType, currency, ignoredTags);
+		}
+
+		final List<SortedMap<DateTime, MonetarySummaryWithSplits>> closedDays = Lists.newArrayList();
+		if (closedRange.toDurationMillis() > 0) {
+			final Set<Tag> validIgnoredTags = (ignoredTags == null) ? ImmutableSet.<Tag>of() : ImmutableSet.copyOf(ignoredTags);
+			for (Account account : accounts) {
+				closedDays.add(getDays(account, closedRange, currency, validIgnoredTags, summarizer));
+			}
+		}
+
+		final ImmutableMap.Builder<Interval, MonetarySummaryWithSplits> results = ImmutableMap.builder();
+		for (Interval interval : intervalType.getIntervals(dateRange)) {
+			final MonetarySummaryWithSplits openSummary = openSummaries.get(interval);
+			if (openSummary != null) {
+				results.put(interval, openSummary);
+			} else {
+				final List<MonetarySummaryWithSplits> days = Lists.newArrayList();
+				for (SortedMap<DateTime, MonetarySummaryWithSplits> accountDays : closedDays) {
+					days.addAll(accountDays.subMap(interval.getStart(), interval.getEnd()).values());
+				}
+				results.put(interval, MonetarySummaryWithSplits.combineWithSplits(days, currency));
+			}
+		}
+
+		return results.build();
+	}
+
+	/**
+	 * Discards the rollups for {@code account}.
+	 */
+	public void invalidate(Account account) {
+		synchronized (entries) {
+			for (Key key : ImmutableList.copyOf(entries.keySet())) {
+				if (Objects.equal(key.accountId, account.getId())) {
+					totalDays -= entries.remove(key).weight;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the non-empty days of {@code account} in {@code range}, summarizing
+	 * any days the rollup doesn't have yet.
+	 */
+	private SortedMap<DateTime, MonetarySummaryWithSplits> getDays(Account account, Interval range,
+			Currency currency, Set<Tag> ignoredTags, IntervalSummarizer summarizer) {
+		final Key key = new Key(account.getId(), currency, ignoredTags);
+		final Entry entry = getEntry(key, summarizer.getExchangeRateVersion());
+		synchronized (entry) {
+			final int oldSize = entry.days.size();
+			if (entry.start == null) {
+				addDays(entry, account, range, currency, ignoredTags, summarizer);
+				entry.start = range.getStart();
+				entry.end = range.getEnd();
+			}
+
+			if (range.getStart().isBefore(entry.start)) {
+				addDays(entry, account, new Interval(range.getStart(), entry.start), currency, ignoredTags, summarizer);
+				entry.start = range.getStart();
+			}
+
+			if (range.getEnd().isAfter(entry.end)) {
+				addDays(entry, account, new Interval(entry.end, range.getEnd()), currency, ignoredTags, summarizer);
+				entry.end = range.getEnd();
+			}
+
+			addWeight(key, entry, entry.days.size() - oldSize);
+			return ImmutableSortedMap.copyOf(entry.days.subMap(range.getStart(), range.getEnd()));
+		}
+	}
+
+	private void addDays(Entry entry, Account account, Interval range, Currency currency,
+			Set<Tag> ignoredTags, IntervalSummarizer summarizer) {
+		final Map<Interval, MonetarySummaryWithSplits> days = summarizer.summarize(
+				txactionDAO.findTxactionsInDateRange(ImmutableList.of(account), range),
+				range, IntervalType.DAILY, currency, ignoredTags);
+
+		for (Map.Entry<Interval, MonetarySummaryWithSplits> day : days.entrySet()) {
+			final MonetarySummaryWithSplits summary = day.getValue();
+			if ((summary.getNet().getCount() > 0) || !summary.getSplitSummaries().isEmpty()) {
+				entry.days.put(day.getKey().getStart(), summary);
+			}
+		}
+	}
+
+	private Entry getEntry(Key key, long ratesVersion) {
+		final long now = DateTimeUtils.currentTimeMillis();
+		synchronized (entries) {
+			final Entry entry = entries.get(key);
+			if ((entry != null) && ((now - entry.createdAt) < MAX_AGE_MILLIS)
+					&& (entry.ratesVersion == ratesVersion)) {
+				return entry;
+			}
+
+			final Entry newEntry = new Entry(now, ratesVersion);
+			final Entry oldEntry = entries.put(key, newEntry);
+			if (oldEntry != null) {
+				totalDays -= oldEntry.weight;
+			}
+			return newEntry;
+		}
+	}
+
+	/**
+	 * Counts {@code days} more days against {@code entry}, then discards the
+	 * least recently used entries until the rollup is back under its limit.
+	 * Entries which have already been discarded aren't counted.
+	 */
+	private void addWeight(Key key, Entry entry, int days) {
+		synchronized (entries) {
+			if (entries.get(key) != entry) {
+				return;
+			}
+
+			entry.weight += days;
+			totalDays += days;
+
+			final Iterator<Entry> eldest = entries.values().iterator();
+			while ((totalDays > maxDays) && eldest.hasNext()) {
+				final Entry candidate = eldest.next();
+				if (candidate != entry) {
+					totalDays -= candidate.weight;
+					eldest.remove();
+				}
+			}
+		}
+	}
+
+	private static DateTime min(DateTime a, DateTime b) {
+		return a.isBefore(b) ? a : b;
+	}
+
+	private static DateTime max(DateTime a, DateTime b) {
+		return a.isAfter(b) ? a : b;
+	}
+}
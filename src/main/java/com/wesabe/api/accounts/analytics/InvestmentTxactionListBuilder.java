@@ -14,7 +14,7 @@ import com.wesabe.api.accounts.entities.InvestmentSecurity;
 import com.wesabe.api.accounts.entities.InvestmentTxaction;
 import com.wesabe.api.accounts.entities.InvestmentTxactionList;
 import com.wesabe.api.accounts.entities.InvestmentTxactionListItem;
-import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+import com.wesabe.api.util.money.CurrencyExchangeRates;
 
 @ProvidedBy(InvestmentTxactionListBuilderProvider.class)
 public class InvestmentTxactionListBuilder {
@@ -22,7 +22,7 @@ public class InvestmentTxactionListBuilder {
 	private Collection<String> investmentSecurityNames = ImmutableSet.of();
 	private int offset = 0;
 	private int limit = 0;
-	private CurrencyExchangeRateMap exchangeRateMap;
+	private CurrencyExchangeRates exchangeRateMap;
 	
 	public InvestmentTxactionList build(Collection<InvestmentTxaction> investmentTxactions) {
 		InvestmentTxactionList investmentTxactionList = new InvestmentTxactionList();
@@ -153,12 +153,12 @@ public class InvestmentTxactionListBuilder {
 		return this;
 	}
 
-	public InvestmentTxactionListBuilder setCurrencyExchangeRateMap(CurrencyExchangeRateMap exchangeRateMap) {
+	public InvestmentTxactionListBuilder setCurrencyExchangeRateMap(CurrencyExchangeRates exchangeRateMap) {
 		this.exchangeRateMap = exchangeRateMap;
 		return this;
 	}
 
-	public CurrencyExchangeRateMap getCurrencyExchangeRateMap() {
+	public CurrencyExchangeRates getCurrencyExchangeRateMap() {
 		return exchangeRateMap;
 	}
 }
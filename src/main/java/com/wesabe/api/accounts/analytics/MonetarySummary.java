@@ -4,27 +4,55 @@ import java.util.Collection;
 import java.util.Currency;
 
 import com.wesabe.api.util.money.Money;
+import com.wesabe.api.util.money.MoneyAccumulator;
 
 public class MonetarySummary {
 	private final SumOfMoney spending, earnings, net;
 	
 	public static MonetarySummary summarize(Collection<Money> amounts, Currency currency) {
 		int spendingCount = 0, earningsCount = 0;
-		Money spendingSum = Money.zero(currency), earningsSum = Money.zero(currency);
+		final MoneyAccumulator spendingSum = new MoneyAccumulator(currency);
+		final MoneyAccumulator earningsSum = new MoneyAccumulator(currency);
 		
 		for (Money amount : amounts) {
 			if (amount.signum() > 0) {
 				earningsCount++;
-				earningsSum = earningsSum.add(amount);
+				earningsSum.add(amount);
 			} else if (amount.signum() < 0) {
 				spendingCount++;
-				spendingSum = spendingSum.add(amount.abs());
+				spendingSum.subtract(amount);
 			}
 		}
 		
 		return new MonetarySummary(
-				new SumOfMoney(spendingSum, spendingCount),
-				new SumOfMoney(earningsSum, earningsCount)
+				new SumOfMoney(spendingSum.toMoney(), spendingCount),
+				new SumOfMoney(earningsSum.toMoney(), earningsCount)
+		);
+	}
+	
+	/**
+	 * Combines several summaries into one, as if the amounts they summarize
+	 * had been summarized together.
+	 * 
+	 * @param summaries the summaries to combine
+	 * @param currency the currency of the summaries
+	 * @return a summary of all the amounts
+	 */
+	public static MonetarySummary combine(Iterable<? extends MonetarySummary> summaries, Currency currency) {
+		int spendingCount = 0, earningsCount = 0;
+		final MoneyAccumulator spendingSum = new MoneyAccumulator(currency);
+		final MoneyAccumulator earningsSum = new MoneyAccumulator(currency);
+		
+		for (MonetarySummary summary : summaries) {
+			spendingCount += summary.getSpending().getCount();
+			spendingSum.add(summary.getSpending().getAmount());
+			earningsCount += summary.getEarnings().getCount();
+			earningsSum.add(summary.getEarnings().getAmount());
+		}
+		
+		return new MonetarySummary(
+				new SumOfMoney(spendingSum.toMoney(), spendingCount),
+				new SumOfMoney(earningsSum.toMoney(), earningsCount)
 		);
 	}
 	
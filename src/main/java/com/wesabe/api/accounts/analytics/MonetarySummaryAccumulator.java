@@ -0,0 +1,43 @@
+package com.wesabe.api.accounts.analytics;
+
+import java.util.Currency;
+
+import com.wesabe.api.util.money.MoneyAccumulator;
+
+/**
+ * A running {@link MonetarySummary} of amounts in minor units, as stored in
+ * {@link ConvertedTxactions}.
+ *
+ * Not thread-safe.
+ */
+class MonetarySummaryAccumulator {
+	private final MoneyAccumulator spendingSum, earningsSum;
+	private int spendingCount = 0, earningsCount = 0;
+
+	public MonetarySummaryAccumulator(Currency currency) {
+		this.spendingSum = new MoneyAccumulator(currency);
+		this.earningsSum = new MoneyAccumulator(currency);
+	}
+
+	public void add(long amount) {
+		if (amount > 0) {
+			earningsCount++;
+			earningsSum.addMinorUnits(amount);
+		} else if (amount < 0) {
+			spendingCount++;
+			spendingSum.addMinorUnits(-amount);
+		}
+	}
+
+	public SumOfMoney getSpending() {
+		return new SumOfMoney(spendingSum.toMoney(), spendingCount);
+	}
+
+	public SumOfMoney getEarnings() {
+		return new SumOfMoney(earningsSum.toMoney(), earningsCount);
+	}
+
+	public MonetarySummary toSummary() {
+		return new MonetarySummary(getSpending(), getEarnings());
+	}
+}
@@ -4,24 +4,27 @@ import java.util.Collection;
 import java.util.Currency;
 import java.util.Map;
 
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multimap;
 import com.wesabe.api.accounts.entities.Tag;
 import com.wesabe.api.util.money.Money;
+import com.wesabe.api.util.money.MoneyAccumulator;
 
 public class MonetarySummaryWithSplits extends MonetarySummary {
 	
 	public static MonetarySummaryWithSplits summarize(Collection<Money> amounts, Currency currency, Multimap<Tag, Money> splits) {
 		int spendingCount = 0, earningsCount = 0;
-		Money spendingSum = Money.zero(currency), earningsSum = Money.zero(currency);
+		final MoneyAccumulator spendingSum = new MoneyAccumulator(currency);
+		final MoneyAccumulator earningsSum = new MoneyAccumulator(currency);
 		
 		for (Money amount : amounts) {
 			if (amount.signum() > 0) {
 				earningsCount++;
-				earningsSum = earningsSum.add(amount);
+				earningsSum.add(amount);
 			} else if (amount.signum() < 0) {
 				spendingCount++;
-				spendingSum = spendingSum.add(amount.abs());
+				spendingSum.subtract(amount);
 			}
 		}
 		
@@ -32,12 +35,37 @@ public class MonetarySummaryWithSplits extends MonetarySummary {
 		}
 		
 		return new MonetarySummaryWithSplits(
-				new SumOfMoney(spendingSum, spendingCount),
-				new SumOfMoney(earningsSum, earningsCount),
+				new SumOfMoney(spendingSum.toMoney(), spendingCount),
+				new SumOfMoney(earningsSum.toMoney(), earningsCount),
 				splitSummaries.build()
 		);
 	}
 	
+	/**
+	 * Combines several summaries into one, as if the amounts and splits they
+	 * summarize had been summarized together.
+	 * 
+	 * @param summaries the summaries to combine
+	 * @param currency the currency of the summaries
+	 * @return a summary of all the amounts and splits
+	 */
+	public static MonetarySummaryWithSplits combineWithSplits(Iterable<MonetarySummaryWithSplits> summaries, Currency currency) {
+		final Multimap<Tag, MonetarySummary> splits = ArrayListMultimap.create();
+		for (MonetarySummaryWithSplits summary : summaries) {
+			for (Map.Entry<Tag, MonetarySummary> split : summary.getSplitSummaries().entrySet()) {
+				splits.put(split.getKey(), split.getValue());
+			}
+		}
+		
+		final ImmutableMap.Builder<Tag, MonetarySummary> splitSummaries = ImmutableMap.builder();
+		for (Tag tag : splits.keySet()) {
+			splitSummaries.put(tag, MonetarySummary.combine(splits.get(tag), currency));
+		}
+		
+		final MonetarySummary total = MonetarySummary.combine(summaries, currency);
+		return new MonetarySummaryWithSplits(total.getSpending(), total.getEarnings(), splitSummaries.build());
+	}
+	
 	private final Map<Tag, MonetarySummary> splitSummaries;
 	
 	public MonetarySummaryWithSplits(SumOfMoney spending, SumOfMoney earnings, Map<Tag, MonetarySummary> splitSummaries) {
@@ -1,57 +1,131 @@
 package com.wesabe.api.accounts.analytics;
 
+import java.math.BigDecimal;
 import java.util.Collection;
 import java.util.Currency;
-import java.util.NavigableMap;
-import java.util.Set;
-import java.util.Map.Entry;
+import java.util.List;
+import java.util.Map;
 
+import org.hibernate.ScrollableResults;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
+import com.wesabe.api.accounts.dao.TxactionCursor;
+import com.wesabe.api.accounts.dao.TxactionDAO;
 import com.wesabe.api.accounts.entities.Account;
-import com.wesabe.api.accounts.entities.Tag;
+import com.wesabe.api.accounts.entities.AccountBalance;
 import com.wesabe.api.accounts.entities.Txaction;
-import com.wesabe.api.accounts.entities.TxactionList;
-import com.wesabe.api.accounts.entities.TxactionListItem;
+import com.wesabe.api.util.money.CurrencyExchangeRateSnapshot;
 import com.wesabe.api.util.money.Money;
+import com.wesabe.api.util.money.MoneyAccumulator;
 
+/**
+ * Summarizes the total balance of a set of {@link Account}s at the end of
+ * each interval in a date range.
+ * <p>
+ * The accounts' balances at the end of the range, before any transaction
+ * posted at its end, are looked up in the {@link BalanceCheckpointIndex}, and the amounts of the {@link Txaction}s
+ * posted during the range are then walked once, newest first, subtracting
+ * each from its account's running balance. Only the balances at each interval
+ * boundary are kept, so the cost of a summary grows with the number of
+ * transactions and intervals, but never allocates anything per transaction.
+ */
 public class NetWorthSummarizer {
-	private final Provider<TxactionListBuilder> listBuilderProvider;
-	
+	private final TxactionDAO txactionDAO;
+	private final BalanceCheckpointIndex checkpointIndex;
+	private final Provider<CurrencyExchangeRateSnapshot> exchangeRateProvider;
+
 	@Inject
-	public NetWorthSummarizer(Provider<TxactionListBuilder> listBuilderProvider) {
-		this.listBuilderProvider = listBuilderProvider;
+	public NetWorthSummarizer(TxactionDAO txactionDAO, BalanceCheckpointIndex checkpointIndex,
+			Provider<CurrencyExchangeRateSnapshot> exchangeRateProvider) {
+		this.txactionDAO = txactionDAO;
+		this.checkpointIndex = checkpointIndex;
+		this.exchangeRateProvider = exchangeRateProvider;
 	}
-	
-	public ImmutableMap<Interval, Money> summarize(Collection<Account> accounts, Collection<Txaction> txactions,
-		Interval dateRange, IntervalType intervalType, Currency currency, Set<Tag> filteredTags) {
-		
-		final TxactionListBuilder txactionListBuilder = listBuilderProvider.get();
-		txactionListBuilder.setAccounts(accounts);
-		txactionListBuilder.setCurrency(currency);
-		txactionListBuilder.setCalculateBalances(true);
-		
-		final TxactionList txactionList = txactionListBuilder.build(txactions);
-		final NavigableMap<DateTime, Money> balancesByDate = Maps.newTreeMap();
-		for (TxactionListItem listItem : txactionList) {
-			balancesByDate.put(listItem.getTxaction().getDatePosted(), listItem.getBalance());
+
+	/**
+	 * Returns the total balance of {@code accounts} at the end of each of the
+	 * intervals of type {@code intervalType} in {@code dateRange}, converted
+	 * to {@code currency} at the end of the interval. Accounts without
+	 * balances are skipped.
+	 *
+	 * @param accounts a set of accounts
+	 * @param dateRange the date range to summarize
+	 * @param intervalType the type of interval to summarize by
+	 * @param currency the currency of the summaries
+	 * @return a map of each interval to the net worth at its end, in order
+	 */
+	public ImmutableMap<Interval, Money> summarize(Collection<Account> accounts,
+		Interval dateRange, IntervalType intervalType, Currency currency) {
+
+		final List<Interval> intervals = Lists.newArrayList(intervalType.getIntervals(dateRange));
+		if (intervals.isEmpty()) {
+			return ImmutableMap.of();
 		}
-		
-		final ImmutableMap.Builder<Interval, Money> builder = ImmutableMap.builder();
-		for (Interval interval : intervalType.getIntervals(dateRange)) {
-			final Entry<DateTime, Money> entry = balancesByDate.floorEntry(interval.getEnd());
-			if (entry != null) {
-				builder.put(interval, entry.getValue());
-			} else {
-				builder.put(interval, Money.zero(currency));
+
+		final DateTime start = intervals.get(0).getStart();
+		final DateTime end = intervals.get(intervals.size() - 1).getEnd();
+		final Map<Account, AccountBalance> endingBalances = checkpointIndex.getBalancesAfter(
+				accounts, TxactionCursor.startOf(end));
+
+		final List<Account> balancedAccounts = Lists.newArrayList(endingBalances.keySet());
+		final Currency[] currencies = new Currency[balancedAccounts.size()];
+		final BigDecimal[] balances = new BigDecimal[balancedAccounts.size()];
+		final Map<Integer, Integer> indexesById = Maps.newHashMap();
+		for (int i = 0; i < balancedAccounts.size(); i++) {
+			final Money balance = endingBalances.get(balancedAccounts.get(i)).getBalance();
+			currencies[i] = balance.getCurrency();
+			balances[i] = balance.getValue();
+			indexesById.put(balancedAccounts.get(i).getId(), i);
+		}
+
+		final CurrencyExchangeRateSnapshot exchangeRates = exchangeRateProvider.get();
+		final Money[] netWorths = new Money[intervals.size()];
+		int boundary = intervals.size() - 1;
+
+		if (!balancedAccounts.isEmpty()) {
+			final ScrollableResults results = txactionDAO.scrollPostedAmounts(balancedAccounts, new Interval(start, end));
+			try {
+				while (results.next()) {
+					final DateTime datePosted = (DateTime) results.get(1);
+					while ((boundary >= 0) && datePosted.isBefore(intervals.get(boundary).getEnd())) {
+						netWorths[boundary] = total(currencies, balances, exchangeRates, currency, intervals.get(boundary).getEnd());
+						boundary--;
+					}
+
+					final Integer index = indexesById.get(results.get(0));
+					if (index != null) {
+						balances[index] = balances[index].subtract((BigDecimal) results.get(2));
+					}
+				}
+			} finally {
+				results.close();
 			}
 		}
-		
+
+		while (boundary >= 0) {
+			netWorths[boundary] = total(currencies, balances, exchangeRates, currency, intervals.get(boundary).getEnd());
+			boundary--;
+		}
+
+		final ImmutableMap.Builder<Interval, Money> builder = ImmutableMap.builder();
+		for (int i = 0; i < intervals.size(); i++) {
+			builder.put(intervals.get(i), netWorths[i]);
+		}
 		return builder.build();
 	}
+
+	private Money total(Currency[] currencies, BigDecimal[] balances,
+			CurrencyExchangeRateSnapshot exchangeRates, Currency currency, DateTime date) {
+		final MoneyAccumulator total = new MoneyAccumulator(currency);
+		for (int i = 0; i < balances.length; i++) {
+			total.add(new Money(balances[i], currencies[i]).convert(exchangeRates, currency, date));
+		}
+		return total.toMoney();
+	}
 }
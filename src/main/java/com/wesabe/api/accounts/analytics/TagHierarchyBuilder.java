@@ -1,6 +1,7 @@
 package com.wesabe.api.accounts.analytics;
 
 import java.math.BigDecimal;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -9,12 +10,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
@@ -22,10 +24,10 @@ import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 import com.wesabe.api.accounts.analytics.TagHierarchy.Node;
 import com.wesabe.api.accounts.entities.Tag;
-import com.wesabe.api.accounts.entities.TaggedAmount;
 import com.wesabe.api.accounts.entities.Txaction;
-import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+import com.wesabe.api.util.money.CurrencyExchangeRateSnapshot;
 import com.wesabe.api.util.money.Money;
+import com.wesabe.api.util.money.MoneyAccumulator;
 
 public class TagHierarchyBuilder {
 	public enum TagImportanceScheme implements Comparator<Entry<Tag, SumOfMoney>>,
@@ -63,46 +65,52 @@ public class TagHierarchyBuilder {
             public SumOfMoney apply (MonetarySummary summary) {
                 return summary.getEarnings ();
             }
-        }, new Predicate<Txaction> () {
+        }) {
 
             @Override
-            public boolean apply (Txaction txaction) {
-                return txaction.getAmount ().signum () > 0;
+            public boolean matches (int signum) {
+                return signum > 0;
             }
-        }), 
+        }, 
         SPENDING(new Function<MonetarySummary, SumOfMoney> () {
 
             @Override
             public SumOfMoney apply (MonetarySummary summary) {
                 return summary.getSpending ();
             }
-        }, new Predicate<Txaction> () {
+        }) {
 
             @Override
-            public boolean apply (Txaction txaction) {
-                return txaction.getAmount ().signum () < 0;
+            public boolean matches (int signum) {
+                return signum < 0;
             }
-        }), 
+        }, 
         NET(new Function<MonetarySummary, SumOfMoney> () {
 
             @Override
             public SumOfMoney apply (MonetarySummary summary) {
                 return summary.getNet ();
             }
-        }, new Predicate<Txaction> () {
+        }) {
 
             @Override
-            public boolean apply (Txaction txaction) {
+            public boolean matches (int signum) {
                 return true;
             }
-        });
+        };
         private Function<MonetarySummary, SumOfMoney> getSumOfMoney;
 
         private Predicate<Txaction>                   matchesTransaction;
 
-        private HierarchyType(Function<MonetarySummary, SumOfMoney> sumFunction, Predicate<Txaction> matcher) {
+        private HierarchyType(Function<MonetarySummary, SumOfMoney> sumFunction) {
             this.getSumOfMoney = sumFunction;
-            this.matchesTransaction = matcher;
+            this.matchesTransaction = new Predicate<Txaction> () {
+
+                @Override
+                public boolean apply (Txaction txaction) {
+                    return matches (txaction.getAmount ().signum ());
+                }
+            };
         }
 
         public Function<MonetarySummary, SumOfMoney> sumOfMoney () {
@@ -112,6 +120,12 @@ public class TagHierarchyBuilder {
         public Predicate<Txaction> matcher () {
             return matchesTransaction;
         }
+
+        /**
+         * Returns {@code true} if a transaction whose amount has the signum
+         * {@code signum} belongs in this type of hierarchy.
+         */
+        public abstract boolean matches (int signum);
     }
 
 	public static final Tag OTHER = new Tag("other tags") {
@@ -128,17 +142,46 @@ public class TagHierarchyBuilder {
 		};
 	};
 	
+	/**
+	 * The nodes of a subtree built speculatively on another thread, the
+	 * rankings it was built against, and the tags it removed from them.
+	 */
+	private static class Subtree {
+		private final List<Node> nodes;
+		private final Map<Tag, Integer> tagRankings;
+		private final Set<Tag> removedTags;
+		
+		public Subtree(List<Node> nodes, Map<Tag, Integer> tagRankings, Set<Tag> removedTags) {
+			this.nodes = nodes;
+			this.tagRankings = tagRankings;
+			this.removedTags = removedTags;
+		}
+	}
+	
 	private final TagSummarizer tagSummarizer;
-	private final CurrencyExchangeRateMap exchangeRateMap;
+	private final CurrencyExchangeRateSnapshot exchangeRateMap;
+	private final TagHierarchyExecutor executor;
+	
+	public TagHierarchyBuilder(TagSummarizer tagSummarizer, CurrencyExchangeRateSnapshot exchangeRateMap) {
+		this(tagSummarizer, exchangeRateMap, TagHierarchyExecutor.sequential());
+	}
 	
 	@Inject
-	public TagHierarchyBuilder(TagSummarizer tagSummarizer, CurrencyExchangeRateMap exchangeRateMap) {
+	public TagHierarchyBuilder(TagSummarizer tagSummarizer, CurrencyExchangeRateSnapshot exchangeRateMap,
+		TagHierarchyExecutor executor) {
 		this.tagSummarizer = tagSummarizer;
 		this.exchangeRateMap = exchangeRateMap;
+		this.executor = executor;
 	}
 	
 	public TagHierarchy build(Iterable<Txaction> txactions, Currency currency, TagImportanceScheme tagImportanceScheme, HierarchyType hierarchyType, Set<Tag> filteredTags, int maxTags) {
-		final Map<Tag, MonetarySummary> tagSummaries = tagSummarizer.summarize(txactions, currency);
+		return build(ConvertedTxactions.convert(txactions, currency, filteredTags, exchangeRateMap),
+			tagImportanceScheme, hierarchyType, maxTags);
+	}
+	
+	public TagHierarchy build(ConvertedTxactions txactions, TagImportanceScheme tagImportanceScheme, HierarchyType hierarchyType, int maxTags) {
+		final Currency currency = txactions.getCurrency();
+		final Map<Tag, MonetarySummary> tagSummaries = tagSummarizer.summarize(txactions);
 		final Map<Tag, Integer> tagRankings = Maps.newHashMap(
 			Maps.transformValues(
 				Maps.transformValues(tagSummaries, hierarchyType.sumOfMoney ()),
@@ -146,50 +189,41 @@ public class TagHierarchyBuilder {
 			)
 		);
 		
-		Money total = Money.zero(currency);
+		final MoneyAccumulator total = new MoneyAccumulator(currency);
 		int totalCount = 0;
-		final List<Txaction> taggedTxactions = Lists.newArrayList();
-		final List<Txaction> untaggedTxactions = Lists.newArrayList();
-		for (Txaction txaction : Iterables.filter(txactions, hierarchyType.matcher ())) {
-			if (isAnalyzable(txaction) && !hasFilteredTag(txaction, filteredTags)) {
-				total = total.add(txaction.getConvertedAmountByFilteringTags(filteredTags, currency, exchangeRateMap).abs());
+		final List<Integer> taggedTxactions = Lists.newArrayList();
+		final List<Integer> untaggedTxactions = Lists.newArrayList();
+		for (int i = 0; i < txactions.size(); i++) {
+			if (hierarchyType.matches(txactions.getSignum(i)) && !txactions.hasFilteredTag(i)) {
+				total.addMinorUnits(Math.abs(txactions.getFilteredAmount(i)));
 				totalCount++;
-				if (txaction.isTagged()) {
-					taggedTxactions.add(txaction);
+				if (txactions.isTagged(i)) {
+					taggedTxactions.add(i);
 				} else {
-					untaggedTxactions.add(txaction);
+					untaggedTxactions.add(i);
 				}
 			}
 		}
 		
-		final List<Node> nodes = Lists.newArrayList(build(tagRankings, taggedTxactions, tagImportanceScheme, currency, maxTags));
-		Money sum = Money.zero(currency);
-		for (Txaction txaction : untaggedTxactions) {
-			sum = sum.add(txaction.getConvertedAmount(currency, exchangeRateMap).abs());
+		final List<Node> nodes = Lists.newArrayList(build(txactions, tagRankings, taggedTxactions, tagImportanceScheme, maxTags));
+		final MoneyAccumulator sum = new MoneyAccumulator(currency);
+		for (int i : untaggedTxactions) {
+			sum.addMinorUnits(Math.abs(txactions.getAmount(i)));
 		}
 		
 		if (!untaggedTxactions.isEmpty()) {
-			nodes.add(new Node(UNTAGGED, new SumOfMoney(sum, untaggedTxactions.size()), ImmutableList.<Node>of()));
+			nodes.add(new Node(UNTAGGED, new SumOfMoney(sum.toMoney(), untaggedTxactions.size()), ImmutableList.<Node>of()));
 		}
 		
-		return new TagHierarchy(nodes, new SumOfMoney(total, totalCount));
+		return new TagHierarchy(nodes, new SumOfMoney(total.toMoney(), totalCount));
 	}
 
-	private boolean hasFilteredTag(Txaction txaction, Set<Tag> filteredTags) {
-		for (TaggedAmount taggedAmount : txaction.getTaggedAmounts()) {
-			if (filteredTags.contains(taggedAmount.getTag())) {
-				return true;
-			}
-		}
-		return false;
-	}
-
-	private List<Node> build(Map<Tag, Integer> tagRankings, Collection<Txaction> txactions, TagImportanceScheme tagImportanceScheme, Currency currency, int maxTags) {
+	private List<Node> build(ConvertedTxactions txactions, Map<Tag, Integer> tagRankings, Collection<Integer> indexes, TagImportanceScheme tagImportanceScheme, int maxTags) {
 		// build multimap
-		final Multimap<Tag, Txaction> txactionsByTag = groupByMostImportantTags(txactions, tagRankings);
+		final Multimap<Tag, Integer> txactionsByTag = groupByMostImportantTags(txactions, indexes, tagRankings);
 		
 		// calculate the top tags for the multimap
-		final Set<Tag> topTags = calculateTopTags(txactionsByTag, tagImportanceScheme, currency, maxTags);
+		final Set<Tag> topTags = calculateTopTags(txactions, txactionsByTag, tagImportanceScheme, maxTags);
 		
 		// remove top tags from rankings
 		for (Tag tag : topTags) {
@@ -199,14 +233,18 @@ public class TagHierarchyBuilder {
 		// compress multimap to the top tags + "other"
 		compressToTopTags(txactionsByTag, topTags);
 		
+		// start building any large subtrees on other threads, against a
+		// snapshot of the rankings
+		final Map<Tag, Future<Subtree>> forks = fork(txactions, tagRankings, txactionsByTag, tagImportanceScheme, maxTags);
+		
 		// summarize each set of txactions
 		final List<Node> nodes = Lists.newArrayList();
 		for (Tag tag : txactionsByTag.keySet()) {
-			final Collection<Txaction> taggedTxactions = txactionsByTag.get(tag);
+			final Collection<Integer> taggedTxactions = txactionsByTag.get(tag);
 			
 			final Node node = new Node(tag,
-				new SumOfMoney(sumForTag(taggedTxactions, tag, currency), taggedTxactions.size()),
-				build(tagRankings, taggedTxactions, tagImportanceScheme, currency, maxTags)
+				new SumOfMoney(sumForTag(txactions, taggedTxactions, tag), taggedTxactions.size()),
+				join(txactions, tagRankings, taggedTxactions, forks.get(tag), tagImportanceScheme, maxTags)
 			);
 			nodes.add(node);
 		}
@@ -214,13 +252,76 @@ public class TagHierarchyBuilder {
 		return nodes;
 	}
 
-	private Set<Tag> calculateTopTags(Multimap<Tag, Txaction> txactionsByTag,
-		final TagImportanceScheme tagImportanceScheme, Currency currency, int maxTags) {
+	private Map<Tag, Future<Subtree>> fork(final ConvertedTxactions txactions, Map<Tag, Integer> tagRankings,
+		Multimap<Tag, Integer> txactionsByTag, final TagImportanceScheme tagImportanceScheme, final int maxTags) {
+		final Map<Tag, Future<Subtree>> forks = Maps.newHashMap();
+		Map<Tag, Integer> snapshot = null;
+		for (Tag tag : txactionsByTag.keySet()) {
+			if (executor.shouldFork(txactionsByTag.get(tag).size())) {
+				if (snapshot == null) {
+					snapshot = Collections.unmodifiableMap(Maps.newHashMap(tagRankings));
+				}
+				
+				final Map<Tag, Integer> snapshotRankings = snapshot;
+				final Collection<Integer> taggedTxactions = ImmutableList.copyOf(txactionsByTag.get(tag));
+				forks.put(tag, executor.fork(new Callable<Subtree>() {
+					@Override
+					public Subtree call() throws Exception {
+						final Map<Tag, Integer> rankings = Maps.newHashMap(snapshotRankings);
+						final List<Node> nodes = build(txactions, rankings, taggedTxactions, tagImportanceScheme, maxTags);
+						return new Subtree(nodes, snapshotRankings,
+							Sets.newHashSet(Sets.difference(snapshotRankings.keySet(), rankings.keySet())));
+					}
+				}));
+			}
+		}
+		return forks;
+	}
+
+	/**
+	 * Returns the forked subtree if it was built against the same rankings the
+	 * sequential build would have used, and builds the subtree again if not.
+	 * A subtree only ever reads the rankings of the tags on its own
+	 * transactions, so the snapshot is still good as long as none of those
+	 * tags have been removed since it was taken.
+	 */
+	private List<Node> join(ConvertedTxactions txactions, Map<Tag, Integer> tagRankings, Collection<Integer> indexes,
+		Future<Subtree> fork, TagImportanceScheme tagImportanceScheme, int maxTags) {
+		if (fork != null) {
+			final Subtree subtree = executor.join(fork);
+			if (!hasRemovedTags(txactions, indexes, subtree, tagRankings)) {
+				tagRankings.keySet().removeAll(subtree.removedTags);
+				return subtree.nodes;
+			}
+		}
+		
+		return build(txactions, tagRankings, indexes, tagImportanceScheme, maxTags);
+	}
+
+	private boolean hasRemovedTags(ConvertedTxactions txactions, Collection<Integer> indexes, Subtree subtree, Map<Tag, Integer> tagRankings) {
+		final BitSet tagIds = new BitSet(txactions.getTagCount());
+		for (int i : indexes) {
+			for (int j = txactions.getTaggedAmountsStart(i); j < txactions.getTaggedAmountsEnd(i); j++) {
+				tagIds.set(txactions.getTagId(j));
+			}
+		}
+		
+		for (int tagId = tagIds.nextSetBit(0); tagId >= 0; tagId = tagIds.nextSetBit(tagId + 1)) {
+			final Tag tag = txactions.getTag(tagId);
+			if (!tagRankings.containsKey(tag) && subtree.tagRankings.containsKey(tag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Set<Tag> calculateTopTags(ConvertedTxactions txactions, Multimap<Tag, Integer> txactionsByTag,
+		final TagImportanceScheme tagImportanceScheme, int maxTags) {
 		// sum up the transactions for each tag
 		final Map<Tag, SumOfMoney> sumsByTag = Maps.newHashMap();
 		for (Tag tag : txactionsByTag.keySet()) {
-			final Collection<Txaction> taggedTxactions = txactionsByTag.get(tag);
-			sumsByTag.put(tag, new SumOfMoney(sumForTag(taggedTxactions, tag, currency), taggedTxactions.size()));
+			final Collection<Integer> taggedTxactions = txactionsByTag.get(tag);
+			sumsByTag.put(tag, new SumOfMoney(sumForTag(txactions, taggedTxactions, tag), taggedTxactions.size()));
 		}
 		
 		// sort the tags using the tag importance scheme
@@ -238,7 +339,7 @@ public class TagHierarchyBuilder {
 		return topTags;
 	}
 
-	private void compressToTopTags(Multimap<Tag, Txaction> txactionsByTag, Set<Tag> topTags) {
+	private void compressToTopTags(Multimap<Tag, Integer> txactionsByTag, Set<Tag> topTags) {
 		for (Tag tag : Lists.newLinkedList(txactionsByTag.keySet())) {
 			if (!topTags.contains(tag)) {
 				txactionsByTag.putAll(OTHER, txactionsByTag.get(tag));
@@ -247,57 +348,56 @@ public class TagHierarchyBuilder {
 		}
 	}
 
-	private Multimap<Tag, Txaction> groupByMostImportantTags(Collection<Txaction> txactions, Map<Tag, Integer> tagRankings) {
+	private Multimap<Tag, Integer> groupByMostImportantTags(ConvertedTxactions txactions, Collection<Integer> indexes, Map<Tag, Integer> tagRankings) {
 		// add
-		final Multimap<Tag, Txaction> txactionsByTag = ArrayListMultimap.create();
-		for (Txaction txaction : txactions) {
-			final List<Tag> splitTags = Lists.newArrayListWithExpectedSize(txaction.getTaggedAmounts().size());
+		final Multimap<Tag, Integer> txactionsByTag = ArrayListMultimap.create();
+		for (int i : indexes) {
+			final int start = txactions.getTaggedAmountsStart(i), end = txactions.getTaggedAmountsEnd(i);
+			final List<Tag> splitTags = Lists.newArrayListWithExpectedSize(end - start);
 			int highestRanking = Integer.MAX_VALUE;
 			Tag highestTag = null;
 
-			for (TaggedAmount taggedAmount : txaction.getTaggedAmounts()) {
-				if (taggedAmount.isSplit()) {
-					splitTags.add(taggedAmount.getTag());
+			for (int j = start; j < end; j++) {
+				final Tag tag = txactions.getTag(txactions.getTagId(j));
+				if (txactions.isSplit(j)) {
+					splitTags.add(tag);
 				} else {
-					final Integer ranking = tagRankings.get(taggedAmount.getTag());
+					final Integer ranking = tagRankings.get(tag);
 					if ((ranking != null) && (ranking < highestRanking)) {
 						highestRanking = ranking;
-						highestTag = taggedAmount.getTag();
+						highestTag = tag;
 					}
 				}
 			}
 			
 			if (highestTag != null) {
-				txactionsByTag.put(highestTag, txaction);
+				txactionsByTag.put(highestTag, i);
 			}
 			
 			for (Tag tag : splitTags) {
 				if (tagRankings.containsKey(tag)) {
-					txactionsByTag.put(tag, txaction);
+					txactionsByTag.put(tag, i);
 				}
 			}
 		}
 		return txactionsByTag;
 	}
 
-	private Money sumForTag(final Collection<Txaction> txactions, Tag tag, Currency currency) {
-		Money sum = Money.zero(currency);
-		for (Txaction txaction : txactions) {
+	private Money sumForTag(ConvertedTxactions txactions, Collection<Integer> indexes, Tag tag) {
+		final MoneyAccumulator sum = new MoneyAccumulator(txactions.getCurrency());
+		final int tagId = txactions.getTagId(tag);
+		for (int i : indexes) {
 			if (tag == OTHER) {
-				sum = sum.add(txaction.getConvertedAmount(currency, exchangeRateMap).abs());
+				sum.addMinorUnits(Math.abs(txactions.getAmount(i)));
 			} else {
-				for (TaggedAmount taggedAmount : txaction.getTaggedAmounts()) {
-					if (tag.equals(taggedAmount.getTag())) {
-						sum = sum.add(taggedAmount.getConvertedAmount(currency, exchangeRateMap).abs());
+				for (int j = txactions.getTaggedAmountsStart(i); j < txactions.getTaggedAmountsEnd(i); j++) {
+					if (txactions.getTagId(j) == tagId) {
+						sum.addMinorUnits(Math.abs(txactions.getTaggedAmount(j)));
 					}
 				}
 			}
 			
 		}
-		return sum;
-	}
-	
-	private boolean isAnalyzable(Txaction txaction) {
-		return !(txaction.isDeleted() || txaction.isTransfer() || txaction.isDisabled());
+		return sum.toMoney();
 	}
 }
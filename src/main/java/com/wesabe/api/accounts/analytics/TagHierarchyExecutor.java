@@ -0,0 +1,114 @@
+package com.wesabe.api.accounts.analytics;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The threads which {@link TagHierarchyBuilder} builds large subtrees on.
+ * <p>
+ * Subtrees of at least {@link #getThreshold()} transactions are forked onto
+ * the executor's threads. A thread which joins a forked subtree that hasn't
+ * started yet builds it itself, so a subtree which forks its own subtrees
+ * never waits on work that no thread will pick up.
+ */
+public class TagHierarchyExecutor {
+	private static class DaemonThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			final Thread thread = new Thread(r, "tag-hierarchy-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+	/**
+	 * Returns an executor which builds every subtree on the calling thread.
+	 */
+	public static TagHierarchyExecutor sequential() {
+		return new TagHierarchyExecutor(null, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns an executor with {@code threads} threads, which forks subtrees
+	 * of at least {@code threshold} transactions. If {@code threads} is zero,
+	 * every subtree is built on the calling thread.
+	 */
+	public static TagHierarchyExecutor parallel(int threads, int threshold) {
+		if (threads <= 0) {
+			return sequential();
+		}
+		return new TagHierarchyExecutor(Executors.newFixedThreadPool(threads, new DaemonThreadFactory()), threshold);
+	}
+
+	private final ExecutorService executor;
+	private final int threshold;
+
+	/**
+	 * Creates a new {@link TagHierarchyExecutor}.
+	 *
+	 * @param executor the executor to fork subtrees onto, or {@code null} to
+	 * 			build every subtree on the calling thread
+	 * @param threshold the smallest number of transactions in a forked subtree
+	 */
+	public TagHierarchyExecutor(ExecutorService executor, int threshold) {
+		this.executor = executor;
+		this.threshold = Math.max(1, threshold);
+	}
+
+	/**
+	 * Returns the smallest number of transactions in a forked subtree.
+	 */
+	public int getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Returns {@code true} if a subtree of {@code size} transactions should be
+	 * forked.
+	 */
+	public boolean shouldFork(int size) {
+		return (executor != null) && (size >= threshold);
+	}
+
+	/**
+	 * Starts {@code task} on one of the executor's threads.
+	 */
+	public <T> Future<T> fork(Callable<T> task) {
+		final FutureTask<T> future = new FutureTask<T>(task);
+		executor.execute(future);
+		return future;
+	}
+
+	/**
+	 * Returns the result of a forked task, running it on the calling thread if
+	 * no other thread has started it yet.
+	 */
+	public <T> T join(Future<T> future) {
+		if (future instanceof FutureTask<?>) {
+			// a no-op if the task has already started
+			((FutureTask<T>) future).run();
+		}
+
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while building a tag hierarchy", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			} else if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+}
@@ -1,52 +1,83 @@
 package com.wesabe.api.accounts.analytics;
 
-import java.util.Collection;
 import java.util.Currency;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
-import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Multimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.inject.Inject;
 import com.wesabe.api.accounts.entities.Tag;
 import com.wesabe.api.accounts.entities.TaggedAmount;
 import com.wesabe.api.accounts.entities.Txaction;
-import com.wesabe.api.util.money.CurrencyExchangeRateMap;
-import com.wesabe.api.util.money.Money;
+import com.wesabe.api.util.money.CurrencyExchangeRateSnapshot;
 
 public class TagSummarizer {
-	private final CurrencyExchangeRateMap exchangeRateMap;
+	private final CurrencyExchangeRateSnapshot exchangeRateMap;
 
 	@Inject
-	public TagSummarizer(CurrencyExchangeRateMap exchangeRateMap) {
+	public TagSummarizer(CurrencyExchangeRateSnapshot exchangeRateMap) {
 		this.exchangeRateMap = exchangeRateMap;
 	}
 
 	public ImmutableMap<Tag, MonetarySummary> summarize(Iterable<Txaction> txactions, Currency currency) {
-		final Multimap<Tag, Money> groupedAmounts = ArrayListMultimap.create();
-		for (Txaction txaction : txactions) {
-			if (isAnalyzable(txaction)) {
-				for (TaggedAmount taggedAmount : txaction.getTaggedAmounts()) {
-					final Tag tag = taggedAmount.getTag();
-					final Money amount = taggedAmount.getConvertedAmount(currency, exchangeRateMap);
-					
-					groupedAmounts.put(tag, amount);
+		return summarize(ConvertedTxactions.convert(txactions, currency, null, exchangeRateMap));
+	}
+	
+	/**
+	 * Summarizes transactions as they're iterated over, without holding on to
+	 * any of them, so the memory used depends only on the number of tags.
+	 * The results are the same as {@link #summarize(Iterable, Currency)}'s.
+	 */
+	public ImmutableMap<Tag, MonetarySummary> summarize(Iterator<Txaction> txactions, Currency currency) {
+		final List<Tag> tags = Lists.newArrayList();
+		final Map<Tag, MonetarySummaryAccumulator> sums = Maps.newHashMap();
+		while (txactions.hasNext()) {
+			final Txaction txaction = txactions.next();
+			if (txaction.isDeleted() || txaction.isDisabled() || txaction.isTransfer()) {
+				continue;
+			}
+			
+			for (TaggedAmount taggedAmount : txaction.getTaggedAmounts()) {
+				MonetarySummaryAccumulator sum = sums.get(taggedAmount.getTag());
+				if (sum == null) {
+					sum = new MonetarySummaryAccumulator(currency);
+					sums.put(taggedAmount.getTag(), sum);
+					tags.add(taggedAmount.getTag());
 				}
+				sum.add(TxactionFrame.toUnits(taggedAmount.getConvertedAmount(currency, exchangeRateMap)));
 			}
 		}
 		
-		final ImmutableMap.Builder<Tag, MonetarySummary> results = ImmutableMap.builder();
-		for (Tag tag : groupedAmounts.keySet()) {
-			final Collection<Money> amounts = groupedAmounts.get(tag);
-			results.put(
-				tag,
-				MonetarySummary.summarize(amounts, currency)
-			);
+		final Map<Tag, MonetarySummary> results = Maps.newHashMap();
+		for (Tag tag : tags) {
+			results.put(tag, sums.get(tag).toSummary());
 		}
 		
-		return results.build();
+		return ImmutableMap.copyOf(results);
 	}
 	
-	private boolean isAnalyzable(Txaction txaction) {
-		return !(txaction.isDeleted() || txaction.isTransfer() || txaction.isDisabled());
+	public ImmutableMap<Tag, MonetarySummary> summarize(ConvertedTxactions txactions) {
+		final MonetarySummaryAccumulator[] sums = new MonetarySummaryAccumulator[txactions.getTagCount()];
+		for (int i = 0; i < txactions.size(); i++) {
+			for (int j = txactions.getTaggedAmountsStart(i); j < txactions.getTaggedAmountsEnd(i); j++) {
+				final int tagId = txactions.getTagId(j);
+				if (sums[tagId] == null) {
+					sums[tagId] = new MonetarySummaryAccumulator(txactions.getCurrency());
+				}
+				sums[tagId].add(txactions.getTaggedAmount(j));
+			}
+		}
+		
+		// tag ids are in order of first appearance, so the results are ordered
+		// just like a multimap of the amounts would be
+		final Map<Tag, MonetarySummary> results = Maps.newHashMap();
+		for (int tagId = 0; tagId < sums.length; tagId++) {
+			results.put(txactions.getTag(tagId), sums[tagId].toSummary());
+		}
+		
+		return ImmutableMap.copyOf(results);
 	}
 }
@@ -0,0 +1,563 @@
+package com.wesabe.api.accounts.analytics;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.DateTime;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.wesabe.api.accounts.entities.Account;
+import com.wesabe.api.accounts.entities.Merchant;
+import com.wesabe.api.accounts.entities.Tag;
+import com.wesabe.api.accounts.entities.TaggedAmount;
+import com.wesabe.api.accounts.entities.Txaction;
+import com.wesabe.api.util.money.Money;
+
+/**
+ * A set of {@link Txaction}s, flattened into parallel arrays.
+ * <p>
+ * A frame is built once from the results of a query, reading each
+ * transaction, tagged amount, account, and merchant exactly once. Amounts are
+ * stored as a number of minor units (e.g., cents) of their account's
+ * currency, and accounts, merchants, and tags are dictionary-encoded, so
+ * filtering and summarizing a frame doesn't touch the transactions again.
+ * <p>
+ * Rows are indexed from {@code 0} to {@link #size()}, in the order the
+ * transactions were given. Each row's tagged amounts are indexed from
+ * {@link #getTaggedAmountsStart(int)} to {@link #getTaggedAmountsEnd(int)}.
+ * Filters return the matching rows as a {@link BitSet}, which can be combined
+ * with {@link BitSet#and(BitSet)} and the like.
+ * <p>
+ * Reading a transaction's tagged amounts loads its taggings, so callers which
+ * don't filter or summarize by tag should use {@link #withoutTags(Iterable)},
+ * whose rows have no tagged amounts.
+ */
+public final class TxactionFrame {
+	private static final int MAX_COMPACT_BITS = 63;
+	private static final byte DELETED = 1 << 0;
+	private static final byte DISABLED = 1 << 1;
+	private static final byte TRANSFER = 1 << 2;
+	private static final byte TAGGED = 1 << 3;
+
+	/**
+	 * Builds a frame of {@code txactions}.
+	 *
+	 * @param txactions the transactions
+	 * @return a frame of {@code txactions}
+	 * @throws ArithmeticException if an amount has more minor units than fit
+	 * 			in a {@code long}
+	 */
+	public static TxactionFrame of(Iterable<Txaction> txactions) {
+		return build(txactions, true);
+	}
+
+	/**
+	 * Builds a frame of {@code txactions} without reading their tagged
+	 * amounts. The frame can't be filtered by {@link #taggedWith(Collection)}
+	 * or {@link #matching(String)}.
+	 *
+	 * @param txactions the transactions
+	 * @return a frame of {@code txactions} without tagged amounts
+	 * @throws ArithmeticException if an amount has more minor units than fit
+	 * 			in a {@code long}
+	 */
+	public static TxactionFrame withoutTags(Iterable<Txaction> txactions) {
+		return build(txactions, false);
+	}
+
+	private static TxactionFrame build(Iterable<Txaction> txactions, boolean includeTags) {
+		final TxactionFrame frame = new TxactionFrame(includeTags);
+		for (Txaction txaction : txactions) {
+			frame.add(txaction);
+		}
+		return frame;
+	}
+
+	private final List<Account> accounts = Lists.newArrayList();
+	private final List<Currency> accountCurrencies = Lists.newArrayList();
+	private final Map<Account, Integer> accountIndexes = Maps.newHashMap();
+	private final List<String> merchantNames = Lists.newArrayList();
+	private final Map<String, Integer> merchantIds = Maps.newHashMap();
+	private final List<Tag> tags = Lists.newArrayList();
+	private final Map<Tag, Integer> tagIds = Maps.newHashMap();
+	private final boolean includesTags;
+
+	private int size = 0;
+	private Txaction[] txactions = new Txaction[16];
+	private DateTime[] datesPosted = new DateTime[16];
+	private long[] amounts = new long[16];
+	private int[] rowAccountIndexes = new int[16];
+	private int[] rowMerchantIds = new int[16];
+	private byte[] statuses = new byte[16];
+	private int[] taggedAmountsStarts = new int[17];
+
+	private int taggedAmountCount = 0;
+	private int[] taggedAmountTagIds = new int[16];
+	private long[] taggedAmounts = new long[16];
+	private final BitSet splits = new BitSet();
+
+	private TxactionFrame(boolean includesTags) {
+		this.includesTags = includesTags;
+	}
+
+	/**
+	 * Returns {@code true} if the frame was built with its rows' tagged
+	 * amounts.
+	 */
+	public boolean includesTags() {
+		return includesTags;
+	}
+
+	/**
+	 * Returns the number of rows.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the transaction in row {@code row}.
+	 */
+	public Txaction getTxaction(int row) {
+		return txactions[row];
+	}
+
+	/**
+	 * Returns the transactions in {@code rows}, in order.
+	 */
+	public List<Txaction> getTxactions(BitSet rows) {
+		final List<Txaction> results = Lists.newArrayListWithCapacity(rows.cardinality());
+		for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+			results.add(txactions[row]);
+		}
+		return results;
+	}
+
+	/**
+	 * Returns the date row {@code row} was posted.
+	 */
+	public DateTime getDatePosted(int row) {
+		return datesPosted[row];
+	}
+
+	/**
+	 * Returns row {@code row}'s amount, in minor units of its account's
+	 * currency.
+	 */
+	public long getAmount(int row) {
+		return amounts[row];
+	}
+
+	/**
+	 * Returns row {@code row}'s amount as {@link Money}.
+	 */
+	public Money getMoney(int row) {
+		return toMoney(amounts[row], getCurrency(row));
+	}
+
+	/**
+	 * Returns the currency of row {@code row}'s account.
+	 */
+	public Currency getCurrency(int row) {
+		return accountCurrencies.get(rowAccountIndexes[row]);
+	}
+
+	/**
+	 * Returns the index of row {@code row}'s account.
+	 */
+	public int getAccountIndex(int row) {
+		return rowAccountIndexes[row];
+	}
+
+	/**
+	 * Returns the account with the index {@code accountIndex}.
+	 */
+	public Account getAccount(int accountIndex) {
+		return accounts.get(accountIndex);
+	}
+
+	/**
+	 * Returns the id of row {@code row}'s merchant's name, or {@code -1} if it
+	 * doesn't have a merchant.
+	 */
+	public int getMerchantId(int row) {
+		return rowMerchantIds[row];
+	}
+
+	public boolean isDeleted(int row) {
+		return (statuses[row] & DELETED) != 0;
+	}
+
+	public boolean isDisabled(int row) {
+		return (statuses[row] & DISABLED) != 0;
+	}
+
+	public boolean isTransfer(int row) {
+		return (statuses[row] & TRANSFER) != 0;
+	}
+
+	public boolean isTagged(int row) {
+		return (statuses[row] & TAGGED) != 0;
+	}
+
+	/**
+	 * Returns the index of row {@code row}'s first tagged amount.
+	 */
+	public int getTaggedAmountsStart(int row) {
+		return taggedAmountsStarts[row];
+	}
+
+	/**
+	 * Returns the index after row {@code row}'s last tagged amount.
+	 */
+	public int getTaggedAmountsEnd(int row) {
+		return taggedAmountsStarts[row + 1];
+	}
+
+	/**
+	 * Returns the id of tagged amount {@code index}'s tag.
+	 */
+	public int getTagId(int index) {
+		return taggedAmountTagIds[index];
+	}
+
+	/**
+	 * Returns tagged amount {@code index}'s amount, in minor units of its
+	 * account's currency.
+	 */
+	public long getTaggedAmount(int index) {
+		return taggedAmounts[index];
+	}
+
+	/**
+	 * Returns {@code true} if tagged amount {@code index} is a split.
+	 *
+	 * @see TaggedAmount#isSplit()
+	 */
+	public boolean isSplit(int index) {
+		return splits.get(index);
+	}
+
+	/**
+	 * Returns the number of distinct tags.
+	 */
+	public int getTagCount() {
+		return tags.size();
+	}
+
+	/**
+	 * Returns the tag with the id {@code tagId}.
+	 */
+	public Tag getTag(int tagId) {
+		return tags.get(tagId);
+	}
+
+	/**
+	 * Returns all rows.
+	 */
+	public BitSet all() {
+		final BitSet rows = new BitSet(size);
+		rows.set(0, size);
+		return rows;
+	}
+
+	/**
+	 * Returns the rows which aren't deleted or disabled.
+	 */
+	public BitSet visible() {
+		return withoutStatus(DELETED | DISABLED);
+	}
+
+	/**
+	 * Returns the rows which aren't deleted, disabled, or transfers.
+	 */
+	public BitSet analyzable() {
+		return withoutStatus(DELETED | DISABLED | TRANSFER);
+	}
+
+	/**
+	 * Returns the rows which are unedited.
+	 *
+	 * @see Txaction#isUnedited()
+	 */
+	public BitSet unedited() {
+		final BitSet rows = new BitSet(size);
+		for (int row = 0; row < size; row++) {
+			if ((rowMerchantIds[row] < 0) || ((statuses[row] & (TAGGED | TRANSFER)) == 0)) {
+				rows.set(row);
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Returns the rows whose amount is exactly {@code amount}, including its
+	 * scale.
+	 */
+	public BitSet withAmount(BigDecimal amount) {
+		final BitSet rows = new BitSet(size);
+		final BitSet accountsWithScale = new BitSet(accounts.size());
+		for (int accountIndex = 0; accountIndex < accounts.size(); accountIndex++) {
+			if (accountCurrencies.get(accountIndex).getDefaultFractionDigits() == amount.scale()) {
+				accountsWithScale.set(accountIndex);
+			}
+		}
+
+		final BigInteger units = amount.unscaledValue();
+		if (units.bitLength() < MAX_COMPACT_BITS) {
+			final long value = units.longValue();
+			for (int row = 0; row < size; row++) {
+				if ((amounts[row] == value) && accountsWithScale.get(rowAccountIndexes[row])) {
+					rows.set(row);
+				}
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Returns the rows in any of {@code accounts}.
+	 */
+	public BitSet inAccounts(Collection<Account> accounts) {
+		final BitSet matchingAccounts = new BitSet(this.accounts.size());
+		for (int accountIndex = 0; accountIndex < this.accounts.size(); accountIndex++) {
+			if (accounts.contains(this.accounts.get(accountIndex))) {
+				matchingAccounts.set(accountIndex);
+			}
+		}
+
+		final BitSet rows = new BitSet(size);
+		for (int row = 0; row < size; row++) {
+			if (matchingAccounts.get(rowAccountIndexes[row])) {
+				rows.set(row);
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Returns the rows whose merchant is named any of {@code merchantNames}.
+	 */
+	public BitSet atMerchants(Collection<String> merchantNames) {
+		final BitSet matchingMerchants = new BitSet(this.merchantNames.size());
+		for (int merchantId = 0; merchantId < this.merchantNames.size(); merchantId++) {
+			if (merchantNames.contains(this.merchantNames.get(merchantId))) {
+				matchingMerchants.set(merchantId);
+			}
+		}
+		return withMerchants(matchingMerchants);
+	}
+
+	/**
+	 * Returns the rows tagged with any of {@code tags}.
+	 */
+	public BitSet taggedWith(Collection<Tag> tags) {
+		final BitSet matchingTags = new BitSet(this.tags.size());
+		for (int tagId = 0; tagId < this.tags.size(); tagId++) {
+			if (tags.contains(this.tags.get(tagId))) {
+				matchingTags.set(tagId);
+			}
+		}
+		return withTags(matchingTags);
+	}
+
+	/**
+	 * Returns the rows whose name, note, merchant name, or tags contain
+	 * {@code query}, ignoring case.
+	 */
+	public BitSet matching(String query) {
+		final String lowerQuery = query.toLowerCase();
+
+		final BitSet matchingMerchants = new BitSet(merchantNames.size());
+		for (int merchantId = 0; merchantId < merchantNames.size(); merchantId++) {
+			if (contains(merchantNames.get(merchantId), lowerQuery)) {
+				matchingMerchants.set(merchantId);
+			}
+		}
+
+		final BitSet matchingTags = new BitSet(tags.size());
+		for (int tagId = 0; tagId < tags.size(); tagId++) {
+			final Tag tag = tags.get(tagId);
+			if ((tag != null) && contains(tag.toString(), lowerQuery)) {
+				matchingTags.set(tagId);
+			}
+		}
+
+		final BitSet rows = withMerchants(matchingMerchants);
+		rows.or(withTags(matchingTags));
+		for (int row = 0; row < size; row++) {
+			if (!rows.get(row) && (contains(txactions[row].getFilteredName(), lowerQuery)
+					|| contains(txactions[row].getNote(), lowerQuery))) {
+				rows.set(row);
+			}
+		}
+		return rows;
+	}
+
+	private BitSet withoutStatus(int status) {
+		final BitSet rows = new BitSet(size);
+		for (int row = 0; row < size; row++) {
+			if ((statuses[row] & status) == 0) {
+				rows.set(row);
+			}
+		}
+		return rows;
+	}
+
+	private BitSet withMerchants(BitSet merchantIds) {
+		final BitSet rows = new BitSet(size);
+		for (int row = 0; row < size; row++) {
+			if ((rowMerchantIds[row] >= 0) && merchantIds.get(rowMerchantIds[row])) {
+				rows.set(row);
+			}
+		}
+		return rows;
+	}
+
+	private BitSet withTags(BitSet tagIds) {
+		if (!includesTags) {
+			throw new IllegalStateException("frame was built without tagged amounts");
+		}
+
+		final BitSet rows = new BitSet(size);
+		for (int row = 0; row < size; row++) {
+			for (int i = taggedAmountsStarts[row]; i < taggedAmountsStarts[row + 1]; i++) {
+				if (tagIds.get(taggedAmountTagIds[i])) {
+					rows.set(row);
+					break;
+				}
+			}
+		}
+		return rows;
+	}
+
+	private static boolean contains(String value, String lowerQuery) {
+		return (value != null) && value.toLowerCase().contains(lowerQuery);
+	}
+
+	private void add(Txaction txaction) {
+		ensureRowCapacity(size + 1);
+
+		final Money amount = txaction.getAmount();
+		final Iterable<TaggedAmount> rowTaggedAmounts =
+				includesTags ? txaction.getTaggedAmounts() : Collections.<TaggedAmount>emptyList();
+		for (TaggedAmount taggedAmount : rowTaggedAmounts) {
+			ensureTaggedAmountCapacity(taggedAmountCount + 1);
+
+			taggedAmountTagIds[taggedAmountCount] = internTag(taggedAmount.getTag());
+			final Money tagged = taggedAmount.getAmount();
+			taggedAmounts[taggedAmountCount] = toUnits(tagged);
+			if (!amount.equals(tagged)) {
+				splits.set(taggedAmountCount);
+			}
+			taggedAmountCount++;
+		}
+
+		byte status = 0;
+		if (txaction.isDeleted()) {
+			status |= DELETED;
+		}
+		if (txaction.isDisabled()) {
+			status |= DISABLED;
+		}
+		if (txaction.isTransfer()) {
+			status |= TRANSFER;
+		}
+		if (txaction.isTagged()) {
+			status |= TAGGED;
+		}
+
+		final Merchant merchant = txaction.getMerchant();
+
+		txactions[size] = txaction;
+		datesPosted[size] = txaction.getDatePosted();
+		amounts[size] = toUnits(amount);
+		rowAccountIndexes[size] = internAccount(txaction.getAccount(), amount.getCurrency());
+		rowMerchantIds[size] = (merchant == null) ? -1 : internMerchant(merchant.getName());
+		statuses[size] = status;
+		size++;
+		taggedAmountsStarts[size] = taggedAmountCount;
+	}
+
+	private int internAccount(Account account, Currency currency) {
+		final Integer accountIndex = accountIndexes.get(account);
+		if (accountIndex != null) {
+			return accountIndex;
+		}
+
+		accounts.add(account);
+		accountCurrencies.add(currency);
+		accountIndexes.put(account, accounts.size() - 1);
+		return accounts.size() - 1;
+	}
+
+	private int internMerchant(String merchantName) {
+		final Integer merchantId = merchantIds.get(merchantName);
+		if (merchantId != null) {
+			return merchantId;
+		}
+
+		merchantNames.add(merchantName);
+		merchantIds.put(merchantName, merchantNames.size() - 1);
+		return merchantNames.size() - 1;
+	}
+
+	private int internTag(Tag tag) {
+		final Integer tagId = tagIds.get(tag);
+		if (tagId != null) {
+			return tagId;
+		}
+
+		tags.add(tag);
+		tagIds.put(tag, tags.size() - 1);
+		return tags.size() - 1;
+	}
+
+	/**
+	 * Returns {@code units} minor units of {@code currency} as {@link Money}.
+	 */
+	static Money toMoney(long units, Currency currency) {
+		return new Money(BigDecimal.valueOf(units, currency.getDefaultFractionDigits()), currency);
+	}
+
+	/**
+	 * Returns {@code amount} as a number of minor units of its currency.
+	 */
+	static long toUnits(Money amount) {
+		// Money always normalizes its amount to the currency's scale
+		final BigInteger units = amount.getValue().unscaledValue();
+		if (units.bitLength() >= MAX_COMPACT_BITS) {
+			throw new ArithmeticException(amount + " has too many minor units to be stored");
+		}
+		return units.longValue();
+	}
+
+	private void ensureRowCapacity(int capacity) {
+		if (capacity > amounts.length) {
+			final int newCapacity = Math.max(capacity, amounts.length * 2);
+			this.txactions = Arrays.copyOf(txactions, newCapacity);
+			this.datesPosted = Arrays.copyOf(datesPosted, newCapacity);
+			this.amounts = Arrays.copyOf(amounts, newCapacity);
+			this.rowAccountIndexes = Arrays.copyOf(rowAccountIndexes, newCapacity);
+			this.rowMerchantIds = Arrays.copyOf(rowMerchantIds, newCapacity);
+			this.statuses = Arrays.copyOf(statuses, newCapacity);
+			this.taggedAmountsStarts = Arrays.copyOf(taggedAmountsStarts, newCapacity + 1);
+		}
+	}
+
+	private void ensureTaggedAmountCapacity(int capacity) {
+		if (capacity > taggedAmounts.length) {
+			final int newCapacity = Math.max(capacity, taggedAmounts.length * 2);
+			this.taggedAmountTagIds = Arrays.copyOf(taggedAmountTagIds, newCapacity);
+			this.taggedAmounts = Arrays.copyOf(taggedAmounts, newCapacity);
+		}
+	}
+}
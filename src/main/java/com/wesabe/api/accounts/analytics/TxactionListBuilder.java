@@ -1,24 +1,22 @@
 package com.wesabe.api.accounts.analytics;
 
 import java.math.BigDecimal;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Currency;
 import java.util.List;
+import java.util.Map;
 
-import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
 import com.google.inject.ProvidedBy;
 import com.wesabe.api.accounts.entities.Account;
-import com.wesabe.api.accounts.entities.Merchant;
+import com.wesabe.api.accounts.entities.AccountBalance;
 import com.wesabe.api.accounts.entities.Tag;
-import com.wesabe.api.accounts.entities.TaggedAmount;
 import com.wesabe.api.accounts.entities.Txaction;
 import com.wesabe.api.accounts.entities.TxactionList;
 import com.wesabe.api.accounts.entities.TxactionListItem;
-import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+import com.wesabe.api.util.money.CurrencyExchangeRates;
 
 @ProvidedBy(TxactionListBuilderProvider.class)
 public class TxactionListBuilder {
@@ -27,18 +25,27 @@ public class TxactionListBuilder {
 	private Collection<String> merchantNames = ImmutableSet.of();
 	private boolean unedited = false;
 	private boolean calculateBalances = true;
+	private Map<Account, AccountBalance> startingBalances;
 	private int offset = 0;
 	private int limit = 0;
 	private Currency currency;
-	private CurrencyExchangeRateMap exchangeRateMap;
+	private CurrencyExchangeRates exchangeRateMap;
 	private BigDecimal amount;
 	private String query;
 	
 	public TxactionList build(Collection<Txaction> txactions) {
+		// only tag and query filters need the transactions' tagged amounts
+		if (tags.isEmpty() && (query == null)) {
+			return build(TxactionFrame.withoutTags(txactions));
+		}
+		return build(TxactionFrame.of(txactions));
+	}
+	
+	public TxactionList build(TxactionFrame frame) {
 		TxactionList txactionList = new TxactionList();
 		
 		// remove disabled, deleted, etc, sort them in reverse chronological order
-		final List<Txaction> resultTxactions = sort(filter(txactions));
+		final List<Txaction> resultTxactions = sort(frame.getTxactions(filter(frame)));
 		
 		// set the total count to all the ones that could ever be shown
 		txactionList.setTotalCount(resultTxactions.size());
@@ -56,7 +63,11 @@ public class TxactionListBuilder {
 		
 		if (tags.isEmpty() && merchantNames.isEmpty() && calculateBalances) {
 			// calculate balances before removing the offset as those Txactions may affect the balances
-			txactionList.calculateRunningTotalBalances(accounts, currency, exchangeRateMap);
+			if (startingBalances == null) {
+				txactionList.calculateRunningTotalBalances(accounts, currency, exchangeRateMap);
+			} else {
+				txactionList.calculateRunningTotalBalances(startingBalances, currency, exchangeRateMap);
+			}
 		}
 		
 		// hack off the front of the list we were asked to hide
@@ -100,152 +111,37 @@ public class TxactionListBuilder {
 		return txactions;
 	}
 
-	private List<Txaction> filter(Collection<Txaction> txactions) {
-		List<Txaction> filteredTxactions = filterHiddenTxactions(txactions);
+	/**
+	 * Returns the rows of {@code frame} which match the builder's filters.
+	 */
+	public BitSet filter(TxactionFrame frame) {
+		final BitSet rows = frame.visible();
 		
 		if (amount != null) {
-			filteredTxactions = filterByAmount(filteredTxactions);
+			rows.and(frame.withAmount(amount));
 		}
 		
 		if (!accounts.isEmpty()) {
-			filteredTxactions = filterByAccounts(filteredTxactions);
+			rows.and(frame.inAccounts(accounts));
 		}
 		
 		if (!merchantNames.isEmpty()) {
-			filteredTxactions = filterByMerchants(filteredTxactions);
+			rows.and(frame.atMerchants(merchantNames));
 		}
 		
 		if (!tags.isEmpty()) {
-			filteredTxactions = filterByTags(filteredTxactions);
+			rows.and(frame.taggedWith(tags));
 		}
 		
 		if (unedited) {
-			filteredTxactions = filterByUnedited(filteredTxactions);
+			rows.and(frame.unedited());
 		}
 		
 		if (query != null) {
-			filteredTxactions = filterByQuery(filteredTxactions);
+			rows.and(frame.matching(query));
 		}
 		
-		return filteredTxactions;
-	}
-	
-	private List<Txaction> filterByAmount(List<Txaction> txactions) {
-		return Lists.newArrayList(
-				Iterables.filter(txactions, new Predicate<Txaction>() {
-					@Override
-					public boolean apply(Txaction txaction) {
-						return txaction.getAmount().getValue().equals(amount);
-					}
-				})
-			);
-	}
-
-	private List<Txaction> filterByMerchants(List<Txaction> txactions) {
-		return Lists.newArrayList(
-			Iterables.filter(txactions, new Predicate<Txaction>() {
-				@Override
-				public boolean apply(Txaction txaction) {
-					final Merchant merchant = txaction.getMerchant();
-					return (merchant != null) && merchantNames.contains(merchant.getName());
-				}
-			})
-		);
-	}
-
-	private List<Txaction> filterHiddenTxactions(Collection<Txaction> txactions) {
-		return Lists.newArrayList(
-			Iterables.filter(txactions, new Predicate<Txaction>() {
-				@Override
-				public boolean apply(Txaction txaction) {
-					return !txaction.isDeleted() && !txaction.isDisabled();
-				}
-			})
-		);
-	}
-
-	private List<Txaction> filterByAccounts(List<Txaction> txactions) {
-		return Lists.newArrayList(
-			Iterables.filter(txactions, new Predicate<Txaction>() {
-				@Override
-				public boolean apply(Txaction txaction) {
-					return accounts.contains(txaction.getAccount());
-				}
-			})
-		);
-	}
-
-	private List<Txaction> filterByTags(List<Txaction> txactions) {
-		return Lists.newArrayList(
-			Iterables.filter(txactions, new Predicate<Txaction>() {
-				@Override
-				public boolean apply(Txaction txaction) {
-					return Iterables.any(txaction.getTaggedAmounts(), new Predicate<TaggedAmount>() {
-						@Override
-						public boolean apply(TaggedAmount taggedAmount) {
-							return tags.contains(taggedAmount.getTag());
-						}
-					});
-				}
-			})
-		);
-	}
-	
-	private List<Txaction> filterByUnedited(List<Txaction> txactions) {
-		return Lists.newArrayList(
-			Iterables.filter(txactions, new Predicate<Txaction>() {
-				@Override
-				public boolean apply(Txaction txaction) {
-					return txaction.isUnedited();
-				}
-			})
-		);
-	}
-	
-	private List<Txaction> filterByQuery(List<Txaction> txactions) {
-		final String lowerQuery = query.toLowerCase();
-		
-		return Lists.newArrayList(
-			Iterables.filter(txactions, new Predicate<Txaction>() {
-				@Override
-				public boolean apply(Txaction txaction) {
-					final String filteredName = txaction.getFilteredName();
-					
-					if (filteredName != null && filteredName.toLowerCase().contains(lowerQuery)) {
-						return true;
-					}
-					
-					final String note = txaction.getNote();
-					
-					if (note != null && note.toLowerCase().contains(lowerQuery)) {
-						return true;
-					}
-					
-					final Merchant merchant = txaction.getMerchant();
-					
-					if (merchant != null) {
-						final String merchantName = merchant.getName();
-						
-						if (merchantName != null && merchantName.toLowerCase().contains(lowerQuery)) {
-							return true;
-						}
-					}
-					
-					final List<TaggedAmount> taggedAmounts = txaction.getTaggedAmounts();
-					
-					if (taggedAmounts != null) {
-						for (TaggedAmount taggedAmount : taggedAmounts) {
-							final Tag tag = taggedAmount.getTag();
-							if (tag != null && tag.toString().toLowerCase().contains(lowerQuery)) {
-								return true;
-							}
-						}
-					}
-					
-					return false;
-				}
-			})
-		);
+		return rows;
 	}
 	
 	public TxactionListBuilder setMerchantNames(Collection<String> merchantNames) {
@@ -273,6 +169,16 @@ public class TxactionListBuilder {
 		return this;
 	}
 
+	/**
+	 * Sets the balance of each account immediately after the newest
+	 * transaction in the list. If not set, running balances are calculated
+	 * from each account's current balance.
+	 */
+	public TxactionListBuilder setStartingBalances(Map<Account, AccountBalance> startingBalances) {
+		this.startingBalances = startingBalances;
+		return this;
+	}
+
 	public TxactionListBuilder setOffset(int offset) {
 		this.offset = offset;
 		return this;
@@ -293,12 +199,12 @@ public class TxactionListBuilder {
 		return this;
 	}
 
-	public TxactionListBuilder setCurrencyExchangeRateMap(CurrencyExchangeRateMap exchangeRateMap) {
+	public TxactionListBuilder setCurrencyExchangeRateMap(CurrencyExchangeRates exchangeRateMap) {
 		this.exchangeRateMap = exchangeRateMap;
 		return this;
 	}
 
-	public CurrencyExchangeRateMap getCurrencyExchangeRateMap() {
+	public CurrencyExchangeRates getCurrencyExchangeRateMap() {
 		return exchangeRateMap;
 	}
 
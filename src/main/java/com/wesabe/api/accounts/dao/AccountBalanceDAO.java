@@ -7,15 +7,28 @@ import org.joda.time.DateTime;
 import com.codahale.shore.dao.AbstractDAO;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
+import com.wesabe.api.accounts.analytics.BalanceCheckpointIndex;
+import com.wesabe.api.accounts.analytics.IntervalSummaryRollup;
+import com.wesabe.api.accounts.entities.Account;
 import com.wesabe.api.accounts.entities.AccountBalance;
 
 public class AccountBalanceDAO extends AbstractDAO<AccountBalance> {
 	private Provider<DateTime> currentDateTimeProvider;
+	private final AccountBalanceProjection balanceProjection;
+	private final AccountListSummaryCache summaryCache;
+	private final BalanceCheckpointIndex checkpointIndex;
+	private final IntervalSummaryRollup summaryRollup;
 
 	@Inject
-	public AccountBalanceDAO(Provider<Session> provider, Provider<DateTime> currentDateTimeProvider) {
+	public AccountBalanceDAO(Provider<Session> provider, Provider<DateTime> currentDateTimeProvider,
+			AccountBalanceProjection balanceProjection, AccountListSummaryCache summaryCache,
+			BalanceCheckpointIndex checkpointIndex, IntervalSummaryRollup summaryRollup) {
 		super(provider, AccountBalance.class);
 		this.currentDateTimeProvider = currentDateTimeProvider;
+		this.balanceProjection = balanceProjection;
+		this.summaryCache = summaryCache;
+		this.checkpointIndex = checkpointIndex;
+		this.summaryRollup = summaryRollup;
 	}
 
 	public AccountBalance findAccountBalance(String accountKey, Integer accountBalanceId) {
@@ -36,5 +49,16 @@ public class AccountBalanceDAO extends AbstractDAO<AccountBalance> {
 		currentSession().flush();
 		
 		transaction.commit();
+		
+		// Account#accountBalances is the inverse side of the association, so
+		// Hibernate won't invalidate its cached copy of the collection
+		final Account account = accountBalance.getAccount();
+		if (account != null) {
+			currentSession().getSessionFactory().evictCollection(Account.ACCOUNT_BALANCES_ROLE, account.getId());
+			balanceProjection.invalidate(account);
+			checkpointIndex.invalidate(account);
+			summaryRollup.invalidate(account);
+			summaryCache.invalidate(account.getAccountKey());
+		}
 	}
 }
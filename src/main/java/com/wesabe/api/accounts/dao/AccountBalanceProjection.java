@@ -0,0 +1,150 @@
+package com.wesabe.api.accounts.dao;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Session;
+import org.joda.time.DateTimeUtils;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import com.wesabe.api.accounts.entities.Account;
+import com.wesabe.api.accounts.entities.AccountBalance;
+import com.wesabe.api.accounts.entities.InvestmentAccount;
+import com.wesabe.api.accounts.entities.Txaction;
+import com.wesabe.api.accounts.entities.TxactionStatus;
+
+/**
+ * A cache of the current balance of each {@link Account}: its most recent
+ * {@link AccountBalance} plus the amounts of the visible {@link Txaction}s
+ * posted since.
+ * <p>
+ * The balances of a list of accounts are projected with two aggregate
+ * queries, so {@link Account#getBalance()} never has to load an account's
+ * transactions. Projections are dropped when a balance or account is written
+ * through this service, and recalculated after {@link #MAX_AGE_MILLIS} to
+ * pick up transactions imported since.
+ * <p>
+ * Balances are always projected from the primary database, even during
+ * {@link ReadOnly} requests. A lagging replica would return the balance from
+ * before the write which dropped the projection, and it would be cached (and
+ * summarized by {@link AccountListSummaryCache}) until it expired.
+ */
+@Singleton
+public class AccountBalanceProjection {
+	public static final long MAX_AGE_MILLIS = 60 * 1000;
+	private static final int MAX_ACCOUNTS = 10000;
+	private static final EnumSet<TxactionStatus> HIDDEN_STATUSES = EnumSet.of(TxactionStatus.DELETED, TxactionStatus.DISABLED);
+
+	private static class Projection {
+		private final BigDecimal balance;
+		private final long createdAt;
+
+		public Projection(BigDecimal balance, long createdAt) {
+			this.balance = balance;
+			this.createdAt = createdAt;
+		}
+	}
+
+	private final Provider<Session> provider;
+	private final Map<Integer, Projection> entries = Collections.synchronizedMap(
+		new LinkedHashMap<Integer, Projection>(16, 0.75f, true) {
+			private static final long serialVersionUID = 4424386286017467011L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Projection> eldest) {
+				return size() > MAX_ACCOUNTS;
+			}
+		}
+	);
+
+	@Inject
+	public AccountBalanceProjection(Provider<Session> provider) {
+		this.provider = provider;
+	}
+
+	/**
+	 * Caches the current balance of each account in {@code accounts} which
+	 * has one, projecting the balances of any accounts which haven't been
+	 * projected recently. Accounts without an {@link AccountBalance} are left
+	 * alone.
+	 *
+	 * @param accounts a set of accounts
+	 */
+	public void project(Collection<? extends Account> accounts) {
+		final long now = DateTimeUtils.currentTimeMillis();
+		final List<Account> stale = Lists.newArrayList();
+		for (Account account : accounts) {
+			if (isProjectable(account)) {
+				final Projection entry = entries.get(account.getId());
+				if ((entry != null) && ((now - entry.createdAt) < MAX_AGE_MILLIS)) {
+					account.setCachedBalance(entry.balance);
+				} else {
+					stale.add(account);
+				}
+			}
+		}
+
+		if (!stale.isEmpty()) {
+			final Map<Integer, BigDecimal> balances = findBalances(stale);
+			for (Account account : stale) {
+				final BigDecimal balance = balances.get(account.getId());
+				if (balance != null) {
+					entries.put(account.getId(), new Projection(balance, now));
+					account.setCachedBalance(balance);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Discards the projected balance of {@code account}.
+	 */
+	public void invalidate(Account account) {
+		entries.remove(account.getId());
+	}
+
+	private boolean isProjectable(Account account) {
+		return (account.getId() != null) && !(account instanceof InvestmentAccount)
+				&& account.getAccountType().hasBalance();
+	}
+
+	private Map<Integer, BigDecimal> findBalances(List<Account> accounts) {
+		final Session session = provider.get();
+		final Map<Integer, BigDecimal> balances = Maps.newHashMap();
+
+		@SuppressWarnings("unchecked")
+		final List<Object[]> latest = session
+				.getNamedQuery("com.wesabe.api.accounts.AccountBalance.findLatestInAccounts")
+				.setParameterList("accounts", accounts)
+				.list();
+		for (Object[] row : latest) {
+			if (!balances.containsKey(row[0])) {
+				balances.put((Integer) row[0], (BigDecimal) row[1]);
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		final List<Object[]> sums = session
+				.getNamedQuery("com.wesabe.api.accounts.Txaction.sumSinceLatestBalanceInAccounts")
+				.setParameterList("accounts", accounts)
+				.setParameterList("hiddenStatuses", TxactionStatus.toValues(HIDDEN_STATUSES))
+				.list();
+		for (Object[] row : sums) {
+			final BigDecimal balance = balances.get(row[0]);
+			if ((balance != null) && (row[1] != null)) {
+				balances.put((Integer) row[0], balance.add((BigDecimal) row[1]));
+			}
+		}
+
+		return balances;
+	}
+}
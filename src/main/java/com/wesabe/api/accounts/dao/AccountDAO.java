@@ -5,34 +5,63 @@ import java.util.List;
 import java.util.Set;
 
 import org.hibernate.Session;
+import org.hibernate.SessionFactory;
 
 import com.codahale.shore.dao.AbstractDAO;
+import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
+import com.wesabe.api.accounts.analytics.BalanceCheckpointIndex;
+import com.wesabe.api.accounts.analytics.IntervalSummaryRollup;
 import com.wesabe.api.accounts.entities.Account;
 import com.wesabe.api.accounts.entities.AccountStatus;
 import com.wideplay.warp.persist.Transactional;
 
 /**
  * A data access object for retrieving and storing {@link Account} instances.
+ * <p>
+ * Accounts are read from {@link ReadOnly} sessions, but always updated on the
+ * primary database.
  * 
  * @author coda
  * @see Account
  */
 public class AccountDAO extends AbstractDAO<Account> {
+	/**
+	 * The query cache region for lists of a user's accounts.
+	 */
+	public static final String ACCOUNT_LIST_CACHE_REGION = "com.wesabe.api.accounts.Account.findAllByAccountKey";
 	private static final EnumSet<AccountStatus> ACTIVE_STATUSES = EnumSet.of(AccountStatus.ACTIVE, AccountStatus.ARCHIVED);
+	private final Provider<Session> primaryProvider;
+	private final AccountBalanceProjection balanceProjection;
+	private final AccountListSummaryCache summaryCache;
+	private final BalanceCheckpointIndex checkpointIndex;
+	private final IntervalSummaryRollup summaryRollup;
 
 	@Inject
-	public AccountDAO(Provider<Session> provider) {
+	public AccountDAO(Provider<Session> primaryProvider, @ReadOnly Provider<Session> provider,
+			AccountBalanceProjection balanceProjection, AccountListSummaryCache summaryCache,
+			BalanceCheckpointIndex checkpointIndex, IntervalSummaryRollup summaryRollup) {
 		super(provider, Account.class);
+		this.primaryProvider = primaryProvider;
+		this.balanceProjection = balanceProjection;
+		this.summaryCache = summaryCache;
+		this.checkpointIndex = checkpointIndex;
+		this.summaryRollup = summaryRollup;
 	}
 	
 	public Account findAccount(String accountKey, Integer accountId) {
-		return uniqueResult(
+		final Account account = uniqueResult(
 				namedQuery("com.wesabe.api.accounts.Account.findByAccountKeyAndRelativeId")
 				.setString("accountKey", accountKey)
 				.setInteger("accountId", accountId)
 		);
+		
+		if (account != null) {
+			balanceProjection.project(ImmutableList.of(account));
+		}
+		
+		return account;
 	}
 	/**
 	 * Queries the database for a list of accounts belonging to the user with a
@@ -48,17 +77,26 @@ public class AccountDAO extends AbstractDAO<Account> {
 	/**
 	 * Queries the database for a list of accounts belonging to the user with
 	 * a given account key. Returns only accounts which have a status in
-	 * {@code statuses}.
+	 * {@code statuses}. The results are only cached when they aren't read from
+	 * a replica.
 	 * 
 	 * @param accountKey the user's account key
-	 * @return a list of accounts belonging to the user
+	 * @return a list of accounts belonging to the user, with their balances
+	 * 			projected by {@link AccountBalanceProjection}
 	 */
 	public List<Account> findAllAccountsByAccountKey(String accountKey, Set<AccountStatus> statuses) {
-		return list(
+		// a replica's results may predate the last eviction of the region
+		final boolean cacheable = !ReplicaSessionProvider.isReplicaSession(currentSession());
+		final List<Account> accounts = list(
 			namedQuery("com.wesabe.api.accounts.Account.findAllByAccountKey")
+				.setCacheable(cacheable)
+				.setCacheRegion(ACCOUNT_LIST_CACHE_REGION)
 				.setString("accountKey", accountKey)
 				.setParameterList("statuses", AccountStatus.toValues(statuses))
 		);
+		
+		balanceProjection.project(accounts);
+		return accounts;
 	}
 	
 	/**
@@ -70,7 +108,26 @@ public class AccountDAO extends AbstractDAO<Account> {
 	 */
 	@Transactional
 	public Account update(Account account) {
-		currentSession().update(account);
+		primaryProvider.get().update(account);
 		return account;
 	}
+	
+	/**
+	 * Removes the given {@code account} and all cached lists of accounts from
+	 * the second-level cache, and discards its projected balance, its balance
+	 * checkpoints, its interval summary rollups, and its owner's account list
+	 * summaries. Call this after a transaction which changes an account has
+	 * been committed.
+	 * 
+	 * @param account the account to evict
+	 */
+	public void evict(Account account) {
+		final SessionFactory sessionFactory = primaryProvider.get().getSessionFactory();
+		sessionFactory.evict(Account.class, account.getId());
+		sessionFactory.evictQueries(ACCOUNT_LIST_CACHE_REGION);
+		balanceProjection.invalidate(account);
+		checkpointIndex.invalidate(account);
+		summaryRollup.invalidate(account);
+		summaryCache.invalidate(account.getAccountKey());
+	}
 }
@@ -0,0 +1,110 @@
+package com.wesabe.api.accounts.dao;
+
+import java.util.Collections;
+import java.util.Currency;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.DateTimeUtils;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import com.wesabe.api.accounts.entities.Account;
+import com.wesabe.api.accounts.entities.AccountBalance;
+import com.wesabe.api.accounts.entities.AccountList;
+import com.wesabe.api.accounts.entities.AccountListSummary;
+import com.wesabe.api.util.money.CurrencyExchangeRateSnapshot;
+
+/**
+ * A cache of {@link AccountListSummary}s for each user and currency.
+ * <p>
+ * A user's summaries are dropped when one of their {@link Account}s or
+ * {@link AccountBalance}s is written through this service. Since summaries
+ * are calculated from the balances projected by
+ * {@link AccountBalanceProjection}, they expire along with them.
+ */
+@Singleton
+public class AccountListSummaryCache {
+	public static final long MAX_AGE_MILLIS = AccountBalanceProjection.MAX_AGE_MILLIS;
+	private static final int MAX_USERS = 10000;
+
+	private static class CachedSummary {
+		private final List<Integer> accountIds;
+		private final AccountListSummary summary;
+		private final long createdAt;
+
+		public CachedSummary(List<Integer> accountIds, AccountListSummary summary, long createdAt) {
+			this.accountIds = accountIds;
+			this.summary = summary;
+			this.createdAt = createdAt;
+		}
+	}
+
+	private final Provider<CurrencyExchangeRateSnapshot> exchangeRateProvider;
+	private final Map<String, Map<Currency, CachedSummary>> entries = Collections.synchronizedMap(
+		new LinkedHashMap<String, Map<Currency, CachedSummary>>(16, 0.75f, true) {
+			private static final long serialVersionUID = -1792262484564711187L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Map<Currency, CachedSummary>> eldest) {
+				return size() > MAX_USERS;
+			}
+		}
+	);
+
+	@Inject
+	public AccountListSummaryCache(Provider<CurrencyExchangeRateSnapshot> exchangeRateProvider) {
+		this.exchangeRateProvider = exchangeRateProvider;
+	}
+
+	/**
+	 * Returns the summary of {@code accounts} in {@code currency}, summarizing
+	 * them if the user's cached summary is missing, stale, or of a different
+	 * set of accounts.
+	 *
+	 * @param accountKey the account key of the user who owns {@code accounts}
+	 * @param accounts the user's accounts
+	 * @param currency the currency of the summary
+	 * @return the summary of {@code accounts}
+	 */
+	public AccountListSummary getSummary(String accountKey, AccountList accounts, Currency currency) {
+		final long now = DateTimeUtils.currentTimeMillis();
+		final List<Integer> accountIds = getAccountIds(accounts);
+
+		Map<Currency, CachedSummary> summaries = entries.get(accountKey);
+		if (summaries != null) {
+			final CachedSummary entry = summaries.get(currency);
+			if ((entry != null) && ((now - entry.createdAt) < MAX_AGE_MILLIS)
+					&& entry.accountIds.equals(accountIds)) {
+				return entry.summary;
+			}
+		} else {
+			summaries = Collections.synchronizedMap(Maps.<Currency, CachedSummary>newHashMap());
+			entries.put(accountKey, summaries);
+		}
+
+		final AccountListSummary summary = accounts.summarize(currency, exchangeRateProvider.get());
+		summaries.put(currency, new CachedSummary(accountIds, summary, now));
+		return summary;
+	}
+
+	/**
+	 * Discards the cached summaries of the user with the account key
+	 * {@code accountKey}.
+	 */
+	public void invalidate(String accountKey) {
+		entries.remove(accountKey);
+	}
+
+	private List<Integer> getAccountIds(AccountList accounts) {
+		final List<Integer> accountIds = Lists.newArrayListWithCapacity(accounts.size());
+		for (Account account : accounts) {
+			accountIds.add(account.getId());
+		}
+		return accountIds;
+	}
+}
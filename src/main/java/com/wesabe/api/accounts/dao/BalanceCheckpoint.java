@@ -0,0 +1,62 @@
+package com.wesabe.api.accounts.dao;
+
+import java.math.BigDecimal;
+
+import com.google.common.base.Objects;
+import com.wesabe.api.accounts.entities.Account;
+import com.wesabe.api.accounts.entities.Txaction;
+
+/**
+ * The sum of the amounts of every visible {@link Txaction} in an
+ * {@link Account} up to and including the one at a {@link TxactionCursor}.
+ * <p>
+ * Checkpoints are sums from the beginning of an account's history rather than
+ * balances, so new transactions don't invalidate them; only changes to
+ * transactions at or before {@link #getKey()} do.
+ *
+ * @see TxactionDAO#findBalanceCheckpoints(Account, int)
+ */
+public class BalanceCheckpoint {
+	private final TxactionCursor key;
+	private final BigDecimal sum;
+
+	public BalanceCheckpoint(TxactionCursor key, BigDecimal sum) {
+		this.key = key;
+		this.sum = sum;
+	}
+
+	/**
+	 * Returns the position of the newest transaction included in the sum.
+	 */
+	public TxactionCursor getKey() {
+		return key;
+	}
+
+	/**
+	 * Returns the sum of the amounts of every transaction at or before
+	 * {@link #getKey()}.
+	 */
+	public BigDecimal getSum() {
+		return sum;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hashCode(key, sum);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof BalanceCheckpoint) {
+			final BalanceCheckpoint other = (BalanceCheckpoint) obj;
+			return key.equals(other.key) && sum.equals(other.sum);
+		}
+
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("BalanceCheckpoint [key=%s, sum=%s]", key, sum.toPlainString());
+	}
+}
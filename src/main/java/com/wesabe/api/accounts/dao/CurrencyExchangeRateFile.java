@@ -0,0 +1,173 @@
+package com.wesabe.api.accounts.dao;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Currency;
+import java.util.List;
+
+import org.joda.time.DateTime;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.wesabe.api.accounts.entities.CurrencyExchangeRate;
+
+/**
+ * A local copy of the {@code currency_exchange_rates} table, so a restarted
+ * server only has to fetch the rates added since the copy was written.
+ * <p>
+ * The file is a header &mdash; a magic number, a version, the date of the
+ * newest rate, and the number of rates &mdash; followed by a fixed-width
+ * record for each rate: a three-letter currency code, the date in
+ * milliseconds, and the rate. It's memory-mapped when read, and replaced
+ * atomically when written.
+ */
+public class CurrencyExchangeRateFile {
+	private static final int MAGIC = 0x52415445; // RATE
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+	private static final int CODE_SIZE = 3;
+	private static final int RECORD_SIZE = CODE_SIZE + 8 + 8;
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+
+	/**
+	 * The rates read from a {@link CurrencyExchangeRateFile}.
+	 */
+	public static class Contents {
+		private final DateTime latestDate;
+		private final List<CurrencyExchangeRate> rates;
+
+		public Contents(DateTime latestDate, List<CurrencyExchangeRate> rates) {
+			this.latestDate = latestDate;
+			this.rates = rates;
+		}
+
+		/**
+		 * Returns the date of the newest rate in the file.
+		 */
+		public DateTime getLatestDate() {
+			return latestDate;
+		}
+
+		public List<CurrencyExchangeRate> getRates() {
+			return rates;
+		}
+	}
+
+	private final File file;
+
+	/**
+	 * Creates a new {@link CurrencyExchangeRateFile}.
+	 *
+	 * @param file the file to read and write, or {@code null} to always
+	 * 			load rates from the database
+	 */
+	public CurrencyExchangeRateFile(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Returns {@code true} if there's a file to read rates from.
+	 */
+	public boolean exists() {
+		return (file != null) && file.isFile();
+	}
+
+	/**
+	 * Reads the rates in the file.
+	 *
+	 * @return the file's rates, or {@code null} if it has none
+	 * @throws IOException if the file can't be read or isn't a valid rates
+	 * 			file
+	 */
+	public Contents read() throws IOException {
+		if (!exists()) {
+			return null;
+		}
+
+		final RandomAccessFile input = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel channel = input.getChannel();
+			if (channel.size() < HEADER_SIZE) {
+				throw new IOException(file + " is too short to be a rates file");
+			}
+
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if ((buffer.getInt() != MAGIC) || (buffer.getInt() != VERSION)) {
+				throw new IOException(file + " is not a version " + VERSION + " rates file");
+			}
+
+			final long latestDate = buffer.getLong();
+			final int count = buffer.getInt();
+			if ((count <= 0) || (buffer.remaining() != (long) count * RECORD_SIZE)) {
+				throw new IOException(file + " has " + buffer.remaining() + " bytes of rates, not " + count);
+			}
+
+			final byte[] code = new byte[CODE_SIZE];
+			final List<CurrencyExchangeRate> rates = Lists.newArrayListWithCapacity(count);
+			for (int i = 0; i < count; i++) {
+				buffer.get(code);
+				final Currency currency = Currency.getInstance(new String(code, ASCII));
+				final DateTime date = new DateTime(buffer.getLong());
+				rates.add(new CurrencyExchangeRate(currency, buffer.getDouble(), date));
+			}
+
+			return new Contents(new DateTime(latestDate), ImmutableList.copyOf(rates));
+		} catch (IllegalArgumentException e) {
+			throw new IOException(file + " has an unknown currency code: " + e.getMessage());
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Replaces the file with {@code rates}. Readers never see a partially
+	 * written file.
+	 *
+	 * @param rates every exchange rate, in any order
+	 * @throws IOException if the file can't be written
+	 */
+	public void write(Collection<CurrencyExchangeRate> rates) throws IOException {
+		if ((file == null) || rates.isEmpty()) {
+			return;
+		}
+
+		long latestDate = Long.MIN_VALUE;
+		for (CurrencyExchangeRate rate : rates) {
+			latestDate = Math.max(latestDate, rate.getDate().getMillis());
+		}
+
+		final File directory = file.getAbsoluteFile().getParentFile();
+		final File temp = File.createTempFile(file.getName(), ".tmp", directory);
+		try {
+			final DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(temp)));
+			try {
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeLong(latestDate);
+				output.writeInt(rates.size());
+				for (CurrencyExchangeRate rate : rates) {
+					output.write(rate.getCurrency().getCurrencyCode().getBytes(ASCII));
+					output.writeLong(rate.getDate().getMillis());
+					output.writeDouble(rate.getRate());
+				}
+			} finally {
+				output.close();
+			}
+
+			if (!temp.renameTo(file)) {
+				throw new IOException("unable to replace " + file);
+			}
+		} finally {
+			temp.delete();
+		}
+	}
+}
@@ -1,13 +1,17 @@
 package com.wesabe.api.accounts.dao;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.Currency;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.joda.time.DateTime;
 
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.wesabe.api.accounts.entities.CurrencyExchangeRate;
@@ -16,6 +20,11 @@ import com.wesabe.api.util.money.DollarPivotCurrencyExchangeRateMap;
 
 /**
  * A {@link Provider} of {@link CurrencyExchangeRateMap}s.
+ * <p>
+ * If the {@link CurrencyExchangeRateFile} has a copy of the rates, and the
+ * database has nothing older than the copy's newest rate, only the rates
+ * since then are fetched from the database. Otherwise every rate is. Either
+ * way, the file is rewritten with the rates which were loaded.
  * 
  * @author coda
  *
@@ -24,11 +33,13 @@ import com.wesabe.api.util.money.DollarPivotCurrencyExchangeRateMap;
 public class CurrencyExchangeRateMapProvider implements Provider<CurrencyExchangeRateMap> {
 	private static final Currency USD = Currency.getInstance("USD");
 	private final SessionFactory sessionFactory;
+	private final CurrencyExchangeRateFile ratesFile;
 	private final Logger logger;
 	
 	@Inject
-	public CurrencyExchangeRateMapProvider(SessionFactory sessionFactory, Logger logger) {
+	public CurrencyExchangeRateMapProvider(SessionFactory sessionFactory, CurrencyExchangeRateFile ratesFile, Logger logger) {
 		this.sessionFactory = sessionFactory;
+		this.ratesFile = ratesFile;
 		this.logger = logger;
 	}
 	
@@ -36,21 +47,81 @@ public class CurrencyExchangeRateMapProvider implements Provider<CurrencyExchang
 	public CurrencyExchangeRateMap get() {
 		final Session session = sessionFactory.openSession();
 		try {
-			logger.info("reading currency exchange rates");
-			@SuppressWarnings("unchecked")
-			final List<CurrencyExchangeRate> rates = session.getNamedQuery("com.wesabe.api.accounts.entities.CurrencyExchangeRate.findAll").list();
+			final CurrencyExchangeRateFile.Contents cached = readCachedRates();
+			final List<CurrencyExchangeRate> rates;
+			final int fetched;
+			if ((cached != null) && isCurrent(session, cached)) {
+				logger.info("reading currency exchange rates since " + cached.getLatestDate());
+				@SuppressWarnings("unchecked")
+				final List<CurrencyExchangeRate> recent = session.getNamedQuery("com.wesabe.api.accounts.entities.CurrencyExchangeRate.findSince")
+					.setParameter("date", cached.getLatestDate())
+					.list();
+				
+				rates = Lists.newArrayListWithCapacity(cached.getRates().size() + recent.size());
+				for (CurrencyExchangeRate rate : cached.getRates()) {
+					if (rate.getDate().isBefore(cached.getLatestDate())) {
+						rates.add(rate);
+					}
+				}
+				rates.addAll(recent);
+				fetched = recent.size();
+			} else {
+				logger.info("reading currency exchange rates");
+				@SuppressWarnings("unchecked")
+				final List<CurrencyExchangeRate> all = session.getNamedQuery("com.wesabe.api.accounts.entities.CurrencyExchangeRate.findAll").list();
+				rates = all;
+				fetched = all.size();
+			}
+			
 			final DollarPivotCurrencyExchangeRateMap exchangeRateMap = new DollarPivotCurrencyExchangeRateMap();
 
 			logger.info("loading currency exchange rates");
+			final CurrencyExchangeRateMap.Batch batch = exchangeRateMap.newBatch();
 			for (CurrencyExchangeRate rate : rates) {
-				exchangeRateMap.addExchangeRate(USD, rate.getCurrency(), rate.getDate(), new BigDecimal(rate.getRate()));
+				batch.addExchangeRate(USD, rate.getCurrency(), rate.getDate(), new BigDecimal(rate.getRate()));
 			}
+			batch.commit();
 
-			logger.info(rates.size() + " exchange rates loaded");
+			logger.info(rates.size() + " exchange rates loaded, " + fetched + " from the database");
+			
+			if (fetched > 0) {
+				writeCachedRates(rates);
+			}
 
 			return exchangeRateMap;
 		} finally {
 			session.close();
 		}
 	}
+	
+	/**
+	 * Returns {@code true} if the database's newest rate is no older than
+	 * the newest cached rate. If it is, the file was written from some other
+	 * database, and can't be trusted.
+	 */
+	private boolean isCurrent(Session session, CurrencyExchangeRateFile.Contents cached) {
+		final DateTime latestDate = (DateTime) session.getNamedQuery("com.wesabe.api.accounts.entities.CurrencyExchangeRate.findLatestDate").uniqueResult();
+		if ((latestDate == null) || latestDate.isBefore(cached.getLatestDate())) {
+			logger.warning("cached currency exchange rates are newer than the database's; ignoring them");
+			return false;
+		}
+		return true;
+	}
+	
+	private CurrencyExchangeRateFile.Contents readCachedRates() {
+		try {
+			return ratesFile.read();
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "unable to read cached currency exchange rates", e);
+			return null;
+		}
+	}
+	
+	private void writeCachedRates(List<CurrencyExchangeRate> rates) {
+		try {
+			ratesFile.write(rates);
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "unable to cache currency exchange rates", e);
+		}
+	}
 }
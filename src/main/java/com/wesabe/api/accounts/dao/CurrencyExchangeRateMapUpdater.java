@@ -18,7 +18,8 @@ import com.wesabe.api.util.money.CurrencyExchangeRateMap;
 
 /**
  * A class which updates a {@link CurrencyExchangeRateMap} with new rates from
- * the database every 12 hours.
+ * the database every 12 hours. Each update is added as a single batch, so
+ * requests see either all of its rates or none of them.
  * 
  * @author coda
  */
@@ -49,9 +50,11 @@ public class CurrencyExchangeRateMapUpdater implements Runnable {
 			final List<CurrencyExchangeRate> rates = query.list();
 			
 			logger.info("loading currency exchange rates");
+			final CurrencyExchangeRateMap.Batch batch = exchangeRateMap.newBatch();
 			for (CurrencyExchangeRate rate : rates) {
-				exchangeRateMap.addExchangeRate(USD, rate.getCurrency(), rate.getDate(), new BigDecimal(rate.getRate()));
+				batch.addExchangeRate(USD, rate.getCurrency(), rate.getDate(), new BigDecimal(rate.getRate()));
 			}
+			batch.commit();
 
 			logger.info(rates.size() + " new exchange rates loaded");
 		} finally {
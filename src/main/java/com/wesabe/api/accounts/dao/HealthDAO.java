@@ -10,19 +10,21 @@ import com.google.inject.Provider;
 
 /**
  * A data access object for retrieving information about the current process's
- * health regarding database connections.
+ * health regarding database connections, both to the primary database and to
+ * whichever database {@link ReadOnly} sessions are read from.
  * 
  * @author coda
  *
  */
 public class HealthDAO {
 	private static final String HEALTHY = "health-check";
-	private final Provider<Session> provider;
+	private final Provider<Session> provider, readOnlyProvider;
 	private final Logger logger;
 	
 	@Inject
-	public HealthDAO(Provider<Session> provider, Logger logger) {
+	public HealthDAO(Provider<Session> provider, @ReadOnly Provider<Session> readOnlyProvider, Logger logger) {
 		this.provider = provider;
+		this.readOnlyProvider = readOnlyProvider;
 		this.logger = logger;
 	}
 	
@@ -33,6 +35,10 @@ public class HealthDAO {
 	 * @return whether or not the database is healthy
 	 */
 	public boolean isHealthy() {
+		return isHealthy(provider) && isHealthy(readOnlyProvider);
+	}
+	
+	private boolean isHealthy(Provider<Session> provider) {
 		try {
 			final Session session = provider.get();
 			final String result = (String) session.createSQLQuery("SELECT :value")
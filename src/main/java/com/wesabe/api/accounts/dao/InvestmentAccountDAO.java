@@ -22,7 +22,7 @@ public class InvestmentAccountDAO extends AbstractDAO<InvestmentAccount> {
 	private static final EnumSet<AccountStatus> ACTIVE_STATUSES = EnumSet.of(AccountStatus.ACTIVE, AccountStatus.ARCHIVED);
 
 	@Inject
-	public InvestmentAccountDAO(Provider<Session> provider) {
+	public InvestmentAccountDAO(@ReadOnly Provider<Session> provider) {
 		super(provider, InvestmentAccount.class);
 	}
 	
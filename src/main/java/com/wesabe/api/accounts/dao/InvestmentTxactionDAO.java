@@ -23,7 +23,7 @@ import com.wesabe.api.accounts.entities.InvestmentTxaction;
 public class InvestmentTxactionDAO extends AbstractDAO<InvestmentTxaction> {
 	
 	@Inject
-	public InvestmentTxactionDAO(Provider<Session> provider) {
+	public InvestmentTxactionDAO(@ReadOnly Provider<Session> provider) {
 		super(provider, InvestmentTxaction.class);
 	}
 
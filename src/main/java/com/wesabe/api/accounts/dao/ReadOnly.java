@@ -0,0 +1,21 @@
+package com.wesabe.api.accounts.dao;
+
+import static java.lang.annotation.ElementType.*;
+import static java.lang.annotation.RetentionPolicy.*;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import com.google.inject.BindingAnnotation;
+
+/**
+ * Marks a {@link org.hibernate.Session} which is only used for reads, and
+ * which may be served by a {@link ReplicaDatabase}.
+ *
+ * @see ReplicaSessionProvider
+ */
+@BindingAnnotation
+@Target({ FIELD, PARAMETER, METHOD })
+@Retention(RUNTIME)
+public @interface ReadOnly {
+}
@@ -0,0 +1,125 @@
+package com.wesabe.api.accounts.dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.hibernate.connection.ConnectionProvider;
+
+/**
+ * A pool of connections to a read-only replica of the primary database, and
+ * how far behind the primary the replica is.
+ * <p>
+ * The replica is only used while its replication lag is known and no more
+ * than the maximum lag; until {@link #checkLag()} has been called, or if the
+ * last check failed, it's unavailable.
+ *
+ * @see ReplicaSessionProvider
+ * @see ReplicaLagMonitor
+ */
+public class ReplicaDatabase {
+	private static final int UNKNOWN_LAG = -1;
+	private final ConnectionProvider connections;
+	private final int maxLag;
+	private volatile int lag = UNKNOWN_LAG;
+
+	/**
+	 * Creates a new {@link ReplicaDatabase}.
+	 *
+	 * @param connections the replica's connection pool, or {@code null} if no
+	 * 			replica is configured
+	 * @param maxLag the most seconds the replica can be behind the primary
+	 * 			and still be used
+	 */
+	public ReplicaDatabase(ConnectionProvider connections, int maxLag) {
+		this.connections = connections;
+		this.maxLag = maxLag;
+	}
+
+	/**
+	 * Returns {@code true} if a replica is configured.
+	 */
+	public boolean isConfigured() {
+		return connections != null;
+	}
+
+	/**
+	 * Returns {@code true} if the replica is configured and was no more than
+	 * the maximum lag behind the primary when it was last checked.
+	 */
+	public boolean isAvailable() {
+		final int currentLag = lag;
+		return isConfigured() && (currentLag != UNKNOWN_LAG) && (currentLag <= maxLag);
+	}
+
+	/**
+	 * Returns the number of seconds the replica was behind the primary when it
+	 * was last checked, or {@code -1} if it's unknown.
+	 */
+	public int getLag() {
+		return lag;
+	}
+
+	/**
+	 * Returns the most seconds the replica can be behind the primary and still
+	 * be used.
+	 */
+	public int getMaxLag() {
+		return maxLag;
+	}
+
+	/**
+	 * Returns a read-only connection from the replica's pool.
+	 */
+	public Connection getConnection() throws SQLException {
+		final Connection connection = connections.getConnection();
+		connection.setReadOnly(true);
+		return connection;
+	}
+
+	/**
+	 * Returns {@code connection} to the replica's pool.
+	 */
+	public void closeConnection(Connection connection) throws SQLException {
+		connections.closeConnection(connection);
+	}
+
+	/**
+	 * Measures the replica's replication lag. If it can't be measured, the
+	 * replica is unavailable until the next check.
+	 */
+	public void checkLag() throws SQLException {
+		if (!isConfigured()) {
+			return;
+		}
+
+		this.lag = UNKNOWN_LAG;
+		final Connection connection = getConnection();
+		try {
+			this.lag = measureLag(connection);
+		} finally {
+			closeConnection(connection);
+		}
+	}
+
+	/**
+	 * Returns the number of seconds the database on the other end of
+	 * {@code connection} is behind its master, {@code 0} if it isn't a
+	 * replica, or {@code -1} if replication isn't running.
+	 */
+	protected int measureLag(Connection connection) throws SQLException {
+		final Statement statement = connection.createStatement();
+		try {
+			final ResultSet results = statement.executeQuery("SHOW SLAVE STATUS");
+			if (!results.next()) {
+				return 0;
+			}
+
+			final int secondsBehindMaster = results.getInt("Seconds_Behind_Master");
+			return results.wasNull() ? UNKNOWN_LAG : secondsBehindMaster;
+		} finally {
+			statement.close();
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package com.wesabe.api.accounts.dao;
+
+import java.sql.SQLException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.inject.Inject;
+
+/**
+ * A class which checks a {@link ReplicaDatabase}'s replication lag every 5
+ * seconds.
+ */
+public class ReplicaLagMonitor implements Runnable {
+	private static final int CHECK_PERIOD = 5; // seconds
+	private final ReplicaDatabase replica;
+	private final Logger logger;
+	private boolean available = false;
+
+	@Inject
+	public ReplicaLagMonitor(ReplicaDatabase replica, ScheduledExecutorService executorService, Logger logger) {
+		this.replica = replica;
+		this.logger = logger;
+		if (replica.isConfigured()) {
+			run();
+			executorService.scheduleWithFixedDelay(this, CHECK_PERIOD, CHECK_PERIOD, TimeUnit.SECONDS);
+		}
+	}
+
+	@Override
+	public void run() {
+		try {
+			replica.checkLag();
+		} catch (SQLException e) {
+			logger.log(Level.WARNING, "Unable to check the replica's replication lag", e);
+		}
+
+		if (replica.isAvailable() != available) {
+			this.available = replica.isAvailable();
+			if (available) {
+				logger.info("reading from the replica (" + replica.getLag() + "s behind)");
+			} else {
+				logger.warning("reading from the primary (replica lag: " + replica.getLag() + "s)");
+			}
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package com.wesabe.api.accounts.dao;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * A servlet filter which makes {@code GET} and {@code HEAD} requests
+ * read-only, so their {@link ReadOnly} sessions can be served by the replica.
+ *
+ * @see ReplicaSessionProvider
+ */
+public class ReplicaSessionFilter implements Filter {
+	@Override
+	public void init(FilterConfig config) throws ServletException {
+		// nothing to configure
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		if (!isReadOnly(request)) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		ReplicaSessionProvider.beginReadOnlyRequest();
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			try {
+				ReplicaSessionProvider.endReadOnlyRequest();
+			} catch (SQLException e) {
+				throw new ServletException("Unable to close the replica connection", e);
+			}
+		}
+	}
+
+	@Override
+	public void destroy() {
+		// nothing to clean up
+	}
+
+	private boolean isReadOnly(ServletRequest request) {
+		if (request instanceof HttpServletRequest) {
+			final String method = ((HttpServletRequest) request).getMethod();
+			return "GET".equals(method) || "HEAD".equals(method);
+		}
+		return false;
+	}
+}
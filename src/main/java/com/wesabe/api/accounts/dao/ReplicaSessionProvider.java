@@ -0,0 +1,136 @@
+package com.wesabe.api.accounts.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.hibernate.CacheMode;
+import org.hibernate.FlushMode;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+
+/**
+ * A {@link Provider} of {@link ReadOnly} {@link Session}s.
+ * <p>
+ * During a read-only request (see {@link ReplicaSessionFilter}), if the
+ * {@link ReplicaDatabase} is available the first time a session is needed,
+ * every {@link ReadOnly} session the request uses is a single session on a
+ * replica connection; otherwise, and outside read-only requests, it's the
+ * primary session. A request's {@link ReadOnly} sessions never switch
+ * databases halfway through, but DAOs which read from the primary session
+ * (e.g., {@link AccountBalanceDAO}) still do, so a request may see rows from
+ * both databases.
+ * <p>
+ * Replica sessions never flush. They read from the primary session factory's
+ * second-level cache, but never write to it ({@link CacheMode#GET}): a
+ * replica can be behind the writes which evicted an entry, so anything it
+ * cached could outlive them. For the same reason, queries shouldn't use the
+ * query cache on a replica session; see {@link #isReplicaSession(Session)}.
+ */
+@Singleton
+public class ReplicaSessionProvider implements Provider<Session> {
+	private static class ReadOnlyRequest {
+		private boolean routed = false;
+		private ReplicaDatabase replica;
+		private Connection connection;
+		private Session session;
+	}
+
+	private static final ThreadLocal<ReadOnlyRequest> REQUESTS = new ThreadLocal<ReadOnlyRequest>();
+
+	/**
+	 * Marks the beginning of a read-only request on the current thread.
+	 */
+	public static void beginReadOnlyRequest() {
+		REQUESTS.set(new ReadOnlyRequest());
+	}
+
+	/**
+	 * Returns {@code true} if the current thread is handling a read-only
+	 * request.
+	 */
+	public static boolean isReadOnlyRequest() {
+		return REQUESTS.get() != null;
+	}
+
+	/**
+	 * Returns {@code true} if {@code session} is the current thread's replica
+	 * session.
+	 */
+	public static boolean isReplicaSession(Session session) {
+		final ReadOnlyRequest request = REQUESTS.get();
+		return (request != null) && (request.session != null) && (request.session == session);
+	}
+
+	/**
+	 * Marks the end of the current thread's read-only request, closing its
+	 * replica session, if any, and returning its connection to the pool.
+	 */
+	public static void endReadOnlyRequest() throws SQLException {
+		final ReadOnlyRequest request = REQUESTS.get();
+		REQUESTS.remove();
+		if ((request != null) && (request.session != null)) {
+			try {
+				request.session.close();
+			} finally {
+				request.replica.closeConnection(request.connection);
+			}
+		}
+	}
+
+	private final SessionFactory sessionFactory;
+	private final Provider<Session> primaryProvider;
+	private final ReplicaDatabase replica;
+	private final Logger logger;
+
+	@Inject
+	public ReplicaSessionProvider(SessionFactory sessionFactory, Provider<Session> primaryProvider,
+			ReplicaDatabase replica, Logger logger) {
+		this.sessionFactory = sessionFactory;
+		this.primaryProvider = primaryProvider;
+		this.replica = replica;
+		this.logger = logger;
+	}
+
+	@Override
+	public Session get() {
+		final ReadOnlyRequest request = REQUESTS.get();
+		if (request == null) {
+			return primaryProvider.get();
+		}
+
+		if (!request.routed) {
+			request.routed = true;
+			if (replica.isAvailable()) {
+				openReplicaSession(request);
+			}
+		}
+
+		return (request.session == null) ? primaryProvider.get() : request.session;
+	}
+
+	private void openReplicaSession(ReadOnlyRequest request) {
+		try {
+			final Connection connection = replica.getConnection();
+			try {
+				final Session session = sessionFactory.openSession(connection);
+				session.setFlushMode(FlushMode.MANUAL);
+				session.setCacheMode(CacheMode.GET);
+				request.replica = replica;
+				request.connection = connection;
+				request.session = session;
+			} catch (HibernateException e) {
+				replica.closeConnection(connection);
+				throw e;
+			}
+		} catch (SQLException e) {
+			logger.log(Level.WARNING, "Unable to connect to the replica, reading from the primary", e);
+		}
+	}
+}
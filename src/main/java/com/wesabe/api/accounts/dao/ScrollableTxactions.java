@@ -0,0 +1,111 @@
+package com.wesabe.api.accounts.dao;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.hibernate.Hibernate;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+
+import com.google.common.collect.Lists;
+import com.wesabe.api.accounts.entities.TaggedAmount;
+import com.wesabe.api.accounts.entities.Txaction;
+
+/**
+ * A forward-only, single-use {@link Iterator} of {@link Txaction}s scrolled
+ * from the database a page at a time.
+ * <p>
+ * Once the iterator has moved past a page, its transactions and their tagged
+ * amounts are evicted from the session, so only one page is ever held in
+ * memory. Don't hold on to the transactions, and don't use them once the
+ * iterator has moved on &mdash; they're detached.
+ * <p>
+ * Always {@link #close()} a {@link ScrollableTxactions} when you're done
+ * with it.
+ *
+ * @see TxactionDAO#scrollTxactions(java.util.Collection)
+ */
+public class ScrollableTxactions implements Iterator<Txaction> {
+	private final Session session;
+	private final ScrollableResults results;
+	private final int pageSize;
+	private final List<Txaction> page;
+	private int index = 0;
+	private boolean exhausted;
+
+	/**
+	 * Creates a new {@link ScrollableTxactions}.
+	 *
+	 * @param session the session {@code results} were scrolled from
+	 * @param results the scrolled transactions, or {@code null} if there are
+	 * 			none
+	 * @param pageSize the number of transactions in a page
+	 */
+	public ScrollableTxactions(Session session, ScrollableResults results, int pageSize) {
+		this.session = session;
+		this.results = results;
+		this.pageSize = pageSize;
+		this.page = Lists.newArrayListWithCapacity(pageSize);
+		this.exhausted = (results == null);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (index < page.size()) {
+			return true;
+		}
+
+		evictPage();
+		while (!exhausted && (page.size() < pageSize)) {
+			if (results.next()) {
+				page.add((Txaction) results.get(0));
+			} else {
+				this.exhausted = true;
+			}
+		}
+		return !page.isEmpty();
+	}
+
+	@Override
+	public Txaction next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return page.get(index++);
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Evicts the current page and releases the database cursor.
+	 */
+	public void close() {
+		evictPage();
+		this.exhausted = true;
+		if (results != null) {
+			results.close();
+		}
+	}
+
+	private void evictPage() {
+		for (Txaction txaction : page) {
+			if (Hibernate.isInitialized(txaction.getTaggedAmounts())) {
+				for (TaggedAmount taggedAmount : txaction.getTaggedAmounts()) {
+					session.evict(taggedAmount);
+				}
+			}
+
+			if (txaction.getTransferTxaction() != null) {
+				session.evict(txaction.getTransferTxaction());
+			}
+
+			session.evict(txaction);
+		}
+		page.clear();
+		this.index = 0;
+	}
+}
@@ -0,0 +1,154 @@
+package com.wesabe.api.accounts.dao;
+
+import org.joda.time.DateTime;
+
+import com.google.common.base.Objects;
+import com.wesabe.api.accounts.entities.Txaction;
+
+/**
+ * A position in a reverse chronological list of {@link Txaction}s, used for
+ * keyset pagination. A cursor identifies the last transaction of a page by its
+ * sort key &mdash; {@code (datePosted, sequence, createdAt, id)} &mdash; so the
+ * next page can be loaded with a range query instead of an offset.
+ * <p>
+ * Cursors are handed to clients as opaque strings via {@link #toString()} and
+ * read back via {@link #parse(String)}. A {@code null} {@code sequence} sorts
+ * as {@code 0} and a {@code null} {@code createdAt} sorts as the epoch, the
+ * same way {@link TxactionDAO} orders keyset pages. Cursors compare in
+ * chronological order, like {@link Txaction}s.
+ *
+ * @see TxactionDAO#findTxactionsAfterCursor(java.util.Collection, TxactionFilter, TxactionCursor, int)
+ */
+public class TxactionCursor implements Comparable<TxactionCursor> {
+	private static final char SEPARATOR = '.';
+	private static final int RADIX = 36;
+
+	private final long datePosted;
+	private final int sequence;
+	private final long createdAt;
+	private final int id;
+
+	/**
+	 * Returns a cursor positioned at {@code txaction}.
+	 *
+	 * @param txaction a {@link Txaction} with a {@code datePosted}
+	 * @return a cursor whose next page starts after {@code txaction}
+	 */
+	public static TxactionCursor of(Txaction txaction) {
+		return new TxactionCursor(
+				txaction.getDatePosted().getMillis(),
+				(txaction.getSequence() == null) ? 0 : txaction.getSequence().intValue(),
+				(txaction.getCreatedAt() == null) ? 0L : txaction.getCreatedAt().getMillis(),
+				txaction.getId()
+		);
+	}
+
+	/**
+	 * Returns a cursor positioned before every transaction posted at
+	 * {@code date}, so balances after it include only the transactions posted
+	 * strictly before {@code date}. Transactions sort by highest sequence
+	 * first and then oldest creation date, so it takes the highest sequence
+	 * and the epoch.
+	 *
+	 * @param date a posting date
+	 * @return a cursor at the start of {@code date}
+	 */
+	public static TxactionCursor startOf(DateTime date) {
+		return new TxactionCursor(date.getMillis(), Integer.MAX_VALUE, 0L, 0);
+	}
+
+	/**
+	 * Parses a cursor previously returned by {@link #toString()}.
+	 *
+	 * @param cursor an opaque cursor string
+	 * @return the cursor
+	 * @throws IllegalArgumentException if {@code cursor} is malformed
+	 */
+	public static TxactionCursor parse(String cursor) throws IllegalArgumentException {
+		final String[] fields = cursor.split("\\" + SEPARATOR, -1);
+		if (fields.length != 4) {
+			throw new IllegalArgumentException("not a valid cursor");
+		}
+
+		try {
+			return new TxactionCursor(
+					Long.parseLong(fields[0], RADIX),
+					Integer.parseInt(fields[1], RADIX),
+					Long.parseLong(fields[2], RADIX),
+					Integer.parseInt(fields[3], RADIX)
+			);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("not a valid cursor", e);
+		}
+	}
+
+	public TxactionCursor(long datePosted, int sequence, long createdAt, int id) {
+		this.datePosted = datePosted;
+		this.sequence = sequence;
+		this.createdAt = createdAt;
+		this.id = id;
+	}
+
+	public DateTime getDatePosted() {
+		return new DateTime(datePosted);
+	}
+
+	public int getSequence() {
+		return sequence;
+	}
+
+	public DateTime getCreatedAt() {
+		return new DateTime(createdAt);
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	@Override
+	public int compareTo(TxactionCursor other) {
+		if (datePosted != other.datePosted) {
+			return (datePosted < other.datePosted) ? -1 : 1;
+		}
+		
+		if (sequence != other.sequence) {
+			return (sequence > other.sequence) ? -1 : 1;
+		}
+		
+		if (createdAt != other.createdAt) {
+			return (createdAt < other.createdAt) ? -1 : 1;
+		}
+		
+		if (id != other.id) {
+			return (id < other.id) ? -1 : 1;
+		}
+		
+		return 0;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hashCode(datePosted, sequence, createdAt, id);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof TxactionCursor) {
+			final TxactionCursor other = (TxactionCursor) obj;
+			return (datePosted == other.datePosted) && (sequence == other.sequence)
+					&& (createdAt == other.createdAt) && (id == other.id);
+		}
+
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder()
+					.append(Long.toString(datePosted, RADIX)).append(SEPARATOR)
+					.append(Integer.toString(sequence, RADIX)).append(SEPARATOR)
+					.append(Long.toString(createdAt, RADIX)).append(SEPARATOR)
+					.append(Integer.toString(id, RADIX))
+					.toString();
+	}
+}
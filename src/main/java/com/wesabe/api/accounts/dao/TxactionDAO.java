@@ -1,18 +1,32 @@
 package com.wesabe.api.accounts.dao;
 
+import java.math.BigDecimal;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
+import org.hibernate.Hibernate;
+import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
+import org.hibernate.type.Type;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
+import org.joda.time.contrib.hibernate.PersistentDateTime;
 
 import com.codahale.shore.dao.AbstractDAO;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.wesabe.api.accounts.entities.Account;
+import com.wesabe.api.accounts.entities.Tag;
 import com.wesabe.api.accounts.entities.Txaction;
+import com.wesabe.api.accounts.entities.TxactionStatus;
 
 /**
  * A data access object for retrieving and storing {@link Txaction} instances.
@@ -21,9 +35,14 @@ import com.wesabe.api.accounts.entities.Txaction;
  * @see Txaction
  */
 public class TxactionDAO extends AbstractDAO<Txaction> {
+	private static final DateTime EPOCH = new DateTime(0L);
+	// Hibernate can't infer a parameter's type from COALESCE, so bind dates explicitly
+	private static final Type DATE_TIME = Hibernate.custom(PersistentDateTime.class);
+	private static final EnumSet<TxactionStatus> HIDDEN_STATUSES = EnumSet.of(TxactionStatus.DELETED, TxactionStatus.DISABLED);
+	private static final int SCROLL_PAGE_SIZE = 200; // the batch size of Txaction#taggedAmounts
 	
 	@Inject
-	public TxactionDAO(Provider<Session> provider) {
+	public TxactionDAO(@ReadOnly Provider<Session> provider) {
 		super(provider, Txaction.class);
 	}
 
@@ -112,4 +131,474 @@ public class TxactionDAO extends AbstractDAO<Txaction> {
 					.setParameterList("accounts", accounts)
 		);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Scrolls through all {@link Txaction} instances which belong to a set of
+	 * {@link Account}s, without loading them all at once. Transactions are
+	 * fetched and evicted from the session a page at a time, so only one page
+	 * is ever held in memory.
+	 * <p>
+	 * With MySQL, the JDBC connection needs {@code useCursorFetch=true}, or the
+	 * driver will buffer the whole result set itself.
+	 * 
+	 * @param accounts
+	 *            a set of Accounts
+	 * @return the transactions in chronological order, which must be closed
+	 */
+	public ScrollableTxactions scrollTxactions(Collection<Account> accounts) {
+		if (accounts.isEmpty()) {
+			return new ScrollableTxactions(currentSession(), null, SCROLL_PAGE_SIZE);
+		}
+		
+		final ScrollableResults results = namedQuery("com.wesabe.api.accounts.Txaction.findInAccounts")
+			.setParameterList("accounts", accounts)
+			.setReadOnly(true)
+			.setFetchSize(SCROLL_PAGE_SIZE)
+			.scroll(ScrollMode.FORWARD_ONLY);
+		return new ScrollableTxactions(currentSession(), results, SCROLL_PAGE_SIZE);
+	}
+
+	/**
+	 * Finds all visible {@link Txaction} instances which belong to a set of
+	 * {@link Account}s and which match a {@link TxactionFilter}. Deleted and
+	 * disabled transactions are never returned.
+	 * <p>
+	 * Tags are matched using {@link Tag}'s fuzzy equality: the distinct tag
+	 * names used in {@code accounts} are loaded first, and only the names
+	 * equal to one of the filter's tags are used to restrict the transactions.
+	 * A query is matched against tags the same way, using the names whose
+	 * {@link Tag} contains it.
+	 * 
+	 * @param accounts
+	 *            a set of Accounts
+	 * @param filter
+	 *            the restrictions on which transactions should be returned
+	 * @return a list of transactions in chronological order
+	 */
+	public List<Txaction> findTxactions(Collection<Account> accounts, TxactionFilter filter) {
+		if (accounts.isEmpty()) {
+			return Collections.emptyList();
+		}
+		
+		final Query query = createFilteredQuery(accounts, filter, false, null);
+		if (query == null) {
+			return Collections.emptyList();
+		}
+		
+		return list(query);
+	}
+	
+	/**
+	 * Finds a page of visible {@link Txaction}s which belong to a set of
+	 * {@link Account}s and which match a {@link TxactionFilter}, in reverse
+	 * chronological order, starting after {@code cursor}.
+	 * <p>
+	 * At most {@code limit + 1} transactions are returned; if the extra one is
+	 * present, there is another page, which starts after the transaction at
+	 * index {@code limit - 1}. Transactions without a {@code datePosted} can't
+	 * be positioned by a {@link TxactionCursor} and are never returned.
+	 * 
+	 * @param accounts
+	 *            a set of Accounts
+	 * @param filter
+	 *            the restrictions on which transactions should be returned
+	 * @param cursor
+	 *            the position of the last transaction of the previous page, or
+	 *            {@code null} for the first page
+	 * @param limit
+	 *            the number of transactions in a page
+	 * @return up to {@code limit + 1} transactions, newest first
+	 */
+	public List<Txaction> findTxactionsAfterCursor(Collection<Account> accounts, TxactionFilter filter, TxactionCursor cursor, int limit) {
+		if (accounts.isEmpty()) {
+			return Collections.emptyList();
+		}
+		
+		final Query query = createFilteredQuery(accounts, filter, true, cursor);
+		if (query == null) {
+			return Collections.emptyList();
+		}
+		
+		return list(query.setMaxResults(limit + 1));
+	}
+	
+	/**
+	 * Loads the tagged amounts and attachments of a page of {@link Txaction}s
+	 * and of their paired transfers, so presenting the page takes a fixed
+	 * number of queries no matter how many transactions are on it. The
+	 * transfers themselves are already fetched by
+	 * {@link #findTxactions(Collection, TxactionFilter)} and
+	 * {@link #findTxactionsAfterCursor(Collection, TxactionFilter, TxactionCursor, int)}.
+	 * 
+	 * @param txactions
+	 *            the transactions about to be presented
+	 */
+	public void prefetch(Collection<Txaction> txactions) {
+		if (txactions.isEmpty()) {
+			return;
+		}
+		
+		final Set<Txaction> pairedTxactions = Sets.newLinkedHashSet(txactions);
+		for (Txaction txaction : txactions) {
+			if (txaction.getTransferTxaction() != null) {
+				pairedTxactions.add(txaction.getTransferTxaction());
+			}
+		}
+		
+		namedQuery("com.wesabe.api.accounts.Txaction.fetchTaggedAmounts")
+			.setParameterList("txactions", pairedTxactions)
+			.list();
+		namedQuery("com.wesabe.api.accounts.Txaction.fetchAttachments")
+			.setParameterList("txactions", pairedTxactions)
+			.list();
+	}
+	
+	/**
+	 * Returns a query for the transactions matching {@code filter}, or
+	 * {@code null} if it has tags and none of them are used in
+	 * {@code accounts}.
+	 */
+	private Query createFilteredQuery(Collection<Account> accounts, TxactionFilter filter,
+			boolean keyset, TxactionCursor cursor) {
+		final List<String> accountTagNames = findTagNames(accounts, filter);
+		final Set<String> tagNames = findTagNamesEqualTo(accountTagNames, filter.getTags());
+		if (!filter.getTags().isEmpty() && tagNames.isEmpty()) {
+			return null;
+		}
+		
+		final Set<String> queryTagNames = findTagNamesContaining(accountTagNames, filter.getQuery());
+		
+		final StringBuilder hql = new StringBuilder(
+				"SELECT t FROM Txaction t" +
+				" LEFT OUTER JOIN FETCH t.merchant AS m" +
+				" LEFT OUTER JOIN FETCH t.transferTxaction AS tt" +
+				" LEFT OUTER JOIN FETCH tt.merchant" +
+				" WHERE t.account IN (:accounts) AND t.status NOT IN (:hiddenStatuses)"
+		);
+		
+		if (filter.getStartDate() != null) {
+			hql.append(" AND t.datePosted >= :startDate");
+		}
+		
+		if (filter.getEndDate() != null) {
+			hql.append(" AND t.datePosted < :endDate");
+		}
+		
+		if (filter.getAmount() != null) {
+			hql.append(" AND t.amount = :amount");
+		}
+		
+		if (!filter.getMerchantNames().isEmpty()) {
+			hql.append(" AND m.name IN (:merchantNames)");
+		}
+		
+		if (!tagNames.isEmpty()) {
+			hql.append(" AND t.id IN (SELECT ta.txaction.id FROM TaggedAmount ta WHERE ta.tagName IN (:tagNames))");
+		}
+		
+		if (filter.isUnedited()) {
+			hql.append(" AND (m IS NULL OR (t.tagged = false AND t.transferTxaction IS NULL))");
+		}
+		
+		if (filter.getQuery() != null) {
+			hql.append(" AND (LOWER(m.name) LIKE :query ESCAPE '!'" +
+					" OR LOWER(t.filteredName) LIKE :query ESCAPE '!'" +
+					" OR LOWER(t.note) LIKE :query ESCAPE '!'");
+			if (!queryTagNames.isEmpty()) {
+				hql.append(" OR t.id IN (SELECT ta.txaction.id FROM TaggedAmount ta WHERE ta.tagName IN (:queryTagNames))");
+			}
+			hql.append(")");
+		}
+		
+		if (keyset) {
+			hql.append(" AND t.datePosted IS NOT NULL");
+		}
+		
+		if (cursor != null) {
+			hql.append(" AND ").append(olderThan("cursor"));
+		}
+		
+		if (keyset) {
+			hql.append(" ORDER BY t.datePosted DESC, COALESCE(t.sequence, 0) ASC," +
+					" COALESCE(t.createdAt, :epoch) DESC, t.id DESC");
+		} else {
+			hql.append(" ORDER BY t.datePosted ASC, t.sequence DESC, t.createdAt ASC");
+		}
+		
+		final Query query = currentSession().createQuery(hql.toString())
+				.setParameterList("accounts", accounts)
+				.setParameterList("hiddenStatuses", TxactionStatus.toValues(HIDDEN_STATUSES));
+		
+		if (filter.getStartDate() != null) {
+			query.setParameter("startDate", filter.getStartDate());
+		}
+		
+		if (filter.getEndDate() != null) {
+			query.setParameter("endDate", filter.getEndDate());
+		}
+		
+		if (filter.getAmount() != null) {
+			query.setParameter("amount", filter.getAmount());
+		}
+		
+		if (!filter.getMerchantNames().isEmpty()) {
+			query.setParameterList("merchantNames", filter.getMerchantNames());
+		}
+		
+		if (!tagNames.isEmpty()) {
+			query.setParameterList("tagNames", tagNames);
+		}
+		
+		if (filter.getQuery() != null) {
+			query.setParameter("query", "%" + escapeLike(filter.getQuery().toLowerCase()) + "%");
+			if (!queryTagNames.isEmpty()) {
+				query.setParameterList("queryTagNames", queryTagNames);
+			}
+		}
+		
+		if (keyset) {
+			query.setParameter("epoch", EPOCH, DATE_TIME);
+		}
+		
+		if (cursor != null) {
+			setCursorParameters(query, "cursor", cursor);
+		}
+		
+		return query;
+	}
+	
+	/**
+	 * Returns an HQL restriction to transactions which sort strictly before the
+	 * cursor bound to the parameters prefixed by {@code name}. The leading
+	 * {@code datePosted} range lets the database use its index before checking
+	 * the rest of the key.
+	 */
+	private static String olderThan(String name) {
+		return String.format(
+				"t.datePosted <= :%1$sDatePosted AND (t.datePosted < :%1$sDatePosted" +
+				" OR (t.datePosted = :%1$sDatePosted AND (COALESCE(t.sequence, 0) > :%1$sSequence" +
+				" OR (COALESCE(t.sequence, 0) = :%1$sSequence AND (COALESCE(t.createdAt, :epoch) < :%1$sCreatedAt" +
+				" OR (COALESCE(t.createdAt, :epoch) = :%1$sCreatedAt AND t.id < :%1$sId))))))",
+				name);
+	}
+	
+	/**
+	 * Returns an HQL restriction to transactions which sort strictly after the
+	 * cursor bound to the parameters prefixed by {@code name}.
+	 */
+	private static String newerThan(String name) {
+		return String.format(
+				"t.datePosted >= :%1$sDatePosted AND (t.datePosted > :%1$sDatePosted" +
+				" OR (t.datePosted = :%1$sDatePosted AND (COALESCE(t.sequence, 0) < :%1$sSequence" +
+				" OR (COALESCE(t.sequence, 0) = :%1$sSequence AND (COALESCE(t.createdAt, :epoch) > :%1$sCreatedAt" +
+				" OR (COALESCE(t.createdAt, :epoch) = :%1$sCreatedAt AND t.id > :%1$sId))))))",
+				name);
+	}
+	
+	private static void setCursorParameters(Query query, String name, TxactionCursor cursor) {
+		query.setParameter(name + "DatePosted", cursor.getDatePosted(), DATE_TIME);
+		query.setParameter(name + "Sequence", Integer.valueOf(cursor.getSequence()));
+		query.setParameter(name + "CreatedAt", cursor.getCreatedAt(), DATE_TIME);
+		query.setParameter(name + "Id", Integer.valueOf(cursor.getId()));
+	}
+	
+	/**
+	 * Scans the visible {@link Txaction}s in an {@link Account}, oldest first,
+	 * and returns a {@link BalanceCheckpoint} for every {@code interval}th
+	 * transaction and for the newest one. Only the key and amount of each
+	 * transaction are loaded, and they're never held in memory all at once.
+	 * 
+	 * @param account
+	 *            an Account
+	 * @param interval
+	 *            the number of transactions between checkpoints
+	 * @return a list of checkpoints in chronological order
+	 */
+	public List<BalanceCheckpoint> findBalanceCheckpoints(Account account, int interval) {
+		final ScrollableResults results = currentSession().createQuery(
+				"SELECT t.datePosted, t.sequence, t.createdAt, t.id, t.amount FROM Txaction t" +
+				" WHERE t.account = :account AND t.status NOT IN (:hiddenStatuses)" +
+				" AND t.datePosted IS NOT NULL" +
+				" ORDER BY t.datePosted ASC, COALESCE(t.sequence, 0) DESC," +
+				" COALESCE(t.createdAt, :epoch) ASC, t.id ASC")
+			.setParameter("account", account)
+			.setParameterList("hiddenStatuses", TxactionStatus.toValues(HIDDEN_STATUSES))
+			.setParameter("epoch", EPOCH, DATE_TIME)
+			.setReadOnly(true)
+			.setFetchSize(interval)
+			.scroll(ScrollMode.FORWARD_ONLY);
+		
+		try {
+			final List<BalanceCheckpoint> checkpoints = Lists.newArrayList();
+			BigDecimal sum = BigDecimal.ZERO;
+			BalanceCheckpoint newest = null;
+			int count = 0;
+			while (results.next()) {
+				sum = sum.add((BigDecimal) results.get(4));
+				count++;
+				
+				final DateTime createdAt = (DateTime) results.get(2);
+				final Integer sequence = (Integer) results.get(1);
+				newest = new BalanceCheckpoint(
+						new TxactionCursor(
+								((DateTime) results.get(0)).getMillis(),
+								(sequence == null) ? 0 : sequence.intValue(),
+								(createdAt == null) ? 0L : createdAt.getMillis(),
+								((Integer) results.get(3)).intValue()
+						),
+						sum
+				);
+				
+				if ((count % interval) == 0) {
+					checkpoints.add(newest);
+				}
+			}
+			
+			if ((newest != null) && ((count % interval) != 0)) {
+				checkpoints.add(newest);
+			}
+			
+			return checkpoints;
+		} finally {
+			results.close();
+		}
+	}
+	
+	/**
+	 * Scrolls through the account ID, date posted, and amount of each visible
+	 * {@link Txaction} in a set of {@link Account}s which was posted during
+	 * {@code dateRange}, newest first. Only those three columns are loaded, so
+	 * no entities are created and nothing is added to the session.
+	 * 
+	 * @param accounts
+	 *            a non-empty set of Accounts
+	 * @param dateRange
+	 *            the range of posting dates, exclusive of its end
+	 * @return {@code (Integer, DateTime, BigDecimal)} rows in reverse
+	 *         chronological order, which must be closed
+	 */
+	public ScrollableResults scrollPostedAmounts(Collection<Account> accounts, Interval dateRange) {
+		return currentSession().createQuery(
+				"SELECT t.account.id, t.datePosted, t.amount FROM Txaction t" +
+				" WHERE t.account IN (:accounts) AND t.status NOT IN (:hiddenStatuses)" +
+				" AND t.datePosted >= :startDate AND t.datePosted < :endDate" +
+				" ORDER BY t.datePosted DESC")
+			.setParameterList("accounts", accounts)
+			.setParameterList("hiddenStatuses", TxactionStatus.toValues(HIDDEN_STATUSES))
+			.setParameter("startDate", dateRange.getStart())
+			.setParameter("endDate", dateRange.getEnd())
+			.setReadOnly(true)
+			.setFetchSize(SCROLL_PAGE_SIZE)
+			.scroll(ScrollMode.FORWARD_ONLY);
+	}
+	
+	/**
+	 * Returns the sum of the amounts of the visible {@link Txaction}s in an
+	 * {@link Account} which sort strictly between two cursors.
+	 * 
+	 * @param account
+	 *            an Account
+	 * @param after
+	 *            the exclusive lower bound, or {@code null} for the beginning
+	 *            of the account's history
+	 * @param before
+	 *            the exclusive upper bound, or {@code null} for the end of the
+	 *            account's history
+	 * @return the sum of the transactions' amounts
+	 */
+	public BigDecimal sumAmountsBetween(Account account, TxactionCursor after, TxactionCursor before) {
+		final StringBuilder hql = new StringBuilder(
+				"SELECT SUM(t.amount) FROM Txaction t" +
+				" WHERE t.account = :account AND t.status NOT IN (:hiddenStatuses)" +
+				" AND t.datePosted IS NOT NULL"
+		);
+		
+		if (after != null) {
+			hql.append(" AND ").append(newerThan("after"));
+		}
+		
+		if (before != null) {
+			hql.append(" AND ").append(olderThan("before"));
+		}
+		
+		final Query query = currentSession().createQuery(hql.toString())
+				.setParameter("account", account)
+				.setParameterList("hiddenStatuses", TxactionStatus.toValues(HIDDEN_STATUSES));
+		
+		if ((after != null) || (before != null)) {
+			query.setParameter("epoch", EPOCH, DATE_TIME);
+		}
+		
+		if (after != null) {
+			setCursorParameters(query, "after", after);
+		}
+		
+		if (before != null) {
+			setCursorParameters(query, "before", before);
+		}
+		
+		final BigDecimal sum = (BigDecimal) query.uniqueResult();
+		return (sum == null) ? BigDecimal.ZERO : sum;
+	}
+
+	/**
+	 * Returns the raw tag names used in {@code accounts}, if {@code filter}
+	 * needs them to match tags.
+	 */
+	private List<String> findTagNames(Collection<Account> accounts, TxactionFilter filter) {
+		if (filter.getTags().isEmpty() && (filter.getQuery() == null)) {
+			return Collections.emptyList();
+		}
+		
+		@SuppressWarnings("unchecked")
+		final List<String> names = namedQuery("com.wesabe.api.accounts.TaggedAmount.findTagNamesInAccounts")
+										.setParameterList("accounts", accounts)
+										.list();
+		return names;
+	}
+	
+	/**
+	 * Returns the raw tag names in {@code names} which are equal to one of
+	 * {@code tags}.
+	 */
+	private static Set<String> findTagNamesEqualTo(List<String> names, Collection<Tag> tags) {
+		if (tags.isEmpty()) {
+			return ImmutableSet.of();
+		}
+		
+		final ImmutableSet.Builder<String> matchingNames = ImmutableSet.builder();
+		for (String name : names) {
+			if ((name != null) && tags.contains(Tag.of(name))) {
+				matchingNames.add(name);
+			}
+		}
+		return matchingNames.build();
+	}
+	
+	/**
+	 * Returns the raw tag names in {@code names} whose {@link Tag} contains
+	 * {@code query}, ignoring case.
+	 */
+	private static Set<String> findTagNamesContaining(List<String> names, String query) {
+		if (query == null) {
+			return ImmutableSet.of();
+		}
+		
+		final String lowerQuery = query.toLowerCase();
+		final ImmutableSet.Builder<String> matchingNames = ImmutableSet.builder();
+		for (String name : names) {
+			if ((name != null) && Tag.of(name).toString().toLowerCase().contains(lowerQuery)) {
+				matchingNames.add(name);
+			}
+		}
+		return matchingNames.build();
+	}
+	
+	/**
+	 * Escapes the wildcards in {@code s} for a {@code LIKE} pattern using
+	 * {@code !} as its escape character.
+	 */
+	private static String escapeLike(String s) {
+		return s.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+	}
+}
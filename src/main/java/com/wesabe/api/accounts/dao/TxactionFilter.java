@@ -0,0 +1,146 @@
+package com.wesabe.api.accounts.dao;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+import org.joda.time.DateTime;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableSet;
+import com.wesabe.api.accounts.entities.Tag;
+import com.wesabe.api.accounts.entities.Txaction;
+
+/**
+ * A set of restrictions on which {@link Txaction}s should be loaded from the
+ * database, used to push filtering down into SQL instead of discarding rows
+ * after they've been loaded.
+ *
+ * @see TxactionDAO#findTxactions(Collection, TxactionFilter)
+ */
+public class TxactionFilter {
+	private DateTime startDate, endDate;
+	private BigDecimal amount;
+	private Collection<String> merchantNames = ImmutableSet.of();
+	private Collection<Tag> tags = ImmutableSet.of();
+	private boolean unedited = false;
+	private String query;
+
+	/**
+	 * Returns the date before which transactions should be ignored, or
+	 * {@code null}.
+	 */
+	public DateTime getStartDate() {
+		return startDate;
+	}
+
+	public TxactionFilter setStartDate(DateTime startDate) {
+		this.startDate = startDate;
+		return this;
+	}
+
+	/**
+	 * Returns the date after which transactions should be ignored, or
+	 * {@code null}.
+	 */
+	public DateTime getEndDate() {
+		return endDate;
+	}
+
+	public TxactionFilter setEndDate(DateTime endDate) {
+		this.endDate = endDate;
+		return this;
+	}
+
+	/**
+	 * Returns the exact amount which transactions must have, or {@code null}.
+	 */
+	public BigDecimal getAmount() {
+		return amount;
+	}
+
+	public TxactionFilter setAmount(BigDecimal amount) {
+		this.amount = amount;
+		return this;
+	}
+
+	/**
+	 * Returns the names of the merchants which transactions must have. If
+	 * empty, transactions are not filtered by merchant.
+	 */
+	public Collection<String> getMerchantNames() {
+		return merchantNames;
+	}
+
+	public TxactionFilter setMerchantNames(Collection<String> merchantNames) {
+		this.merchantNames = ImmutableSet.copyOf(merchantNames);
+		return this;
+	}
+
+	/**
+	 * Returns the tags of which transactions must have at least one. If empty,
+	 * transactions are not filtered by tag.
+	 */
+	public Collection<Tag> getTags() {
+		return tags;
+	}
+
+	public TxactionFilter setTags(Collection<Tag> tags) {
+		this.tags = ImmutableSet.copyOf(tags);
+		return this;
+	}
+
+	/**
+	 * Returns {@code true} if only unedited transactions should be loaded.
+	 *
+	 * @see Txaction#isUnedited()
+	 */
+	public boolean isUnedited() {
+		return unedited;
+	}
+
+	public TxactionFilter setUnedited(boolean unedited) {
+		this.unedited = unedited;
+		return this;
+	}
+
+	/**
+	 * Returns the text which transactions' names, notes, merchant names, or
+	 * tags must contain, ignoring case, or {@code null}.
+	 */
+	public String getQuery() {
+		return query;
+	}
+
+	public TxactionFilter setQuery(String query) {
+		this.query = query;
+		return this;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hashCode(startDate, endDate, amount, merchantNames, tags, unedited, query);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof TxactionFilter) {
+			final TxactionFilter other = (TxactionFilter) obj;
+			return Objects.equal(startDate, other.startDate)
+					&& Objects.equal(endDate, other.endDate)
+					&& Objects.equal(amount, other.amount)
+					&& merchantNames.equals(other.merchantNames)
+					&& tags.equals(other.tags)
+					&& (unedited == other.unedited)
+					&& Objects.equal(query, other.query);
+		}
+
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"TxactionFilter [startDate=%s, endDate=%s, amount=%s, merchantNames=%s, tags=%s, unedited=%s, query=%s]",
+				startDate, endDate, amount, merchantNames, tags, unedited, query);
+	}
+}
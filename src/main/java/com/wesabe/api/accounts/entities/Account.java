@@ -8,6 +8,8 @@ import java.util.Set;
 import javax.persistence.*;
 
 import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.NotFound;
 import org.hibernate.annotations.NotFoundAction;
 import org.hibernate.validator.InvalidStateException;
@@ -28,6 +30,7 @@ import com.wesabe.api.util.money.UnknownCurrencyCodeException;
 @Inheritance(strategy=InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name="type", discriminatorType=DiscriminatorType.STRING)
 @DiscriminatorValue("Account")
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE)
 @NamedQueries({
 	@NamedQuery(
 	  name="com.wesabe.api.accounts.Account.findByAccountKeyAndRelativeId",
@@ -42,6 +45,12 @@ import com.wesabe.api.util.money.UnknownCurrencyCodeException;
 	)
 })
 public class Account {
+	/**
+	 * The collection role of {@link #getAccountBalances()}, for evicting it
+	 * from the second-level cache.
+	 */
+	public static final String ACCOUNT_BALANCES_ROLE = Account.class.getName() + ".accountBalances";
+	
 	private static final CurrencyCodeParser CURRENCY_CODE_PARSER = new CurrencyCodeParser();
 
 	@Id
@@ -77,6 +86,7 @@ public class Account {
 
 	@OneToMany(mappedBy="account")
 	@BatchSize(size=10)
+	@Cache(usage=CacheConcurrencyStrategy.READ_WRITE)
 	private Set<AccountBalance> accountBalances = Sets.newHashSet();
 
 	@OneToMany(mappedBy="account")
@@ -199,6 +209,17 @@ public class Account {
 		setBalance(balance.getValue());
 	}
 
+	/**
+	 * Sets the account's current balance, as projected from its most recent
+	 * {@link AccountBalance} and the transactions posted since, so
+	 * {@link #getBalance()} doesn't have to load the account's transactions.
+	 * 
+	 * @see com.wesabe.api.accounts.dao.AccountBalanceProjection
+	 */
+	public void setCachedBalance(BigDecimal balance) {
+		this.balance = balance;
+	}
+
 	private boolean hasCachedBalance() {
 		return balance != null;
 	}
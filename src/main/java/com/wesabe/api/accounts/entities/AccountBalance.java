@@ -14,6 +14,8 @@ import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Type;
 import org.joda.time.DateTime;
 
@@ -22,11 +24,18 @@ import com.wesabe.api.util.money.Money;
 
 @Entity
 @Table(name="account_balances")
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE)
 @NamedQueries({
 	@NamedQuery(
 	  name="com.wesabe.api.accounts.AccountBalance.findByAccountKeyAndRelativeAccountIdAndBalanceId",
 	  query="SELECT b FROM Account a, AccountBalance b" +
 	  		" WHERE a.accountKey = :accountKey AND a = b.account AND b.id = :accountBalanceId"
+	),
+	@NamedQuery(
+	  name="com.wesabe.api.accounts.AccountBalance.findLatestInAccounts",
+	  query="SELECT b.account.id, b.balance FROM AccountBalance b" +
+	  		" WHERE b.account IN (:accounts)" +
+	  		" AND b.date = (SELECT MAX(c.date) FROM AccountBalance c WHERE c.account = b.account)"
 	)
 })
 public class AccountBalance {
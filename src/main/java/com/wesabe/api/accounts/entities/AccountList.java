@@ -1,6 +1,5 @@
 package com.wesabe.api.accounts.entities;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Currency;
 import java.util.List;
@@ -8,16 +7,56 @@ import java.util.Map;
 
 import org.joda.time.DateTime;
 
-import com.google.common.base.Predicate;
 import com.google.common.collect.ForwardingList;
-import com.google.common.collect.Iterables;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+import com.wesabe.api.util.money.CurrencyExchangeRates;
 import com.wesabe.api.util.money.Money;
 
 public class AccountList extends ForwardingList<Account> {
 	private static final long serialVersionUID = -4885233195234065520L;
+	private static final String ARCHIVED_GROUP_ID = "archived";
+	
+	// We use higher order groupings for display, so some account types are
+	// merged together into groups.
+	private static final Map<AccountType, String> GROUP_IDS =
+		ImmutableMap.<AccountType, String>builder()
+			// Cash = Cash + Manual
+			.put(AccountType.CASH, "cash")
+			.put(AccountType.MANUAL, "cash")
+			// Checking = Checking
+			.put(AccountType.CHECKING, "checking")
+			// Credit = Credit Card + Credit Line
+			.put(AccountType.CREDIT_CARD, "credit")
+			.put(AccountType.CREDIT_LINE, "credit")
+			// Savings = Savings + Money Market + Certificate
+			.put(AccountType.SAVINGS, "savings")
+			.put(AccountType.MONEY_MARKET, "savings")
+			.put(AccountType.CERTIFICATE, "savings")
+			// Investments = Investment + Brokerage
+			.put(AccountType.INVESTMENT, "investments")
+			.put(AccountType.BROKERAGE, "investments")
+			// Loans = Loan + Mortgage
+			.put(AccountType.LOAN, "loans")
+			.put(AccountType.MORTGAGE, "loans")
+			// Unknown = Unknown
+			.put(AccountType.UNKNOWN, "unknown")
+			.build();
+	
+	// The names of the groups, in display order.
+	private static final Map<String, String> GROUP_NAMES =
+		ImmutableMap.<String, String>builder()
+			.put("cash", "Cash")
+			.put("checking", "Checking")
+			.put("credit", "Credit")
+			.put("savings", "Savings")
+			.put("investments", "Investments")
+			.put("loans", "Loans")
+			.put("unknown", "Unknown")
+			.put(ARCHIVED_GROUP_ID, "Archived")
+			.build();
+	
 	private final List<Account> accounts;
 	
 	public AccountList() {
@@ -37,19 +76,51 @@ public class AccountList extends ForwardingList<Account> {
 		return accounts;
 	}
 	
-	public Money getTotal(Currency currency, CurrencyExchangeRateMap exchangeRates) {
+	/**
+	 * Returns the total balance of the list's active accounts, converted to
+	 * {@code currency}.
+	 * 
+	 * @see #summarize(Currency, CurrencyExchangeRates)
+	 */
+	public Money getTotal(Currency currency, CurrencyExchangeRates exchangeRates) {
+		return summarize(currency, exchangeRates).getTotal();
+	}
+	
+	/**
+	 * Calculates the total balance of the list's active accounts, and of the
+	 * active accounts in each of the list's {@link AccountGroup}s, converted
+	 * to {@code currency}, in a single pass over the accounts. Each balance is
+	 * converted once, at the same moment.
+	 * 
+	 * @param currency the currency of the totals
+	 * @param exchangeRates the exchange rates to convert balances with
+	 * @return the list's totals
+	 */
+	public AccountListSummary summarize(Currency currency, CurrencyExchangeRates exchangeRates) {
 		final DateTime now = new DateTime();
+		final Map<String, Money> groupTotals = Maps.newHashMap();
 		Money total = Money.zero(currency);
 		for (Account account : accounts) {
-			if (account.hasBalance() && account.isActive()) {
-				final Money balance = account.getBalance();
-				if (balance != null) {
-					total = total.add(balance.convert(exchangeRates, currency, now));
+			if (account.hasBalance()) {
+				final String groupId = getGroupId(account);
+				Money groupTotal = groupTotals.get(groupId);
+				if (groupTotal == null) {
+					groupTotal = Money.zero(currency);
 				}
 				
+				if (account.isActive()) {
+					final Money balance = account.getBalance();
+					if (balance != null) {
+						final Money convertedBalance = balance.convert(exchangeRates, currency, now);
+						total = total.add(convertedBalance);
+						groupTotal = groupTotal.add(convertedBalance);
+					}
+				}
+				
+				groupTotals.put(groupId, groupTotal);
 			}
 		}
-		return total;
+		return new AccountListSummary(total, groupTotals);
 	}
 
 	/**
@@ -60,57 +131,33 @@ public class AccountList extends ForwardingList<Account> {
 	 * @return a list of account groups containing like types
 	 */
 	public List<AccountGroup> getAccountGroups() {
-		// We use higher order groupings for display, so some account types are
-		// merged together into groups.
-		Map<AccountType, AccountList> accountsByType = Maps.newHashMap();
-		
-		// Cash = Cash + Manual
-		accountsByType.put(AccountType.CASH, new AccountList());
-		accountsByType.put(AccountType.MANUAL, accountsByType.get(AccountType.CASH));
-		// Checking = Checking
-		accountsByType.put(AccountType.CHECKING, new AccountList());
-		// Credit = Credit Card + Credit Line
-		accountsByType.put(AccountType.CREDIT_CARD, new AccountList());
-		accountsByType.put(AccountType.CREDIT_LINE, accountsByType.get(AccountType.CREDIT_CARD));
-		// Savings = Savings + Money Market + Certificate
-		accountsByType.put(AccountType.SAVINGS, new AccountList());
-		accountsByType.put(AccountType.MONEY_MARKET, accountsByType.get(AccountType.SAVINGS));
-		accountsByType.put(AccountType.CERTIFICATE, accountsByType.get(AccountType.SAVINGS));		
-		// Investments = Investment + Brokerage
-		accountsByType.put(AccountType.INVESTMENT, new AccountList());
-		accountsByType.put(AccountType.BROKERAGE, accountsByType.get(AccountType.INVESTMENT));
-		// Loans = Loan + Mortgage
-		accountsByType.put(AccountType.LOAN, new AccountList());
-		accountsByType.put(AccountType.MORTGAGE, accountsByType.get(AccountType.LOAN));		
-		// Unknown = Unknown
-		accountsByType.put(AccountType.UNKNOWN, new AccountList());
-		
-		AccountList archivedAccounts = new AccountList();
-		
+		final Map<String, AccountList> accountsByGroup = Maps.newHashMap();
 		for (Account account : accounts) {
-			if (account.isArchived()) {
-				archivedAccounts.add(account);
-			} else {
-				accountsByType.get(account.getAccountType()).add(account);
+			final String groupId = getGroupId(account);
+			AccountList groupAccounts = accountsByGroup.get(groupId);
+			if (groupAccounts == null) {
+				groupAccounts = new AccountList();
+				accountsByGroup.put(groupId, groupAccounts);
 			}
+			groupAccounts.add(account);
 		}
 		
-		ArrayList<AccountGroup> accountGroups = Lists.newArrayList(
-				new AccountGroup("Cash", 		"cash", 		accountsByType.get(AccountType.CASH)),
-				new AccountGroup("Checking", 	"checking", 	accountsByType.get(AccountType.CHECKING)),
-				new AccountGroup("Credit", 		"credit", 		accountsByType.get(AccountType.CREDIT_CARD)),
-				new AccountGroup("Savings", 	"savings", 		accountsByType.get(AccountType.SAVINGS)),
-				new AccountGroup("Investments", "investments", 	accountsByType.get(AccountType.INVESTMENT)),
-				new AccountGroup("Loans",       "loans",        accountsByType.get(AccountType.LOAN)),
-				new AccountGroup("Unknown", 	"unknown",		accountsByType.get(AccountType.UNKNOWN)),
-				new AccountGroup("Archived",    "archived",     archivedAccounts)
-		);
-		
-		return Lists.newArrayList(Iterables.filter(accountGroups, new Predicate<AccountGroup>() {
-			@Override
-			public boolean apply(AccountGroup group) {
-				return !group.getAccounts().isEmpty();
+		final List<AccountGroup> accountGroups = Lists.newArrayListWithCapacity(accountsByGroup.size());
+		for (Map.Entry<String, String> group : GROUP_NAMES.entrySet()) {
+			final AccountList groupAccounts = accountsByGroup.get(group.getKey());
+			if (groupAccounts != null) {
+				accountGroups.add(new AccountGroup(group.getValue(), group.getKey(), groupAccounts));
 			}
-		}));
+		}
+		
+		return accountGroups;
+	}
+	
+	private static String getGroupId(Account account) {
+		if (account.isArchived()) {
+			return ARCHIVED_GROUP_ID;
+		}
+		
+		return GROUP_IDS.get(account.getAccountType());
 	}
 }
@@ -0,0 +1,66 @@
+package com.wesabe.api.accounts.entities;
+
+import java.util.Currency;
+import java.util.Map;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableMap;
+import com.wesabe.api.util.money.Money;
+
+/**
+ * The converted balance totals of an {@link AccountList}, both overall and for
+ * each of its {@link AccountGroup}s.
+ * <p>
+ * Summaries only hold amounts, not accounts, so they can outlive the request
+ * which calculated them.
+ *
+ * @see AccountList#summarize(Currency, com.wesabe.api.util.money.CurrencyExchangeRates)
+ */
+public class AccountListSummary {
+	private final Money total;
+	private final Map<String, Money> groupTotals;
+
+	public AccountListSummary(Money total, Map<String, Money> groupTotals) {
+		this.total = total;
+		this.groupTotals = ImmutableMap.copyOf(groupTotals);
+	}
+
+	public Currency getCurrency() {
+		return total.getCurrency();
+	}
+
+	/**
+	 * Returns the total balance of the list's active accounts.
+	 */
+	public Money getTotal() {
+		return total;
+	}
+
+	/**
+	 * Returns the total balance of {@code group}'s active accounts, or
+	 * {@code null} if none of the group's accounts have a balance.
+	 */
+	public Money getTotal(AccountGroup group) {
+		return groupTotals.get(group.getId());
+	}
+
+	@Override
+	public String toString() {
+		return String.format("(%s %s)", total, groupTotals);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof AccountListSummary) {
+			final AccountListSummary other = (AccountListSummary) obj;
+			return Objects.equal(total, other.total)
+						&& Objects.equal(groupTotals, other.groupTotals);
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hashCode(total, groupTotals);
+	}
+}
@@ -22,6 +22,15 @@ import com.wesabe.api.util.money.UnknownCurrencyCodeException;
 	@NamedQuery(
 		name="com.wesabe.api.accounts.entities.CurrencyExchangeRate.findAll",
 		query="SELECT r FROM CurrencyExchangeRate r"
+	),
+	@NamedQuery(
+		name="com.wesabe.api.accounts.entities.CurrencyExchangeRate.findSince",
+		query="SELECT r FROM CurrencyExchangeRate r" +
+			  " WHERE date >= :date"
+	),
+	@NamedQuery(
+		name="com.wesabe.api.accounts.entities.CurrencyExchangeRate.findLatestDate",
+		query="SELECT MAX(r.date) FROM CurrencyExchangeRate r"
 	)
 })
 public class CurrencyExchangeRate {
@@ -2,8 +2,12 @@ package com.wesabe.api.accounts.entities;
 
 import javax.persistence.*;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 @Entity
 @Table(name="financial_insts")
+@Cache(usage=CacheConcurrencyStrategy.READ_ONLY)
 public class FinancialInst {
 	@Id
 	@GeneratedValue(strategy=GenerationType.AUTO)
@@ -8,7 +8,7 @@ import javax.persistence.*;
 import org.hibernate.annotations.Type;
 import org.joda.time.DateTime;
 
-import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+import com.wesabe.api.util.money.CurrencyExchangeRates;
 import com.wesabe.api.util.money.ExchangeRateNotFoundException;
 import com.wesabe.api.util.money.Monetary;
 import com.wesabe.api.util.money.Money;
@@ -194,11 +194,11 @@ public class InvestmentTxaction implements Monetary, Comparable<InvestmentTxacti
 
 	/*
 	 * (non-Javadoc)
-	 * @see com.wesabe.api.accounts.entities.Monetary#getConvertedAmount(java.util.Currency, com.wesabe.api.util.money.CurrencyExchangeRateMap)
+	 * @see com.wesabe.api.accounts.entities.Monetary#getConvertedAmount(java.util.Currency, com.wesabe.api.util.money.CurrencyExchangeRates)
 	 */
 	@Override
 	public Money getConvertedAmount(Currency target,
-			CurrencyExchangeRateMap exchangeRates)
+			CurrencyExchangeRates exchangeRates)
 			throws ExchangeRateNotFoundException, UnknownCurrencyCodeException {
 		return getAmount().convert(exchangeRates, target, tradeDate);
 	}
@@ -20,6 +20,25 @@ public class Tag {
 	private static final Pattern SPLIT = Pattern.compile(":.*");
 	private static final Pattern WHITESPACE = Pattern.compile("[\\s]+", Pattern.CASE_INSENSITIVE);
 	private static final Pattern PUNCTUATION = Pattern.compile("[\\p{Punct}\\p{Space}]", Pattern.CASE_INSENSITIVE);
+	private static final TagCache CACHE = new TagCache(50000);
+	
+	/**
+	 * Returns a {@link Tag} for {@code name}, re-using a previously built one
+	 * if possible. Prefer this to {@link #Tag(String)}.
+	 * 
+	 * @param name a user-entered tag name
+	 * @return a tag for {@code name}
+	 */
+	public static Tag of(String name) {
+		return CACHE.get(name);
+	}
+	
+	/**
+	 * Returns the cache used by {@link #of(String)}.
+	 */
+	public static TagCache getCache() {
+		return CACHE;
+	}
 
 	private final String nameWithSplit, name, hash;
 
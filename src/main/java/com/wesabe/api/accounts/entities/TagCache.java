@@ -0,0 +1,94 @@
+package com.wesabe.api.accounts.entities;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of {@link Tag}s by raw tag name, so the regular expressions
+ * and inflection rules used to canonicalize a tag's name are only run once per
+ * distinct name.
+ * <p>
+ * When the cache holds {@link #getMaxSize()} names it is emptied and starts
+ * over, which keeps it bounded without having to track usage on every lookup.
+ * 
+ * This class is thread-safe.
+ * 
+ * @see Tag#of(String)
+ */
+public class TagCache implements TagCacheMBean {
+	private final int maxSize;
+	private final ConcurrentMap<String, Tag> tags = new ConcurrentHashMap<String, Tag>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	
+	/**
+	 * Creates a new {@link TagCache}.
+	 * 
+	 * @param maxSize the maximum number of tag names to cache
+	 */
+	public TagCache(int maxSize) {
+		this.maxSize = maxSize;
+	}
+	
+	/**
+	 * Returns the {@link Tag} for {@code name}, building and caching it if it
+	 * isn't already cached.
+	 * 
+	 * @param name a raw tag name
+	 * @return the tag for {@code name}
+	 */
+	public Tag get(String name) {
+		final Tag cachedTag = tags.get(name);
+		if (cachedTag != null) {
+			hits.incrementAndGet();
+			return cachedTag;
+		}
+		
+		misses.incrementAndGet();
+		if (tags.size() >= maxSize) {
+			tags.clear();
+		}
+		
+		final Tag tag = new Tag(name);
+		final Tag existingTag = tags.putIfAbsent(name, tag);
+		return (existingTag == null) ? tag : existingTag;
+	}
+	
+	public int getMaxSize() {
+		return maxSize;
+	}
+	
+	@Override
+	public int getSize() {
+		return tags.size();
+	}
+	
+	@Override
+	public long getHitCount() {
+		return hits.get();
+	}
+	
+	@Override
+	public long getMissCount() {
+		return misses.get();
+	}
+	
+	@Override
+	public double getHitRate() {
+		final long hitCount = hits.get();
+		final long lookups = hitCount + misses.get();
+		if (lookups == 0) {
+			return 0.0;
+		}
+		
+		return hitCount / (double) lookups;
+	}
+	
+	@Override
+	public void clear() {
+		tags.clear();
+		hits.set(0);
+		misses.set(0);
+	}
+}
@@ -0,0 +1,32 @@
+package com.wesabe.api.accounts.entities;
+
+/**
+ * The JMX management interface for {@link TagCache}.
+ */
+public interface TagCacheMBean {
+	/**
+	 * Returns the number of tag names currently cached.
+	 */
+	public int getSize();
+	
+	/**
+	 * Returns the number of lookups which found a cached {@link Tag}.
+	 */
+	public long getHitCount();
+	
+	/**
+	 * Returns the number of lookups which had to build a new {@link Tag}.
+	 */
+	public long getMissCount();
+	
+	/**
+	 * Returns the fraction of lookups which found a cached {@link Tag}, or
+	 * {@code 0.0} if there have been no lookups.
+	 */
+	public double getHitRate();
+	
+	/**
+	 * Discards all cached tags and resets the hit and miss counts.
+	 */
+	public void clear();
+}
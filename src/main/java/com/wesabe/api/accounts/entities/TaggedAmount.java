@@ -6,7 +6,7 @@ import java.util.Currency;
 import javax.persistence.*;
 
 import com.google.common.base.Objects;
-import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+import com.wesabe.api.util.money.CurrencyExchangeRates;
 import com.wesabe.api.util.money.ExchangeRateNotFoundException;
 import com.wesabe.api.util.money.Monetary;
 import com.wesabe.api.util.money.Money;
@@ -19,6 +19,13 @@ import com.wesabe.api.util.money.UnknownCurrencyCodeException;
  */
 @Entity
 @Table(name="txaction_taggings")
+@NamedQueries({
+	@NamedQuery(
+		name  = "com.wesabe.api.accounts.TaggedAmount.findTagNamesInAccounts",
+		query = "SELECT DISTINCT ta.tagName FROM TaggedAmount ta" +
+				" WHERE ta.txaction.account IN (:accounts)"
+	)
+})
 public class TaggedAmount implements Monetary {
 	@Id
 	@GeneratedValue(strategy = GenerationType.AUTO)
@@ -43,6 +50,9 @@ public class TaggedAmount implements Monetary {
 	@Column(name="name")
 	private String tagName;
 	
+	@Transient
+	private Tag tag;
+	
 	public TaggedAmount() {}
 	
 	public TaggedAmount(Txaction txaction, Tag tag, BigDecimal amount) {
@@ -53,7 +63,10 @@ public class TaggedAmount implements Monetary {
 	}
 	
 	public Tag getTag() {
-		return new Tag(tagName);
+		if (tag == null) {
+			this.tag = Tag.of(tagName);
+		}
+		return tag;
 	}
 	
 	public Txaction getTxaction() {
@@ -73,11 +86,11 @@ public class TaggedAmount implements Monetary {
 	
 	/*
 	 * (non-Javadoc)
-	 * @see com.wesabe.api.accounts.entities.Monetary#getConvertedAmount(java.util.Currency, com.wesabe.api.util.money.CurrencyExchangeRateMap)
+	 * @see com.wesabe.api.accounts.entities.Monetary#getConvertedAmount(java.util.Currency, com.wesabe.api.util.money.CurrencyExchangeRates)
 	 */
 	@Override
 	public Money getConvertedAmount(Currency target,
-			CurrencyExchangeRateMap exchangeRates)
+			CurrencyExchangeRates exchangeRates)
 			throws ExchangeRateNotFoundException, UnknownCurrencyCodeException {
 		return getAmount().convert(exchangeRates, target, txaction.getDatePosted());
 	}
@@ -15,7 +15,7 @@ import org.joda.time.DateTime;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
-import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+import com.wesabe.api.util.money.CurrencyExchangeRates;
 import com.wesabe.api.util.money.ExchangeRateNotFoundException;
 import com.wesabe.api.util.money.Monetary;
 import com.wesabe.api.util.money.Money;
@@ -72,6 +72,25 @@ import com.wesabe.api.util.money.UnknownCurrencyCodeException;
 				" LEFT OUTER JOIN FETCH t.merchant AS m" +
 				" WHERE t.account IN (:accounts) AND t.datePosted >= :startDate" +
 				" ORDER BY t.datePosted ASC, t.sequence DESC, t.createdAt ASC"
+	),
+	@NamedQuery(
+		name = "com.wesabe.api.accounts.Txaction.fetchTaggedAmounts",
+		query = "SELECT DISTINCT t FROM Txaction t" +
+				" LEFT OUTER JOIN FETCH t.taggedAmounts" +
+				" WHERE t IN (:txactions)"
+	),
+	@NamedQuery(
+		name = "com.wesabe.api.accounts.Txaction.fetchAttachments",
+		query = "SELECT DISTINCT t FROM Txaction t" +
+				" LEFT OUTER JOIN FETCH t.attachments" +
+				" WHERE t IN (:txactions)"
+	),
+	@NamedQuery(
+		name = "com.wesabe.api.accounts.Txaction.sumSinceLatestBalanceInAccounts",
+		query = "SELECT t.account.id, SUM(t.amount) FROM Txaction t" +
+				" WHERE t.account IN (:accounts) AND t.status NOT IN (:hiddenStatuses)" +
+				" AND t.datePosted > (SELECT MAX(b.date) FROM AccountBalance b WHERE b.account = t.account)" +
+				" GROUP BY t.account.id"
 	)
 })
 public class Txaction implements Monetary, Comparable<Txaction> {
@@ -205,11 +224,11 @@ public class Txaction implements Monetary, Comparable<Txaction> {
 
 	/*
 	 * (non-Javadoc)
-	 * @see com.wesabe.api.accounts.entities.Monetary#getConvertedAmount(java.util.Currency, com.wesabe.api.util.money.CurrencyExchangeRateMap)
+	 * @see com.wesabe.api.accounts.entities.Monetary#getConvertedAmount(java.util.Currency, com.wesabe.api.util.money.CurrencyExchangeRates)
 	 */
 	@Override
 	public Money getConvertedAmount(Currency target,
-			CurrencyExchangeRateMap exchangeRates)
+			CurrencyExchangeRates exchangeRates)
 			throws ExchangeRateNotFoundException, UnknownCurrencyCodeException {
 		return getAmount().convert(exchangeRates, target, datePosted);
 	}
@@ -262,7 +281,7 @@ public class Txaction implements Monetary, Comparable<Txaction> {
 	}
 	
 	public Money getConvertedAmountByFilteringTags(Set<Tag> filteredTags, Currency target,
-			CurrencyExchangeRateMap exchangeRates) throws ExchangeRateNotFoundException,
+			CurrencyExchangeRates exchangeRates) throws ExchangeRateNotFoundException,
 			UnknownCurrencyCodeException {
 		return getAmountByFilteringTags(filteredTags).convert(exchangeRates, target, datePosted);
 	}
@@ -12,19 +12,34 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+import com.wesabe.api.util.money.CurrencyExchangeRates;
 import com.wesabe.api.util.money.Money;
+import com.wesabe.api.util.money.MoneyAccumulator;
 
 public class TxactionBalanceCalculator {
 	private final Iterable<Txaction> txactions;
-	private final Iterable<Account> accounts;
 	private final Currency targetCurrency;
-	private final CurrencyExchangeRateMap exchangeRates;
+	private final CurrencyExchangeRates exchangeRates;
 	private Map<Txaction, Money> balancesByTxaction = Maps.newHashMap();
-	private Map<Account, AccountBalance> runningAccountBalances = Maps.newHashMap();
+	private Map<Account, AccountBalance> runningAccountBalances;
+	private Map<Account, Money> convertedAccountBalances = Maps.newHashMap();
+	private MoneyAccumulator runningTotal;
 	
-	public TxactionBalanceCalculator(Iterable<Account> accounts, Iterable<Txaction> txactions, Currency targetCurrency, CurrencyExchangeRateMap exchangeRates) {
-		this.accounts = accounts;
+	public TxactionBalanceCalculator(Iterable<Account> accounts, Iterable<Txaction> txactions, Currency targetCurrency, CurrencyExchangeRates exchangeRates) {
+		this(calculateInitialBalancesByAccount(accounts), txactions, targetCurrency, exchangeRates);
+	}
+	
+	/**
+	 * Creates a calculator which starts from the given balances instead of
+	 * each account's current balance. This allows a page of transactions from
+	 * deep in an account's history to be balanced without loading every newer
+	 * transaction.
+	 * 
+	 * @param startingBalances the balance of each account immediately after
+	 * 	the newest of {@code txactions}
+	 */
+	public TxactionBalanceCalculator(Map<Account, AccountBalance> startingBalances, Iterable<Txaction> txactions, Currency targetCurrency, CurrencyExchangeRates exchangeRates) {
+		this.runningAccountBalances = Maps.newHashMap(startingBalances);
 		this.txactions = txactions;
 		this.targetCurrency = targetCurrency;
 		this.exchangeRates = exchangeRates;
@@ -36,9 +51,15 @@ public class TxactionBalanceCalculator {
 	}
 
 	private void calculate() {
-		runningAccountBalances = calculateInitialBalancesByAccount();
 		final List<Txaction> txactions = getSortedListOfTxactions();
 		
+		this.runningTotal = new MoneyAccumulator(targetCurrency);
+		for (Map.Entry<Account, AccountBalance> entry : runningAccountBalances.entrySet()) {
+			final Money convertedBalance = convert(entry.getValue());
+			convertedAccountBalances.put(entry.getKey(), convertedBalance);
+			runningTotal.add(convertedBalance);
+		}
+		
 		for (Txaction txaction : txactions) {
 			calculateAndStoreTxactionBalance(txaction);
 			if (txaction.getAccount().hasBalance()) {
@@ -47,7 +68,8 @@ public class TxactionBalanceCalculator {
 		}
 	}
 
-	private Map<Account, AccountBalance> calculateInitialBalancesByAccount() {
+	private static Map<Account, AccountBalance> calculateInitialBalancesByAccount(Iterable<Account> accounts) {
+		final Map<Account, AccountBalance> runningAccountBalances = Maps.newHashMap();
 		for (Account account : accounts) {
 			if (account.hasBalance()) {
 				DateTime balanceDate = account.getBalanceDate();
@@ -91,15 +113,11 @@ public class TxactionBalanceCalculator {
 	}
 
 	private void calculateAndStoreTxactionBalance(Txaction txaction) {
-		balancesByTxaction.put(txaction, calculateSumOfBalancesByAccount());
+		balancesByTxaction.put(txaction, runningTotal.toMoney());
 	}
 
-	private Money calculateSumOfBalancesByAccount() {
-		Money sum = Money.zero(targetCurrency);
-		for (AccountBalance accountBalance : runningAccountBalances.values()) {
-			sum = sum.add(accountBalance.getBalance().convert(exchangeRates, targetCurrency, accountBalance.getDate()));
-		}
-		return sum;
+	private Money convert(AccountBalance accountBalance) {
+		return accountBalance.getBalance().convert(exchangeRates, targetCurrency, accountBalance.getDate());
 	}
 
 	private void adjustBalanceForAccountGiven(Txaction txaction) {
@@ -108,8 +126,15 @@ public class TxactionBalanceCalculator {
 			final Money balance = accountBalance.getBalance();
 			if (balance != null) {
 				Money adjustedAmount = balance.subtract(txaction.getAmount());
-				runningAccountBalances.put(txaction.getAccount(), new AccountBalance(
-						accountBalance.getAccount(), adjustedAmount, txaction.getDatePosted()));
+				final AccountBalance adjustedBalance = new AccountBalance(
+						accountBalance.getAccount(), adjustedAmount, txaction.getDatePosted());
+				runningAccountBalances.put(txaction.getAccount(), adjustedBalance);
+				
+				// only this account's share of the total has changed, and since
+				// its date has too, it has to be converted again at the new rate
+				final Money convertedBalance = convert(adjustedBalance);
+				runningTotal.subtract(convertedAccountBalances.put(txaction.getAccount(), convertedBalance));
+				runningTotal.add(convertedBalance);
 			}
 		}
 	}
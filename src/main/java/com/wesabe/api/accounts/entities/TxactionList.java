@@ -3,15 +3,22 @@ package com.wesabe.api.accounts.entities;
 import java.util.Collection;
 import java.util.Currency;
 import java.util.List;
+import java.util.Map;
 
 import com.google.common.collect.ForwardingList;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
-import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+import com.wesabe.api.util.money.CurrencyExchangeRates;
 
 public class TxactionList extends ForwardingList<TxactionListItem> {
+	/**
+	 * The total count of a list which doesn't know how many transactions
+	 * could be shown, like a page loaded by cursor.
+	 */
+	public static final int UNKNOWN_COUNT = -1;
 	private static final long serialVersionUID = 3619821041312882849L;
 	private int totalCount = 0;
+	private String nextCursor;
 	private final List<TxactionListItem> items;
 
 	public TxactionList(TxactionListItem... items) {
@@ -29,8 +36,15 @@ public class TxactionList extends ForwardingList<TxactionListItem> {
 		this.items = Lists.newArrayList();
 	}
 	
-	public void calculateRunningTotalBalances(Collection<Account> accounts, Currency currency, CurrencyExchangeRateMap exchangeRateMap) {
-		final TxactionBalanceCalculator calculator = new TxactionBalanceCalculator(accounts, getTxactions(), currency, exchangeRateMap);
+	public void calculateRunningTotalBalances(Collection<Account> accounts, Currency currency, CurrencyExchangeRates exchangeRateMap) {
+		setBalances(new TxactionBalanceCalculator(accounts, getTxactions(), currency, exchangeRateMap));
+	}
+	
+	public void calculateRunningTotalBalances(Map<Account, AccountBalance> startingBalances, Currency currency, CurrencyExchangeRates exchangeRateMap) {
+		setBalances(new TxactionBalanceCalculator(startingBalances, getTxactions(), currency, exchangeRateMap));
+	}
+	
+	private void setBalances(TxactionBalanceCalculator calculator) {
 		for (TxactionListItem item : items) {
 			item.setBalance(calculator.getBalance(item.getTxaction()));
 		}
@@ -44,6 +58,10 @@ public class TxactionList extends ForwardingList<TxactionListItem> {
 		return txactions.build();
 	}
 	
+	/**
+	 * Returns the number of transactions which could ever be shown, or
+	 * {@link #UNKNOWN_COUNT}.
+	 */
 	public int getTotalCount() {
 		return totalCount;
 	}
@@ -52,6 +70,19 @@ public class TxactionList extends ForwardingList<TxactionListItem> {
 		this.totalCount = totalCount;
 	}
 
+	/**
+	 * Returns the opaque cursor of the next page of transactions, or
+	 * {@code null} if this is the last page or the list isn't paginated by
+	 * cursor.
+	 */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+	
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
 	@Override
 	protected List<TxactionListItem> delegate() {
 		return items;
@@ -1,20 +1,43 @@
 package com.wesabe.api.accounts.modules;
 
+import java.io.File;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
 import com.google.inject.AbstractModule;
+import com.wesabe.api.accounts.analytics.CurrencyExchangeRateSnapshotProvider;
+import com.wesabe.api.accounts.dao.CurrencyExchangeRateFile;
 import com.wesabe.api.accounts.dao.CurrencyExchangeRateMapProvider;
 import com.wesabe.api.accounts.dao.CurrencyExchangeRateMapUpdater;
 import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+import com.wesabe.api.util.money.CurrencyExchangeRateSnapshot;
 
+/**
+ * Binds the application's {@link CurrencyExchangeRateMap}, and the
+ * {@link CurrencyExchangeRateFile} it's loaded from at startup.
+ */
 public class CurrencyExchangeRateMapModule extends AbstractModule {
+	private final String ratesFile;
+	
+	/**
+	 * Creates a new {@link CurrencyExchangeRateMapModule}.
+	 * 
+	 * @param ratesFile the name of a file to keep a copy of the exchange rates
+	 * 			in, or {@code null} to load every rate from the database
+	 */
+	public CurrencyExchangeRateMapModule(String ratesFile) {
+		this.ratesFile = ratesFile;
+	}
 
 	@Override
 	protected void configure() {
+		bind(CurrencyExchangeRateFile.class)
+			.toInstance(new CurrencyExchangeRateFile((ratesFile == null) ? null : new File(ratesFile)));
 		bind(CurrencyExchangeRateMap.class)
 			.toProvider(CurrencyExchangeRateMapProvider.class)
 			.asEagerSingleton();
+		bind(CurrencyExchangeRateSnapshot.class)
+			.toProvider(CurrencyExchangeRateSnapshotProvider.class);
 		bind(ScheduledExecutorService.class)
 			.toInstance(Executors.newSingleThreadScheduledExecutor());
 		bind(CurrencyExchangeRateMapUpdater.class).asEagerSingleton();
@@ -2,12 +2,14 @@ package com.wesabe.api.accounts.modules;
 
 import com.google.inject.AbstractModule;
 import com.wesabe.api.accounts.stats.HibernateStatsReporter;
+import com.wesabe.api.accounts.stats.TagCacheStatsReporter;
 
 public class HibernateJMXModule extends AbstractModule {
 
 	@Override
 	protected void configure() {
 		bind(HibernateStatsReporter.class).asEagerSingleton();
+		bind(TagCacheStatsReporter.class).asEagerSingleton();
 	}
 
 }
@@ -0,0 +1,69 @@
+package com.wesabe.api.accounts.modules;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.hibernate.Session;
+import org.hibernate.connection.ConnectionProvider;
+import org.hibernate.connection.ConnectionProviderFactory;
+
+import com.google.inject.AbstractModule;
+import com.wesabe.api.accounts.dao.ReadOnly;
+import com.wesabe.api.accounts.dao.ReplicaDatabase;
+import com.wesabe.api.accounts.dao.ReplicaLagMonitor;
+import com.wesabe.api.accounts.dao.ReplicaSessionProvider;
+
+/**
+ * Binds the {@link ReadOnly} {@link Session}s read-only DAOs use, and the
+ * {@link ReplicaDatabase} they're read from.
+ */
+public class ReplicaModule extends AbstractModule {
+	private final String propertiesFile;
+	private final int maxLag;
+
+	/**
+	 * Creates a new {@link ReplicaModule}.
+	 *
+	 * @param propertiesFile the name of a file with the replica's
+	 * 			{@code hibernate.connection.*} properties, or {@code null} to
+	 * 			read everything from the primary
+	 * @param maxLag the most seconds the replica can be behind the primary
+	 * 			and still be read from
+	 */
+	public ReplicaModule(String propertiesFile, int maxLag) {
+		this.propertiesFile = propertiesFile;
+		this.maxLag = maxLag;
+	}
+
+	@Override
+	protected void configure() {
+		bind(ReplicaDatabase.class)
+			.toInstance(new ReplicaDatabase(connectToReplica(), maxLag));
+		bind(Session.class)
+			.annotatedWith(ReadOnly.class)
+			.toProvider(ReplicaSessionProvider.class);
+		bind(ReplicaLagMonitor.class).asEagerSingleton();
+	}
+
+	private ConnectionProvider connectToReplica() {
+		if (propertiesFile == null) {
+			return null;
+		}
+
+		try {
+			final Properties properties = new Properties();
+			final InputStream input = new FileInputStream(propertiesFile);
+			try {
+				properties.load(input);
+			} finally {
+				input.close();
+			}
+			return ConnectionProviderFactory.newConnectionProvider(properties);
+		} catch (IOException e) {
+			addError(e);
+			return null;
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package com.wesabe.api.accounts.modules;
+
+import com.google.inject.AbstractModule;
+import com.wesabe.api.accounts.analytics.TagHierarchyExecutor;
+
+/**
+ * Binds the {@link TagHierarchyExecutor} large tag hierarchies are built on.
+ */
+public class TagHierarchyModule extends AbstractModule {
+	private final int threads, threshold;
+	
+	public TagHierarchyModule(int threads, int threshold) {
+		this.threads = threads;
+		this.threshold = threshold;
+	}
+	
+	@Override
+	protected void configure() {
+		bind(TagHierarchyExecutor.class)
+			.toInstance(TagHierarchyExecutor.parallel(threads, threshold));
+	}
+}
@@ -0,0 +1,35 @@
+package com.wesabe.api.accounts.params;
+
+import javax.ws.rs.WebApplicationException;
+
+import com.codahale.shore.params.AbstractParam;
+import com.wesabe.api.accounts.dao.TxactionCursor;
+
+/**
+ * Parses an opaque cursor string into a {@link TxactionCursor}. An empty
+ * string is a request for the first page, and parses to {@code null}.
+ *
+ * @see TxactionCursor#parse(String)
+ */
+public class TxactionCursorParam extends AbstractParam<TxactionCursor> {
+
+	/**
+	 * Creates a new {@link TxactionCursorParam} for a given cursor string.
+	 * 
+	 * @param cursor an opaque cursor string, or an empty string
+	 * @throws WebApplicationException if {@code cursor} isn't a valid cursor
+	 */
+	public TxactionCursorParam(String cursor) throws WebApplicationException {
+		super(cursor);
+	}
+
+	@Override
+	protected TxactionCursor parse(String param) throws Exception {
+		if (param.isEmpty()) {
+			return null;
+		}
+		
+		return TxactionCursor.parse(param);
+	}
+	
+}
@@ -1,6 +1,5 @@
 package com.wesabe.api.accounts.presenters;
 
-import java.util.Currency;
 import java.util.Locale;
 
 import com.google.inject.Inject;
@@ -8,7 +7,7 @@ import com.wesabe.api.accounts.entities.Account;
 import com.wesabe.api.accounts.entities.InvestmentAccount;
 import com.wesabe.api.accounts.entities.AccountGroup;
 import com.wesabe.api.accounts.entities.AccountList;
-import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+import com.wesabe.api.accounts.entities.AccountListSummary;
 import com.wesabe.xmlson.XmlsonArray;
 import com.wesabe.xmlson.XmlsonObject;
 
@@ -19,25 +18,30 @@ import com.wesabe.xmlson.XmlsonObject;
  *
  */
 public class AccountListPresenter {
-	private final CurrencyExchangeRateMap exchangeRateMap;
 	private final MoneyPresenter moneyPresenter;
 	private final AccountPresenter accountPresenter;
 	private final InvestmentAccountPresenter investmentAccountPresenter;
 	private final AccountGroupPresenter accountGroupPresenter;
 
 	@Inject
-	public AccountListPresenter(CurrencyExchangeRateMap exchangeRateMap,
-			MoneyPresenter moneyPresenter, AccountPresenter accountPresenter,
+	public AccountListPresenter(MoneyPresenter moneyPresenter,
+			AccountPresenter accountPresenter,
 			InvestmentAccountPresenter investmentAccountPresenter,
 			AccountGroupPresenter accountGroupPresenter) {
-		this.exchangeRateMap = exchangeRateMap;
 		this.moneyPresenter = moneyPresenter;
 		this.accountPresenter = accountPresenter;
 		this.investmentAccountPresenter = investmentAccountPresenter;
 		this.accountGroupPresenter = accountGroupPresenter;
 	}
 
-	public XmlsonObject present(AccountList accountList, Currency currency, Locale locale) {
+	/**
+	 * Presents {@code accountList}, with the totals in {@code summary}.
+	 * 
+	 * @param accountList a list of accounts
+	 * @param summary the summary of {@code accountList}
+	 * @param locale the locale to present amounts in
+	 */
+	public XmlsonObject present(AccountList accountList, AccountListSummary summary, Locale locale) {
 		final XmlsonObject root = new XmlsonObject("account-list");
 
 		final XmlsonArray accounts = new XmlsonArray("accounts");
@@ -54,17 +58,11 @@ public class AccountListPresenter {
 
 		final XmlsonArray groups = new XmlsonArray("account-groups");
 		for (AccountGroup group : accountList.getAccountGroups()) {
-			groups.add(accountGroupPresenter.present(group, currency, locale));
+			groups.add(accountGroupPresenter.present(group, summary.getTotal(group), locale));
 		}
 		root.add(groups);
 
-		root.add(
-			moneyPresenter.present(
-				"total",
-				accountList.getTotal(currency, exchangeRateMap),
-				locale
-			)
-		);
+		root.add(moneyPresenter.present("total", summary.getTotal(), locale));
 
 		return root;
 	}
@@ -21,7 +21,13 @@ public class TxactionListPresenter {
 	public XmlsonObject present(TxactionList txactions, Locale locale) {
 		final XmlsonObject root = new XmlsonObject("transaction-list");
 
-		root.add(new XmlsonObject("count").addProperty("total", txactions.getTotalCount()));
+		if (txactions.getTotalCount() != TxactionList.UNKNOWN_COUNT) {
+			root.add(new XmlsonObject("count").addProperty("total", txactions.getTotalCount()));
+		}
+		
+		if (txactions.getNextCursor() != null) {
+			root.addProperty("next-cursor", txactions.getNextCursor());
+		}
 
 		final XmlsonArray list = new XmlsonArray("transactions");
 		for (TxactionListItem item : txactions) {
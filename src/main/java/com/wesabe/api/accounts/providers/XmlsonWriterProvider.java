@@ -4,7 +4,12 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 
 import javax.ws.rs.Produces;
 import javax.ws.rs.WebApplicationException;
@@ -20,6 +25,11 @@ import com.wesabe.xmlson.XmlsonMember;
 
 /**
  * A provider for writing {@link XmlsonMember}s as entity bodies.
+ * <p>
+ * {@link XmlsonFormatter} still builds each document as a single
+ * {@link String}; only the UTF-8 encoding is incremental. The string is
+ * encoded through a small per-thread buffer, so there is no second,
+ * byte-array copy of the whole response.
  * 
  * @author coda
  */
@@ -29,6 +39,55 @@ public class XmlsonWriterProvider implements MessageBodyWriter<XmlsonMember> {
 	private static final JsonFormatter JSON_FORMATTER = new JsonFormatter();
 	private static final XmlFormatter XML_FORMATTER = new XmlFormatter();
 	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final int BUFFER_SIZE = 8192;
+	
+	/**
+	 * A reusable UTF-8 encoder and output buffer. Writes an already formatted
+	 * document to a stream without copying it into one byte array.
+	 */
+	private static class Encoder {
+		private final CharsetEncoder encoder = UTF_8.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		
+		public void encode(CharSequence chars, OutputStream output) throws IOException {
+			encoder.reset();
+			buffer.clear();
+			
+			final CharBuffer input = CharBuffer.wrap(chars);
+			CoderResult result;
+			do {
+				result = encoder.encode(input, buffer, true);
+				checkResult(result);
+				drain(output);
+			} while (result.isOverflow());
+			
+			do {
+				result = encoder.flush(buffer);
+				checkResult(result);
+				drain(output);
+			} while (result.isOverflow());
+		}
+		
+		private void checkResult(CoderResult result) throws IOException {
+			if (result.isError()) {
+				result.throwException();
+			}
+		}
+		
+		private void drain(OutputStream output) throws IOException {
+			output.write(buffer.array(), 0, buffer.position());
+			buffer.clear();
+		}
+	}
+	
+	private static final ThreadLocal<Encoder> ENCODERS = new ThreadLocal<Encoder>() {
+		@Override
+		protected Encoder initialValue() {
+			return new Encoder();
+		}
+	};
 
 	@Override
 	public long getSize(XmlsonMember t, Class<?> type, Type genericType,
@@ -51,10 +110,7 @@ public class XmlsonWriterProvider implements MessageBodyWriter<XmlsonMember> {
 			Annotation[] annotations, MediaType mediaType,
 			MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
 			throws IOException, WebApplicationException {
-		entityStream.write(
-			getFormatter(mediaType)
-				.format(t)
-				.getBytes(UTF_8));
+		ENCODERS.get().encode(getFormatter(mediaType).format(t), entityStream);
 	}
 
 	private boolean validMediaType(MediaType mediaType) {
@@ -160,6 +160,7 @@ public class AccountResource {
 	private void save(final Account account) {
 		try {
 			accountDAO.update(account);
+			accountDAO.evict(account);
 		} catch (InvalidStateException ex) {
 			throw new WebApplicationException(
 					Response
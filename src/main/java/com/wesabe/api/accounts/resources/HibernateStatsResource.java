@@ -7,6 +7,7 @@ import javax.ws.rs.core.MediaType;
 
 import org.hibernate.SessionFactory;
 import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.SecondLevelCacheStatistics;
 import org.hibernate.stat.Statistics;
 
 import com.google.inject.Inject;
@@ -65,6 +66,32 @@ public class HibernateStatsResource {
 			builder.append("		</tr>\n");
 		}
 		
+		builder.append(
+			"	</table>\n" +
+			"	<h2>Second-Level Cache</h2>\n" +
+			"	<table style=\"width:50em; font-family: 'Consolas', monospace; text-align: right;\">\n" +
+			"		<thead>\n" +
+			"			<tr>\n" +
+			"				<th style=\"text-align: left;\">Region</th>\n" +
+			"				<th>hits</th>\n" +
+			"				<th>misses</th>\n" +
+			"				<th>puts</th>\n" +
+			"				<th>elements</th>\n" +
+			"			</tr>\n" +
+			"		</thead>\n"
+		);
+		
+		for (String region : statistics.getSecondLevelCacheRegionNames()) {
+			final SecondLevelCacheStatistics cacheStatistics = statistics.getSecondLevelCacheStatistics(region);
+			builder.append("		<tr>\n");
+			builder.append("			<td style=\"text-align: left;\">").append(region).append("</td>\n");
+			builder.append("			<td>").append(cacheStatistics.getHitCount()).append("</td>\n");
+			builder.append("			<td>").append(cacheStatistics.getMissCount()).append("</td>\n");
+			builder.append("			<td>").append(cacheStatistics.getPutCount()).append("</td>\n");
+			builder.append("			<td>").append(cacheStatistics.getElementCountInMemory()).append("</td>\n");
+			builder.append("		</tr>\n");
+		}
+		
 		builder.append(
 			"	</table>\n" +
 			"</body>\n" +
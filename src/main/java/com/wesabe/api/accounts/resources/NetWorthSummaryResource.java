@@ -26,10 +26,8 @@ import com.google.inject.Inject;
 import com.sun.jersey.api.uri.UriTemplate;
 import com.wesabe.api.accounts.analytics.NetWorthSummarizer;
 import com.wesabe.api.accounts.dao.AccountDAO;
-import com.wesabe.api.accounts.dao.TxactionDAO;
 import com.wesabe.api.accounts.entities.Account;
 import com.wesabe.api.accounts.entities.Tag;
-import com.wesabe.api.accounts.entities.Txaction;
 import com.wesabe.api.accounts.params.CurrencyParam;
 import com.wesabe.api.accounts.params.ISODateParam;
 import com.wesabe.api.accounts.params.IntervalTypeParam;
@@ -44,15 +42,13 @@ import com.wesabe.xmlson.XmlsonObject;
 public class NetWorthSummaryResource {
 	private static final Pattern VALID_ACCOUNT_ID = Pattern.compile("^[0-9]+$");
 	private final AccountDAO accountDAO;
-	private final TxactionDAO txactionDAO;
 	private final NetWorthSummarizer summarizer;
 	private final NetWorthSummaryPresenter presenter;
 
 	@Inject
-	public NetWorthSummaryResource(AccountDAO accountDAO, TxactionDAO txactionDAO,
+	public NetWorthSummaryResource(AccountDAO accountDAO,
 			NetWorthSummarizer summarizer, NetWorthSummaryPresenter presenter) {
 		this.accountDAO = accountDAO;
-		this.txactionDAO = txactionDAO;
 		this.summarizer = summarizer;
 		this.presenter = presenter;
 	}
@@ -77,9 +73,7 @@ public class NetWorthSummaryResource {
 
 		final List<Account> accounts = getAccounts(user, accountUris);
 
-		final List<Txaction> txactions = txactionDAO.findTxactionsInDateRange(accounts, dateRange);
-		
-		final ImmutableMap<Interval, Money> summaries = summarizer.summarize(accounts, txactions, dateRange, intervalType.getValue(), currency.getValue(), ignoredTags);
+		final ImmutableMap<Interval, Money> summaries = summarizer.summarize(accounts, dateRange, intervalType.getValue(), currency.getValue());
 
 		return presenter.present(summaries, locale);
 	}
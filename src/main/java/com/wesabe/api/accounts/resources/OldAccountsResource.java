@@ -15,7 +15,9 @@ import javax.ws.rs.core.MediaType;
 
 import com.google.inject.Inject;
 import com.wesabe.api.accounts.dao.AccountDAO;
+import com.wesabe.api.accounts.dao.AccountListSummaryCache;
 import com.wesabe.api.accounts.entities.AccountList;
+import com.wesabe.api.accounts.entities.AccountListSummary;
 import com.wesabe.api.accounts.entities.AccountStatus;
 import com.wesabe.api.accounts.params.BooleanParam;
 import com.wesabe.api.accounts.params.CurrencyParam;
@@ -34,11 +36,14 @@ import com.wesabe.xmlson.XmlsonObject;
 @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
 public class OldAccountsResource {
 	private final AccountDAO accountDAO;
+	private final AccountListSummaryCache summaryCache;
 	private final AccountListPresenter presenter;
 	
 	@Inject
-	public OldAccountsResource(AccountDAO accountDAO, AccountListPresenter presenter) {
+	public OldAccountsResource(AccountDAO accountDAO, AccountListSummaryCache summaryCache,
+			AccountListPresenter presenter) {
 		this.accountDAO = accountDAO;
+		this.summaryCache = summaryCache;
 		this.presenter = presenter;
 	}
 	
@@ -48,12 +53,17 @@ public class OldAccountsResource {
 			@PathParam("currency") CurrencyParam currency,
 			@QueryParam("include_archived") @DefaultValue("false") BooleanParam includeArchived) {
 		
+		final String accountKey = user.getAccountKey();
 		final AccountList accounts = new AccountList(accountDAO.findAllAccountsByAccountKey(
-			user.getAccountKey(),
+			accountKey,
 			getStatuses(includeArchived.getValue())
 		));
 		
-		return presenter.present(accounts, currency.getValue(), locale);
+		final AccountListSummary summary = summaryCache.getSummary(
+			accountKey, accounts, currency.getValue()
+		);
+		
+		return presenter.present(accounts, summary, locale);
 	}
 
 	private Set<AccountStatus> getStatuses(Boolean includeArchived) {
@@ -29,13 +29,14 @@ import com.google.inject.Provider;
 import com.google.inject.internal.Maps;
 import com.sun.jersey.api.uri.UriTemplate;
 import com.wesabe.api.accounts.analytics.IntervalSummarizer;
+import com.wesabe.api.accounts.analytics.IntervalSummaryRollup;
 import com.wesabe.api.accounts.analytics.MonetarySummaryWithSplits;
+import com.wesabe.api.accounts.analytics.TxactionFrame;
 import com.wesabe.api.accounts.analytics.TxactionListBuilder;
 import com.wesabe.api.accounts.dao.AccountDAO;
 import com.wesabe.api.accounts.dao.TxactionDAO;
 import com.wesabe.api.accounts.entities.Account;
 import com.wesabe.api.accounts.entities.Tag;
-import com.wesabe.api.accounts.entities.Txaction;
 import com.wesabe.api.accounts.params.BooleanParam;
 import com.wesabe.api.accounts.params.CurrencyParam;
 import com.wesabe.api.accounts.params.ISODateParam;
@@ -53,16 +54,19 @@ public class OldIntervalSummaryResource {
 	private final TxactionDAO txactionDAO;
 	private final Provider<TxactionListBuilder> builderProvider;
 	private final IntervalSummarizer summarizer;
+	private final IntervalSummaryRollup rollup;
 	private final IntervalSummaryPresenter presenter;
 
 	@Inject
 	public OldIntervalSummaryResource(AccountDAO accountDAO, TxactionDAO txactionDAO,
 			Provider<TxactionListBuilder> builderProvider,
-			IntervalSummarizer summarizer, IntervalSummaryPresenter presenter) {
+			IntervalSummarizer summarizer, IntervalSummaryRollup rollup,
+			IntervalSummaryPresenter presenter) {
 		this.accountDAO = accountDAO;
 		this.txactionDAO = txactionDAO;
 		this.builderProvider = builderProvider;
 		this.summarizer = summarizer;
+		this.rollup = rollup;
 		this.presenter = presenter;
 	}
 
@@ -89,8 +93,16 @@ public class OldIntervalSummaryResource {
 		final Interval dateRange = new Interval(intervalStartDate, intervalEndDate);
 
 		final List<Account> accounts = getAccounts(user, accountUris);
+		
+		if (!uneditedOnly.getValue() && tagUris.isEmpty() && merchantNames.isEmpty() && (query == null)) {
+			// nothing to filter by, so closed intervals can come from the rollup
+			final ImmutableMap<Interval, MonetarySummaryWithSplits> results = rollup.summarize(accounts, dateRange,
+					intervalType.getValue(), currency.getValue(), ignoredTags, summarizer);
+			
+			return presenter.present(results, locale);
+		}
 
-		final List<Txaction> txactions = txactionDAO.findTxactionsInDateRange(accounts, dateRange);
+		final TxactionFrame frame = TxactionFrame.of(txactionDAO.findTxactionsInDateRange(accounts, dateRange));
 		
 		final TxactionListBuilder builder = builderProvider.get();
 		builder.setCalculateBalances(false);
@@ -103,10 +115,8 @@ public class OldIntervalSummaryResource {
 			builder.setMerchantNames(merchantNames);
 		}
 		
-		final List<Txaction> filteredTxactions = builder.build(txactions).getTxactions();
-
-		final ImmutableMap<Interval, MonetarySummaryWithSplits> results = summarizer.summarize(filteredTxactions, dateRange,
-				intervalType.getValue(), currency.getValue(), ignoredTags);
+		final ImmutableMap<Interval, MonetarySummaryWithSplits> results = summarizer.summarize(frame, builder.filter(frame),
+				dateRange, intervalType.getValue(), currency.getValue(), ignoredTags);
 
 		return presenter.present(results, locale);
 	}
@@ -121,7 +131,7 @@ public class OldIntervalSummaryResource {
 				if (template.match(uriParam, values)) {
 					final String name = values.get("name");
 					if (name != null) {
-						tags.add(new Tag(name));
+						tags.add(Tag.of(name));
 					}
 				}
 			}
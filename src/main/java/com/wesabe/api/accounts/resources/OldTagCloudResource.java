@@ -15,10 +15,10 @@ import com.google.inject.Inject;
 import com.wesabe.api.accounts.analytics.MonetarySummary;
 import com.wesabe.api.accounts.analytics.TagSummarizer;
 import com.wesabe.api.accounts.dao.AccountDAO;
+import com.wesabe.api.accounts.dao.ScrollableTxactions;
 import com.wesabe.api.accounts.dao.TxactionDAO;
 import com.wesabe.api.accounts.entities.Account;
 import com.wesabe.api.accounts.entities.Tag;
-import com.wesabe.api.accounts.entities.Txaction;
 import com.wesabe.api.accounts.params.CurrencyParam;
 import com.wesabe.api.accounts.presenters.TagSummaryPresenter;
 import com.wesabe.api.util.auth.WesabeUser;
@@ -46,10 +46,12 @@ public class OldTagCloudResource {
 			@PathParam("currency") CurrencyParam currency) {
 
 		final List<Account> accounts = accountDAO.findVisibleAccounts(user.getAccountKey());
-		final List<Txaction> txactions = txactionDAO.findTxactions(accounts);
-
-		final ImmutableMap<Tag, MonetarySummary> results = summarizer.summarize(txactions, currency.getValue());
-
-		return presenter.present(results, locale);
+		final ScrollableTxactions txactions = txactionDAO.scrollTxactions(accounts);
+		try {
+			final ImmutableMap<Tag, MonetarySummary> results = summarizer.summarize(txactions, currency.getValue());
+			return presenter.present(results, locale);
+		} finally {
+			txactions.close();
+		}
 	}
 }
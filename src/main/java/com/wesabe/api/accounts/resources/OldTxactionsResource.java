@@ -1,6 +1,7 @@
 package com.wesabe.api.accounts.resources;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
@@ -22,12 +23,16 @@ import org.joda.time.Interval;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSet.Builder;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.sun.jersey.api.uri.UriTemplate;
+import com.wesabe.api.accounts.analytics.BalanceCheckpointIndex;
 import com.wesabe.api.accounts.analytics.TxactionListBuilder;
 import com.wesabe.api.accounts.dao.AccountDAO;
+import com.wesabe.api.accounts.dao.TxactionCursor;
 import com.wesabe.api.accounts.dao.TxactionDAO;
+import com.wesabe.api.accounts.dao.TxactionFilter;
 import com.wesabe.api.accounts.entities.Account;
 import com.wesabe.api.accounts.entities.Tag;
 import com.wesabe.api.accounts.entities.Txaction;
@@ -36,6 +41,7 @@ import com.wesabe.api.accounts.params.BooleanParam;
 import com.wesabe.api.accounts.params.CurrencyParam;
 import com.wesabe.api.accounts.params.ISODateParam;
 import com.wesabe.api.accounts.params.IntegerParam;
+import com.wesabe.api.accounts.params.TxactionCursorParam;
 import com.wesabe.api.accounts.params.UriParam;
 import com.wesabe.api.accounts.presenters.TxactionListPresenter;
 import com.wesabe.api.util.auth.WesabeUser;
@@ -45,17 +51,20 @@ import com.wesabe.xmlson.XmlsonObject;
 @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
 public class OldTxactionsResource {
 	private static final Pattern VALID_ACCOUNT_ID = Pattern.compile("^[0-9]+$");
+	private static final int DEFAULT_PAGE_SIZE = 100;
 	private final AccountDAO accountDAO;
 	private final TxactionDAO txactionDAO;
 	private final Provider<TxactionListBuilder> builderProvider;
 	private final TxactionListPresenter presenter;
+	private final BalanceCheckpointIndex checkpointIndex;
 	
 	@Inject
-	public OldTxactionsResource(AccountDAO accountDAO, TxactionDAO txactionDAO, Provider<TxactionListBuilder> builderProvider, TxactionListPresenter presenter) {
+	public OldTxactionsResource(AccountDAO accountDAO, TxactionDAO txactionDAO, Provider<TxactionListBuilder> builderProvider, TxactionListPresenter presenter, BalanceCheckpointIndex checkpointIndex) {
 		this.accountDAO = accountDAO;
 		this.txactionDAO = txactionDAO;
 		this.builderProvider = builderProvider;
 		this.presenter = presenter;
+		this.checkpointIndex = checkpointIndex;
 	}
 	
 	// REVIEW coda@wesabe.com -- Jun 5, 2009: Refactor into Parameter Object.
@@ -75,47 +84,127 @@ public class OldTxactionsResource {
 			@QueryParam("tag") Set<String> tagUris,
 			@QueryParam("merchant") Set<String> merchantNames,
 			@QueryParam("amount") BigDecimal amount,
-			@QueryParam("query") String query) {
+			@QueryParam("query") String query,
+			@QueryParam("cursor") TxactionCursorParam cursor) {
 		
 		final List<Account> accounts = getAccounts(user, accountUris);
+		final TxactionFilter filter = getFilter(startDate, endDate, uneditedOnly, tagUris, merchantNames, amount, query);
+		
+		if (cursor != null) {
+			return presenter.present(getPage(accounts, filter, cursor, limit, currency), locale);
+		}
+		
 		final TxactionList txactions = filterTxactions(
 				accounts,
-				getTxactions(accounts, startDate, endDate),
+				txactionDAO.findTxactions(accounts, filter),
 				currency, uneditedOnly, limit, offset,
-				tagUris, merchantNames, amount, query
+				filter.getTags(), merchantNames, amount
 		);
+		txactionDAO.prefetch(txactions.getTxactions());
 
 		return presenter.present(txactions, locale);
 	}
-
-	private TxactionList filterTxactions(List<Account> accounts,
-			List<Txaction> txactions, CurrencyParam currency, BooleanParam uneditedOnly,
-			IntegerParam limit, IntegerParam offset, Set<String> tagUris,
-			Set<String> merchantNames, BigDecimal amount, String query) {
+	
+	/**
+	 * Loads a single page of transactions, newest first, starting after
+	 * {@code cursor}. Only {@code limit + 1} rows are loaded, regardless of how
+	 * deep in the account history the page is; the extra row only tells us
+	 * whether there's a next page. Offsets are ignored.
+	 * 
+	 * Every filter is applied by the query, so each page is full unless it's
+	 * the last one. Counting every matching transaction would defeat the
+	 * point of paging, so the list's total count is left unknown.
+	 * 
+	 * Running balances are only calculated for unfiltered pages. Pages after
+	 * the first start from the balances at the cursor, which
+	 * {@link BalanceCheckpointIndex} finds without loading every newer
+	 * transaction.
+	 * 
+	 * The page's tagged amounts, attachments and transfers are fetched in a
+	 * fixed number of queries, no matter how long the page is.
+	 */
+	private TxactionList getPage(List<Account> accounts, TxactionFilter filter,
+			TxactionCursorParam cursor, IntegerParam limit, CurrencyParam currency) {
+		final int pageSize = (limit == null) ? DEFAULT_PAGE_SIZE : limit.getValue();
+		if (pageSize < 1) {
+			throw new WebApplicationException(Status.BAD_REQUEST);
+		}
+		
+		final List<Txaction> page = Lists.newArrayList(
+				txactionDAO.findTxactionsAfterCursor(accounts, filter, cursor.getValue(), pageSize)
+		);
+		
+		String nextCursor = null;
+		if (page.size() > pageSize) {
+			page.subList(pageSize, page.size()).clear();
+			nextCursor = TxactionCursor.of(page.get(pageSize - 1)).toString();
+		}
+		txactionDAO.prefetch(page);
+		
 		final TxactionListBuilder txactionListBuilder = builderProvider.get();
 		txactionListBuilder.setAccounts(accounts);
-		txactionListBuilder.setUnedited(uneditedOnly.getValue());
-		txactionListBuilder.setTags(getTags(tagUris));
 		txactionListBuilder.setCurrency(currency.getValue());
+		
+		final boolean unfiltered = !filter.isUnedited() && filter.getTags().isEmpty()
+				&& filter.getMerchantNames().isEmpty() && (filter.getAmount() == null)
+				&& (filter.getQuery() == null);
+		if (!unfiltered) {
+			txactionListBuilder.setCalculateBalances(false);
+		} else if (cursor.getValue() != null) {
+			txactionListBuilder.setStartingBalances(checkpointIndex.getBalancesAfter(accounts, cursor.getValue()));
+		}
+		
+		final TxactionList txactions = txactionListBuilder.build(page);
+		txactions.setTotalCount(TxactionList.UNKNOWN_COUNT);
+		txactions.setNextCursor(nextCursor);
+		return txactions;
+	}
 
-		if (!merchantNames.isEmpty()) {
-			txactionListBuilder.setMerchantNames(merchantNames);
+	/**
+	 * Builds the requested slice of {@code txactions}, which the query has
+	 * already filtered. Tags and the text query aren't given to the builder,
+	 * since checking them again would load every transaction's tagged amounts
+	 * before the page is prefetched; a tag filter only turns off running
+	 * balances.
+	 */
+	private TxactionList filterTxactions(List<Account> accounts,
+			List<Txaction> txactions, CurrencyParam currency, BooleanParam uneditedOnly,
+			IntegerParam limit, IntegerParam offset, Collection<Tag> tags,
+			Set<String> merchantNames, BigDecimal amount) {
+		final TxactionListBuilder txactionListBuilder = configureBuilder(
+				accounts, currency, uneditedOnly, merchantNames, amount);
+		
+		if (!tags.isEmpty()) {
+			txactionListBuilder.setCalculateBalances(false);
 		}
+
 		if (limit != null) {
 			txactionListBuilder.setLimit(limit.getValue());
 		}
 		if (offset != null) {
 			txactionListBuilder.setOffset(offset.getValue());
 		}
+		
+		final TxactionList filteredTxactions = txactionListBuilder.build(txactions);
+		return filteredTxactions;
+	}
+
+	private TxactionListBuilder configureBuilder(List<Account> accounts,
+			CurrencyParam currency, BooleanParam uneditedOnly,
+			Set<String> merchantNames, BigDecimal amount) {
+		final TxactionListBuilder txactionListBuilder = builderProvider.get();
+		txactionListBuilder.setAccounts(accounts);
+		txactionListBuilder.setUnedited(uneditedOnly.getValue());
+		txactionListBuilder.setCurrency(currency.getValue());
+
+		if (!merchantNames.isEmpty()) {
+			txactionListBuilder.setMerchantNames(merchantNames);
+		}
 		if (amount != null) {
 			txactionListBuilder.setAmount(amount);
 		}
-		if (query != null) {
-			txactionListBuilder.setQuery(query);
-		}
 		
-		final TxactionList filteredTxactions = txactionListBuilder.build(txactions);
-		return filteredTxactions;
+		return txactionListBuilder;
 	}
 
 	private Set<Tag> getTags(Set<String> tagUris) {
@@ -124,7 +213,7 @@ public class OldTxactionsResource {
 		if (!tagUris.isEmpty()) {
 			for (String uriParam : tagUris) {
 				if (uriParam.startsWith(uriPrefix)) {
-					tags.add(new Tag(uriParam.substring(uriPrefix.length())));
+					tags.add(Tag.of(uriParam.substring(uriPrefix.length())));
 				}
 			}
 		}
@@ -132,24 +221,33 @@ public class OldTxactionsResource {
 		return tags.build();
 	}
 
-	private List<Txaction> getTxactions(List<Account> accounts, ISODateParam startDate,
-			ISODateParam endDate) {
-		final List<Txaction> txactions;
+	private TxactionFilter getFilter(ISODateParam startDate, ISODateParam endDate,
+			BooleanParam uneditedOnly, Set<String> tagUris, Set<String> merchantNames,
+			BigDecimal amount, String query) {
 		if ((startDate != null) && (endDate != null)) {
 			try {
-				final Interval dateRange = new Interval(startDate.getValue(), endDate.getValue());
-				txactions = txactionDAO.findTxactionsInDateRange(accounts, dateRange);
+				new Interval(startDate.getValue(), endDate.getValue());
 			} catch (IllegalArgumentException e) {
 				throw new WebApplicationException(Status.BAD_REQUEST);
 			}
-		} else if (startDate != null) {
-			txactions = txactionDAO.findTxactionsAfterDate(accounts, startDate.getValue());
-		} else if (endDate != null) {
-			txactions = txactionDAO.findTxactionsBeforeDate(accounts, endDate.getValue());
-		} else {
-			txactions = txactionDAO.findTxactions(accounts);
 		}
-		return txactions;
+		
+		final TxactionFilter filter = new TxactionFilter()
+				.setUnedited(uneditedOnly.getValue())
+				.setTags(getTags(tagUris))
+				.setMerchantNames(merchantNames)
+				.setAmount(amount)
+				.setQuery(query);
+		
+		if (startDate != null) {
+			filter.setStartDate(startDate.getValue());
+		}
+		
+		if (endDate != null) {
+			filter.setEndDate(endDate.getValue());
+		}
+		
+		return filter;
 	}
 
 	private List<Account> getAccounts(WesabeUser user, Set<UriParam> accountUris) {
@@ -0,0 +1,112 @@
+package com.wesabe.api.accounts.stats;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+/**
+ * A bounded Jetty thread pool which reports its queue depth, active threads,
+ * and rejections over JMX as {@value #OBJECT_NAME} while it's running.
+ * <p>
+ * Requests are queued until a thread is free. Once {@code maxQueued} requests
+ * are waiting, further requests are rejected and left to the connector to
+ * retry, rather than piling up without limit.
+ */
+public class InstrumentedThreadPool extends QueuedThreadPool implements InstrumentedThreadPoolMBean {
+	public static final String OBJECT_NAME = "com.wesabe.api:type=ThreadPool";
+	private static final Logger LOGGER = Logger.getLogger(InstrumentedThreadPool.class.getCanonicalName());
+	
+	private final BlockingQueue<Runnable> queue;
+	private final AtomicLong rejected = new AtomicLong();
+	private ObjectName objectName;
+	
+	/**
+	 * Creates a new {@link InstrumentedThreadPool}.
+	 * 
+	 * @param name the name of the pool and its threads
+	 * @param minThreads the number of threads to keep around when idle
+	 * @param maxThreads the maximum number of threads
+	 * @param maxQueued the maximum number of requests waiting for a thread
+	 */
+	public InstrumentedThreadPool(String name, int minThreads, int maxThreads, int maxQueued) {
+		this(name, minThreads, maxThreads, new ArrayBlockingQueue<Runnable>(maxQueued));
+	}
+	
+	private InstrumentedThreadPool(String name, int minThreads, int maxThreads, BlockingQueue<Runnable> queue) {
+		super(queue);
+		this.queue = queue;
+		setName(name);
+		setMinThreads(minThreads);
+		setMaxThreads(maxThreads);
+		setMaxQueued(queue.remainingCapacity());
+	}
+	
+	@Override
+	public boolean dispatch(Runnable job) {
+		final boolean dispatched = super.dispatch(job);
+		if (!dispatched && isRunning()) {
+			rejected.incrementAndGet();
+		}
+		return dispatched;
+	}
+	
+	@Override
+	public int getQueueDepth() {
+		return queue.size();
+	}
+	
+	@Override
+	public int getActiveThreads() {
+		return Math.max(0, getThreads() - getIdleThreads());
+	}
+	
+	@Override
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+	
+	@Override
+	protected void doStart() throws Exception {
+		super.doStart();
+		register();
+	}
+	
+	@Override
+	protected void doStop() throws Exception {
+		unregister();
+		super.doStop();
+	}
+	
+	private void register() {
+		final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		if (mbeanServer != null) {
+			try {
+				final ObjectName on = new ObjectName(OBJECT_NAME);
+				mbeanServer.registerMBean(this, on);
+				this.objectName = on;
+			} catch (JMException e) {
+				LOGGER.log(Level.WARNING, "Unable to start JMX thread pool service", e);
+			}
+		}
+	}
+	
+	private void unregister() {
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			} catch (JMException e) {
+				LOGGER.log(Level.WARNING, "Unable to stop JMX thread pool service", e);
+			}
+			this.objectName = null;
+		}
+	}
+}
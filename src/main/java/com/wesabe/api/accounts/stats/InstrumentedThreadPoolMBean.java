@@ -0,0 +1,37 @@
+package com.wesabe.api.accounts.stats;
+
+/**
+ * The JMX management interface for {@link InstrumentedThreadPool}.
+ */
+public interface InstrumentedThreadPoolMBean {
+	/**
+	 * Returns the number of requests waiting for a thread.
+	 */
+	public int getQueueDepth();
+	
+	/**
+	 * Returns the maximum number of requests which can wait for a thread.
+	 */
+	public int getMaxQueued();
+	
+	/**
+	 * Returns the number of threads handling requests.
+	 */
+	public int getActiveThreads();
+	
+	/**
+	 * Returns the number of threads in the pool, active or idle.
+	 */
+	public int getThreads();
+	
+	/**
+	 * Returns the maximum number of threads in the pool.
+	 */
+	public int getMaxThreads();
+	
+	/**
+	 * Returns the number of requests which were rejected because the queue
+	 * was full.
+	 */
+	public long getRejectedCount();
+}
@@ -0,0 +1,31 @@
+package com.wesabe.api.accounts.stats;
+
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.google.inject.Inject;
+import com.wesabe.api.accounts.entities.Tag;
+
+public class TagCacheStatsReporter {
+	
+	@Inject
+	public TagCacheStatsReporter(Logger logger) {
+		final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		if (mbeanServer != null) {
+			try {
+				ObjectName on = new ObjectName("com.wesabe.api:type=TagCache,application=brcm");
+				mbeanServer.registerMBean(Tag.getCache(), on);
+				logger.info("Tag cache JMX service enabled.");
+			} catch (JMException e) {
+				logger.log(Level.WARNING, "Unable to start JMX tag cache service", e);
+			}
+		} else {
+			logger.warning("No JMX service available -- tag cache statistics will be unavailable.");
+		}
+	}
+}
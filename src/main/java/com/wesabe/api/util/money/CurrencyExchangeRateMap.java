@@ -3,169 +3,130 @@ package com.wesabe.api.util.money;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.util.Currency;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.joda.time.DateTime;
 
+import com.google.common.collect.Lists;
+
 
 /**
  * A map of currency-to-currency exchange rates.
+ * <p>
+ * Rates are held in an immutable {@link ExchangeRateEpoch}, which is replaced
+ * wholesale whenever rates are added. Readers never lock, and never see a
+ * partially applied {@link Batch} of rates. Use {@link #getCurrentEpoch()} to
+ * read a consistent set of rates across several lookups.
  *
  * This class is thread-safe.
  *
  * @author coda
  *
  */
-public class CurrencyExchangeRateMap {
+public class CurrencyExchangeRateMap implements CurrencyExchangeRates {
 	
 	/**
-	 * A threadsafe map of {@link Currency} to {@link Currency} to
-	 * {@link DateTime} to {@link BigDecimal}s.
+	 * A set of exchange rates which are added to a
+	 * {@link CurrencyExchangeRateMap} all at once.
+	 * <p>
+	 * None of a batch's rates are visible to readers until it's committed, at
+	 * which point all of them are.
 	 * 
-	 * @author coda
-
+	 * This class is not thread-safe.
 	 */
-	@SuppressWarnings("serial")
-	private static class CurrencyToCurrencyToDateToRateMap extends
-			ConcurrentHashMap<Currency, CurrencyToDateToRateMap> {
+	public static class Batch {
+		private final CurrencyExchangeRateMap exchangeRates;
+		private final List<ExchangeRateEpoch.Rate> rates = Lists.newArrayList();
+		
+		protected Batch(CurrencyExchangeRateMap exchangeRates) {
+			this.exchangeRates = exchangeRates;
+		}
 		
 		/**
-		 * Inserts a {@literal currency->currency->date->rate} path into the
-		 * rates tree in a thread-safe manner.
-		 * <p>
-		 * By creating a full submap first, and using
-		 * {@link ConcurrentHashMap#putIfAbsent(Object, Object)}, the path with
-		 * the minumum number of links is created atomically. For example, if
-		 * {@code source} does not exist in the rates tree, an entire {@literal
-		 * currency->date->rate} submap is inserted. If it does, an entire
-		 * {@literal date->rate} sub-submap is conditionally inserted. If that
-		 * already exists, the existing submap is updated with the date and rate
-		 * (in a destructive manner - newly inserted rates take precedence over
-		 * existing ones).
+		 * Adds a currency exchange rate, and its inverse, to the batch.
 		 * 
-		 * @param source the currency from which the money is being converted
-		 * @param target the currency to which the money is being converted
-		 * @param date the date on which the money is being converted
-		 * @param rate the exchange rate between {@code source} and
-		 * 				{@code target}
+		 * @see CurrencyExchangeRateMap#addExchangeRate(Currency, Currency, DateTime, BigDecimal)
 		 */
-		public void addRate(Currency source, Currency target, DateTime date,
-				BigDecimal rate) {
-			// build a full outer map
-			final DateToRateMap innerMap = new DateToRateMap(date, rate);
-			final CurrencyToDateToRateMap outerMap = new CurrencyToDateToRateMap(target, innerMap);
-
-			// insert the parts of the map which don't already exist
-			final CurrencyToDateToRateMap existingOuterMap = super.putIfAbsent(source, outerMap);
-			if (existingOuterMap != null) {
-				final DateToRateMap existingInnerMap = existingOuterMap
-						.putIfAbsent(target, outerMap.get(target));
-				if (existingInnerMap != null) {
-					existingInnerMap.put(date, rate);
-				}
+		public Batch addExchangeRate(Currency source, Currency target, DateTime date, BigDecimal rate) {
+			exchangeRates.checkExchangeRate(source, target);
+			if (rate.signum() > 0) {
+				rates.add(new ExchangeRateEpoch.Rate(source, target, date.getMillis(), rate));
+				// REVIEW coda@wesabe.com -- Oct 30, 2008: Reevaluate our modeling of inverse exchange rates.
+				// This may or may not be an accurate model of currency exchange rates.
+				// Is the Yen-to-Dollars rate the same thing as the inverse of the
+				// Dollars-to-Yen rate? What would it mean if it wasn't?
+				rates.add(new ExchangeRateEpoch.Rate(target, source, date.getMillis(), inverseRate(rate)));
 			}
+			return this;
 		}
-	}
-	
-	/**
-	 * A threadsafe map of {@link Currency} to {@link DateTime} to
-	 * {@link BigDecimal}s.
-	 * 
-	 * @author coda
-	 */
-	@SuppressWarnings("serial")
-	private static class CurrencyToDateToRateMap extends ConcurrentHashMap<Currency,DateToRateMap> {
-		public CurrencyToDateToRateMap(Currency target, DateToRateMap rates) {
-			super();
-			this.put(target, rates);
+		
+		/**
+		 * Publishes the batch's rates to the map.
+		 */
+		public void commit() {
+			exchangeRates.publish(rates);
+			rates.clear();
 		}
 	}
 	
 	/**
-	 * A threadsafe map of {@link DateTime} to {@link BigDecimal}s.
-	 * 
-	 * @author coda
-	 *
+	 * A read-only view of a single {@link ExchangeRateEpoch} of a map.
 	 */
-	@SuppressWarnings("serial")
-	private static class DateToRateMap extends ConcurrentSkipListMap<Long, BigDecimal> {
+	private static class EpochView implements CurrencyExchangeRates {
+		private final CurrencyExchangeRateMap exchangeRates;
+		private final ExchangeRateEpoch epoch;
 		
-		public DateToRateMap(DateTime date, BigDecimal rate) {
-			super();
-			this.put(date, rate);
+		public EpochView(CurrencyExchangeRateMap exchangeRates, ExchangeRateEpoch epoch) {
+			this.exchangeRates = exchangeRates;
+			this.epoch = epoch;
 		}
 		
-		public BigDecimal put(DateTime key, BigDecimal value) {
-			return super.put(keyTransform(key), value);
+		@Override
+		public BigDecimal getExchangeRate(Currency source, Currency target, DateTime date)
+				throws ExchangeRateNotFoundException {
+			return exchangeRates.getExchangeRate(epoch, source, target, date);
 		}
 		
-		/**
-		 * Given a date, returns the closest rate.
-		 * 
-		 * @param date a given date
-		 * @return the rate on the date closest to {@code date}
-		 */
-		public BigDecimal getClosest(DateTime date) {
-			final long key = keyTransform(date);
-			
-			final BigDecimal exactMatch = super.get(key);
-			if (exactMatch != null) {
-				return exactMatch;
-			}
-			
-			final Entry<Long, BigDecimal> ceiling = super.ceilingEntry(key);
-			final Entry<Long, BigDecimal> floor = super.floorEntry(key);
-			
-			if (ceiling == null) {
-				return floor.getValue();
-			} else if (floor == null) {
-				return ceiling.getValue();
-			} else if (ceiling.getKey() - key < key - floor.getKey()) {
-				return ceiling.getValue();
-			}
-			return floor.getValue();
+		@Override
+		public Set<Currency> getCurrencies() {
+			return epoch.getCurrencies();
 		}
 		
-		private long keyTransform(DateTime key) {
-			return key.getMillis();
+		@Override
+		public boolean isSupported(Currency currency) {
+			return epoch.isSupported(currency);
 		}
-		
 	}
 	
 	protected static final MathContext MATH_CONTEXT = MathContext.DECIMAL32;
 	
-	private final CurrencyToCurrencyToDateToRateMap rates =
-							new CurrencyToCurrencyToDateToRateMap();
+	private final Object writeLock = new Object();
+	private volatile ExchangeRateEpoch epoch = ExchangeRateEpoch.EMPTY;
 
+	@Override
+	public BigDecimal getExchangeRate(Currency source, Currency target, DateTime date)
+			throws ExchangeRateNotFoundException {
+		return getExchangeRate(epoch, source, target, date);
+	}
+	
 	/**
 	 * Returns the exchange rate from one currency into another on a particular
-	 * date.
-	 *
-	 * Given two currencies, {@code source} and {@code target}, returns the
-	 * constant multiplier by which a unit of {@code source} should be
-	 * multiplied in order to find its value in {@code target} on {@code date}.
-	 *
-	 * @param source the currency from which the money is being converted
-	 * @param target the currency to which the money is being converted
-	 * @param date the date on which the money is being converted
-	 * @return the exchange rate between {@code source} and {@code target}
-	 * @throws ExchangeRateNotFoundException if the exchange rate cannot be found
+	 * date, as of {@code epoch}. Subclasses which derive rates from other
+	 * rates should override this, and only look up rates in {@code epoch}.
+	 * 
+	 * @see #getExchangeRate(Currency, Currency, DateTime)
 	 */
-	public BigDecimal getExchangeRate(Currency source, Currency target, DateTime date)
-			throws ExchangeRateNotFoundException {
-
+	protected BigDecimal getExchangeRate(ExchangeRateEpoch epoch, Currency source,
+			Currency target, DateTime date) throws ExchangeRateNotFoundException {
+		
 		if (source.equals(target)) {
 			return BigDecimal.ONE;
 		}
-
-		final CurrencyToDateToRateMap subRates = rates.get(source);
-		if (subRates != null) {
-			final DateToRateMap currencies = subRates.get(target);
-			if (currencies != null) {
-				return currencies.getClosest(date);
-			}
+		
+		final BigDecimal rate = epoch.getClosestRate(source, target, date.getMillis());
+		if (rate != null) {
+			return rate;
 		}
 		
 		throw new ExchangeRateNotFoundException(source, target, date);
@@ -176,6 +137,9 @@ public class CurrencyExchangeRateMap {
 	 * date. Also adds the inverse relationship (e.g., from
 	 * <code>targetCurrency</code> to <code>sourceCurrency</code>, using the
 	 * inverse of <code>rate</code>).
+	 * <p>
+	 * Each call publishes a new epoch; use a {@link Batch} to add more than a
+	 * handful of rates.
 	 *
 	 * @param source the currency to convert from
 	 * @param target the currency to convert to
@@ -183,35 +147,57 @@ public class CurrencyExchangeRateMap {
 	 * @param rate the ratio of <code>from:to</code>
 	 */
 	public void addExchangeRate(Currency source, Currency target, DateTime date, BigDecimal rate) {
-		if (rate.signum() > 0) {
-			rates.addRate(source, target, date, rate);
-			// REVIEW coda@wesabe.com -- Oct 30, 2008: Reevaluate our modeling of inverse exchange rates.
-			// This may or may not be an accurate model of currency exchange rates.
-			// Is the Yen-to-Dollars rate the same thing as the inverse of the
-			// Dollars-to-Yen rate? What would it mean if it wasn't?
-			rates.addRate(target, source, date, inverseRate(rate));
-		}
+		newBatch().addExchangeRate(source, target, date, rate).commit();
 	}
-
+	
 	/**
-	 * All {@link Currency} types for which this
-	 * {@link CurrencyExchangeRateMap} has <em>any</em> rates.
-	 *
-	 * @return supported currencies
+	 * Returns a new, empty {@link Batch} of exchange rates for this map.
 	 */
+	public Batch newBatch() {
+		return new Batch(this);
+	}
+	
+	/**
+	 * Returns a read-only view of the rates this map has right now, which
+	 * won't change as new rates are added.
+	 */
+	public CurrencyExchangeRates getCurrentEpoch() {
+		return new EpochView(this, epoch);
+	}
+	
+	/**
+	 * Returns the version of the rates this map has right now, which goes up
+	 * every time rates are added, so anything converted with an older version
+	 * may be out of date.
+	 */
+	public long getVersion() {
+		return epoch.getVersion();
+	}
+
+	@Override
 	public Set<Currency> getCurrencies() {
-		return rates.keySet();
+		return epoch.getCurrencies();
 	}
 
+	@Override
+	public boolean isSupported(Currency currency) {
+		return epoch.isSupported(currency);
+	}
+	
 	/**
-	 * Returns <code>true</code> if this {@link CurrencyExchangeRateMap} has any
-	 * rates for the given {@link Currency}.
-	 *
-	 * @param currency a given currency
-	 * @return whether or not the currency is supported
+	 * Checks that a rate from {@code source} to {@code target} can be added
+	 * to this map.
+	 * 
+	 * @throws IllegalArgumentException if the rate can't be added
 	 */
-	public boolean isSupported(Currency currency) {
-		return rates.containsKey(currency);
+	protected void checkExchangeRate(Currency source, Currency target) throws IllegalArgumentException {
+		// any rate will do
+	}
+	
+	private void publish(List<ExchangeRateEpoch.Rate> rates) {
+		synchronized (writeLock) {
+			this.epoch = epoch.plus(rates);
+		}
 	}
 	
 	/**
@@ -220,7 +206,7 @@ public class CurrencyExchangeRateMap {
 	 * @param rate the non-zero exchange rate
 	 * @return the inverse rate
 	 */
-	private BigDecimal inverseRate(BigDecimal rate) {
+	private static BigDecimal inverseRate(BigDecimal rate) {
 		final BigDecimal invertableOne = BigDecimal.ONE;
 		return invertableOne.divide(rate, MATH_CONTEXT);
 	}
@@ -0,0 +1,119 @@
+package com.wesabe.api.util.money;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.joda.time.DateTime;
+
+import com.google.common.base.Objects;
+
+/**
+ * A read-only view of a {@link CurrencyExchangeRateMap} which remembers every
+ * exchange rate it looks up.
+ * <p>
+ * Analytics requests convert thousands of amounts which share a handful of
+ * {@code (source, target, date)} combinations, and each lookup against the
+ * underlying map costs several skip list searches (and, for a
+ * {@link DollarPivotCurrencyExchangeRateMap}, two lookups and a division). A
+ * snapshot does that work once per combination. It reads from the map's
+ * current epoch as of its creation, so all of its rates come from the same
+ * update, even if the underlying map is updated while the snapshot is in use.
+ * Snapshots are intended to live for a single request.
+ *
+ * This class is thread-safe.
+ */
+public class CurrencyExchangeRateSnapshot implements CurrencyExchangeRates {
+	private static class Key {
+		private final Currency source, target;
+		private final long date;
+
+		public Key(Currency source, Currency target, DateTime date) {
+			this.source = source;
+			this.target = target;
+			this.date = date.getMillis();
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(source, target, date);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof Key) {
+				final Key other = (Key) obj;
+				return (date == other.date) && source.equals(other.source)
+						&& target.equals(other.target);
+			}
+
+			return false;
+		}
+	}
+
+	private final long version;
+	private final CurrencyExchangeRates exchangeRates;
+	private final ConcurrentMap<Key, BigDecimal> cachedRates =
+							new ConcurrentHashMap<Key, BigDecimal>();
+
+	/**
+	 * Creates a new {@link CurrencyExchangeRateSnapshot}.
+	 *
+	 * @param exchangeRates the map of exchange rates to read from
+	 */
+	public CurrencyExchangeRateSnapshot(CurrencyExchangeRateMap exchangeRates) {
+		// read the version first, so it's never newer than the rates
+		this.version = exchangeRates.getVersion();
+		this.exchangeRates = exchangeRates.getCurrentEpoch();
+	}
+
+	@Override
+	public BigDecimal getExchangeRate(Currency source, Currency target, DateTime date)
+			throws ExchangeRateNotFoundException {
+
+		if (source.equals(target)) {
+			return BigDecimal.ONE;
+		}
+
+		final Key key = new Key(source, target, date);
+		final BigDecimal cachedRate = cachedRates.get(key);
+		if (cachedRate != null) {
+			return cachedRate;
+		}
+
+		final BigDecimal rate = exchangeRates.getExchangeRate(source, target, date);
+		final BigDecimal existingRate = cachedRates.putIfAbsent(key, rate);
+		return (existingRate == null) ? rate : existingRate;
+	}
+
+	@Override
+	public Set<Currency> getCurrencies() {
+		return exchangeRates.getCurrencies();
+	}
+
+	@Override
+	public boolean isSupported(Currency currency) {
+		return exchangeRates.isSupported(currency);
+	}
+
+	/**
+	 * Returns the version of the map's rates this snapshot reads from.
+	 *
+	 * @see CurrencyExchangeRateMap#getVersion()
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns the number of distinct exchange rates this snapshot has looked
+	 * up.
+	 *
+	 * @return the number of cached exchange rates
+	 */
+	public int size() {
+		return cachedRates.size();
+	}
+}
@@ -0,0 +1,48 @@
+package com.wesabe.api.util.money;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Set;
+
+import org.joda.time.DateTime;
+
+/**
+ * A read-only set of currency exchange rates.
+ *
+ * @see CurrencyExchangeRateMap
+ * @see CurrencyExchangeRateSnapshot
+ */
+public interface CurrencyExchangeRates {
+	/**
+	 * Returns the exchange rate from one currency into another on a particular
+	 * date.
+	 *
+	 * Given two currencies, {@code source} and {@code target}, returns the
+	 * constant multiplier by which a unit of {@code source} should be
+	 * multiplied in order to find its value in {@code target} on {@code date}.
+	 *
+	 * @param source the currency from which the money is being converted
+	 * @param target the currency to which the money is being converted
+	 * @param date the date on which the money is being converted
+	 * @return the exchange rate between {@code source} and {@code target}
+	 * @throws ExchangeRateNotFoundException if the exchange rate cannot be found
+	 */
+	public abstract BigDecimal getExchangeRate(Currency source, Currency target, DateTime date)
+			throws ExchangeRateNotFoundException;
+
+	/**
+	 * All {@link Currency} types for which there are <em>any</em> rates.
+	 *
+	 * @return supported currencies
+	 */
+	public abstract Set<Currency> getCurrencies();
+
+	/**
+	 * Returns <code>true</code> if there are any rates for the given
+	 * {@link Currency}.
+	 *
+	 * @param currency a given currency
+	 * @return whether or not the currency is supported
+	 */
+	public abstract boolean isSupported(Currency currency);
+}
@@ -11,6 +11,9 @@ import org.joda.time.DateTime;
  * <p>
  * This is not an accurate model of exchange rates, but it's close enough to have worked so far. The
  * next version of this should drop this class in favor of finer-grained exchange rate data.
+ * <p>
+ * Cross rates are calculated once per pair of currencies and update, and
+ * looked up by date from then on.
  * 
  * @author coda
  * @deprecated Not an accurate model of exchange rates. Build something better.
@@ -20,18 +23,23 @@ public class DollarPivotCurrencyExchangeRateMap extends CurrencyExchangeRateMap
 	private static final Currency USD = Currency.getInstance("USD");
 	
 	@Override
-	public void addExchangeRate(Currency source, Currency target, DateTime date, BigDecimal rate) {
+	protected void checkExchangeRate(Currency source, Currency target) throws IllegalArgumentException {
 		if (!source.equals(USD)) {
 			throw new IllegalArgumentException("Can only accept exchange rates from USD.");
 		}
-		super.addExchangeRate(source, target, date, rate);
 	}
 	
 	@Override
-	public BigDecimal getExchangeRate(Currency source, Currency target, DateTime date)
-			throws ExchangeRateNotFoundException {
-		final BigDecimal a = super.getExchangeRate(target, USD, date);
-		final BigDecimal b = super.getExchangeRate(source, USD, date);
+	protected BigDecimal getExchangeRate(ExchangeRateEpoch epoch, Currency source,
+			Currency target, DateTime date) throws ExchangeRateNotFoundException {
+		final BigDecimal rate = epoch.getCrossRate(source, target, USD, date.getMillis(), MATH_CONTEXT);
+		if (rate != null) {
+			return rate;
+		}
+		
+		// one of the currencies has no rates, so this will throw
+		final BigDecimal a = super.getExchangeRate(epoch, target, USD, date);
+		final BigDecimal b = super.getExchangeRate(epoch, source, USD, date);
 		return b.divide(a, MATH_CONTEXT);
 	}
 }
@@ -0,0 +1,342 @@
+package com.wesabe.api.util.money;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Currency;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+
+/**
+ * An immutable set of exchange rates, as of a single update to a
+ * {@link CurrencyExchangeRateMap}.
+ * <p>
+ * The rates for each pair of currencies are stored as parallel arrays sorted
+ * by date, so looking up the closest rate is a binary search, and an epoch can
+ * be read by any number of threads without locking. Updates build a new epoch
+ * which shares the rates of every pair they don't touch.
+ * <p>
+ * An epoch also memoizes the cross rates derived from its rates, which are
+ * built the first time each pair of currencies is converted.
+ */
+final class ExchangeRateEpoch {
+	/**
+	 * A single exchange rate, to be added to an epoch.
+	 */
+	static final class Rate {
+		private final Currency source, target;
+		private final long date;
+		private final BigDecimal rate;
+
+		public Rate(Currency source, Currency target, long date, BigDecimal rate) {
+			this.source = source;
+			this.target = target;
+			this.date = date;
+			this.rate = rate;
+		}
+	}
+
+	/**
+	 * The rates between two currencies, sorted by date.
+	 */
+	private static final class RateSeries {
+		private final long[] dates;
+		private final BigDecimal[] rates;
+
+		public RateSeries(SortedMap<Long, BigDecimal> ratesByDate) {
+			this.dates = new long[ratesByDate.size()];
+			this.rates = new BigDecimal[ratesByDate.size()];
+			int i = 0;
+			for (Map.Entry<Long, BigDecimal> entry : ratesByDate.entrySet()) {
+				dates[i] = entry.getKey();
+				rates[i] = entry.getValue();
+				i++;
+			}
+		}
+
+		/**
+		 * Returns the index of the rate on the date closest to {@code date},
+		 * preferring the earlier rate if two are equally close.
+		 */
+		public int indexOfClosest(long date) {
+			final int index = Arrays.binarySearch(dates, date);
+			if (index >= 0) {
+				return index;
+			}
+
+			final int ceiling = -index - 1;
+			final int floor = ceiling - 1;
+			if (ceiling == dates.length) {
+				return floor;
+			} else if (floor < 0) {
+				return ceiling;
+			} else if (dates[ceiling] - date < date - dates[floor]) {
+				return ceiling;
+			}
+			return floor;
+		}
+
+		/**
+		 * Returns the first date for which {@link #indexOfClosest(long)}
+		 * returns {@code index}, which must be greater than zero.
+		 */
+		public long startOf(int index) {
+			// the midpoint between two rates goes to the earlier one
+			return ((dates[index - 1] + dates[index]) >> 1) + 1;
+		}
+
+		public int size() {
+			return dates.length;
+		}
+
+		/**
+		 * Returns the rate on the date closest to {@code date}, preferring the
+		 * earlier rate if two are equally close.
+		 */
+		public BigDecimal getClosest(long date) {
+			return rates[indexOfClosest(date)];
+		}
+
+		public void copyInto(SortedMap<Long, BigDecimal> ratesByDate) {
+			for (int i = 0; i < dates.length; i++) {
+				ratesByDate.put(dates[i], rates[i]);
+			}
+		}
+	}
+
+	/**
+	 * The rates from one currency to another, derived from the two
+	 * currencies' rates to a pivot currency.
+	 * <p>
+	 * The closest rate of each leg is constant between the midpoints of its
+	 * dates, so the cross rate is too. Each of those segments is calculated
+	 * once, and a dense table of the segment each day starts in turns a
+	 * lookup into an array index and, on days when a leg's rate changes, a
+	 * step or two forward.
+	 */
+	private static final class CrossRateSeries {
+		private static final long DAY = 24L * 60 * 60 * 1000;
+		private static final int MAX_DAYS = 100000;
+
+		private final long[] starts;
+		private final BigDecimal[] rates;
+		private final long origin;
+		private final int[] segmentsByDay;
+
+		public CrossRateSeries(RateSeries source, RateSeries target, MathContext mathContext) {
+			final long[] legStarts = new long[Math.max(source.size() - 1, 0) + Math.max(target.size() - 1, 0)];
+			int count = 0;
+			for (int i = 1; i < source.size(); i++) {
+				legStarts[count++] = source.startOf(i);
+			}
+			for (int i = 1; i < target.size(); i++) {
+				legStarts[count++] = target.startOf(i);
+			}
+			Arrays.sort(legStarts);
+
+			final long[] segmentStarts = new long[count + 1];
+			segmentStarts[0] = Long.MIN_VALUE;
+			int segments = 1;
+			for (int i = 0; i < count; i++) {
+				if (legStarts[i] != segmentStarts[segments - 1]) {
+					segmentStarts[segments++] = legStarts[i];
+				}
+			}
+
+			this.starts = Arrays.copyOf(segmentStarts, segments);
+			this.rates = new BigDecimal[segments];
+			for (int i = 0; i < segments; i++) {
+				final long date = (i == 0) ? starts[Math.min(1, segments - 1)] - 1 : starts[i];
+				rates[i] = source.getClosest(date).divide(target.getClosest(date), mathContext);
+			}
+
+			if ((segments > 1) && ((starts[segments - 1] - starts[1]) / DAY < MAX_DAYS)) {
+				this.origin = starts[1];
+				this.segmentsByDay = new int[(int) ((starts[segments - 1] - origin) / DAY) + 1];
+				int segment = 1;
+				for (int day = 0; day < segmentsByDay.length; day++) {
+					final long dayStart = origin + (day * DAY);
+					while ((segment + 1 < segments) && (starts[segment + 1] <= dayStart)) {
+						segment++;
+					}
+					segmentsByDay[day] = segment;
+				}
+			} else {
+				this.origin = 0;
+				this.segmentsByDay = null;
+			}
+		}
+
+		public BigDecimal get(long date) {
+			final int last = starts.length - 1;
+			if ((last == 0) || (date < starts[1])) {
+				return rates[0];
+			} else if (date >= starts[last]) {
+				return rates[last];
+			}
+
+			int segment;
+			if (segmentsByDay != null) {
+				segment = segmentsByDay[(int) ((date - origin) / DAY)];
+			} else {
+				segment = Arrays.binarySearch(starts, date);
+				segment = (segment >= 0) ? segment : -segment - 2;
+			}
+
+			while (starts[segment + 1] <= date) {
+				segment++;
+			}
+			return rates[segment];
+		}
+	}
+
+	private static final RateSeries IDENTITY =
+		new RateSeries(ImmutableSortedMap.of(0L, BigDecimal.ONE));
+
+	public static final ExchangeRateEpoch EMPTY =
+		new ExchangeRateEpoch(0L, ImmutableMap.<Currency, Map<Currency, RateSeries>>of());
+
+	private final long version;
+	private final Map<Currency, Map<Currency, RateSeries>> series;
+	private final ConcurrentMap<Currency, ConcurrentMap<Currency, CrossRateSeries>> crossRates =
+		new ConcurrentHashMap<Currency, ConcurrentMap<Currency, CrossRateSeries>>();
+
+	private ExchangeRateEpoch(long version, Map<Currency, Map<Currency, RateSeries>> series) {
+		this.version = version;
+		this.series = series;
+	}
+
+	/**
+	 * Returns the number of updates which built this epoch, starting from
+	 * {@code 0} for {@link #EMPTY}.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns the rate from {@code source} to {@code target} on the date
+	 * closest to {@code date}, or {@code null} if there are no rates between
+	 * them.
+	 */
+	public BigDecimal getClosestRate(Currency source, Currency target, long date) {
+		final Map<Currency, RateSeries> targets = series.get(source);
+		if (targets != null) {
+			final RateSeries rates = targets.get(target);
+			if (rates != null) {
+				return rates.getClosest(date);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the rate from {@code source} to {@code target} on
+	 * {@code date}, calculated by dividing the closest rates of
+	 * {@code source} and {@code target} into {@code pivot}, or {@code null}
+	 * if either has no rates into {@code pivot}.
+	 * <p>
+	 * Cross rates are memoized by {@code source} and {@code target} alone, so
+	 * an epoch's cross rates must all use the same pivot and math context.
+	 */
+	public BigDecimal getCrossRate(Currency source, Currency target, Currency pivot,
+			long date, MathContext mathContext) {
+		ConcurrentMap<Currency, CrossRateSeries> targets = crossRates.get(source);
+		if (targets == null) {
+			targets = new ConcurrentHashMap<Currency, CrossRateSeries>();
+			final ConcurrentMap<Currency, CrossRateSeries> existing = crossRates.putIfAbsent(source, targets);
+			if (existing != null) {
+				targets = existing;
+			}
+		}
+
+		CrossRateSeries cross = targets.get(target);
+		if (cross == null) {
+			final RateSeries sourceLeg = getSeries(source, pivot);
+			final RateSeries targetLeg = getSeries(target, pivot);
+			if ((sourceLeg == null) || (targetLeg == null)) {
+				return null;
+			}
+
+			cross = new CrossRateSeries(sourceLeg, targetLeg, mathContext);
+			final CrossRateSeries existing = targets.putIfAbsent(target, cross);
+			if (existing != null) {
+				cross = existing;
+			}
+		}
+
+		return cross.get(date);
+	}
+
+	public Set<Currency> getCurrencies() {
+		return series.keySet();
+	}
+
+	public boolean isSupported(Currency currency) {
+		return series.containsKey(currency);
+	}
+
+	private RateSeries getSeries(Currency source, Currency target) {
+		if (source.equals(target)) {
+			return IDENTITY;
+		}
+
+		final Map<Currency, RateSeries> targets = series.get(source);
+		return (targets == null) ? null : targets.get(target);
+	}
+
+	/**
+	 * Returns a new epoch with the rates of this one plus {@code newRates},
+	 * which replace any existing rates for the same currencies and date.
+	 */
+	public ExchangeRateEpoch plus(Collection<Rate> newRates) {
+		if (newRates.isEmpty()) {
+			return this;
+		}
+
+		final Map<Currency, Map<Currency, SortedMap<Long, BigDecimal>>> changes = Maps.newHashMap();
+		for (Rate rate : newRates) {
+			Map<Currency, SortedMap<Long, BigDecimal>> targets = changes.get(rate.source);
+			if (targets == null) {
+				targets = Maps.newHashMap();
+				changes.put(rate.source, targets);
+			}
+
+			SortedMap<Long, BigDecimal> ratesByDate = targets.get(rate.target);
+			if (ratesByDate == null) {
+				ratesByDate = Maps.newTreeMap();
+				final Map<Currency, RateSeries> existingTargets = series.get(rate.source);
+				if ((existingTargets != null) && existingTargets.containsKey(rate.target)) {
+					existingTargets.get(rate.target).copyInto(ratesByDate);
+				}
+				targets.put(rate.target, ratesByDate);
+			}
+
+			ratesByDate.put(rate.date, rate.rate);
+		}
+
+		final Map<Currency, Map<Currency, RateSeries>> merged = Maps.newHashMap(series);
+		for (Map.Entry<Currency, Map<Currency, SortedMap<Long, BigDecimal>>> sourceChanges : changes.entrySet()) {
+			final Map<Currency, RateSeries> targets = Maps.newHashMap();
+			if (series.containsKey(sourceChanges.getKey())) {
+				targets.putAll(series.get(sourceChanges.getKey()));
+			}
+
+			for (Map.Entry<Currency, SortedMap<Long, BigDecimal>> targetChanges : sourceChanges.getValue().entrySet()) {
+				targets.put(targetChanges.getKey(), new RateSeries(targetChanges.getValue()));
+			}
+
+			merged.put(sourceChanges.getKey(), ImmutableMap.copyOf(targets));
+		}
+
+		return new ExchangeRateEpoch(version + 1, ImmutableMap.copyOf(merged));
+	}
+}
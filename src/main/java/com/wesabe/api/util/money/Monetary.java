@@ -13,7 +13,7 @@ public interface Monetary {
 	public abstract Money getAmount() throws UnknownCurrencyCodeException;
 
 	public abstract Money getConvertedAmount(Currency target,
-			CurrencyExchangeRateMap exchangeRates)
+			CurrencyExchangeRates exchangeRates)
 			throws ExchangeRateNotFoundException, UnknownCurrencyCodeException;
 
 }
\ No newline at end of file
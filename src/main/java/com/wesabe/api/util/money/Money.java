@@ -189,7 +189,7 @@ public final class Money implements Comparable<Money> {
      * @param date the date to use for the exchange rates
      * @return a single-currency {@link Money} in the target currency
      */
-	public Money convert(CurrencyExchangeRateMap exchangeRates,
+	public Money convert(CurrencyExchangeRates exchangeRates,
 			Currency targetCurrency, DateTime date)
 			throws ExchangeRateNotFoundException {
 		
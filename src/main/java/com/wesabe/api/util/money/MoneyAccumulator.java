@@ -0,0 +1,171 @@
+package com.wesabe.api.util.money;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+/**
+ * A mutable running total of {@link Money} in a single currency.
+ *
+ * Amounts are kept as a {@code long} number of minor units (e.g., cents), so
+ * adding to the total doesn't allocate a new {@link BigDecimal} and re-scale
+ * it the way {@link Money#add(Money)} does. If the total ever overflows a
+ * {@code long}, the accumulator falls back to {@link BigDecimal} math for the
+ * rest of its life, so results are always exact.
+ *
+ * Not thread-safe.
+ *
+ * @see Money
+ */
+public final class MoneyAccumulator {
+	// any number with this many digits fits in a long
+	private static final int MAX_COMPACT_DIGITS = 18;
+
+	private final Currency currency;
+	private final int scale;
+	private long units = 0;
+	private BigDecimal overflow = null;
+
+	/**
+	 * Creates a new, zero-amount {@link MoneyAccumulator} in a currency.
+	 *
+	 * @param currency the currency of the total
+	 */
+	public MoneyAccumulator(Currency currency) {
+		this.currency = currency;
+		this.scale = currency.getDefaultFractionDigits();
+	}
+
+	/**
+	 * Adds {@code amount} to the total.
+	 *
+	 * @param amount an amount of money in the accumulator's currency
+	 * @return {@code this}
+	 * @throws CurrencyMismatchException if {@code amount} is in a different
+	 * 			currency
+	 */
+	public MoneyAccumulator add(Money amount) throws CurrencyMismatchException {
+		checkCurrency("add", amount);
+		return addUnits(amount.getValue(), false);
+	}
+
+	/**
+	 * Subtracts {@code amount} from the total.
+	 *
+	 * @param amount an amount of money in the accumulator's currency
+	 * @return {@code this}
+	 * @throws CurrencyMismatchException if {@code amount} is in a different
+	 * 			currency
+	 */
+	public MoneyAccumulator subtract(Money amount) throws CurrencyMismatchException {
+		checkCurrency("subtract", amount);
+		return addUnits(amount.getValue(), true);
+	}
+
+	/**
+	 * Adds the absolute value of {@code amount} to the total.
+	 *
+	 * @param amount an amount of money in the accumulator's currency
+	 * @return {@code this}
+	 * @throws CurrencyMismatchException if {@code amount} is in a different
+	 * 			currency
+	 */
+	public MoneyAccumulator addAbsolute(Money amount) throws CurrencyMismatchException {
+		checkCurrency("add", amount);
+		return addUnits(amount.getValue(), amount.signum() < 0);
+	}
+
+	/**
+	 * Adds a number of minor units (e.g., cents) of the accumulator's currency
+	 * to the total.
+	 *
+	 * @param amount a number of minor units
+	 * @return {@code this}
+	 */
+	public MoneyAccumulator addMinorUnits(long amount) {
+		if (overflow == null) {
+			final long sum = units + amount;
+			if (((units ^ sum) & (amount ^ sum)) >= 0) {
+				this.units = sum;
+				return this;
+			}
+
+			this.overflow = BigDecimal.valueOf(units, scale);
+		}
+
+		this.overflow = overflow.add(BigDecimal.valueOf(amount, scale));
+		return this;
+	}
+
+	/**
+	 * Returns the signum function of the total.
+	 *
+	 * @return {@code -1}, {@code 0}, or {@code 1} as the total is negative,
+	 * 			zero, or positive
+	 */
+	public int signum() {
+		if (overflow != null) {
+			return overflow.signum();
+		}
+
+		return Long.signum(units);
+	}
+
+	/**
+	 * Returns the total as a {@link Money}.
+	 *
+	 * @return the total
+	 */
+	public Money toMoney() {
+		return new Money(toBigDecimal(), currency);
+	}
+
+	/**
+	 * Returns the currency of the total.
+	 *
+	 * @return the currency of the total
+	 */
+	public Currency getCurrency() {
+		return currency;
+	}
+
+	@Override
+	public String toString() {
+		return toBigDecimal().toPlainString() + currency.getCurrencyCode();
+	}
+
+	private BigDecimal toBigDecimal() {
+		if (overflow != null) {
+			return overflow;
+		}
+
+		return BigDecimal.valueOf(units, scale);
+	}
+
+	private void checkCurrency(String operation, Money amount) throws CurrencyMismatchException {
+		if (!currency.equals(amount.getCurrency())) {
+			throw new CurrencyMismatchException(operation, currency, amount.getCurrency());
+		}
+	}
+
+	private MoneyAccumulator addUnits(BigDecimal value, boolean negate) {
+		if (overflow == null) {
+			// Money always normalizes its amount to the currency's scale. Moving
+			// the point of a compact amount re-uses its unscaled long instead of
+			// building a BigInteger the way unscaledValue() does.
+			if ((value.scale() == scale) && (value.precision() <= MAX_COMPACT_DIGITS)) {
+				final long unscaled = value.movePointRight(scale).longValueExact();
+				final long addend = negate ? -unscaled : unscaled;
+				final long sum = units + addend;
+				if (((units ^ sum) & (addend ^ sum)) >= 0) {
+					this.units = sum;
+					return this;
+				}
+			}
+
+			this.overflow = BigDecimal.valueOf(units, scale);
+		}
+
+		this.overflow = negate ? overflow.subtract(value) : overflow.add(value);
+		return this;
+	}
+}
@@ -3,11 +3,31 @@ package com.wesabe.api.util.money;
 import java.math.BigDecimal;
 import java.util.Currency;
 import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.ibm.icu.text.DecimalFormat;
+import com.ibm.icu.text.DecimalFormatSymbols;
 import com.ibm.icu.text.NumberFormat;
 
+/**
+ * A locale-specific format for amounts of a particular currency.
+ * <p>
+ * Formats are built once per currency and locale and shared from then on.
+ * Requested locales are resolved to the most specific locale ICU has number
+ * formats for (e.g., {@code en_ZZ} to {@code en}), so the cache never holds
+ * more than one format per currency and available locale; locales ICU has no
+ * data for at all are formatted without caching. ICU's {@link NumberFormat}s
+ * aren't thread-safe, so each thread formats with its own clone of the
+ * prepared format. Formats with a simple pattern (a prefix, grouped digits, a
+ * fixed number of fraction digits, and a suffix) skip ICU altogether for
+ * amounts which don't need rounding, and write the digits straight into a
+ * {@code char} buffer.
+ * 
+ * This class is thread-safe.
+ */
 public class MoneyFormat {
 	private static final char REGULAR_SPACE = ' ';
 	private static final char NON_BREAKING_SPACE = '\u00a0';
@@ -39,9 +59,181 @@ public class MoneyFormat {
 		Locale.US, (MoneyFormatBuilder) new USFormatBuilder()
 	);
 	
-	private final NumberFormat format;
+	/**
+	 * A formatter which writes amounts in the same way as a simple
+	 * {@link DecimalFormat}, without any of its generality.
+	 */
+	private static class FastFormat {
+		private final char[] positivePrefix, positiveSuffix, negativePrefix, negativeSuffix;
+		private final char groupingSeparator, decimalSeparator;
+		private final int groupingSize, fractionDigits;
+		
+		public FastFormat(DecimalFormat format) {
+			final DecimalFormatSymbols symbols = format.getDecimalFormatSymbols();
+			this.positivePrefix = chars(format.getPositivePrefix());
+			this.positiveSuffix = chars(format.getPositiveSuffix());
+			this.negativePrefix = chars(format.getNegativePrefix());
+			this.negativeSuffix = chars(format.getNegativeSuffix());
+			this.groupingSeparator = replaceNonBreakingSpace(symbols.getMonetaryGroupingSeparator());
+			this.decimalSeparator = replaceNonBreakingSpace(symbols.getMonetaryDecimalSeparator());
+			this.groupingSize = format.isGroupingUsed() ? format.getGroupingSize() : 0;
+			this.fractionDigits = format.getMaximumFractionDigits();
+		}
+		
+		/**
+		 * Returns {@code true} if {@code amount} can be formatted without
+		 * rounding.
+		 */
+		public boolean canFormat(BigDecimal amount) {
+			return (amount.scale() >= 0) && (amount.scale() <= fractionDigits);
+		}
+		
+		public String format(BigDecimal amount) {
+			final boolean negative = amount.signum() < 0;
+			final char[] prefix = negative ? negativePrefix : positivePrefix;
+			final char[] suffix = negative ? negativeSuffix : positiveSuffix;
+			final String digits = amount.unscaledValue().abs().toString();
+			final int scale = amount.scale();
+			final int integerDigits = Math.max(digits.length() - scale, 1);
+			final int groups = (groupingSize > 0) ? (integerDigits - 1) / groupingSize : 0;
+			
+			final char[] buffer = new char[prefix.length + integerDigits + groups
+			                               + ((fractionDigits > 0) ? fractionDigits + 1 : 0)
+			                               + suffix.length];
+			int position = 0;
+			
+			System.arraycopy(prefix, 0, buffer, position, prefix.length);
+			position += prefix.length;
+			
+			// the digits of the unscaled value, preceded by as many zeros as needed
+			final int padding = integerDigits + scale - digits.length();
+			for (int i = 0; i < integerDigits; i++) {
+				if ((i > 0) && (groupingSize > 0) && ((integerDigits - i) % groupingSize == 0)) {
+					buffer[position++] = groupingSeparator;
+				}
+				buffer[position++] = (i < padding) ? '0' : digits.charAt(i - padding);
+			}
+			
+			if (fractionDigits > 0) {
+				buffer[position++] = decimalSeparator;
+				for (int i = 0; i < fractionDigits; i++) {
+					final int index = integerDigits + i - padding;
+					buffer[position++] = ((i < scale) && (index >= 0)) ? digits.charAt(index) : '0';
+				}
+			}
+			
+			System.arraycopy(suffix, 0, buffer, position, suffix.length);
+			return new String(buffer);
+		}
+		
+		/**
+		 * Returns a {@link FastFormat} which formats amounts exactly as
+		 * {@code format} does, or {@code null} if {@code format} is too
+		 * complicated.
+		 */
+		public static FastFormat of(NumberFormat format) {
+			if (!(format instanceof DecimalFormat)) {
+				return null;
+			}
+			
+			final DecimalFormat decimalFormat = (DecimalFormat) format;
+			if ((decimalFormat.getMinimumFractionDigits() != decimalFormat.getMaximumFractionDigits())
+					|| (decimalFormat.getMinimumIntegerDigits() != 1)
+					|| (decimalFormat.getMultiplier() != 1)
+					|| decimalFormat.areSignificantDigitsUsed()
+					|| (decimalFormat.getFormatWidth() > 0)
+					|| (decimalFormat.getDecimalFormatSymbols().getZeroDigit() != '0')
+					|| (decimalFormat.isGroupingUsed() && (decimalFormat.getGroupingSize() <= 0))
+					|| ((decimalFormat.getRoundingIncrement() != null)
+							&& (decimalFormat.getRoundingIncrement().signum() != 0))) {
+				return null;
+			}
+			
+			final FastFormat fastFormat = new FastFormat(decimalFormat);
+			for (String sample : SAMPLES) {
+				final BigDecimal amount = new BigDecimal(sample).movePointLeft(fastFormat.fractionDigits);
+				if (!fastFormat.format(amount).equals(replaceNonBreakingSpaces(format.format(amount)))) {
+					return null;
+				}
+			}
+			return fastFormat;
+		}
+		
+		private static char[] chars(String s) {
+			return replaceNonBreakingSpaces(s).toCharArray();
+		}
+	}
+	
+	// amounts which exercise grouping, padding, and signs, in minor units
+	private static final String[] SAMPLES = {
+		"0", "7", "-400", "12345", "123456789", "-98765432101", "1000000000000"
+	};
+	
+	private static final ImmutableSet<Locale> AVAILABLE_LOCALES =
+		ImmutableSet.of(NumberFormat.getAvailableLocales());
+	
+	private static final ConcurrentMap<Locale, ConcurrentMap<Currency, MoneyFormat>> CACHE =
+		new ConcurrentHashMap<Locale, ConcurrentMap<Currency, MoneyFormat>>();
+	
+	private final NumberFormat prototype;
+	private final FastFormat fastFormat;
+	private final ThreadLocal<NumberFormat> formats = new ThreadLocal<NumberFormat>() {
+		@Override
+		protected NumberFormat initialValue() {
+			return (NumberFormat) prototype.clone();
+		}
+	};
 	
 	public static MoneyFormat of(Currency currency, Locale locale) {
+		final Locale availableLocale = resolve(locale);
+		if (availableLocale == null) {
+			return build(currency, locale);
+		}
+		
+		ConcurrentMap<Currency, MoneyFormat> formats = CACHE.get(availableLocale);
+		if (formats == null) {
+			formats = new ConcurrentHashMap<Currency, MoneyFormat>();
+			final ConcurrentMap<Currency, MoneyFormat> existing = CACHE.putIfAbsent(availableLocale, formats);
+			if (existing != null) {
+				formats = existing;
+			}
+		}
+		
+		MoneyFormat format = formats.get(currency);
+		if (format == null) {
+			format = build(currency, availableLocale);
+			final MoneyFormat existing = formats.putIfAbsent(currency, format);
+			if (existing != null) {
+				format = existing;
+			}
+		}
+		return format;
+	}
+	
+	/**
+	 * Returns the most specific of {@code locale}, its language and country,
+	 * and its language which ICU has number formats for, or {@code null} if
+	 * there are none.
+	 */
+	private static Locale resolve(Locale locale) {
+		if (AVAILABLE_LOCALES.contains(locale)) {
+			return locale;
+		}
+		
+		final Locale country = new Locale(locale.getLanguage(), locale.getCountry());
+		if (AVAILABLE_LOCALES.contains(country)) {
+			return country;
+		}
+		
+		final Locale language = new Locale(locale.getLanguage());
+		if (AVAILABLE_LOCALES.contains(language)) {
+			return language;
+		}
+		
+		return null;
+	}
+	
+	private static MoneyFormat build(Currency currency, Locale locale) {
 		if (FORMATS.containsKey(locale)) {
 			return new MoneyFormat(FORMATS.get(locale).build(currency));
 		}
@@ -56,14 +248,23 @@ public class MoneyFormat {
 	}
 
 	private MoneyFormat(NumberFormat format) {
-		this.format = format;
+		this.prototype = format;
+		this.fastFormat = FastFormat.of(format);
 	}
 
 	public String format(BigDecimal amount) {
-		return replaceNonBreakingSpaces(format.format(amount));
+		if ((fastFormat != null) && fastFormat.canFormat(amount)) {
+			return fastFormat.format(amount);
+		}
+		
+		return replaceNonBreakingSpaces(formats.get().format(amount));
+	}
+	
+	private static char replaceNonBreakingSpace(char c) {
+		return (c == NON_BREAKING_SPACE) ? REGULAR_SPACE : c;
 	}
 
-	private String replaceNonBreakingSpaces(final String s) {
+	private static String replaceNonBreakingSpaces(final String s) {
 		// REVIEW coda@wesabe.com -- Apr 9, 2009: Figure out what to do about non-breaking spaces.
 		// It stands to reason that non-breaking spaces are the technically correct
 		// choice, but they're a pain in the ass to deal with in tests, etc.
@@ -0,0 +1,590 @@
+package com.wesabe.api.util.rails;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An inflection rule compiled from the small subset of regular expressions
+ * used by {@link Inflector}'s rules into a set of fixed-length branches which
+ * can be matched against a word without running a regular expression.
+ * <p>
+ * A rule's pattern is expanded into one branch for every combination of its
+ * alternatives. Each branch is anchored to the end of the word (or, for
+ * patterns like {@code ^(ox)en}, to its start), so matching a branch is a
+ * single comparison of its characters against the word's tail. When several
+ * branches match, the one which starts earliest in the word wins, with ties
+ * going to the branch which comes first in the pattern &mdash; the same
+ * choice {@link java.util.regex.Matcher#find()} makes.
+ * <p>
+ * Supported syntax: a leading {@code (?i-mx:} or {@code (?-mix:} flag group,
+ * {@code ^}, {@code $}, capturing and {@code (?:} groups, {@code |},
+ * character classes without ranges, {@code .}, {@code \w}, backreferences
+ * ({@code \1}-{@code \9}), and literal characters. Replacements may contain
+ * literal text and {@code $1}-{@code $9}. Anything else is rejected with an
+ * {@link IllegalArgumentException}.
+ * <p>
+ * Compiled rules treat the word as a sequence of {@code char}s and assume
+ * {@code $} only matches at the very end of the word, so they do not
+ * reproduce {@link java.util.regex.Pattern}'s handling of surrogate pairs or
+ * trailing line terminators. {@link Inflector} falls back to the regular
+ * expression for words where those could matter.
+ *
+ * This class is immutable.
+ */
+class CompiledRule {
+	/**
+	 * A single character position in a branch.
+	 */
+	private static abstract class Atom {
+		/**
+		 * Returns {@code true} if {@code word.charAt(index)} matches, given
+		 * that the branch starts at {@code start}.
+		 */
+		public abstract boolean matches(String word, int index, int start, Branch branch);
+
+		/**
+		 * Returns the characters this atom matches, or {@code null} if it
+		 * matches characters other than the ones in a short, known list.
+		 */
+		public abstract char[] getCandidates();
+	}
+
+	private static class Literal extends Atom {
+		private final char c;
+		private final boolean caseInsensitive;
+
+		public Literal(char c, boolean caseInsensitive) {
+			this.c = c;
+			this.caseInsensitive = caseInsensitive;
+		}
+
+		@Override
+		public boolean matches(String word, int index, int start, Branch branch) {
+			return equal(word.charAt(index), c, caseInsensitive);
+		}
+
+		@Override
+		public char[] getCandidates() {
+			return variants(new char[] { c }, caseInsensitive);
+		}
+	}
+
+	private static class CharClass extends Atom {
+		private final char[] members;
+		private final boolean negated, caseInsensitive;
+
+		public CharClass(char[] members, boolean negated, boolean caseInsensitive) {
+			this.members = members;
+			this.negated = negated;
+			this.caseInsensitive = caseInsensitive;
+		}
+
+		@Override
+		public boolean matches(String word, int index, int start, Branch branch) {
+			final char c = word.charAt(index);
+			for (char member : members) {
+				if (equal(c, member, caseInsensitive)) {
+					return !negated;
+				}
+			}
+			return negated;
+		}
+
+		@Override
+		public char[] getCandidates() {
+			return negated ? null : variants(members, caseInsensitive);
+		}
+	}
+
+	private static class AnyChar extends Atom {
+		@Override
+		public boolean matches(String word, int index, int start, Branch branch) {
+			return !isLineTerminator(word.charAt(index));
+		}
+
+		@Override
+		public char[] getCandidates() {
+			return null;
+		}
+	}
+
+	private static class WordChar extends Atom {
+		@Override
+		public boolean matches(String word, int index, int start, Branch branch) {
+			final char c = word.charAt(index);
+			return ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z'))
+					|| ((c >= '0') && (c <= '9')) || (c == '_');
+		}
+
+		@Override
+		public char[] getCandidates() {
+			return null;
+		}
+	}
+
+	private static class BackReference extends Atom {
+		private final int group;
+		private final boolean caseInsensitive;
+
+		public BackReference(int group, boolean caseInsensitive) {
+			this.group = group;
+			this.caseInsensitive = caseInsensitive;
+		}
+
+		@Override
+		public boolean matches(String word, int index, int start, Branch branch) {
+			final int[] span = branch.groups[group];
+			if ((span == null) || (span[1] - span[0] != 1)) {
+				throw new IllegalStateException("back references must be to single characters");
+			}
+			return equal(word.charAt(index), word.charAt(start + span[0]), caseInsensitive);
+		}
+
+		@Override
+		public char[] getCandidates() {
+			return null;
+		}
+	}
+
+	/**
+	 * One fixed-length expansion of a rule's pattern.
+	 */
+	private static class Branch {
+		private final Atom[] atoms;
+		private final int[][] groups;
+		private final boolean anchoredAtStart, anchoredAtEnd;
+
+		public Branch(Atom[] atoms, int[][] groups, boolean anchoredAtStart, boolean anchoredAtEnd) {
+			this.atoms = atoms;
+			this.groups = groups;
+			this.anchoredAtStart = anchoredAtStart;
+			this.anchoredAtEnd = anchoredAtEnd;
+		}
+
+		/**
+		 * Returns the index in {@code word} at which this branch matches, or
+		 * {@code -1}.
+		 */
+		public int match(String word) {
+			final int length = word.length();
+			final int start = anchoredAtEnd ? length - atoms.length : 0;
+			if ((start < 0) || (anchoredAtStart && (start != 0)) || (start + atoms.length > length)) {
+				return -1;
+			}
+
+			// compare from the end of the word, where the rules differ the most
+			for (int i = atoms.length - 1; i >= 0; i--) {
+				if (!atoms[i].matches(word, start + i, start, this)) {
+					return -1;
+				}
+			}
+
+			return start;
+		}
+	}
+
+	/**
+	 * An intermediate expansion of part of a pattern, before anchors are
+	 * resolved.
+	 */
+	private static class Partial {
+		private final List<Atom> atoms = new ArrayList<Atom>();
+		private final int[][] groups;
+		private boolean anchoredAtStart, anchoredAtEnd;
+
+		public Partial(int groupCount) {
+			this.groups = new int[groupCount + 1][];
+		}
+
+		public Partial concat(Partial other) {
+			if (anchoredAtEnd || (other.anchoredAtStart && !atoms.isEmpty())) {
+				throw new IllegalArgumentException("anchors must be at the start or end of a pattern");
+			}
+
+			final Partial result = new Partial(groups.length - 1);
+			result.atoms.addAll(atoms);
+			result.atoms.addAll(other.atoms);
+			for (int i = 0; i < groups.length; i++) {
+				if (groups[i] != null) {
+					result.groups[i] = groups[i];
+				} else if (other.groups[i] != null) {
+					result.groups[i] = new int[] {
+						other.groups[i][0] + atoms.size(),
+						other.groups[i][1] + atoms.size()
+					};
+				}
+			}
+			result.anchoredAtStart = anchoredAtStart || other.anchoredAtStart;
+			result.anchoredAtEnd = other.anchoredAtEnd;
+			return result;
+		}
+	}
+
+	/**
+	 * A recursive-descent parser which expands a pattern into its branches.
+	 */
+	private static class Parser {
+		private final String pattern;
+		private final boolean caseInsensitive;
+		private final int groupCount;
+		private int position, nextGroup = 1;
+
+		public Parser(String pattern, boolean caseInsensitive) {
+			this.pattern = pattern;
+			this.caseInsensitive = caseInsensitive;
+			this.groupCount = countGroups(pattern);
+		}
+
+		public List<Partial> parse() {
+			final List<Partial> partials = parseAlternation();
+			if (position != pattern.length()) {
+				throw unsupported();
+			}
+			return partials;
+		}
+
+		private List<Partial> parseAlternation() {
+			final List<Partial> partials = new ArrayList<Partial>();
+			partials.addAll(parseSequence());
+			while ((position < pattern.length()) && (pattern.charAt(position) == '|')) {
+				position++;
+				partials.addAll(parseSequence());
+			}
+			return partials;
+		}
+
+		private List<Partial> parseSequence() {
+			List<Partial> partials = new ArrayList<Partial>();
+			partials.add(new Partial(groupCount));
+			while ((position < pattern.length()) && (pattern.charAt(position) != '|')
+					&& (pattern.charAt(position) != ')')) {
+				final List<Partial> items = parseItem();
+				final List<Partial> product = new ArrayList<Partial>();
+				for (Partial partial : partials) {
+					for (Partial item : items) {
+						product.add(partial.concat(item));
+					}
+				}
+				partials = product;
+			}
+			return partials;
+		}
+
+		private List<Partial> parseItem() {
+			final char c = pattern.charAt(position++);
+			switch (c) {
+				case '^': {
+					final Partial partial = new Partial(groupCount);
+					partial.anchoredAtStart = true;
+					return single(partial);
+				}
+
+				case '$': {
+					final Partial partial = new Partial(groupCount);
+					partial.anchoredAtEnd = true;
+					return single(partial);
+				}
+
+				case '(':
+					return parseGroup();
+
+				case '[':
+					return single(atom(parseCharClass()));
+
+				case '.':
+					return single(atom(new AnyChar()));
+
+				case '\\': {
+					if (position == pattern.length()) {
+						throw unsupported();
+					}
+
+					final char escaped = pattern.charAt(position++);
+					if (escaped == 'w') {
+						return single(atom(new WordChar()));
+					} else if ((escaped >= '1') && (escaped <= '9')) {
+						return single(atom(new BackReference(escaped - '0', caseInsensitive)));
+					}
+					throw unsupported();
+				}
+
+				case '*': case '+': case '?': case '{': case '}': case ']':
+					throw unsupported();
+
+				default:
+					return single(atom(new Literal(c, caseInsensitive)));
+			}
+		}
+
+		private List<Partial> parseGroup() {
+			int group = 0;
+			if (pattern.startsWith("?:", position)) {
+				position += 2;
+			} else if ((position < pattern.length()) && (pattern.charAt(position) == '?')) {
+				throw unsupported();
+			} else {
+				group = nextGroup++;
+			}
+
+			final List<Partial> partials = parseAlternation();
+			if ((position == pattern.length()) || (pattern.charAt(position) != ')')) {
+				throw unsupported();
+			}
+			position++;
+
+			if (group != 0) {
+				for (Partial partial : partials) {
+					if (partial.anchoredAtStart || partial.anchoredAtEnd) {
+						throw unsupported();
+					}
+					partial.groups[group] = new int[] { 0, partial.atoms.size() };
+				}
+			}
+			return partials;
+		}
+
+		private CharClass parseCharClass() {
+			boolean negated = false;
+			if ((position < pattern.length()) && (pattern.charAt(position) == '^')) {
+				negated = true;
+				position++;
+			}
+
+			final StringBuilder members = new StringBuilder();
+			while ((position < pattern.length()) && (pattern.charAt(position) != ']')) {
+				final char c = pattern.charAt(position++);
+				if ((c == '\\') || (c == '[') || (c == '-') || (c == '&')) {
+					throw unsupported();
+				}
+				members.append(c);
+			}
+
+			if ((position == pattern.length()) || (members.length() == 0)) {
+				throw unsupported();
+			}
+			position++;
+
+			return new CharClass(members.toString().toCharArray(), negated, caseInsensitive);
+		}
+
+		private Partial atom(Atom atom) {
+			final Partial partial = new Partial(groupCount);
+			partial.atoms.add(atom);
+			return partial;
+		}
+
+		private List<Partial> single(Partial partial) {
+			final List<Partial> partials = new ArrayList<Partial>(1);
+			partials.add(partial);
+			return partials;
+		}
+
+		private IllegalArgumentException unsupported() {
+			return new IllegalArgumentException("Unsupported inflection pattern: " + pattern);
+		}
+
+		private static int countGroups(String pattern) {
+			int count = 0;
+			for (int i = 0; i < pattern.length(); i++) {
+				if ((pattern.charAt(i) == '(') && !pattern.startsWith("(?", i)) {
+					count++;
+				}
+			}
+			return count;
+		}
+	}
+
+	private static final String CASE_INSENSITIVE_PREFIX = "(?i-mx:";
+	private static final String CASE_SENSITIVE_PREFIX = "(?-mix:";
+
+	private final Branch[] branches;
+	private final Object[] replacement;
+	private final char[] lastChars;
+
+	/**
+	 * Compiles an inflection rule.
+	 *
+	 * @param pattern the rule's regular expression
+	 * @param replacement the rule's replacement
+	 * @throws IllegalArgumentException if {@code pattern} or
+	 * 			{@code replacement} use unsupported syntax
+	 */
+	public CompiledRule(String pattern, String replacement) throws IllegalArgumentException {
+		final boolean caseInsensitive;
+		if (pattern.startsWith(CASE_INSENSITIVE_PREFIX)) {
+			caseInsensitive = true;
+		} else if (pattern.startsWith(CASE_SENSITIVE_PREFIX)) {
+			caseInsensitive = false;
+		} else {
+			throw new IllegalArgumentException("Unsupported inflection pattern: " + pattern);
+		}
+
+		if (!pattern.endsWith(")")) {
+			throw new IllegalArgumentException("Unsupported inflection pattern: " + pattern);
+		}
+
+		final String body = pattern.substring(CASE_INSENSITIVE_PREFIX.length(), pattern.length() - 1);
+		final List<Partial> partials = new Parser(body, caseInsensitive).parse();
+
+		this.branches = new Branch[partials.size()];
+		for (int i = 0; i < branches.length; i++) {
+			final Partial partial = partials.get(i);
+			if (!partial.anchoredAtStart && !partial.anchoredAtEnd) {
+				throw new IllegalArgumentException("Unanchored inflection pattern: " + pattern);
+			}
+
+			branches[i] = new Branch(
+					partial.atoms.toArray(new Atom[partial.atoms.size()]),
+					partial.groups, partial.anchoredAtStart, partial.anchoredAtEnd);
+		}
+
+		this.replacement = parseReplacement(replacement);
+		this.lastChars = calculateLastChars();
+	}
+
+	/**
+	 * Applies the rule to {@code word}.
+	 *
+	 * @param word a word
+	 * @return {@code word} with the rule applied, or {@code null} if the rule
+	 * 			doesn't match {@code word}
+	 */
+	public String apply(String word) {
+		Branch bestBranch = null;
+		int bestStart = Integer.MAX_VALUE;
+		for (Branch branch : branches) {
+			final int start = branch.match(word);
+			if ((start >= 0) && (start < bestStart)) {
+				bestBranch = branch;
+				bestStart = start;
+			}
+		}
+
+		if (bestBranch == null) {
+			return null;
+		}
+
+		final StringBuilder builder = new StringBuilder(word.length() + 8);
+		builder.append(word, 0, bestStart);
+		for (Object part : replacement) {
+			if (part instanceof Integer) {
+				final int[] span = bestBranch.groups[(Integer) part];
+				if (span != null) {
+					builder.append(word, bestStart + span[0], bestStart + span[1]);
+				}
+			} else {
+				builder.append((String) part);
+			}
+		}
+		builder.append(word, bestStart + bestBranch.atoms.length, word.length());
+		return builder.toString();
+	}
+
+	/**
+	 * Returns every character a word must end with for this rule to match it,
+	 * or {@code null} if the rule can match words ending in other characters.
+	 */
+	public char[] getLastChars() {
+		return (lastChars == null) ? null : lastChars.clone();
+	}
+
+	/**
+	 * Returns the number of characters at the start or end of a word this
+	 * rule examines.
+	 */
+	public int getMaxLength() {
+		int maxLength = 0;
+		for (Branch branch : branches) {
+			maxLength = Math.max(maxLength, branch.atoms.length);
+		}
+		return maxLength;
+	}
+
+	private char[] calculateLastChars() {
+		final StringBuilder chars = new StringBuilder();
+		for (Branch branch : branches) {
+			if (!branch.anchoredAtEnd || (branch.atoms.length == 0)) {
+				return null;
+			}
+
+			final char[] candidates = branch.atoms[branch.atoms.length - 1].getCandidates();
+			if (candidates == null) {
+				return null;
+			}
+			chars.append(candidates);
+		}
+		return chars.toString().toCharArray();
+	}
+
+	private Object[] parseReplacement(String replacement) {
+		final List<Object> parts = new ArrayList<Object>();
+		final StringBuilder literal = new StringBuilder();
+		for (int i = 0; i < replacement.length(); i++) {
+			final char c = replacement.charAt(i);
+			if (c == '\\') {
+				throw new IllegalArgumentException("Unsupported inflection replacement: " + replacement);
+			} else if (c == '$') {
+				if ((i + 1 == replacement.length()) || (replacement.charAt(i + 1) < '1')
+						|| (replacement.charAt(i + 1) > '9')) {
+					throw new IllegalArgumentException("Unsupported inflection replacement: " + replacement);
+				}
+
+				final int group = replacement.charAt(++i) - '0';
+				if (group >= branches[0].groups.length) {
+					throw new IllegalArgumentException("No such group in inflection replacement: " + replacement);
+				}
+
+				if (literal.length() > 0) {
+					parts.add(literal.toString());
+					literal.setLength(0);
+				}
+				parts.add(Integer.valueOf(group));
+			} else {
+				literal.append(c);
+			}
+		}
+
+		if (literal.length() > 0) {
+			parts.add(literal.toString());
+		}
+		return parts.toArray();
+	}
+
+	/**
+	 * Returns {@code true} if {@code c} is one of the characters
+	 * {@link java.util.regex.Pattern} treats as ending a line.
+	 */
+	static boolean isLineTerminator(char c) {
+		return (c == '\n') || (c == '\r') || (c == '\u0085') || (c == '\u2028') || (c == '\u2029');
+	}
+
+	private static boolean equal(char a, char b, boolean caseInsensitive) {
+		if (a == b) {
+			return true;
+		}
+
+		// like Pattern.CASE_INSENSITIVE, only US-ASCII letters are folded
+		return caseInsensitive && (a < 128) && (b < 128) && (toLowerCase(a) == toLowerCase(b));
+	}
+
+	private static char toLowerCase(char c) {
+		return ((c >= 'A') && (c <= 'Z')) ? (char) (c + ('a' - 'A')) : c;
+	}
+
+	private static char[] variants(char[] chars, boolean caseInsensitive) {
+		if (!caseInsensitive) {
+			return chars.clone();
+		}
+
+		final StringBuilder variants = new StringBuilder();
+		for (char c : chars) {
+			variants.append(c);
+			if ((c >= 'a') && (c <= 'z')) {
+				variants.append((char) (c - ('a' - 'A')));
+			} else if ((c >= 'A') && (c <= 'Z')) {
+				variants.append(toLowerCase(c));
+			}
+		}
+		return variants.toString().toCharArray();
+	}
+}
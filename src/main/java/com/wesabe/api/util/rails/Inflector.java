@@ -7,9 +7,17 @@ import java.util.regex.Pattern;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 
 /**
  * A bug-for-bug implementation of Wesabe's custom Rails inflector rules.
+ * <p>
+ * Each rule is compiled into a {@link CompiledRule} which checks a word's
+ * tail directly, and rules are indexed by the last character of the words
+ * they can match, so inflecting a word only examines the handful of rules
+ * which could apply to it. Words for which the compiled rules could disagree
+ * with the original regular expressions (those ending in a line terminator or
+ * a surrogate pair) are inflected with the regular expressions instead.
  * 
  * @author coda
  *
@@ -18,10 +26,12 @@ public class Inflector {
 	private static class Rule {
 		private final Pattern pattern;
 		private final String replacement;
+		private final CompiledRule compiledRule;
 		
-		public Rule(Pattern pattern, String replacement) {
-			this.pattern = pattern;
+		public Rule(String pattern, String replacement) {
+			this.pattern = Pattern.compile(pattern);
 			this.replacement = replacement;
+			this.compiledRule = new CompiledRule(pattern, replacement);
 		}
 		
 		public boolean matches(String input) {
@@ -33,11 +43,111 @@ public class Inflector {
 		}
 	}
 	
+	/**
+	 * An ordered list of rules, indexed by the last characters of the words
+	 * they can match.
+	 */
+	private static class RuleSet {
+		private static final int INDEXED_CHARS = 128;
+		
+		private final List<Rule> rules;
+		private final CompiledRule[][] rulesByLastChar;
+		private final CompiledRule[] otherRules;
+		private final int maxLength;
+		
+		public RuleSet(List<Rule> rules) {
+			this.rules = rules;
+			
+			final List<List<CompiledRule>> indexedRules = Lists.newArrayListWithCapacity(INDEXED_CHARS);
+			for (int i = 0; i < INDEXED_CHARS; i++) {
+				indexedRules.add(Lists.<CompiledRule>newArrayList());
+			}
+			final List<CompiledRule> unindexedRules = Lists.newArrayList();
+			
+			int maxLength = 0;
+			for (Rule rule : rules) {
+				final CompiledRule compiledRule = rule.compiledRule;
+				maxLength = Math.max(maxLength, compiledRule.getMaxLength());
+				
+				final char[] lastChars = compiledRule.getLastChars();
+				if (lastChars == null) {
+					unindexedRules.add(compiledRule);
+					for (List<CompiledRule> list : indexedRules) {
+						list.add(compiledRule);
+					}
+				} else {
+					for (char c : lastChars) {
+						if (c < INDEXED_CHARS) {
+							final List<CompiledRule> list = indexedRules.get(c);
+							if (!list.contains(compiledRule)) {
+								list.add(compiledRule);
+							}
+						} else if (!unindexedRules.contains(compiledRule)) {
+							unindexedRules.add(compiledRule);
+						}
+					}
+				}
+			}
+			
+			this.rulesByLastChar = new CompiledRule[INDEXED_CHARS][];
+			for (int i = 0; i < INDEXED_CHARS; i++) {
+				rulesByLastChar[i] = indexedRules.get(i).toArray(new CompiledRule[0]);
+			}
+			this.otherRules = unindexedRules.toArray(new CompiledRule[0]);
+			this.maxLength = maxLength;
+		}
+		
+		public String apply(String word) {
+			if (word.isEmpty()) {
+				return applyPatterns(word);
+			}
+			
+			final char lastChar = word.charAt(word.length() - 1);
+			if (CompiledRule.isLineTerminator(lastChar) || hasSurrogateInTail(word)) {
+				return applyPatterns(word);
+			}
+			
+			final CompiledRule[] candidates = (lastChar < INDEXED_CHARS) ? rulesByLastChar[lastChar] : otherRules;
+			for (CompiledRule rule : candidates) {
+				final String result = rule.apply(word);
+				if (result != null) {
+					return result;
+				}
+			}
+			
+			return word;
+		}
+		
+		/**
+		 * Applies the original regular expressions to {@code word}.
+		 */
+		private String applyPatterns(String word) {
+			for (Rule rule : rules) {
+				if (rule.matches(word)) {
+					return rule.replace(word);
+				}
+			}
+			
+			return word;
+		}
+		
+		private boolean hasSurrogateInTail(String word) {
+			final int tailStart = Math.max(0, word.length() - maxLength - 1);
+			for (int i = word.length() - 1; i >= tailStart; i--) {
+				final char c = word.charAt(i);
+				if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+	
 	private static Rule rule(String pattern, String replacement) {
-		return new Rule(Pattern.compile(pattern), replacement);
+		return new Rule(pattern, replacement);
 	}
 	
-	private final List<Rule> pluralizationRules, singularizationRules;
+	private final RuleSet pluralizationRules, singularizationRules;
 	private final Set<String> uncountableWords;
 	
 	public Inflector() {
@@ -102,23 +212,17 @@ public class Inflector {
 	}
 	
 	private Inflector(Rule[] pluralizationRules, Rule[] singularizationRules, String[] uncountableWords) {
-		this.pluralizationRules = ImmutableList.copyOf(Iterables.reverse(ImmutableList.of(pluralizationRules)));
-		this.singularizationRules = ImmutableList.copyOf(Iterables.reverse(ImmutableList.of(singularizationRules)));
+		this.pluralizationRules = new RuleSet(ImmutableList.copyOf(Iterables.reverse(ImmutableList.of(pluralizationRules))));
+		this.singularizationRules = new RuleSet(ImmutableList.copyOf(Iterables.reverse(ImmutableList.of(singularizationRules))));
 		this.uncountableWords = ImmutableSet.of(uncountableWords);
 	}
 	
-	private String processRules(String word, List<Rule> rules) {
+	private String processRules(String word, RuleSet rules) {
 		if (uncountableWords.contains(word.toLowerCase())) {
 			return word;
 		}
 		
-		for (Rule rule : rules) {
-			if (rule.matches(word)) {
-				return rule.replace(word);
-			}
-		}
-		
-		return word;
+		return rules.apply(word);
 	}
 	
 	/**
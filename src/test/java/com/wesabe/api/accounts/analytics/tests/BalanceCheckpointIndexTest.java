@@ -0,0 +1,164 @@
+package com.wesabe.api.accounts.analytics.tests;
+
+import static com.wesabe.api.tests.util.CurrencyHelper.*;
+import static com.wesabe.api.tests.util.MoneyHelper.*;
+import static com.wesabe.api.tests.util.NumberHelper.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import org.joda.time.DateTimeUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+
+import com.google.common.collect.ImmutableList;
+import com.wesabe.api.accounts.analytics.BalanceCheckpointIndex;
+import com.wesabe.api.accounts.dao.BalanceCheckpoint;
+import com.wesabe.api.accounts.dao.TxactionCursor;
+import com.wesabe.api.accounts.dao.TxactionDAO;
+import com.wesabe.api.accounts.entities.Account;
+import com.wesabe.api.accounts.entities.AccountBalance;
+
+@RunWith(Enclosed.class)
+public class BalanceCheckpointIndexTest {
+	private static abstract class Context {
+		protected Account account, cash;
+		protected BalanceCheckpoint first, newest;
+		protected TxactionDAO txactionDAO;
+		protected BalanceCheckpointIndex index;
+		
+		public void setup() throws Exception {
+			DateTimeUtils.setCurrentMillisFixed(1250000000000L);
+			
+			this.account = mock(Account.class);
+			when(account.getId()).thenReturn(1);
+			when(account.getCurrency()).thenReturn(USD);
+			when(account.hasBalance()).thenReturn(true);
+			when(account.getBalance()).thenReturn(money("1000.00", USD));
+			
+			this.cash = mock(Account.class);
+			when(cash.getId()).thenReturn(2);
+			when(cash.hasBalance()).thenReturn(false);
+			
+			this.first = new BalanceCheckpoint(new TxactionCursor(1000L, 0, 0L, 1), decimal("100.00"));
+			this.newest = new BalanceCheckpoint(new TxactionCursor(3000L, 0, 0L, 3), decimal("150.00"));
+			
+			this.txactionDAO = mock(TxactionDAO.class);
+			when(txactionDAO.findBalanceCheckpoints(account, BalanceCheckpointIndex.INTERVAL)).thenReturn(ImmutableList.of(first, newest));
+			when(txactionDAO.sumAmountsBetween(account, newest.getKey(), null)).thenReturn(decimal("20.00"));
+			
+			this.index = new BalanceCheckpointIndex(txactionDAO);
+		}
+		
+		@After
+		public void teardown() throws Exception {
+			DateTimeUtils.setCurrentMillisSystem();
+		}
+	}
+	
+	public static class Getting_The_Balances_After_A_Cursor_Between_Checkpoints extends Context {
+		private TxactionCursor cursor;
+		
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			this.cursor = new TxactionCursor(2000L, 0, 0L, 2);
+			when(txactionDAO.sumAmountsBetween(account, first.getKey(), cursor)).thenReturn(decimal("10.00"));
+		}
+		
+		@Test
+		public void itSubtractsTheTransactionsAtOrAfterTheCursorFromTheCurrentBalance() throws Exception {
+			final Map<Account, AccountBalance> balances = index.getBalancesAfter(ImmutableList.of(account), cursor);
+			
+			// total: 150 + 20 = 170; before the cursor: 100 + 10 = 110
+			assertThat(balances.get(account).getBalance(), is(money("940.00", USD)));
+		}
+		
+		@Test
+		public void itDatesTheBalancesAtTheCursor() throws Exception {
+			final Map<Account, AccountBalance> balances = index.getBalancesAfter(ImmutableList.of(account), cursor);
+			
+			assertThat(balances.get(account).getDate(), is(cursor.getDatePosted()));
+		}
+		
+		@Test
+		public void itSkipsAccountsWithoutBalances() throws Exception {
+			final Map<Account, AccountBalance> balances = index.getBalancesAfter(ImmutableList.of(account, cash), cursor);
+			
+			assertThat(balances.containsKey(cash), is(false));
+			verify(txactionDAO, never()).findBalanceCheckpoints(cash, BalanceCheckpointIndex.INTERVAL);
+		}
+		
+		@Test
+		public void itOnlyBuildsTheCheckpointsOnce() throws Exception {
+			index.getBalancesAfter(ImmutableList.of(account), cursor);
+			index.getBalancesAfter(ImmutableList.of(account), cursor);
+			
+			verify(txactionDAO, times(1)).findBalanceCheckpoints(account, BalanceCheckpointIndex.INTERVAL);
+		}
+		
+		@Test
+		public void itRebuildsTheCheckpointsWhenTheyExpire() throws Exception {
+			index.getBalancesAfter(ImmutableList.of(account), cursor);
+			DateTimeUtils.setCurrentMillisFixed(1250000000000L + BalanceCheckpointIndex.MAX_AGE_MILLIS);
+			index.getBalancesAfter(ImmutableList.of(account), cursor);
+			
+			verify(txactionDAO, times(2)).findBalanceCheckpoints(account, BalanceCheckpointIndex.INTERVAL);
+		}
+		
+		@Test
+		public void itRebuildsTheCheckpointsWhenInvalidated() throws Exception {
+			index.getBalancesAfter(ImmutableList.of(account), cursor);
+			index.invalidate(account);
+			index.getBalancesAfter(ImmutableList.of(account), cursor);
+			
+			verify(txactionDAO, times(2)).findBalanceCheckpoints(account, BalanceCheckpointIndex.INTERVAL);
+		}
+	}
+	
+	public static class Getting_The_Balances_After_A_Cursor_Before_Every_Checkpoint extends Context {
+		private TxactionCursor cursor;
+		
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			this.cursor = new TxactionCursor(1000L, 0, 0L, 1);
+			when(txactionDAO.sumAmountsBetween(account, null, cursor)).thenReturn(decimal("60.00"));
+		}
+		
+		@Test
+		public void itSumsTheTransactionsFromTheBeginningOfTheAccount() throws Exception {
+			final Map<Account, AccountBalance> balances = index.getBalancesAfter(ImmutableList.of(account), cursor);
+			
+			// total: 150 + 20 = 170; before the cursor: 60
+			assertThat(balances.get(account).getBalance(), is(money("890.00", USD)));
+		}
+	}
+	
+	public static class Getting_The_Balances_After_A_Cursor_For_An_Account_Without_Transactions extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			when(txactionDAO.findBalanceCheckpoints(account, BalanceCheckpointIndex.INTERVAL)).thenReturn(ImmutableList.<BalanceCheckpoint>of());
+			when(txactionDAO.sumAmountsBetween(account, null, null)).thenReturn(BigDecimal.ZERO);
+			when(txactionDAO.sumAmountsBetween(eq(account), (TxactionCursor) isNull(), Mockito.any(TxactionCursor.class))).thenReturn(BigDecimal.ZERO);
+		}
+		
+		@Test
+		public void itUsesTheCurrentBalance() throws Exception {
+			final Map<Account, AccountBalance> balances = index.getBalancesAfter(ImmutableList.of(account), new TxactionCursor(1000L, 0, 0L, 1));
+			
+			assertThat(balances.get(account).getBalance(), is(money("1000.00", USD)));
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.wesabe.api.accounts.analytics.tests;
+
+import static com.wesabe.api.tests.util.CurrencyHelper.*;
+import static com.wesabe.api.tests.util.DateHelper.*;
+import static com.wesabe.api.tests.util.NumberHelper.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.wesabe.api.accounts.analytics.ConvertedTxactions;
+import com.wesabe.api.accounts.entities.Account;
+import com.wesabe.api.accounts.entities.Tag;
+import com.wesabe.api.accounts.entities.Txaction;
+import com.wesabe.api.accounts.entities.TxactionStatus;
+import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+
+@RunWith(Enclosed.class)
+public class ConvertedTxactionsTest {
+	public static class Converting_A_Set_Of_Transactions {
+		private Tag food = new Tag("food");
+		private Tag coffee = new Tag("coffee");
+		private CurrencyExchangeRateMap exchangeRates;
+		private ConvertedTxactions txactions;
+
+		@Before
+		public void setup() throws Exception {
+			this.exchangeRates = mock(CurrencyExchangeRateMap.class);
+			when(exchangeRates.getExchangeRate(EUR, USD, jun15th)).thenReturn(decimal("1.5"));
+
+			final Account checking = new Account("Checking", EUR);
+			final Txaction breakfast = new Txaction(checking, decimal("-10.00"), jun15th);
+			breakfast.setTagged(true);
+			breakfast.addTag(food);
+			breakfast.addTag(coffee, decimal("-2.00"));
+
+			final Txaction refund = new Txaction(checking, decimal("5.00"), jun15th);
+
+			final Txaction deleted = new Txaction(checking, decimal("-20.00"), jun15th);
+			deleted.setStatus(TxactionStatus.DELETED);
+			deleted.addTag(food);
+
+			this.txactions = ConvertedTxactions.convert(ImmutableList.of(breakfast, refund, deleted),
+					USD, ImmutableSet.of(coffee), exchangeRates);
+		}
+
+		@Test
+		public void itOnlyIncludesAnalyzableTransactions() throws Exception {
+			assertEquals(2, txactions.size());
+			assertEquals(USD, txactions.getCurrency());
+			assertEquals(jun15th, txactions.getDatePosted(0));
+		}
+
+		@Test
+		public void itConvertsAmountsToMinorUnits() throws Exception {
+			assertEquals(-1500L, txactions.getAmount(0));
+			assertEquals(-1, txactions.getSignum(0));
+			assertEquals(750L, txactions.getAmount(1));
+			assertEquals(1, txactions.getSignum(1));
+		}
+
+		@Test
+		public void itFiltersTheAmountsOfFilteredTags() throws Exception {
+			assertTrue(txactions.hasFilteredTag(0));
+			assertEquals(-1200L, txactions.getFilteredAmount(0));
+
+			assertFalse(txactions.hasFilteredTag(1));
+			assertEquals(750L, txactions.getFilteredAmount(1));
+		}
+
+		@Test
+		public void itConvertsTaggedAmounts() throws Exception {
+			assertTrue(txactions.isTagged(0));
+			assertEquals(0, txactions.getTaggedAmountsStart(0));
+			assertEquals(2, txactions.getTaggedAmountsEnd(0));
+
+			assertEquals(food, txactions.getTag(txactions.getTagId(0)));
+			assertEquals(-1500L, txactions.getTaggedAmount(0));
+			assertFalse(txactions.isSplit(0));
+
+			assertEquals(coffee, txactions.getTag(txactions.getTagId(1)));
+			assertEquals(-300L, txactions.getTaggedAmount(1));
+			assertTrue(txactions.isSplit(1));
+
+			assertFalse(txactions.isTagged(1));
+			assertEquals(2, txactions.getTaggedAmountsStart(1));
+			assertEquals(2, txactions.getTaggedAmountsEnd(1));
+		}
+
+		@Test
+		public void itGivesEachTagAnId() throws Exception {
+			assertEquals(2, txactions.getTagCount());
+			assertEquals(0, txactions.getTagId(food));
+			assertEquals(1, txactions.getTagId(coffee));
+			assertEquals(-1, txactions.getTagId(new Tag("rent")));
+		}
+
+		@Test
+		public void itOnlyConvertsEachAmountOnce() throws Exception {
+			// the breakfast, the coffee split, the breakfast without coffee, and the refund
+			verify(exchangeRates, times(4)).getExchangeRate(EUR, USD, jun15th);
+		}
+	}
+}
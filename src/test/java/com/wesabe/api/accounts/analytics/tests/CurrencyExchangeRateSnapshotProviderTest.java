@@ -0,0 +1,42 @@
+package com.wesabe.api.accounts.analytics.tests;
+
+import static com.wesabe.api.tests.util.CurrencyHelper.*;
+import static com.wesabe.api.tests.util.DateHelper.*;
+import static com.wesabe.api.tests.util.NumberHelper.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.wesabe.api.accounts.analytics.CurrencyExchangeRateSnapshotProvider;
+import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+
+@RunWith(Enclosed.class)
+public class CurrencyExchangeRateSnapshotProviderTest {
+	public static class Building_A_Snapshot {
+		private CurrencyExchangeRateMap exchangeRateMap;
+		private CurrencyExchangeRateSnapshotProvider provider;
+		
+		@Before
+		public void setup() throws Exception {
+			this.exchangeRateMap = mock(CurrencyExchangeRateMap.class);
+			when(exchangeRateMap.getCurrentEpoch()).thenReturn(exchangeRateMap);
+			when(exchangeRateMap.getExchangeRate(USD, EUR, jun15th)).thenReturn(decimal("0.8901"));
+			
+			this.provider = new CurrencyExchangeRateSnapshotProvider(exchangeRateMap);
+		}
+		
+		@Test
+		public void itBuildsASnapshotOfTheExchangeRateMap() throws Exception {
+			assertEquals(decimal("0.8901"), provider.get().getExchangeRate(USD, EUR, jun15th));
+		}
+		
+		@Test
+		public void itBuildsANewSnapshotEachTime() throws Exception {
+			assertNotSame(provider.get(), provider.get());
+		}
+	}
+}
@@ -29,6 +29,7 @@ import com.wesabe.api.accounts.entities.Tag;
 import com.wesabe.api.accounts.entities.Txaction;
 import com.wesabe.api.accounts.entities.TxactionStatus;
 import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+import com.wesabe.api.util.money.CurrencyExchangeRateSnapshot;
 
 @RunWith(Enclosed.class)
 public class IntervalSummarizerTest {
@@ -41,7 +42,7 @@ public class IntervalSummarizerTest {
 		
 		@Before
 		public void setup() {
-			final IntervalSummarizer summarizer = new IntervalSummarizer(new CurrencyExchangeRateMap());
+			final IntervalSummarizer summarizer = new IntervalSummarizer(new CurrencyExchangeRateSnapshot(new CurrencyExchangeRateMap()));
 			
 			this.summaries = summarizer.summarize(ImmutableList.of(paidRent, boughtLunch), interval, IntervalType.DAILY, USD, null);
 		}
@@ -96,7 +97,7 @@ public class IntervalSummarizerTest {
 
 		@Before
 		public void setup() {
-			final IntervalSummarizer summarizer = new IntervalSummarizer(new CurrencyExchangeRateMap());
+			final IntervalSummarizer summarizer = new IntervalSummarizer(new CurrencyExchangeRateSnapshot(new CurrencyExchangeRateMap()));
 
 			this.summaries = summarizer.summarize(txactions, interval, IntervalType.DAILY, USD, null);
 		}
@@ -125,7 +126,7 @@ public class IntervalSummarizerTest {
 
 		@Before
 		public void setup() {
-			final IntervalSummarizer summarizer = new IntervalSummarizer(new CurrencyExchangeRateMap());
+			final IntervalSummarizer summarizer = new IntervalSummarizer(new CurrencyExchangeRateSnapshot(new CurrencyExchangeRateMap()));
 
 			this.summaries = summarizer.summarize(txactions, interval, IntervalType.WEEKLY, USD, null);
 		}
@@ -158,7 +159,7 @@ public class IntervalSummarizerTest {
 			final Txaction txaction = new Txaction(account, decimal("-30.00"), date(2009, 2, 13));
 			txaction.setStatus(TxactionStatus.DELETED);
 
-			final IntervalSummarizer summarizer = new IntervalSummarizer(new CurrencyExchangeRateMap());
+			final IntervalSummarizer summarizer = new IntervalSummarizer(new CurrencyExchangeRateSnapshot(new CurrencyExchangeRateMap()));
 
 			this.summaries = summarizer.summarize(ImmutableList.of(txaction), interval, IntervalType.MONTHLY, USD, null);
 		}
@@ -182,7 +183,7 @@ public class IntervalSummarizerTest {
 			final Txaction txaction = new Txaction(account, decimal("-30.00"), date(2009, 2, 13));
 			txaction.setStatus(TxactionStatus.DISABLED);
 
-			final IntervalSummarizer summarizer = new IntervalSummarizer(new CurrencyExchangeRateMap());
+			final IntervalSummarizer summarizer = new IntervalSummarizer(new CurrencyExchangeRateSnapshot(new CurrencyExchangeRateMap()));
 
 			this.summaries = summarizer.summarize(ImmutableList.of(txaction), interval, IntervalType.MONTHLY, USD, null);
 		}
@@ -205,7 +206,7 @@ public class IntervalSummarizerTest {
 			final Txaction txaction = new Txaction(account, decimal("-30.00"), date(2009, 2, 13));
 			txaction.setTransferTxaction(new Txaction());
 
-			final IntervalSummarizer summarizer = new IntervalSummarizer(new CurrencyExchangeRateMap());
+			final IntervalSummarizer summarizer = new IntervalSummarizer(new CurrencyExchangeRateSnapshot(new CurrencyExchangeRateMap()));
 
 			this.summaries = summarizer.summarize(ImmutableList.of(txaction), interval, IntervalType.MONTHLY, USD, null);
 		}
@@ -228,7 +229,7 @@ public class IntervalSummarizerTest {
 			final Txaction txaction1 = new Txaction(account, decimal("-30.00"), date(2009, 2, 13));
 			final Txaction txaction2 = new Txaction(account, decimal("-30.00"), date(2009, 2, 14));
 
-			final IntervalSummarizer summarizer = new IntervalSummarizer(new CurrencyExchangeRateMap());
+			final IntervalSummarizer summarizer = new IntervalSummarizer(new CurrencyExchangeRateSnapshot(new CurrencyExchangeRateMap()));
 
 			this.summaries = summarizer.summarize(ImmutableList.of(txaction1, txaction2), interval, IntervalType.MONTHLY, USD, null);
 		}
@@ -252,7 +253,7 @@ public class IntervalSummarizerTest {
 			final Txaction txaction = new Txaction(account, decimal("-30.00"), date(2009, 2, 13));
 			txaction.addTag(new Tag("food"));
 
-			final IntervalSummarizer summarizer = new IntervalSummarizer(new CurrencyExchangeRateMap());
+			final IntervalSummarizer summarizer = new IntervalSummarizer(new CurrencyExchangeRateSnapshot(new CurrencyExchangeRateMap()));
 			this.summaries = summarizer.summarize(ImmutableList.of(txaction), interval, IntervalType.MONTHLY, USD, null);
 		}
 
@@ -281,7 +282,7 @@ public class IntervalSummarizerTest {
 			final Txaction partiallyFiltered = new Txaction(account, decimal("-30.00"), date(2009, 2, 13));
 			partiallyFiltered.addTag(loan, decimal("-20.00"));
 
-			final IntervalSummarizer summarizer = new IntervalSummarizer(new CurrencyExchangeRateMap());
+			final IntervalSummarizer summarizer = new IntervalSummarizer(new CurrencyExchangeRateSnapshot(new CurrencyExchangeRateMap()));
 
 			this.summaries = summarizer.summarize(ImmutableList.of(fullyFiltered, partiallyFiltered), interval, IntervalType.MONTHLY, USD, filteredTags);
 		}
@@ -0,0 +1,332 @@
+package com.wesabe.api.accounts.analytics.tests;
+
+import static com.wesabe.api.tests.util.CurrencyHelper.*;
+import static com.wesabe.api.tests.util.DateHelper.*;
+import static com.wesabe.api.tests.util.NumberHelper.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeUtils;
+import org.joda.time.Interval;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.wesabe.api.accounts.analytics.IntervalSummarizer;
+import com.wesabe.api.accounts.analytics.IntervalSummaryRollup;
+import com.wesabe.api.accounts.analytics.IntervalType;
+import com.wesabe.api.accounts.analytics.MonetarySummary;
+import com.wesabe.api.accounts.analytics.MonetarySummaryWithSplits;
+import com.wesabe.api.accounts.dao.TxactionDAO;
+import com.wesabe.api.accounts.entities.Account;
+import com.wesabe.api.accounts.entities.Tag;
+import com.wesabe.api.accounts.entities.Txaction;
+import com.wesabe.api.accounts.entities.TxactionStatus;
+import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+import com.wesabe.api.util.money.CurrencyExchangeRateSnapshot;
+
+@RunWith(Enclosed.class)
+public class IntervalSummaryRollupTest {
+	private static abstract class Context {
+		protected Account checking, savings;
+		protected List<Txaction> txactions;
+		protected TxactionDAO txactionDAO;
+		protected CurrencyExchangeRateMap exchangeRates;
+		protected IntervalSummarizer summarizer;
+		protected IntervalSummaryRollup rollup;
+
+		public void setup() throws Exception {
+			DateTimeUtils.setCurrentMillisFixed(new DateTime(2009, 6, 17, 12, 0, 0, 0).getMillis());
+
+			this.checking = mock(Account.class);
+			when(checking.getId()).thenReturn(1);
+			when(checking.getCurrency()).thenReturn(USD);
+
+			this.savings = mock(Account.class);
+			when(savings.getId()).thenReturn(2);
+			when(savings.getCurrency()).thenReturn(EUR);
+
+			this.txactions = Lists.newArrayList();
+			for (int i = 0; i < 180; i++) {
+				final DateTime datePosted = date(2009, 1, 1).plusDays(i).plusHours(i % 24);
+				final Txaction txaction = new Txaction((i % 3 == 0) ? savings : checking,
+						decimal(((i % 4 == 0) ? "" : "-") + (i + 1) + ".25"), datePosted);
+				if (i % 5 == 0) {
+					txaction.addTag(new Tag("food"), decimal(((i % 4 == 0) ? "" : "-") + "1.10"));
+				}
+				if (i % 7 == 0) {
+					txaction.addTag(new Tag("rent"));
+				}
+				if (i % 11 == 0) {
+					txaction.setStatus(TxactionStatus.DELETED);
+				}
+				txactions.add(txaction);
+			}
+
+			this.txactionDAO = mock(TxactionDAO.class);
+			when(txactionDAO.findTxactionsInDateRange(Mockito.anyCollection(), Mockito.any(Interval.class))).thenAnswer(new Answer<List<Txaction>>() {
+				@Override
+				public List<Txaction> answer(InvocationOnMock invocation) throws Throwable {
+					final Collection<?> accounts = (Collection<?>) invocation.getArguments()[0];
+					final Interval range = (Interval) invocation.getArguments()[1];
+					final List<Txaction> results = Lists.newArrayList();
+					for (Txaction txaction : txactions) {
+						if (accounts.contains(txaction.getAccount()) && range.contains(txaction.getDatePosted())) {
+							results.add(txaction);
+						}
+					}
+					return results;
+				}
+			});
+
+			this.exchangeRates = new CurrencyExchangeRateMap();
+			exchangeRates.addExchangeRate(EUR, USD, date(2008, 12, 1), decimal("1.3333"));
+			exchangeRates.addExchangeRate(EUR, USD, date(2009, 3, 1), decimal("1.2987"));
+			this.summarizer = new IntervalSummarizer(new CurrencyExchangeRateSnapshot(exchangeRates));
+
+			this.rollup = new IntervalSummaryRollup(txactionDAO);
+		}
+
+		@After
+		public void teardown() throws Exception {
+			DateTimeUtils.setCurrentMillisSystem();
+		}
+
+		protected void assertSameSummaries(Map<Interval, MonetarySummaryWithSplits> expected,
+				Map<Interval, MonetarySummaryWithSplits> actual) {
+			assertEquals(ImmutableList.copyOf(expected.keySet()), ImmutableList.copyOf(actual.keySet()));
+			for (Interval interval : expected.keySet()) {
+				final MonetarySummaryWithSplits expectedSummary = expected.get(interval);
+				final MonetarySummaryWithSplits actualSummary = actual.get(interval);
+				assertSameSummary(interval.toString(), expectedSummary, actualSummary);
+
+				assertEquals(interval.toString(), expectedSummary.getSplitSummaries().keySet(), actualSummary.getSplitSummaries().keySet());
+				for (Tag tag : expectedSummary.getSplitSummaries().keySet()) {
+					assertSameSummary(interval + " " + tag, expectedSummary.getSplitSummaries().get(tag), actualSummary.getSplitSummaries().get(tag));
+				}
+			}
+		}
+
+		private void assertSameSummary(String message, MonetarySummary expected, MonetarySummary actual) {
+			assertEquals(message, expected.getSpending().getAmount(), actual.getSpending().getAmount());
+			assertEquals(message, expected.getSpending().getCount(), actual.getSpending().getCount());
+			assertEquals(message, expected.getEarnings().getAmount(), actual.getEarnings().getAmount());
+			assertEquals(message, expected.getEarnings().getCount(), actual.getEarnings().getCount());
+		}
+
+		protected ImmutableMap<Interval, MonetarySummaryWithSplits> summarizeTxactions(Interval dateRange, IntervalType intervalType, ImmutableSet<Tag> ignoredTags) {
+			return summarizer.summarize(txactions, dateRange, intervalType, USD, ignoredTags);
+		}
+	}
+
+	public static class Summarizing_Closed_And_Open_Intervals extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+		}
+
+		@Test
+		public void itMatchesTheTransactionsByMonth() throws Exception {
+			final Interval dateRange = new Interval(date(2009, 1, 1), date(2009, 7, 1));
+
+			assertSameSummaries(
+					summarizeTxactions(dateRange, IntervalType.MONTHLY, null),
+					rollup.summarize(ImmutableList.of(checking, savings), dateRange, IntervalType.MONTHLY, USD, null, summarizer)
+			);
+		}
+
+		@Test
+		public void itMatchesTheTransactionsByWeekQuarterAndYear() throws Exception {
+			final Interval dateRange = new Interval(date(2008, 12, 29), date(2009, 6, 22));
+
+			assertSameSummaries(
+					summarizeTxactions(dateRange, IntervalType.WEEKLY, null),
+					rollup.summarize(ImmutableList.of(checking, savings), dateRange, IntervalType.WEEKLY, USD, null, summarizer)
+			);
+
+			final Interval quarters = new Interval(date(2009, 1, 1), date(2009, 7, 1));
+			assertSameSummaries(
+					summarizeTxactions(quarters, IntervalType.QUARTERLY, null),
+					rollup.summarize(ImmutableList.of(checking, savings), quarters, IntervalType.QUARTERLY, USD, null, summarizer)
+			);
+
+			final Interval years = new Interval(date(2009, 1, 1), date(2010, 1, 1));
+			assertSameSummaries(
+					summarizeTxactions(years, IntervalType.YEARLY, null),
+					rollup.summarize(ImmutableList.of(checking, savings), years, IntervalType.YEARLY, USD, null, summarizer)
+			);
+		}
+
+		@Test
+		public void itMatchesTheTransactionsWithIgnoredTags() throws Exception {
+			final Interval dateRange = new Interval(date(2009, 1, 1), date(2009, 7, 1));
+			final ImmutableSet<Tag> ignoredTags = ImmutableSet.of(new Tag("food"));
+
+			rollup.summarize(ImmutableList.of(checking, savings), dateRange, IntervalType.MONTHLY, USD, null, summarizer);
+
+			assertSameSummaries(
+					summarizeTxactions(dateRange, IntervalType.MONTHLY, ignoredTags),
+					rollup.summarize(ImmutableList.of(checking, savings), dateRange, IntervalType.MONTHLY, USD, ignoredTags, summarizer)
+			);
+		}
+
+		@Test
+		public void itOnlyLoadsTheOpenIntervalForAllAccounts() throws Exception {
+			final Interval dateRange = new Interval(date(2009, 1, 1), date(2009, 7, 1));
+
+			rollup.summarize(ImmutableList.of(checking, savings), dateRange, IntervalType.MONTHLY, USD, null, summarizer);
+
+			verify(txactionDAO).findTxactionsInDateRange(ImmutableList.of(checking, savings), new Interval(date(2009, 6, 1), date(2009, 7, 1)));
+			verify(txactionDAO).findTxactionsInDateRange(ImmutableList.of(checking), new Interval(date(2009, 1, 1), date(2009, 6, 1)));
+			verify(txactionDAO).findTxactionsInDateRange(ImmutableList.of(savings), new Interval(date(2009, 1, 1), date(2009, 6, 1)));
+		}
+
+		@Test
+		public void itDoesNotRecomputeClosedIntervals() throws Exception {
+			final Interval dateRange = new Interval(date(2009, 1, 1), date(2009, 7, 1));
+
+			rollup.summarize(ImmutableList.of(checking, savings), dateRange, IntervalType.MONTHLY, USD, null, summarizer);
+			rollup.summarize(ImmutableList.of(checking, savings), dateRange, IntervalType.MONTHLY, USD, null, summarizer);
+
+			verify(txactionDAO, times(2)).findTxactionsInDateRange(ImmutableList.of(checking, savings), new Interval(date(2009, 6, 1), date(2009, 7, 1)));
+			verify(txactionDAO, times(1)).findTxactionsInDateRange(ImmutableList.of(checking), new Interval(date(2009, 1, 1), date(2009, 6, 1)));
+		}
+
+		@Test
+		public void itOnlyLoadsTheDaysItDoesNotHave() throws Exception {
+			rollup.summarize(ImmutableList.of(checking), new Interval(date(2009, 1, 1), date(2009, 7, 1)), IntervalType.MONTHLY, USD, null, summarizer);
+			rollup.summarize(ImmutableList.of(checking), new Interval(date(2008, 12, 29), date(2009, 6, 22)), IntervalType.WEEKLY, USD, null, summarizer);
+
+			verify(txactionDAO).findTxactionsInDateRange(ImmutableList.of(checking), new Interval(date(2008, 12, 29), date(2009, 1, 1)));
+			verify(txactionDAO).findTxactionsInDateRange(ImmutableList.of(checking), new Interval(date(2009, 6, 1), date(2009, 6, 15)));
+		}
+
+		@Test
+		public void itDoesNotUseTheRollupForRangesWhichAreStillOpen() throws Exception {
+			final Interval dateRange = new Interval(date(2009, 6, 1), date(2009, 7, 1));
+
+			assertSameSummaries(
+					summarizeTxactions(dateRange, IntervalType.MONTHLY, null),
+					rollup.summarize(ImmutableList.of(checking, savings), dateRange, IntervalType.MONTHLY, USD, null, summarizer)
+			);
+
+			verify(txactionDAO).findTxactionsInDateRange(ImmutableList.of(checking, savings), dateRange);
+			verifyNoMoreInteractions(txactionDAO);
+		}
+	}
+
+	public static class Summarizing_After_The_Rollup_Expires extends Context {
+		private final Interval dateRange = new Interval(date(2009, 1, 1), date(2009, 7, 1));
+
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+
+			rollup.summarize(ImmutableList.of(checking), dateRange, IntervalType.MONTHLY, USD, null, summarizer);
+			DateTimeUtils.setCurrentMillisFixed(DateTimeUtils.currentTimeMillis() + IntervalSummaryRollup.MAX_AGE_MILLIS);
+			txactions.add(new Txaction(checking, decimal("-300.00"), date(2009, 2, 14)));
+		}
+
+		@Test
+		public void itRebuildsTheRollup() throws Exception {
+			assertSameSummaries(
+					summarizer.summarize(ImmutableList.copyOf(txactionDAO.findTxactionsInDateRange(ImmutableList.of(checking), dateRange)), dateRange, IntervalType.MONTHLY, USD, null),
+					rollup.summarize(ImmutableList.of(checking), dateRange, IntervalType.MONTHLY, USD, null, summarizer)
+			);
+		}
+	}
+
+	public static class Summarizing_After_The_Rollup_Is_Invalidated extends Context {
+		private final Interval dateRange = new Interval(date(2009, 1, 1), date(2009, 7, 1));
+
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+
+			rollup.summarize(ImmutableList.of(checking), dateRange, IntervalType.MONTHLY, USD, null, summarizer);
+			rollup.invalidate(checking);
+			txactions.add(new Txaction(checking, decimal("-300.00"), date(2009, 2, 14)));
+		}
+
+		@Test
+		public void itRebuildsTheRollup() throws Exception {
+			assertSameSummaries(
+					summarizer.summarize(ImmutableList.copyOf(txactionDAO.findTxactionsInDateRange(ImmutableList.of(checking), dateRange)), dateRange, IntervalType.MONTHLY, USD, null),
+					rollup.summarize(ImmutableList.of(checking), dateRange, IntervalType.MONTHLY, USD, null, summarizer)
+			);
+		}
+	}
+
+	public static class Summarizing_After_The_Exchange_Rates_Change extends Context {
+		private final Interval dateRange = new Interval(date(2009, 1, 1), date(2009, 7, 1));
+
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+
+			rollup.summarize(ImmutableList.of(savings), dateRange, IntervalType.MONTHLY, USD, null, summarizer);
+			exchangeRates.addExchangeRate(EUR, USD, date(2009, 1, 1), decimal("1.5000"));
+			this.summarizer = new IntervalSummarizer(new CurrencyExchangeRateSnapshot(exchangeRates));
+		}
+
+		@Test
+		public void itRebuildsTheRollupWithTheNewRates() throws Exception {
+			assertSameSummaries(
+					summarizer.summarize(ImmutableList.copyOf(txactionDAO.findTxactionsInDateRange(ImmutableList.of(savings), dateRange)), dateRange, IntervalType.MONTHLY, USD, null),
+					rollup.summarize(ImmutableList.of(savings), dateRange, IntervalType.MONTHLY, USD, null, summarizer)
+			);
+		}
+	}
+
+	public static class Summarizing_More_Days_Than_The_Rollup_Holds extends Context {
+		private final Interval dateRange = new Interval(date(2009, 1, 1), date(2009, 7, 1));
+		private final Interval closedRange = new Interval(date(2009, 1, 1), date(2009, 6, 1));
+
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+
+			this.rollup = new IntervalSummaryRollup(txactionDAO, 100);
+		}
+
+		@Test
+		public void itDiscardsTheLeastRecentlyUsedAccounts() throws Exception {
+			rollup.summarize(ImmutableList.of(checking), dateRange, IntervalType.MONTHLY, USD, null, summarizer);
+			rollup.summarize(ImmutableList.of(savings), dateRange, IntervalType.MONTHLY, USD, null, summarizer);
+			rollup.summarize(ImmutableList.of(savings), dateRange, IntervalType.MONTHLY, USD, null, summarizer);
+			rollup.summarize(ImmutableList.of(checking), dateRange, IntervalType.MONTHLY, USD, null, summarizer);
+
+			verify(txactionDAO, times(1)).findTxactionsInDateRange(ImmutableList.of(savings), closedRange);
+			verify(txactionDAO, times(2)).findTxactionsInDateRange(ImmutableList.of(checking), closedRange);
+		}
+
+		@Test
+		public void itStillMatchesTheTransactions() throws Exception {
+			rollup.summarize(ImmutableList.of(checking, savings), dateRange, IntervalType.MONTHLY, USD, null, summarizer);
+
+			assertSameSummaries(
+					summarizeTxactions(dateRange, IntervalType.MONTHLY, null),
+					rollup.summarize(ImmutableList.of(checking, savings), dateRange, IntervalType.MONTHLY, USD, null, summarizer)
+			);
+		}
+	}
+}
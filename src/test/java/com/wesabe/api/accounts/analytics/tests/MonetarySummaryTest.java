@@ -69,4 +69,28 @@ public class MonetarySummaryTest {
 			assertEquals(money("132.66", USD), summary.getSpending().getAmount());
 		}
 	}
+	
+	public static class Combining_Monetary_Summaries {
+		private final MonetarySummary first = new MonetarySummary(new SumOfMoney(money("10.00", USD), 2), new SumOfMoney(money("20.00", USD), 1));
+		private final MonetarySummary second = new MonetarySummary(new SumOfMoney(money("5.50", USD), 1), new SumOfMoney(money("0.00", USD), 0));
+		private final MonetarySummary summary = MonetarySummary.combine(ImmutableList.of(first, second), USD);
+		
+		@Test
+		public void itAddsTheSpendingSummaries() throws Exception {
+			assertEquals(money("15.50", USD), summary.getSpending().getAmount());
+			assertEquals(3, summary.getSpending().getCount());
+		}
+		
+		@Test
+		public void itAddsTheEarningsSummaries() throws Exception {
+			assertEquals(money("20.00", USD), summary.getEarnings().getAmount());
+			assertEquals(1, summary.getEarnings().getCount());
+		}
+		
+		@Test
+		public void itHasANetSummary() throws Exception {
+			assertEquals(money("4.50", USD), summary.getNet().getAmount());
+			assertEquals(4, summary.getNet().getCount());
+		}
+	}
 }
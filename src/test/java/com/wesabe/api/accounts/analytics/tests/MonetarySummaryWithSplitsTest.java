@@ -8,6 +8,7 @@ import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.wesabe.api.accounts.analytics.MonetarySummary;
 import com.wesabe.api.accounts.analytics.MonetarySummaryWithSplits;
@@ -52,4 +53,35 @@ public class MonetarySummaryWithSplitsTest {
 			assertThat(s.getNet().getCount()).isEqualTo(3);
 		}
 	}
+	
+	public static class Combining_Monetary_Summaries {
+		private final Tag food = new Tag("food");
+		private final Tag rent = new Tag("rent");
+		private final MonetarySummaryWithSplits first = new MonetarySummaryWithSplits(
+				new SumOfMoney(money("100.00", USD), 2), new SumOfMoney(money("200.00", USD), 1),
+				ImmutableMap.of(food, new MonetarySummary(new SumOfMoney(money("10.00", USD), 2), new SumOfMoney(money("0.00", USD), 0))));
+		private final MonetarySummaryWithSplits second = new MonetarySummaryWithSplits(
+				new SumOfMoney(money("50.00", USD), 1), new SumOfMoney(money("0.00", USD), 0),
+				ImmutableMap.of(
+						food, new MonetarySummary(new SumOfMoney(money("5.00", USD), 1), new SumOfMoney(money("0.00", USD), 0)),
+						rent, new MonetarySummary(new SumOfMoney(money("45.00", USD), 1), new SumOfMoney(money("0.00", USD), 0))));
+		private final MonetarySummaryWithSplits summary = MonetarySummaryWithSplits.combineWithSplits(ImmutableList.of(first, second), USD);
+		
+		@Test
+		public void itAddsTheSummaries() throws Exception {
+			assertThat(summary.getSpending().getAmount()).isEqualTo(money("150.00", USD));
+			assertThat(summary.getSpending().getCount()).isEqualTo(3);
+			assertThat(summary.getEarnings().getAmount()).isEqualTo(money("200.00", USD));
+			assertThat(summary.getEarnings().getCount()).isEqualTo(1);
+		}
+		
+		@Test
+		public void itAddsTheSplitSummariesForEachTag() throws Exception {
+			assertThat(summary.getSplitSummaries().keySet()).containsOnly(food, rent);
+			assertThat(summary.getSplitSummaries().get(food).getSpending().getAmount()).isEqualTo(money("15.00", USD));
+			assertThat(summary.getSplitSummaries().get(food).getSpending().getCount()).isEqualTo(3);
+			assertThat(summary.getSplitSummaries().get(rent).getSpending().getAmount()).isEqualTo(money("45.00", USD));
+			assertThat(summary.getSplitSummaries().get(rent).getSpending().getCount()).isEqualTo(1);
+		}
+	}
 }
@@ -3,100 +3,258 @@ package com.wesabe.api.accounts.analytics.tests;
 import static com.wesabe.api.tests.util.CurrencyHelper.*;
 import static com.wesabe.api.tests.util.DateHelper.*;
 import static com.wesabe.api.tests.util.MoneyHelper.*;
+import static com.wesabe.api.tests.util.NumberHelper.*;
 import static org.fest.assertions.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import java.util.Currency;
 import java.util.List;
+import java.util.Map;
 
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
 import org.joda.time.Interval;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
-import org.mockito.InOrder;
 import org.mockito.Mockito;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSet;
 import com.google.inject.Provider;
+import com.wesabe.api.accounts.analytics.BalanceCheckpointIndex;
 import com.wesabe.api.accounts.analytics.IntervalType;
 import com.wesabe.api.accounts.analytics.NetWorthSummarizer;
-import com.wesabe.api.accounts.analytics.TxactionListBuilder;
+import com.wesabe.api.accounts.dao.TxactionCursor;
+import com.wesabe.api.accounts.dao.TxactionDAO;
 import com.wesabe.api.accounts.entities.Account;
-import com.wesabe.api.accounts.entities.Tag;
+import com.wesabe.api.accounts.entities.AccountBalance;
+import com.wesabe.api.accounts.entities.AccountType;
 import com.wesabe.api.accounts.entities.Txaction;
-import com.wesabe.api.accounts.entities.TxactionList;
-import com.wesabe.api.accounts.entities.TxactionListItem;
+import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+import com.wesabe.api.util.money.CurrencyExchangeRateSnapshot;
 import com.wesabe.api.util.money.Money;
+import com.wesabe.api.tests.util.HibernateHelper;
 
 @RunWith(Enclosed.class)
 public class NetWorthSummarizerTest {
-	public static class Summarizing_A_Set_Of_Transactions {
-		private TxactionListBuilder listBuilder;
-		private Provider<TxactionListBuilder> listBuilderProvider;
-		private NetWorthSummarizer summarizer;
-		private List<Account> accounts;
-		private List<Txaction> txactions;
-		private Interval dateRange;
-		private TxactionList txactionList;
-		private TxactionListItem item1, item2;
-		private Txaction tx1, tx2;
-		
-		@SuppressWarnings("unchecked")
-		@Before
+	private static abstract class Context {
+		protected TxactionDAO txactionDAO;
+		protected BalanceCheckpointIndex checkpointIndex;
+		protected CurrencyExchangeRateMap exchangeRates;
+		protected ScrollableResults results;
+		protected Account checking, savings, unbalanced;
+		protected List<Account> accounts;
+		protected NetWorthSummarizer summarizer;
+
 		public void setup() throws Exception {
-			this.listBuilder = mock(TxactionListBuilder.class);
-			this.listBuilderProvider = new Provider<TxactionListBuilder>() {
+			this.checking = mockAccount(1, USD);
+			this.savings = mockAccount(2, EUR);
+			this.unbalanced = mockAccount(3, USD);
+			this.accounts = ImmutableList.of(checking, savings, unbalanced);
+
+			this.exchangeRates = new CurrencyExchangeRateMap();
+			exchangeRates.addExchangeRate(EUR, USD, date(2008, 10, 1), decimal("1.5"));
+
+			this.results = mock(ScrollableResults.class);
+			this.txactionDAO = mock(TxactionDAO.class);
+			when(txactionDAO.scrollPostedAmounts(Mockito.anyCollection(), Mockito.any(Interval.class))).thenReturn(results);
+
+			this.checkpointIndex = mock(BalanceCheckpointIndex.class);
+
+			this.summarizer = new NetWorthSummarizer(txactionDAO, checkpointIndex, new Provider<CurrencyExchangeRateSnapshot>() {
 				@Override
-				public TxactionListBuilder get() {
-					return listBuilder;
+				public CurrencyExchangeRateSnapshot get() {
+					return new CurrencyExchangeRateSnapshot(exchangeRates);
 				}
-			};
-			
-			this.accounts = mock(List.class);
-			
-			this.dateRange = new Interval(date(2008, 10, 1), date(2008, 11, 1));
-			
-			this.tx1 = mock(Txaction.class);
-			when(tx1.getDatePosted()).thenReturn(date(2008, 10, 7));
-			this.item1 = mock(TxactionListItem.class);
-			when(item1.getBalance()).thenReturn(money("200.00", USD));
-			when(item1.getTxaction()).thenReturn(tx1);
-			
-			this.tx2 = mock(Txaction.class);
-			when(tx2.getDatePosted()).thenReturn(date(2008, 10, 16));
-			this.item2 = mock(TxactionListItem.class);
-			when(item2.getBalance()).thenReturn(money("300.00", USD));
-			when(item2.getTxaction()).thenReturn(tx2);
-			
-			this.txactionList = new TxactionList(item1, item2);
-			when(listBuilder.build(Mockito.anyCollection())).thenReturn(txactionList);
-			
-			this.summarizer = new NetWorthSummarizer(listBuilderProvider);
-		}
-		
+			});
+		}
+
+		protected void endingBalances(Map<Account, AccountBalance> balances) {
+			when(checkpointIndex.getBalancesAfter(Mockito.anyCollection(), Mockito.any(TxactionCursor.class))).thenReturn(balances);
+		}
+
+		private Account mockAccount(int id, Currency currency) {
+			final Account account = mock(Account.class);
+			when(account.getId()).thenReturn(id);
+			when(account.getCurrency()).thenReturn(currency);
+			return account;
+		}
+	}
+
+	public static class Summarizing_A_Set_Of_Accounts extends Context {
+		private ImmutableMap<Interval, Money> summaries;
+
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+
+			endingBalances(ImmutableMap.of(
+					checking, new AccountBalance(checking, money("300.00", USD), date(2008, 11, 3)),
+					savings, new AccountBalance(savings, money("100.00", EUR), date(2008, 11, 3))
+			));
+
+			when(results.next()).thenReturn(true, true, true, false);
+			when(results.get(0)).thenReturn(1, 2, 1);
+			when(results.get(1)).thenReturn(date(2008, 10, 16), date(2008, 10, 15), date(2008, 10, 7));
+			when(results.get(2)).thenReturn(decimal("100.00"), decimal("50.00"), decimal("200.00"));
+
+			this.summaries = summarizer.summarize(accounts, new Interval(date(2008, 10, 1), date(2008, 11, 1)), IntervalType.WEEKLY, USD);
+		}
+
 		@Test
-		public void itBuildsTheTransactionList() throws Exception {
-			summarizer.summarize(accounts, txactions, dateRange, IntervalType.WEEKLY, USD, ImmutableSet.<Tag>of());
-			
-			final InOrder inOrder = inOrder(listBuilder);
-			inOrder.verify(listBuilder).setAccounts(accounts);
-			inOrder.verify(listBuilder).setCurrency(USD);
-			inOrder.verify(listBuilder).setCalculateBalances(true);
-			inOrder.verify(listBuilder).build(txactions);
-		}
-		
+		public void itStartsFromTheBalancesAtTheEndOfTheLastInterval() throws Exception {
+			verify(checkpointIndex).getBalancesAfter(accounts, TxactionCursor.startOf(date(2008, 11, 3)));
+		}
+
+		@Test
+		public void itScrollsThroughTheAmountsPostedInTheBalancedAccounts() throws Exception {
+			verify(txactionDAO).scrollPostedAmounts(ImmutableList.of(checking, savings), new Interval(date(2008, 9, 29), date(2008, 11, 3)));
+			verify(results).close();
+		}
+
+		@Test
+		public void itNeverLoadsTheAccountsTransactions() throws Exception {
+			verify(checking, never()).getTxactions();
+			verify(savings, never()).getTxactions();
+			verify(txactionDAO, never()).findTxactionsInDateRange(Mockito.anyCollection(), Mockito.any(Interval.class));
+		}
+
 		@Test
 		public void itReturnsAMapOfIntervalsToBalances() throws Exception {
-			final ImmutableMap<Interval, Money> summaries = summarizer.summarize(accounts, txactions, dateRange, IntervalType.WEEKLY, USD, ImmutableSet.<Tag>of());
-			
 			assertThat(summaries).hasSize(5);
-			
-			assertThat(summaries.get(new Interval(date(2008,  9, 29), date(2008, 10,  6)))).isEqualTo(money(  "0.00", USD));
-			assertThat(summaries.get(new Interval(date(2008, 10,  6), date(2008, 10, 13)))).isEqualTo(money("200.00", USD));
-			assertThat(summaries.get(new Interval(date(2008, 10, 13), date(2008, 10, 20)))).isEqualTo(money("300.00", USD));
-			assertThat(summaries.get(new Interval(date(2008, 10, 20), date(2008, 10, 27)))).isEqualTo(money("300.00", USD));
-			assertThat(summaries.get(new Interval(date(2008, 10, 27), date(2008, 11,  3)))).isEqualTo(money("300.00", USD));
+
+			assertThat(summaries.get(new Interval(date(2008,  9, 29), date(2008, 10,  6)))).isEqualTo(money( "75.00", USD));
+			assertThat(summaries.get(new Interval(date(2008, 10,  6), date(2008, 10, 13)))).isEqualTo(money("275.00", USD));
+			assertThat(summaries.get(new Interval(date(2008, 10, 13), date(2008, 10, 20)))).isEqualTo(money("450.00", USD));
+			assertThat(summaries.get(new Interval(date(2008, 10, 20), date(2008, 10, 27)))).isEqualTo(money("450.00", USD));
+			assertThat(summaries.get(new Interval(date(2008, 10, 27), date(2008, 11,  3)))).isEqualTo(money("450.00", USD));
+		}
+
+		@Test
+		public void itReturnsTheIntervalsInOrder() throws Exception {
+			assertThat(summaries.keySet().iterator().next()).isEqualTo(new Interval(date(2008, 9, 29), date(2008, 10, 6)));
+		}
+	}
+
+	public static class Summarizing_Ten_Years_Daily extends Context {
+		private ImmutableMap<Interval, Money> summaries;
+
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+
+			endingBalances(ImmutableMap.of(
+					checking, new AccountBalance(checking, money("1000.00", USD), date(2010, 1, 1))
+			));
+
+			when(results.next()).thenReturn(true, true, false);
+			when(results.get(0)).thenReturn(1, 1);
+			when(results.get(1)).thenReturn(date(2005, 6, 1), date(2001, 3, 15));
+			when(results.get(2)).thenReturn(decimal("400.00"), decimal("600.00"));
+
+			this.summaries = summarizer.summarize(accounts, new Interval(date(2000, 1, 1), date(2010, 1, 1)), IntervalType.DAILY, USD);
+		}
+
+		@Test
+		public void itReturnsABalanceForEachDay() throws Exception {
+			assertThat(summaries).hasSize(3653);
+		}
+
+		@Test
+		public void itScrollsThroughTheAmountsOnce() throws Exception {
+			verify(txactionDAO, times(1)).scrollPostedAmounts(Mockito.anyCollection(), Mockito.any(Interval.class));
+			verify(checkpointIndex, times(1)).getBalancesAfter(Mockito.anyCollection(), Mockito.any(TxactionCursor.class));
+		}
+
+		@Test
+		public void itIncludesTransactionsPostedBeforeTheEndOfEachDay() throws Exception {
+			assertThat(summaries.get(new Interval(date(2000, 1, 1), date(2000, 1, 2)))).isEqualTo(money("0.00", USD));
+			assertThat(summaries.get(new Interval(date(2001, 3, 14), date(2001, 3, 15)))).isEqualTo(money("0.00", USD));
+			assertThat(summaries.get(new Interval(date(2001, 3, 15), date(2001, 3, 16)))).isEqualTo(money("600.00", USD));
+			assertThat(summaries.get(new Interval(date(2005, 6, 1), date(2005, 6, 2)))).isEqualTo(money("1000.00", USD));
+			assertThat(summaries.get(new Interval(date(2009, 12, 31), date(2010, 1, 1)))).isEqualTo(money("1000.00", USD));
+		}
+	}
+
+	public static class Summarizing_Accounts_Without_Balances extends Context {
+		private ImmutableMap<Interval, Money> summaries;
+
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+
+			endingBalances(ImmutableMap.<Account, AccountBalance>of());
+
+			this.summaries = summarizer.summarize(accounts, new Interval(date(2008, 10, 1), date(2008, 11, 1)), IntervalType.MONTHLY, USD);
+		}
+
+		@Test
+		public void itDoesNotQueryTheTransactions() throws Exception {
+			verify(txactionDAO, never()).scrollPostedAmounts(Mockito.anyCollection(), Mockito.any(Interval.class));
+		}
+
+		@Test
+		public void itReturnsZeroForEachInterval() throws Exception {
+			assertThat(summaries.values()).containsOnly(money("0.00", USD));
+		}
+	}
+
+	public static class Summarizing_A_Txaction_Posted_At_The_End_Of_The_Range {
+		private SessionFactory sessionFactory;
+		private Session session;
+		private ImmutableMap<Interval, Money> summaries;
+
+		@Before
+		public void setup() throws Exception {
+			this.sessionFactory = HibernateHelper.buildInMemorySessionFactory(getClass().getSimpleName());
+			this.session = sessionFactory.openSession();
+			session.beginTransaction();
+
+			final Account account = new Account("Checking", USD);
+			account.setAccountKey("abc123");
+			account.setAccountType(AccountType.MANUAL);
+			session.save(account);
+			account.setCachedBalance(decimal("100.00"));
+
+			session.save(new Txaction(account, decimal("-10.00"), date(2008, 10, 7)));
+			session.save(new Txaction(account, decimal("-20.00"), date(2008, 11, 3)));
+			session.save(new Txaction(account, decimal("5.00"), date(2008, 11, 10)));
+			session.flush();
+
+			final TxactionDAO txactionDAO = new TxactionDAO(new Provider<Session>() {
+				@Override
+				public Session get() {
+					return session;
+				}
+			});
+			final NetWorthSummarizer summarizer = new NetWorthSummarizer(txactionDAO, new BalanceCheckpointIndex(txactionDAO), new Provider<CurrencyExchangeRateSnapshot>() {
+				@Override
+				public CurrencyExchangeRateSnapshot get() {
+					return new CurrencyExchangeRateSnapshot(new CurrencyExchangeRateMap());
+				}
+			});
+
+			this.summaries = summarizer.summarize(ImmutableList.of(account), new Interval(date(2008, 10, 1), date(2008, 11, 1)), IntervalType.WEEKLY, USD);
+		}
+
+		@After
+		public void teardown() throws Exception {
+			session.getTransaction().rollback();
+			session.close();
+			sessionFactory.close();
+		}
+
+		@Test
+		public void itLeavesTheTxactionOutOfTheLastInterval() throws Exception {
+			assertThat(summaries.get(new Interval(date(2008, 10, 27), date(2008, 11,  3)))).isEqualTo(money("115.00", USD));
+			assertThat(summaries.get(new Interval(date(2008,  9, 29), date(2008, 10,  6)))).isEqualTo(money("125.00", USD));
 		}
 	}
 }
@@ -0,0 +1,114 @@
+package com.wesabe.api.accounts.analytics.tests;
+
+import static com.wesabe.api.tests.util.CurrencyHelper.*;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.wesabe.api.accounts.analytics.TagHierarchyBuilder;
+import com.wesabe.api.accounts.analytics.TagHierarchyExecutor;
+import com.wesabe.api.accounts.analytics.TagSummarizer;
+import com.wesabe.api.accounts.analytics.TagHierarchyBuilder.HierarchyType;
+import com.wesabe.api.accounts.analytics.TagHierarchyBuilder.TagImportanceScheme;
+import com.wesabe.api.accounts.entities.Account;
+import com.wesabe.api.accounts.entities.Tag;
+import com.wesabe.api.accounts.entities.Txaction;
+import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+import com.wesabe.api.util.money.CurrencyExchangeRateSnapshot;
+
+/**
+ * Compares tag hierarchies built in parallel against ones built sequentially
+ * over a large number of randomly generated sets of transactions.
+ */
+@RunWith(Enclosed.class)
+public class TagHierarchyBuilderParallelTest {
+	private static final String[] TAG_NAMES = (
+		"food groceries restaurant coffee rent utilities transfer creditcard fee " +
+		"travel hotel airfare gas car insurance gifts books music clothes " +
+		"health pharmacy dentist entertainment movies"
+	).split(" ");
+
+	public static class Building_Random_Hierarchies {
+		private ExecutorService threads;
+		private TagHierarchyBuilder sequential;
+		private Random random;
+
+		@Before
+		public void setup() throws Exception {
+			this.threads = Executors.newFixedThreadPool(4);
+			final CurrencyExchangeRateSnapshot snapshot = new CurrencyExchangeRateSnapshot(new CurrencyExchangeRateMap());
+			this.sequential = new TagHierarchyBuilder(new TagSummarizer(snapshot), snapshot);
+			this.random = new Random(5551212);
+		}
+
+		@After
+		public void teardown() throws Exception {
+			threads.shutdownNow();
+		}
+
+		@Test
+		public void itBuildsTheSameHierarchiesAsTheSequentialBuilder() throws Exception {
+			for (int trial = 0; trial < 100; trial++) {
+				final List<Txaction> txactions = generateTxactions(1 + random.nextInt(150));
+				final TagImportanceScheme scheme = TagImportanceScheme.values()[random.nextInt(TagImportanceScheme.values().length)];
+				final HierarchyType type = HierarchyType.values()[random.nextInt(HierarchyType.values().length)];
+				final Set<Tag> filteredTags = random.nextInt(4) == 0 ? Sets.newHashSet(randomTag()) : Sets.<Tag>newHashSet();
+				final int maxTags = 1 + random.nextInt(6);
+
+				final CurrencyExchangeRateSnapshot snapshot = new CurrencyExchangeRateSnapshot(new CurrencyExchangeRateMap());
+				final TagHierarchyBuilder parallel = new TagHierarchyBuilder(new TagSummarizer(snapshot), snapshot,
+						new TagHierarchyExecutor(threads, 1 + random.nextInt(10)));
+
+				final String expected = sequential.build(txactions, USD, scheme, type, filteredTags, maxTags).toString();
+				final String actual = parallel.build(txactions, USD, scheme, type, filteredTags, maxTags).toString();
+
+				assertEquals("trial " + trial, expected, actual);
+			}
+		}
+
+		private List<Txaction> generateTxactions(int count) {
+			final Account checking = new Account("Checking", USD);
+			final List<Txaction> txactions = Lists.newArrayListWithCapacity(count);
+			for (int i = 0; i < count; i++) {
+				final BigDecimal amount = BigDecimal.valueOf(random.nextInt(200000) - 50000, 2);
+				final Txaction txaction = new Txaction(checking, amount, new DateTime(2009, 1, 1 + random.nextInt(28), 0, 0, 0, 0));
+
+				final int tagCount = random.nextInt(5);
+				if (tagCount > 0) {
+					txaction.setTagged(true);
+				}
+
+				for (int j = 0; j < tagCount; j++) {
+					if (random.nextInt(5) == 0) {
+						txaction.addTag(randomTag(), amount.divide(BigDecimal.valueOf(2 + random.nextInt(3)), 2, BigDecimal.ROUND_DOWN));
+					} else {
+						txaction.addTag(randomTag());
+					}
+				}
+
+				txactions.add(txaction);
+			}
+			return txactions;
+		}
+
+		private Tag randomTag() {
+			// skew towards the first few tags, like real tagging
+			final int index = Math.min(random.nextInt(TAG_NAMES.length), random.nextInt(TAG_NAMES.length));
+			return new Tag(TAG_NAMES[index]);
+		}
+	}
+}
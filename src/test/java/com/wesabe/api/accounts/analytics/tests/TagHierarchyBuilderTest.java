@@ -24,6 +24,7 @@ import com.wesabe.api.accounts.analytics.TagHierarchyBuilder.TagImportanceScheme
 import com.wesabe.api.accounts.entities.Account;
 import com.wesabe.api.accounts.entities.Tag;
 import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+import com.wesabe.api.util.money.CurrencyExchangeRateSnapshot;
 
 @RunWith(Enclosed.class)
 public class TagHierarchyBuilderTest {
@@ -36,8 +37,13 @@ public class TagHierarchyBuilderTest {
 		
 		protected void setup() throws Exception {
 			this.exchangeRateMap = new CurrencyExchangeRateMap();
-			this.summarizer = new TagSummarizer(exchangeRateMap);
-			this.builder = new TagHierarchyBuilder(summarizer, exchangeRateMap);
+			buildWithCurrentRates();
+		}
+		
+		protected void buildWithCurrentRates() {
+			final CurrencyExchangeRateSnapshot snapshot = new CurrencyExchangeRateSnapshot(exchangeRateMap);
+			this.summarizer = new TagSummarizer(snapshot);
+			this.builder = new TagHierarchyBuilder(summarizer, snapshot);
 		}
 	}
 	
@@ -363,6 +369,7 @@ public class TagHierarchyBuilderTest {
 			super.setup();
 			
 			this.exchangeRateMap.addExchangeRate(EUR, USD, now(), decimal("1.499900006016309"));
+			buildWithCurrentRates();
 			this.checking = new Account("Checking", USD);
 			this.savings = new Account("Savings", EUR);
 			this.hierarchy = builder.build(
@@ -0,0 +1,129 @@
+package com.wesabe.api.accounts.analytics.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.google.common.collect.ImmutableList;
+import com.wesabe.api.accounts.analytics.TagHierarchyExecutor;
+
+@RunWith(Enclosed.class)
+public class TagHierarchyExecutorTest {
+	public static class A_Sequential_Executor {
+		@Test
+		public void itNeverForks() throws Exception {
+			final TagHierarchyExecutor executor = TagHierarchyExecutor.sequential();
+			
+			assertFalse(executor.shouldFork(Integer.MAX_VALUE));
+		}
+		
+		@Test
+		public void itIsSequentialWithNoThreads() throws Exception {
+			final TagHierarchyExecutor executor = TagHierarchyExecutor.parallel(0, 10);
+			
+			assertFalse(executor.shouldFork(Integer.MAX_VALUE));
+		}
+	}
+	
+	public static class A_Parallel_Executor {
+		private ExecutorService threads;
+		private TagHierarchyExecutor executor;
+		
+		@Before
+		public void setup() throws Exception {
+			this.threads = Executors.newFixedThreadPool(2);
+			this.executor = new TagHierarchyExecutor(threads, 10);
+		}
+		
+		@After
+		public void teardown() throws Exception {
+			threads.shutdownNow();
+		}
+		
+		@Test
+		public void itForksSubtreesAtOrAboveTheThreshold() throws Exception {
+			assertEquals(10, executor.getThreshold());
+			assertFalse(executor.shouldFork(9));
+			assertTrue(executor.shouldFork(10));
+		}
+		
+		@Test
+		public void itReturnsTheResultsOfForkedTasks() throws Exception {
+			final Future<String> future = executor.fork(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					return "woo";
+				}
+			});
+			
+			assertEquals("woo", executor.join(future));
+		}
+		
+		@Test(expected=IllegalArgumentException.class)
+		public void itPropagatesRuntimeExceptions() throws Exception {
+			executor.join(executor.fork(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					throw new IllegalArgumentException("boo");
+				}
+			}));
+		}
+	}
+	
+	public static class Joining_A_Task_No_Thread_Has_Started {
+		private static class IdleExecutorService extends AbstractExecutorService {
+			@Override
+			public void execute(Runnable command) {
+			}
+			
+			@Override
+			public void shutdown() {
+			}
+			
+			@Override
+			public List<Runnable> shutdownNow() {
+				return ImmutableList.of();
+			}
+			
+			@Override
+			public boolean isShutdown() {
+				return false;
+			}
+			
+			@Override
+			public boolean isTerminated() {
+				return false;
+			}
+			
+			@Override
+			public boolean awaitTermination(long timeout, TimeUnit unit) {
+				return false;
+			}
+		}
+		
+		@Test
+		public void itRunsTheTaskOnTheCallingThread() throws Exception {
+			final TagHierarchyExecutor executor = new TagHierarchyExecutor(new IdleExecutorService(), 1);
+			final Future<Thread> future = executor.fork(new Callable<Thread>() {
+				@Override
+				public Thread call() throws Exception {
+					return Thread.currentThread();
+				}
+			});
+			
+			assertSame(Thread.currentThread(), executor.join(future));
+		}
+	}
+}
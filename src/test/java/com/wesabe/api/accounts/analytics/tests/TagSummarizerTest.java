@@ -23,6 +23,7 @@ import com.wesabe.api.accounts.entities.Tag;
 import com.wesabe.api.accounts.entities.Txaction;
 import com.wesabe.api.accounts.entities.TxactionStatus;
 import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+import com.wesabe.api.util.money.CurrencyExchangeRateSnapshot;
 
 @RunWith(Enclosed.class)
 public class TagSummarizerTest {
@@ -54,7 +55,7 @@ public class TagSummarizerTest {
 			deletedLunch.addTag(friends, decimal("-6.45"));
 			deletedLunch.setStatus(TxactionStatus.DELETED);
 			
-			final TagSummarizer summarizer = new TagSummarizer(new CurrencyExchangeRateMap());
+			final TagSummarizer summarizer = new TagSummarizer(new CurrencyExchangeRateSnapshot(new CurrencyExchangeRateMap()));
 			
 			this.summaries = summarizer.summarize(txactions, USD);
 		}
@@ -82,4 +83,56 @@ public class TagSummarizerTest {
 			assertThat(summaries.get(friends).getEarnings().getAmount()).isEqualTo(money("0.00", USD));
 		}
 	}
+	
+	public static class Summarizing_A_Stream_Of_Transactions {
+		private ImmutableMap<Tag, MonetarySummary> summaries, listSummaries;
+		private Tag rent = new Tag("rent");
+		private Tag lunch = new Tag("lunch");
+		private Tag friends = new Tag("friends");
+		
+		@Before
+		public void setup() {
+			final Account checking = new Account("Checking", USD);
+			final Txaction paidRent = new Txaction(checking, decimal("-1500.00"), date(2009, 1, 18));
+			final Txaction boughtLunch = new Txaction(checking, decimal("-12.34"), new DateTime(2009, 1, 18, 23, 0, 0, 0));
+			final Txaction refundedLunch = new Txaction(checking, decimal("12.34"), new DateTime(2009, 1, 19, 23, 0, 0, 0));
+			final Txaction deletedLunch = new Txaction(checking, decimal("-12.33"), new DateTime(2009, 1, 18, 23, 0, 0, 0));
+			final Collection<Txaction> txactions = ImmutableList.of(paidRent, boughtLunch, refundedLunch, deletedLunch);
+			
+			paidRent.addTag(rent);
+			boughtLunch.addTag(lunch);
+			boughtLunch.addTag(friends, decimal("-6.45"));
+			refundedLunch.addTag(lunch);
+			deletedLunch.addTag(lunch);
+			deletedLunch.setStatus(TxactionStatus.DELETED);
+			
+			final TagSummarizer summarizer = new TagSummarizer(new CurrencyExchangeRateSnapshot(new CurrencyExchangeRateMap()));
+			
+			this.summaries = summarizer.summarize(txactions.iterator(), USD);
+			this.listSummaries = summarizer.summarize(txactions, USD);
+		}
+		
+		@Test
+		public void itGeneratesASummaryForEachTagInTheSameOrder() throws Exception {
+			assertThat(summaries.keySet()).containsOnly(rent, lunch, friends);
+			assertThat(ImmutableList.copyOf(summaries.keySet())).isEqualTo(ImmutableList.copyOf(listSummaries.keySet()));
+		}
+		
+		@Test
+		public void itSummarizesAmountsOfTags() throws Exception {
+			assertThat(summaries.get(rent).getSpending().getAmount()).isEqualTo(money("1500.00", USD));
+			assertThat(summaries.get(rent).getEarnings().getAmount()).isEqualTo(money("0.00", USD));
+			
+			assertThat(summaries.get(lunch).getSpending().getAmount()).isEqualTo(money("12.34", USD));
+			assertThat(summaries.get(lunch).getSpending().getCount()).isEqualTo(1);
+			assertThat(summaries.get(lunch).getEarnings().getAmount()).isEqualTo(money("12.34", USD));
+			assertThat(summaries.get(lunch).getEarnings().getCount()).isEqualTo(1);
+		}
+		
+		@Test
+		public void itSummariesSplitAmounts() throws Exception {
+			assertThat(summaries.get(friends).getSpending().getAmount()).isEqualTo(money("6.45", USD));
+			assertThat(summaries.get(friends).getEarnings().getAmount()).isEqualTo(money("0.00", USD));
+		}
+	}
 }
@@ -0,0 +1,232 @@
+package com.wesabe.api.accounts.analytics.tests;
+
+import static com.wesabe.api.tests.util.CurrencyHelper.*;
+import static com.wesabe.api.tests.util.DateHelper.*;
+import static com.wesabe.api.tests.util.MoneyHelper.*;
+import static com.wesabe.api.tests.util.NumberHelper.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.BitSet;
+import java.util.Currency;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.wesabe.api.accounts.analytics.TxactionFrame;
+import com.wesabe.api.accounts.entities.Account;
+import com.wesabe.api.accounts.entities.Merchant;
+import com.wesabe.api.accounts.entities.Tag;
+import com.wesabe.api.accounts.entities.Txaction;
+import com.wesabe.api.accounts.entities.TxactionStatus;
+
+@RunWith(Enclosed.class)
+public class TxactionFrameTest {
+	private static abstract class Context {
+		protected Account checking, savings;
+		protected Tag food = new Tag("food"), coffee = new Tag("coffee");
+		protected Txaction groceries, latte, paycheck, deleted, transfer, yen;
+		protected TxactionFrame frame;
+
+		public void setup() throws Exception {
+			this.checking = new Account("Checking", USD);
+			this.savings = new Account("Savings", EUR);
+
+			this.groceries = new Txaction(checking, decimal("-40.00"), jun14th);
+			groceries.setMerchant(new Merchant("Whole Foods"));
+			groceries.setTagged(true);
+			groceries.addTag(food);
+
+			this.latte = new Txaction(checking, decimal("-4.00"), jun15th);
+			latte.setMerchant(new Merchant("Blue Bottle"));
+			latte.setTagged(true);
+			latte.addTag(food);
+			latte.addTag(coffee, decimal("-3.00"));
+
+			this.paycheck = new Txaction(savings, decimal("1000.00"), jun15th);
+
+			this.deleted = new Txaction(checking, decimal("-40.00"), jun15th);
+			deleted.setStatus(TxactionStatus.DELETED);
+
+			this.transfer = new Txaction(savings, decimal("-40.00"), jun15th);
+			transfer.setMerchant(new Merchant("Savings"));
+			transfer.setTransferTxaction(transfer);
+
+			this.yen = new Txaction(new Account("Yen", Currency.getInstance("JPY")), decimal("-40"), jun15th);
+			yen.setStatus(TxactionStatus.DISABLED);
+
+			this.frame = TxactionFrame.of(ImmutableList.of(groceries, latte, paycheck, deleted, transfer, yen));
+		}
+
+		protected BitSet rows(int... indexes) {
+			final BitSet rows = new BitSet();
+			for (int index : indexes) {
+				rows.set(index);
+			}
+			return rows;
+		}
+	}
+
+	public static class Building_A_Frame extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+		}
+
+		@Test
+		public void itHasARowPerTransaction() throws Exception {
+			assertEquals(6, frame.size());
+			assertSame(latte, frame.getTxaction(1));
+			assertEquals(ImmutableList.of(latte, deleted), frame.getTxactions(rows(1, 3)));
+			assertEquals(jun15th, frame.getDatePosted(1));
+		}
+
+		@Test
+		public void itStoresAmountsInMinorUnits() throws Exception {
+			assertEquals(-400L, frame.getAmount(1));
+			assertEquals(USD, frame.getCurrency(1));
+			assertEquals(money("-4.00", USD), frame.getMoney(1));
+			assertEquals(-40L, frame.getAmount(5));
+		}
+
+		@Test
+		public void itDictionaryEncodesAccounts() throws Exception {
+			assertEquals(frame.getAccountIndex(0), frame.getAccountIndex(1));
+			assertEquals(frame.getAccountIndex(2), frame.getAccountIndex(4));
+			assertSame(savings, frame.getAccount(frame.getAccountIndex(2)));
+		}
+
+		@Test
+		public void itDictionaryEncodesMerchants() throws Exception {
+			assertEquals(-1, frame.getMerchantId(2));
+			assertFalse(frame.getMerchantId(0) == frame.getMerchantId(1));
+		}
+
+		@Test
+		public void itStoresStatuses() throws Exception {
+			assertTrue(frame.isTagged(1));
+			assertFalse(frame.isTagged(2));
+			assertTrue(frame.isDeleted(3));
+			assertTrue(frame.isTransfer(4));
+			assertTrue(frame.isDisabled(5));
+			assertFalse(frame.isDeleted(0) || frame.isDisabled(0) || frame.isTransfer(0));
+		}
+
+		@Test
+		public void itStoresTaggedAmounts() throws Exception {
+			assertEquals(1, frame.getTaggedAmountsStart(1));
+			assertEquals(3, frame.getTaggedAmountsEnd(1));
+			assertEquals(3, frame.getTaggedAmountsStart(2));
+			assertEquals(3, frame.getTaggedAmountsEnd(2));
+			assertEquals(2, frame.getTagCount());
+
+			assertEquals(food, frame.getTag(frame.getTagId(1)));
+			assertEquals(-400L, frame.getTaggedAmount(1));
+			assertFalse(frame.isSplit(1));
+
+			assertEquals(coffee, frame.getTag(frame.getTagId(2)));
+			assertEquals(-300L, frame.getTaggedAmount(2));
+			assertTrue(frame.isSplit(2));
+		}
+	}
+
+	public static class Building_A_Frame_Without_Tags extends Context {
+		private Txaction spiedLatte;
+
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+
+			this.spiedLatte = spy(latte);
+			this.frame = TxactionFrame.withoutTags(ImmutableList.of(groceries, spiedLatte, paycheck));
+		}
+
+		@Test
+		public void itDoesNotReadTheTaggedAmounts() throws Exception {
+			verify(spiedLatte, never()).getTaggedAmounts();
+		}
+
+		@Test
+		public void itHasNoTaggedAmounts() throws Exception {
+			assertFalse(frame.includesTags());
+			assertEquals(0, frame.getTaggedAmountsStart(1));
+			assertEquals(0, frame.getTaggedAmountsEnd(1));
+			assertEquals(0, frame.getTagCount());
+		}
+
+		@Test
+		public void itStillStoresStatuses() throws Exception {
+			assertTrue(frame.isTagged(1));
+			assertFalse(frame.isTagged(2));
+		}
+
+		@Test(expected=IllegalStateException.class)
+		public void itCannotBeFilteredByTag() throws Exception {
+			frame.taggedWith(ImmutableSet.of(food));
+		}
+	}
+
+	public static class Filtering_A_Frame extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+		}
+
+		@Test
+		public void itSelectsAllRows() throws Exception {
+			assertEquals(rows(0, 1, 2, 3, 4, 5), frame.all());
+		}
+
+		@Test
+		public void itSelectsVisibleRows() throws Exception {
+			assertEquals(rows(0, 1, 2, 4), frame.visible());
+		}
+
+		@Test
+		public void itSelectsAnalyzableRows() throws Exception {
+			assertEquals(rows(0, 1, 2), frame.analyzable());
+		}
+
+		@Test
+		public void itSelectsUneditedRows() throws Exception {
+			assertEquals(rows(2, 3, 5), frame.unedited());
+		}
+
+		@Test
+		public void itSelectsRowsByAmountAndScale() throws Exception {
+			assertEquals(rows(0, 3, 4), frame.withAmount(decimal("-40.00")));
+			assertEquals(rows(5), frame.withAmount(decimal("-40")));
+			assertEquals(rows(), frame.withAmount(decimal("-40.0")));
+		}
+
+		@Test
+		public void itSelectsRowsByAccount() throws Exception {
+			assertEquals(rows(2, 4), frame.inAccounts(ImmutableSet.of(savings)));
+		}
+
+		@Test
+		public void itSelectsRowsByMerchantName() throws Exception {
+			assertEquals(rows(1, 4), frame.atMerchants(ImmutableSet.of("Blue Bottle", "Savings")));
+		}
+
+		@Test
+		public void itSelectsRowsByTag() throws Exception {
+			assertEquals(rows(0, 1), frame.taggedWith(ImmutableSet.of(food)));
+			assertEquals(rows(1), frame.taggedWith(ImmutableSet.of(coffee, new Tag("rent"))));
+		}
+
+		@Test
+		public void itSelectsRowsByQuery() throws Exception {
+			assertEquals(rows(1), frame.matching("COFF"));
+			assertEquals(rows(0), frame.matching("whole"));
+			assertEquals(rows(), frame.matching("rent"));
+		}
+	}
+}
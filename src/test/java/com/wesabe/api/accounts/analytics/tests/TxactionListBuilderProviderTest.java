@@ -11,6 +11,7 @@ import org.junit.runner.RunWith;
 
 import com.wesabe.api.accounts.analytics.TxactionListBuilderProvider;
 import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+import com.wesabe.api.util.money.CurrencyExchangeRates;
 
 @RunWith(Enclosed.class)
 public class TxactionListBuilderProviderTest {
@@ -27,7 +28,7 @@ public class TxactionListBuilderProviderTest {
 		
 		@Test
 		public void itBuildsATxactionListBuilder() throws Exception {
-			assertThat(factory.get().getCurrencyExchangeRateMap(), is(exchangeRateMap));
+			assertThat(factory.get().getCurrencyExchangeRateMap(), is((CurrencyExchangeRates) exchangeRateMap));
 		}
 	}
 }
@@ -5,6 +5,7 @@ import static com.wesabe.api.tests.util.CurrencyHelper.*;
 import static com.wesabe.api.tests.util.DateHelper.*;
 import static com.wesabe.api.tests.util.NumberHelper.*;
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
 
 import java.util.List;
 
@@ -74,6 +75,18 @@ public class TxactionListBuilderTest {
 
 			assertEquals(2, list.getTotalCount());
 		}
+		
+		@Test
+		public void itDoesNotReadTheTaggedAmounts() throws Exception {
+			final Txaction spiedStarbucks = spy(starbucks);
+			new TxactionListBuilder()
+					.setCurrency(USD)
+					.setCurrencyExchangeRateMap(exchangeRates)
+					.setAccounts(new AccountList(checking))
+					.build(ImmutableList.of(spiedStarbucks, wholeFoods));
+			
+			verify(spiedStarbucks, never()).getTaggedAmounts();
+		}
 	}
 	
 	public static class A_Builder_With_Accounts {
@@ -3,31 +3,56 @@ package com.wesabe.api.accounts.dao.tests;
 import static org.mockito.Mockito.*;
 
 import org.hibernate.Session;
+import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
 import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 
 import com.google.inject.Provider;
+import com.wesabe.api.accounts.analytics.BalanceCheckpointIndex;
+import com.wesabe.api.accounts.analytics.IntervalSummaryRollup;
 import com.wesabe.api.accounts.dao.AccountBalanceDAO;
+import com.wesabe.api.accounts.dao.AccountBalanceProjection;
+import com.wesabe.api.accounts.dao.AccountListSummaryCache;
+import com.wesabe.api.accounts.entities.Account;
 import com.wesabe.api.accounts.entities.AccountBalance;
 
 @RunWith(Enclosed.class)
 public class AccountBalanceDAOTest {
 	public static class Creating_An_AccountBalance {
 		private Session hibernateSession;
+		private SessionFactory sessionFactory;
+		private Account account;
 		private AccountBalance accountBalance;
 		private AccountBalanceDAO accountBalanceDAO;
 		private DateTime currentDateTime;
 		private Transaction hibernateTransaction;
+		private AccountBalanceProjection balanceProjection;
+		private AccountListSummaryCache summaryCache;
+		private BalanceCheckpointIndex checkpointIndex;
+		private IntervalSummaryRollup summaryRollup;
 
 		@Before
 		public void setup() {
+			this.account = mock(Account.class);
+			when(account.getId()).thenReturn(200);
+			when(account.getAccountKey()).thenReturn("12345");
+			
 			this.accountBalance = mock(AccountBalance.class);
+			when(accountBalance.getAccount()).thenReturn(account);
+			
+			this.sessionFactory = mock(SessionFactory.class);
 			this.hibernateSession = mock(Session.class);
+			when(hibernateSession.getSessionFactory()).thenReturn(sessionFactory);
 			this.currentDateTime = new DateTime();
+			this.balanceProjection = mock(AccountBalanceProjection.class);
+			this.summaryCache = mock(AccountListSummaryCache.class);
+			this.checkpointIndex = mock(BalanceCheckpointIndex.class);
+			this.summaryRollup = mock(IntervalSummaryRollup.class);
 			this.accountBalanceDAO = new AccountBalanceDAO(new Provider<Session>() {
 				
 				@Override
@@ -42,7 +67,7 @@ public class AccountBalanceDAOTest {
 					return currentDateTime;
 				}
 				
-			});
+			}, balanceProjection, summaryCache, checkpointIndex, summaryRollup);
 			
 			this.hibernateTransaction = mock(Transaction.class);
 			when(hibernateSession.beginTransaction()).thenReturn(hibernateTransaction);
@@ -59,5 +84,50 @@ public class AccountBalanceDAOTest {
 			accountBalanceDAO.create(accountBalance);
 			verify(accountBalance).setUpdatedAt(currentDateTime);
 		}
+		
+		@Test
+		public void itEvictsTheAccountsCachedBalances() {
+			accountBalanceDAO.create(accountBalance);
+			
+			final InOrder inOrder = inOrder(hibernateTransaction, sessionFactory);
+			inOrder.verify(hibernateTransaction).commit();
+			inOrder.verify(sessionFactory).evictCollection(Account.ACCOUNT_BALANCES_ROLE, 200);
+		}
+		
+		@Test
+		public void itDiscardsTheAccountsProjectedBalance() {
+			accountBalanceDAO.create(accountBalance);
+			
+			final InOrder inOrder = inOrder(hibernateTransaction, balanceProjection);
+			inOrder.verify(hibernateTransaction).commit();
+			inOrder.verify(balanceProjection).invalidate(account);
+		}
+		
+		@Test
+		public void itDiscardsTheAccountsBalanceCheckpointsAfterCommitting() {
+			accountBalanceDAO.create(accountBalance);
+			
+			final InOrder inOrder = inOrder(hibernateTransaction, checkpointIndex);
+			inOrder.verify(hibernateTransaction).commit();
+			inOrder.verify(checkpointIndex).invalidate(account);
+		}
+		
+		@Test
+		public void itDiscardsTheAccountsIntervalSummaryRollupsAfterCommitting() {
+			accountBalanceDAO.create(accountBalance);
+			
+			final InOrder inOrder = inOrder(hibernateTransaction, summaryRollup);
+			inOrder.verify(hibernateTransaction).commit();
+			inOrder.verify(summaryRollup).invalidate(account);
+		}
+		
+		@Test
+		public void itDiscardsTheUsersAccountListSummaries() {
+			accountBalanceDAO.create(accountBalance);
+			
+			final InOrder inOrder = inOrder(hibernateTransaction, summaryCache);
+			inOrder.verify(hibernateTransaction).commit();
+			inOrder.verify(summaryCache).invalidate("12345");
+		}
 	}
 }
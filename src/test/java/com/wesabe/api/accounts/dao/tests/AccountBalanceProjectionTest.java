@@ -0,0 +1,197 @@
+package com.wesabe.api.accounts.dao.tests;
+
+import static com.wesabe.api.tests.util.NumberHelper.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.hibernate.Query;
+import org.hibernate.Session;
+import org.joda.time.DateTimeUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Provider;
+import com.wesabe.api.accounts.dao.AccountBalanceProjection;
+import com.wesabe.api.accounts.entities.Account;
+import com.wesabe.api.accounts.entities.AccountType;
+import com.wesabe.api.accounts.entities.InvestmentAccount;
+import com.wesabe.api.accounts.entities.TxactionStatus;
+
+@RunWith(Enclosed.class)
+public class AccountBalanceProjectionTest {
+	private static abstract class Context {
+		protected Session session;
+		protected Query balancesQuery, sumsQuery;
+		protected Account checking, savings, unbalanced, cash;
+		protected List<Account> accounts;
+		protected AccountBalanceProjection projection;
+
+		public void setup() throws Exception {
+			DateTimeUtils.setCurrentMillisFixed(1000000L);
+
+			this.checking = mockAccount(1, AccountType.CHECKING);
+			this.savings = mockAccount(2, AccountType.SAVINGS);
+			this.unbalanced = mockAccount(3, AccountType.CHECKING);
+			this.cash = mockAccount(4, AccountType.CASH);
+			this.accounts = ImmutableList.of(checking, savings, unbalanced, cash);
+
+			this.balancesQuery = mockQuery(ImmutableList.<Object[]>of(
+					new Object[] { 1, decimal("100.00") },
+					new Object[] { 2, decimal("2000.00") }
+			));
+			this.sumsQuery = mockQuery(ImmutableList.<Object[]>of(
+					new Object[] { 1, decimal("-25.50") }
+			));
+
+			this.session = mock(Session.class);
+			when(session.getNamedQuery("com.wesabe.api.accounts.AccountBalance.findLatestInAccounts")).thenReturn(balancesQuery);
+			when(session.getNamedQuery("com.wesabe.api.accounts.Txaction.sumSinceLatestBalanceInAccounts")).thenReturn(sumsQuery);
+
+			this.projection = new AccountBalanceProjection(new Provider<Session>() {
+				@Override
+				public Session get() {
+					return session;
+				}
+			});
+		}
+
+		@After
+		public void teardown() throws Exception {
+			DateTimeUtils.setCurrentMillisSystem();
+		}
+
+		private Account mockAccount(int id, AccountType type) {
+			final Account account = mock(Account.class);
+			when(account.getId()).thenReturn(id);
+			when(account.getAccountType()).thenReturn(type);
+			return account;
+		}
+
+		private Query mockQuery(List<Object[]> rows) {
+			final Query query = mock(Query.class);
+			when(query.setParameterList(Mockito.anyString(), Mockito.anyCollection())).thenReturn(query);
+			when(query.list()).thenReturn(rows);
+			return query;
+		}
+	}
+
+	public static class Projecting_A_List_Of_Accounts extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			projection.project(accounts);
+		}
+
+		@Test
+		public void itAddsTheTransactionsSinceTheLatestBalance() throws Exception {
+			verify(checking).setCachedBalance(decimal("74.50"));
+		}
+
+		@Test
+		public void itUsesTheLatestBalanceOfAccountsWithNoNewerTransactions() throws Exception {
+			verify(savings).setCachedBalance(decimal("2000.00"));
+		}
+
+		@Test
+		public void itLeavesAccountsWithoutBalancesAlone() throws Exception {
+			verify(unbalanced, never()).setCachedBalance(Mockito.any(BigDecimal.class));
+			verify(cash, never()).setCachedBalance(Mockito.any(BigDecimal.class));
+		}
+
+		@Test
+		public void itOnlyQueriesAccountsWhichCanHaveBalances() throws Exception {
+			verify(balancesQuery).setParameterList("accounts", ImmutableList.of(checking, savings, unbalanced));
+			verify(sumsQuery).setParameterList("accounts", ImmutableList.of(checking, savings, unbalanced));
+		}
+
+		@Test
+		public void itIgnoresHiddenTransactions() throws Exception {
+			verify(sumsQuery).setParameterList("hiddenStatuses",
+					ImmutableList.of(TxactionStatus.DELETED.getValue(), TxactionStatus.DISABLED.getValue()));
+		}
+
+		@Test
+		public void itNeverLoadsTheAccountsTransactions() throws Exception {
+			verify(checking, never()).getTxactions();
+			verify(checking, never()).getAccountBalances();
+		}
+	}
+
+	public static class Projecting_A_List_Of_Accounts_Twice extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			projection.project(accounts);
+			projection.project(ImmutableList.of(checking, savings));
+		}
+
+		@Test
+		public void itUsesTheCachedProjections() throws Exception {
+			verify(balancesQuery, times(1)).list();
+			verify(sumsQuery, times(1)).list();
+			verify(checking, times(2)).setCachedBalance(decimal("74.50"));
+		}
+	}
+
+	public static class Projecting_A_List_Of_Accounts_After_The_Projections_Expire extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			projection.project(accounts);
+			DateTimeUtils.setCurrentMillisFixed(1000000L + AccountBalanceProjection.MAX_AGE_MILLIS);
+			projection.project(ImmutableList.of(checking));
+		}
+
+		@Test
+		public void itProjectsTheBalancesAgain() throws Exception {
+			verify(balancesQuery, times(2)).list();
+			verify(balancesQuery).setParameterList("accounts", ImmutableList.of(checking));
+		}
+	}
+
+	public static class Projecting_An_Invalidated_Account extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			projection.project(accounts);
+			projection.invalidate(savings);
+			projection.project(ImmutableList.of(checking, savings));
+		}
+
+		@Test
+		public void itProjectsOnlyTheInvalidatedAccount() throws Exception {
+			verify(balancesQuery).setParameterList("accounts", ImmutableList.of(savings));
+		}
+	}
+
+	public static class Projecting_An_Investment_Account extends Context {
+		private InvestmentAccount investmentAccount;
+
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			this.investmentAccount = mock(InvestmentAccount.class);
+			when(investmentAccount.getId()).thenReturn(5);
+			when(investmentAccount.getAccountType()).thenReturn(AccountType.BROKERAGE);
+			projection.project(ImmutableList.<Account>of(investmentAccount));
+		}
+
+		@Test
+		public void itLeavesItAlone() throws Exception {
+			verifyZeroInteractions(session);
+			verify(investmentAccount, never()).setCachedBalance(Mockito.any(BigDecimal.class));
+		}
+	}
+}
@@ -10,6 +10,7 @@ import java.util.List;
 
 import org.hibernate.Query;
 import org.hibernate.Session;
+import org.hibernate.SessionFactory;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
@@ -18,7 +19,11 @@ import org.mockito.Mockito;
 
 import com.google.common.collect.ImmutableList;
 import com.google.inject.Provider;
+import com.wesabe.api.accounts.analytics.BalanceCheckpointIndex;
+import com.wesabe.api.accounts.analytics.IntervalSummaryRollup;
+import com.wesabe.api.accounts.dao.AccountBalanceProjection;
 import com.wesabe.api.accounts.dao.AccountDAO;
+import com.wesabe.api.accounts.dao.AccountListSummaryCache;
 import com.wesabe.api.accounts.entities.Account;
 import com.wesabe.api.accounts.entities.AccountStatus;
 
@@ -28,6 +33,8 @@ public class AccountDAOTest {
 		private Session session;
 		private Query query;
 		private Account account;
+		private AccountBalanceProjection balanceProjection;
+		private AccountListSummaryCache summaryCache;
 		private AccountDAO dao;
 		
 		@Before
@@ -37,16 +44,22 @@ public class AccountDAOTest {
 			when(query.list()).thenReturn(ImmutableList.of(account));
 			when(query.setString(Mockito.anyString(), Mockito.anyString())).thenReturn(query);
 			when(query.setParameterList(Mockito.anyString(), Mockito.anyCollection())).thenReturn(query);
+			when(query.setCacheable(Mockito.anyBoolean())).thenReturn(query);
+			when(query.setCacheRegion(Mockito.anyString())).thenReturn(query);
 			
 			this.session = mock(Session.class);
 			when(session.getNamedQuery(Mockito.anyString())).thenReturn(query);
 			
-			this.dao = new AccountDAO(new Provider<Session>() {
+			this.balanceProjection = mock(AccountBalanceProjection.class);
+			this.summaryCache = mock(AccountListSummaryCache.class);
+			
+			final Provider<Session> provider = new Provider<Session>() {
 				@Override
 				public Session get() {
 					return session;
 				}
-			});
+			};
+			this.dao = new AccountDAO(provider, provider, balanceProjection, summaryCache, mock(BalanceCheckpointIndex.class), mock(IntervalSummaryRollup.class));
 		}
 		
 		@Test
@@ -70,6 +83,14 @@ public class AccountDAOTest {
 			verify(query).setParameterList("statuses", ImmutableList.of(AccountStatus.LOCKED.getValue()));
 		}
 		
+		@Test
+		public void itCachesTheQueryResults() throws Exception {
+			dao.findAllAccountsByAccountKey("12345", EnumSet.of(AccountStatus.LOCKED));
+			
+			verify(query).setCacheable(true);
+			verify(query).setCacheRegion(AccountDAO.ACCOUNT_LIST_CACHE_REGION);
+		}
+		
 		@Test
 		public void itExecutesTheQuery() throws Exception {
 			dao.findAllAccountsByAccountKey("12345", EnumSet.of(AccountStatus.LOCKED));
@@ -84,5 +105,122 @@ public class AccountDAOTest {
 			assertThat(accountList.size(), is(1));
 			assertThat(accountList, hasItem(account));
 		}
+		
+		@Test
+		public void itProjectsTheAccountsBalances() throws Exception {
+			final List<Account> accountList = dao.findAllAccountsByAccountKey("12345", EnumSet.of(AccountStatus.LOCKED));
+			
+			verify(balanceProjection).project(accountList);
+		}
+	}
+	
+	public static class Updating_An_Account {
+		private Session primarySession, readOnlySession;
+		private Account account;
+		private AccountDAO dao;
+		
+		@Before
+		public void setup() throws Exception {
+			this.account = mock(Account.class);
+			this.primarySession = mock(Session.class);
+			this.readOnlySession = mock(Session.class);
+			
+			this.dao = new AccountDAO(new Provider<Session>() {
+				@Override
+				public Session get() {
+					return primarySession;
+				}
+			}, new Provider<Session>() {
+				@Override
+				public Session get() {
+					return readOnlySession;
+				}
+			}, mock(AccountBalanceProjection.class), mock(AccountListSummaryCache.class), mock(BalanceCheckpointIndex.class), mock(IntervalSummaryRollup.class));
+		}
+		
+		@Test
+		public void itUpdatesTheAccountOnThePrimaryDatabase() throws Exception {
+			assertThat(dao.update(account), is(sameInstance(account)));
+			
+			verify(primarySession).update(account);
+			verifyZeroInteractions(readOnlySession);
+		}
+	}
+	
+	public static class Evicting_An_Account {
+		private Session session;
+		private SessionFactory sessionFactory;
+		private Account account;
+		private AccountBalanceProjection balanceProjection;
+		private AccountListSummaryCache summaryCache;
+		private BalanceCheckpointIndex checkpointIndex;
+		private IntervalSummaryRollup summaryRollup;
+		private AccountDAO dao;
+		
+		@Before
+		public void setup() throws Exception {
+			this.account = mock(Account.class);
+			when(account.getId()).thenReturn(200);
+			when(account.getAccountKey()).thenReturn("12345");
+			
+			this.sessionFactory = mock(SessionFactory.class);
+			this.session = mock(Session.class);
+			when(session.getSessionFactory()).thenReturn(sessionFactory);
+			
+			this.balanceProjection = mock(AccountBalanceProjection.class);
+			this.summaryCache = mock(AccountListSummaryCache.class);
+			this.checkpointIndex = mock(BalanceCheckpointIndex.class);
+			this.summaryRollup = mock(IntervalSummaryRollup.class);
+			
+			final Provider<Session> provider = new Provider<Session>() {
+				@Override
+				public Session get() {
+					return session;
+				}
+			};
+			this.dao = new AccountDAO(provider, provider, balanceProjection, summaryCache, checkpointIndex, summaryRollup);
+		}
+		
+		@Test
+		public void itEvictsTheAccount() throws Exception {
+			dao.evict(account);
+			
+			verify(sessionFactory).evict(Account.class, 200);
+		}
+		
+		@Test
+		public void itEvictsCachedListsOfAccounts() throws Exception {
+			dao.evict(account);
+			
+			verify(sessionFactory).evictQueries(AccountDAO.ACCOUNT_LIST_CACHE_REGION);
+		}
+		
+		@Test
+		public void itDiscardsTheAccountsProjectedBalance() throws Exception {
+			dao.evict(account);
+			
+			verify(balanceProjection).invalidate(account);
+		}
+		
+		@Test
+		public void itDiscardsTheAccountsBalanceCheckpoints() throws Exception {
+			dao.evict(account);
+			
+			verify(checkpointIndex).invalidate(account);
+		}
+		
+		@Test
+		public void itDiscardsTheAccountsIntervalSummaryRollups() throws Exception {
+			dao.evict(account);
+			
+			verify(summaryRollup).invalidate(account);
+		}
+		
+		@Test
+		public void itDiscardsTheUsersAccountListSummaries() throws Exception {
+			dao.evict(account);
+			
+			verify(summaryCache).invalidate("12345");
+		}
 	}
 }
@@ -0,0 +1,166 @@
+package com.wesabe.api.accounts.dao.tests;
+
+import static com.wesabe.api.tests.util.CurrencyHelper.*;
+import static com.wesabe.api.tests.util.MoneyHelper.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.joda.time.DateTimeUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Provider;
+import com.wesabe.api.accounts.dao.AccountListSummaryCache;
+import com.wesabe.api.accounts.entities.Account;
+import com.wesabe.api.accounts.entities.AccountList;
+import com.wesabe.api.accounts.entities.AccountListSummary;
+import com.wesabe.api.util.money.CurrencyExchangeRateSnapshot;
+import com.wesabe.api.util.money.Money;
+
+@RunWith(Enclosed.class)
+public class AccountListSummaryCacheTest {
+	private static abstract class Context {
+		protected Account checking, savings;
+		protected AccountList accounts;
+		protected AccountListSummary usdSummary, eurSummary;
+		protected CurrencyExchangeRateSnapshot snapshot;
+		protected AccountListSummaryCache cache;
+
+		public void setup() throws Exception {
+			DateTimeUtils.setCurrentMillisFixed(1000000L);
+
+			this.checking = mock(Account.class);
+			when(checking.getId()).thenReturn(1);
+			this.savings = mock(Account.class);
+			when(savings.getId()).thenReturn(2);
+
+			this.snapshot = mock(CurrencyExchangeRateSnapshot.class);
+
+			this.usdSummary = new AccountListSummary(money("100.00", USD), ImmutableMap.<String, Money>of());
+			this.eurSummary = new AccountListSummary(money("79.00", EUR), ImmutableMap.<String, Money>of());
+			this.accounts = mock(AccountList.class);
+			when(accounts.size()).thenReturn(2);
+			when(accounts.iterator()).thenAnswer(new Answer<Object>() {
+				@Override
+				public Object answer(InvocationOnMock invocation) throws Throwable {
+					return new AccountList(checking, savings).iterator();
+				}
+			});
+			when(accounts.summarize(USD, snapshot)).thenReturn(usdSummary);
+			when(accounts.summarize(EUR, snapshot)).thenReturn(eurSummary);
+
+			this.cache = new AccountListSummaryCache(new Provider<CurrencyExchangeRateSnapshot>() {
+				@Override
+				public CurrencyExchangeRateSnapshot get() {
+					return snapshot;
+				}
+			});
+		}
+
+		@After
+		public void teardown() throws Exception {
+			DateTimeUtils.setCurrentMillisSystem();
+		}
+	}
+
+	public static class Getting_A_Summary extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+		}
+
+		@Test
+		public void itSummarizesTheAccountsWithARateSnapshot() throws Exception {
+			assertThat(cache.getSummary("abc", accounts, USD), is(usdSummary));
+
+			verify(accounts).summarize(USD, snapshot);
+		}
+
+		@Test
+		public void itCachesTheSummary() throws Exception {
+			cache.getSummary("abc", accounts, USD);
+
+			assertThat(cache.getSummary("abc", accounts, USD), is(usdSummary));
+
+			verify(accounts, times(1)).summarize(USD, snapshot);
+		}
+
+		@Test
+		public void itCachesSummariesByCurrency() throws Exception {
+			cache.getSummary("abc", accounts, USD);
+
+			assertThat(cache.getSummary("abc", accounts, EUR), is(eurSummary));
+		}
+
+		@Test
+		public void itCachesSummariesByUser() throws Exception {
+			cache.getSummary("abc", accounts, USD);
+			cache.getSummary("def", accounts, USD);
+
+			verify(accounts, times(2)).summarize(USD, snapshot);
+		}
+	}
+
+	public static class Getting_A_Summary_Of_A_Different_Set_Of_Accounts extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			cache.getSummary("abc", accounts, USD);
+		}
+
+		@Test
+		public void itSummarizesTheAccountsAgain() throws Exception {
+			final AccountList archived = mock(AccountList.class);
+			when(archived.iterator()).thenReturn(new AccountList(checking).iterator());
+			when(archived.summarize(USD, snapshot)).thenReturn(eurSummary);
+
+			assertThat(cache.getSummary("abc", archived, USD), is(eurSummary));
+		}
+	}
+
+	public static class Getting_An_Expired_Summary extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			cache.getSummary("abc", accounts, USD);
+			DateTimeUtils.setCurrentMillisFixed(1000000L + AccountListSummaryCache.MAX_AGE_MILLIS);
+		}
+
+		@Test
+		public void itSummarizesTheAccountsAgain() throws Exception {
+			cache.getSummary("abc", accounts, USD);
+
+			verify(accounts, times(2)).summarize(USD, snapshot);
+		}
+	}
+
+	public static class Getting_An_Invalidated_Summary extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			cache.getSummary("abc", accounts, USD);
+			cache.getSummary("abc", accounts, EUR);
+			cache.invalidate("abc");
+		}
+
+		@Test
+		public void itSummarizesTheAccountsAgainInEveryCurrency() throws Exception {
+			cache.getSummary("abc", accounts, USD);
+			cache.getSummary("abc", accounts, EUR);
+
+			verify(accounts, times(2)).summarize(USD, snapshot);
+			verify(accounts, times(2)).summarize(EUR, snapshot);
+		}
+	}
+}
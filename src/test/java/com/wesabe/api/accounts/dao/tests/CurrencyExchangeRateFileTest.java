@@ -0,0 +1,140 @@
+package com.wesabe.api.accounts.dao.tests;
+
+import static com.wesabe.api.tests.util.CurrencyHelper.*;
+import static com.wesabe.api.tests.util.DateHelper.*;
+import static org.junit.Assert.*;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.google.common.collect.ImmutableList;
+import com.wesabe.api.accounts.dao.CurrencyExchangeRateFile;
+import com.wesabe.api.accounts.entities.CurrencyExchangeRate;
+
+@RunWith(Enclosed.class)
+public class CurrencyExchangeRateFileTest {
+	private static abstract class Context {
+		protected File file;
+		protected CurrencyExchangeRateFile ratesFile;
+
+		public void setup() throws Exception {
+			this.file = File.createTempFile("rates", ".bin");
+			this.ratesFile = new CurrencyExchangeRateFile(file);
+		}
+
+		@After
+		public void teardown() throws Exception {
+			file.delete();
+		}
+	}
+
+	public static class Writing_And_Reading_Rates extends Context {
+		private ImmutableList<CurrencyExchangeRate> rates;
+
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			this.rates = ImmutableList.of(
+					new CurrencyExchangeRate(NOK, 6.7258, jun14th),
+					new CurrencyExchangeRate(EUR, 0.7656, apr1st)
+			);
+			ratesFile.write(rates);
+		}
+
+		@Test
+		public void itReadsTheRatesWhichWereWritten() throws Exception {
+			assertEquals(rates, ratesFile.read().getRates());
+		}
+
+		@Test
+		public void itRecordsTheDateOfTheNewestRate() throws Exception {
+			assertEquals(jun14th, ratesFile.read().getLatestDate());
+		}
+
+		@Test
+		public void itUsesFixedWidthRecords() throws Exception {
+			assertEquals(20 + (2 * 19), file.length());
+		}
+	}
+
+	public static class Reading_A_Missing_File extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			file.delete();
+		}
+
+		@Test
+		public void itHasNoRates() throws Exception {
+			assertFalse(ratesFile.exists());
+			assertNull(ratesFile.read());
+		}
+	}
+
+	public static class Reading_A_File_Which_Is_Not_A_Rates_File extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			final DataOutputStream output = new DataOutputStream(new FileOutputStream(file));
+			output.writeInt(0xCAFEBABE);
+			output.writeInt(1);
+			output.writeLong(0);
+			output.writeInt(1);
+			output.close();
+		}
+
+		@Test
+		public void itThrowsAnException() throws Exception {
+			try {
+				ratesFile.read();
+				fail("should have thrown an IOException but didn't");
+			} catch (IOException e) {
+				assertTrue(e.getMessage().contains("not a version 1 rates file"));
+			}
+		}
+	}
+
+	public static class Reading_A_Truncated_File extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			ratesFile.write(ImmutableList.of(new CurrencyExchangeRate(EUR, 0.7656, apr1st)));
+			final DataOutputStream output = new DataOutputStream(new FileOutputStream(file, true));
+			output.writeByte(1);
+			output.close();
+		}
+
+		@Test
+		public void itThrowsAnException() throws Exception {
+			try {
+				ratesFile.read();
+				fail("should have thrown an IOException but didn't");
+			} catch (IOException e) {
+				assertTrue(e.getMessage().contains("bytes of rates"));
+			}
+		}
+	}
+
+	public static class Using_No_File {
+		@Test
+		public void itNeverReadsOrWritesRates() throws Exception {
+			final CurrencyExchangeRateFile ratesFile = new CurrencyExchangeRateFile(null);
+			ratesFile.write(ImmutableList.of(new CurrencyExchangeRate(EUR, 0.7656, apr1st)));
+
+			assertFalse(ratesFile.exists());
+			assertNull(ratesFile.read());
+		}
+	}
+}
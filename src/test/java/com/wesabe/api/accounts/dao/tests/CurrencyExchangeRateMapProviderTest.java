@@ -6,6 +6,8 @@ import static com.wesabe.api.tests.util.NumberHelper.*;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -23,6 +25,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.wesabe.api.accounts.dao.CurrencyExchangeRateFile;
 import com.wesabe.api.accounts.dao.CurrencyExchangeRateMapProvider;
 import com.wesabe.api.accounts.entities.CurrencyExchangeRate;
 import com.wesabe.api.util.money.CurrencyExchangeRateMap;
@@ -59,6 +62,7 @@ public class CurrencyExchangeRateMapProviderTest {
 				@Override
 				protected void configure() {
 					bind(SessionFactory.class).toInstance(factory);
+					bind(CurrencyExchangeRateFile.class).toInstance(new CurrencyExchangeRateFile(null));
 				}
 			});
 			
@@ -101,5 +105,159 @@ public class CurrencyExchangeRateMapProviderTest {
 			assertEquals(decimal("1.306165"), map.getExchangeRate(EUR, USD, apr1st));
 		}
 	}
-
+	
+	private static abstract class Cached_Context {
+		protected Query allQuery, sinceQuery, latestDateQuery;
+		protected Session session;
+		protected SessionFactory factory;
+		protected File file;
+		protected CurrencyExchangeRateFile ratesFile;
+		protected CurrencyExchangeRateMapProvider provider;
+		
+		public void setup() throws Exception {
+			this.file = File.createTempFile("rates", ".bin");
+			this.ratesFile = new CurrencyExchangeRateFile(file);
+			
+			this.allQuery = mock(Query.class);
+			when(allQuery.list()).thenReturn(ImmutableList.of(
+					new CurrencyExchangeRate(EUR, 0.7656, jan1st),
+					new CurrencyExchangeRate(EUR, 0.7512, apr1st)
+			));
+			
+			this.sinceQuery = mock(Query.class);
+			when(sinceQuery.setParameter(anyString(), anyObject())).thenReturn(sinceQuery);
+			when(sinceQuery.list()).thenReturn(ImmutableList.of(
+					new CurrencyExchangeRate(EUR, 0.7600, apr1st),
+					new CurrencyExchangeRate(NOK, 6.7258, jun14th)
+			));
+			
+			this.latestDateQuery = mock(Query.class);
+			
+			this.session = mock(Session.class);
+			when(session.getNamedQuery("com.wesabe.api.accounts.entities.CurrencyExchangeRate.findAll")).thenReturn(allQuery);
+			when(session.getNamedQuery("com.wesabe.api.accounts.entities.CurrencyExchangeRate.findSince")).thenReturn(sinceQuery);
+			when(session.getNamedQuery("com.wesabe.api.accounts.entities.CurrencyExchangeRate.findLatestDate")).thenReturn(latestDateQuery);
+			
+			this.factory = mock(SessionFactory.class);
+			when(factory.openSession()).thenReturn(session);
+			
+			final Logger logger = mock(Logger.class);
+			this.provider = new CurrencyExchangeRateMapProvider(factory, ratesFile, logger);
+		}
+		
+		@After
+		public void teardown() throws Exception {
+			file.delete();
+		}
+	}
+	
+	public static class Providing_A_Map_Without_Cached_Rates extends Cached_Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			file.delete();
+		}
+		
+		@Test
+		public void itLoadsAllTheRates() throws Exception {
+			final CurrencyExchangeRateMap map = provider.get();
+			
+			verify(session).getNamedQuery("com.wesabe.api.accounts.entities.CurrencyExchangeRate.findAll");
+			assertEquals(decimal("0.7512002"), map.getExchangeRate(USD, EUR, apr1st));
+		}
+		
+		@Test
+		public void itCachesTheRates() throws Exception {
+			provider.get();
+			
+			final CurrencyExchangeRateFile.Contents contents = ratesFile.read();
+			assertEquals(apr1st, contents.getLatestDate());
+			assertEquals(ImmutableList.of(
+					new CurrencyExchangeRate(EUR, 0.7656, jan1st),
+					new CurrencyExchangeRate(EUR, 0.7512, apr1st)
+			), contents.getRates());
+		}
+	}
+	
+	public static class Providing_A_Map_With_Cached_Rates extends Cached_Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			ratesFile.write(ImmutableList.of(
+					new CurrencyExchangeRate(EUR, 0.7656, jan1st),
+					new CurrencyExchangeRate(EUR, 0.7512, apr1st)
+			));
+			when(latestDateQuery.uniqueResult()).thenReturn(jun14th);
+		}
+		
+		@Test
+		public void itOnlyFetchesTheRatesSinceTheNewestCachedRate() throws Exception {
+			provider.get();
+			
+			verify(sinceQuery).setParameter("date", apr1st);
+			verify(session, never()).getNamedQuery("com.wesabe.api.accounts.entities.CurrencyExchangeRate.findAll");
+		}
+		
+		@Test
+		public void itReturnsAMapWithTheCachedAndFetchedRates() throws Exception {
+			final CurrencyExchangeRateMap map = provider.get();
+			
+			assertEquals(decimal("0.7656001"), map.getExchangeRate(USD, EUR, jan1st));
+			assertEquals(decimal("0.7600003"), map.getExchangeRate(USD, EUR, apr1st));
+			assertEquals(decimal("6.725800"), map.getExchangeRate(USD, NOK, jun14th));
+		}
+		
+		@Test
+		public void itCachesTheMergedRates() throws Exception {
+			provider.get();
+			
+			final CurrencyExchangeRateFile.Contents contents = ratesFile.read();
+			assertEquals(jun14th, contents.getLatestDate());
+			assertEquals(ImmutableList.of(
+					new CurrencyExchangeRate(EUR, 0.7656, jan1st),
+					new CurrencyExchangeRate(EUR, 0.7600, apr1st),
+					new CurrencyExchangeRate(NOK, 6.7258, jun14th)
+			), contents.getRates());
+		}
+	}
+	
+	public static class Providing_A_Map_With_Cached_Rates_Newer_Than_The_Database extends Cached_Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			ratesFile.write(ImmutableList.of(new CurrencyExchangeRate(EUR, 0.7656, jun14th)));
+			when(latestDateQuery.uniqueResult()).thenReturn(apr1st);
+		}
+		
+		@Test
+		public void itIgnoresTheCachedRatesAndLoadsAllTheRates() throws Exception {
+			final CurrencyExchangeRateMap map = provider.get();
+			
+			verify(session).getNamedQuery("com.wesabe.api.accounts.entities.CurrencyExchangeRate.findAll");
+			verify(session, never()).getNamedQuery("com.wesabe.api.accounts.entities.CurrencyExchangeRate.findSince");
+			assertEquals(decimal("0.7512002"), map.getExchangeRate(USD, EUR, jun14th));
+		}
+	}
+	
+	public static class Providing_A_Map_With_A_Corrupt_Rates_File extends Cached_Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			final FileOutputStream output = new FileOutputStream(file);
+			output.write(new byte[] { 1, 2, 3, 4, 5 });
+			output.close();
+		}
+		
+		@Test
+		public void itLoadsAllTheRates() throws Exception {
+			final CurrencyExchangeRateMap map = provider.get();
+			
+			verify(session).getNamedQuery("com.wesabe.api.accounts.entities.CurrencyExchangeRate.findAll");
+			assertEquals(decimal("0.7512002"), map.getExchangeRate(USD, EUR, apr1st));
+		}
+	}
 }
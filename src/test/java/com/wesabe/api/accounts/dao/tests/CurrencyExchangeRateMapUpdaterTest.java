@@ -6,6 +6,7 @@ import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
 import java.math.BigDecimal;
+import java.util.Currency;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
@@ -47,6 +48,7 @@ public class CurrencyExchangeRateMapUpdaterTest {
 		private Session session;
 		private SessionFactory sessionFactory;
 		private CurrencyExchangeRateMap exchangeRateMap;
+		private CurrencyExchangeRateMap.Batch batch;
 		private ScheduledExecutorService executorService;
 		private Logger logger;
 		private CurrencyExchangeRate rate;
@@ -67,7 +69,10 @@ public class CurrencyExchangeRateMapUpdaterTest {
 			this.sessionFactory = mock(SessionFactory.class);
 			when(sessionFactory.openSession()).thenReturn(session);
 			
+			this.batch = mock(CurrencyExchangeRateMap.Batch.class);
+			
 			this.exchangeRateMap = mock(CurrencyExchangeRateMap.class);
+			when(exchangeRateMap.newBatch()).thenReturn(batch);
 			
 			this.executorService = mock(ScheduledExecutorService.class);
 			
@@ -99,10 +104,14 @@ public class CurrencyExchangeRateMapUpdaterTest {
 		}
 		
 		@Test
-		public void itAddsTheRatesToTheMap() throws Exception {
+		public void itAddsTheRatesToTheMapInASingleBatch() throws Exception {
 			updater.run();
 			
-			verify(exchangeRateMap).addExchangeRate(USD, EUR, apr1st, new BigDecimal("1"));
+			final InOrder inOrder = inOrder(exchangeRateMap, batch);
+			inOrder.verify(exchangeRateMap).newBatch();
+			inOrder.verify(batch).addExchangeRate(USD, EUR, apr1st, new BigDecimal("1"));
+			inOrder.verify(batch).commit();
+			verify(exchangeRateMap, never()).addExchangeRate(any(Currency.class), any(Currency.class), any(DateTime.class), any(BigDecimal.class));
 		}
 		
 		@Test
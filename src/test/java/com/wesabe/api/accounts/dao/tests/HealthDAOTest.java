@@ -23,8 +23,8 @@ import com.wesabe.api.accounts.dao.HealthDAO;
 public class HealthDAOTest {
 	private static abstract class Context {
 		protected Logger logger;
-		protected Session session;
-		protected SQLQuery query;
+		protected Session session, readOnlySession;
+		protected SQLQuery query, readOnlyQuery;
 		protected HealthDAO dao;
 
 		@Before
@@ -38,11 +38,24 @@ public class HealthDAOTest {
 			this.session = mock(Session.class);
 			when(session.createSQLQuery(Mockito.anyString())).thenReturn(query);
 			
+			this.readOnlyQuery = mock(SQLQuery.class);
+			when(readOnlyQuery.setString(Mockito.anyString(), Mockito.anyString())).thenReturn(readOnlyQuery);
+			when(readOnlyQuery.setComment(Mockito.anyString())).thenReturn(readOnlyQuery);
+			when(readOnlyQuery.uniqueResult()).thenReturn("health-check");
+			
+			this.readOnlySession = mock(Session.class);
+			when(readOnlySession.createSQLQuery(Mockito.anyString())).thenReturn(readOnlyQuery);
+			
 			this.dao = new HealthDAO(new Provider<Session>() {
 				@Override
 				public Session get() {
 					return session;
 				}
+			}, new Provider<Session>() {
+				@Override
+				public Session get() {
+					return readOnlySession;
+				}
 			}, logger);
 		}
 		
@@ -84,12 +97,44 @@ public class HealthDAOTest {
 			verify(query).uniqueResult();
 		}
 		
+		@Test
+		public void itChecksTheReadOnlyDatabase() throws Exception {
+			dao.isHealthy();
+			
+			verify(readOnlyQuery).uniqueResult();
+		}
+		
 		@Test
 		public void itReturnsTrue() throws Exception {
 			assertThat(dao.isHealthy(), is(true));
 		}
 	}
 	
+	public static class Checking_Health_When_The_Read_Only_Database_Is_Unhealthy extends Context {
+		private HibernateException exception;
+		
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			when(query.uniqueResult()).thenReturn("health-check");
+			this.exception = new HibernateException("nooo");
+			when(readOnlyQuery.uniqueResult()).thenThrow(exception);
+		}
+		
+		@Test
+		public void itReturnsFalse() throws Exception {
+			assertThat(dao.isHealthy(), is(false));
+		}
+		
+		@Test
+		public void itLogsTheError() throws Exception {
+			dao.isHealthy();
+			
+			verify(logger).log(Level.SEVERE, "Error connecting to the database", exception);
+		}
+	}
+	
 	public static class Checking_Health_When_Unhealthy extends Context {
 		private HibernateException exception;
 		
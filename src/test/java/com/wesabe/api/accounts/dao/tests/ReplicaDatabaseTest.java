@@ -0,0 +1,191 @@
+package com.wesabe.api.accounts.dao.tests;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.hibernate.connection.ConnectionProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.wesabe.api.accounts.dao.ReplicaDatabase;
+
+@RunWith(Enclosed.class)
+public class ReplicaDatabaseTest {
+	private static abstract class Context {
+		protected ConnectionProvider connections;
+		protected Connection connection;
+		protected Statement statement;
+		protected ResultSet results;
+		protected ReplicaDatabase replica;
+
+		public void setup() throws Exception {
+			this.results = mock(ResultSet.class);
+
+			this.statement = mock(Statement.class);
+			when(statement.executeQuery("SHOW SLAVE STATUS")).thenReturn(results);
+
+			this.connection = mock(Connection.class);
+			when(connection.createStatement()).thenReturn(statement);
+
+			this.connections = mock(ConnectionProvider.class);
+			when(connections.getConnection()).thenReturn(connection);
+
+			this.replica = new ReplicaDatabase(connections, 30);
+		}
+	}
+
+	public static class An_Unchecked_Replica extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+		}
+
+		@Test
+		public void itIsConfigured() throws Exception {
+			assertThat(replica.isConfigured(), is(true));
+		}
+
+		@Test
+		public void itIsUnavailable() throws Exception {
+			assertThat(replica.getLag(), is(-1));
+			assertThat(replica.isAvailable(), is(false));
+		}
+
+		@Test
+		public void itHandsOutReadOnlyConnections() throws Exception {
+			assertThat(replica.getConnection(), is(sameInstance(connection)));
+
+			verify(connection).setReadOnly(true);
+		}
+	}
+
+	public static class Checking_A_Replica_Within_The_Maximum_Lag extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			when(results.next()).thenReturn(true);
+			when(results.getInt("Seconds_Behind_Master")).thenReturn(30);
+			when(results.wasNull()).thenReturn(false);
+			replica.checkLag();
+		}
+
+		@Test
+		public void itRecordsTheLag() throws Exception {
+			assertThat(replica.getLag(), is(30));
+		}
+
+		@Test
+		public void itIsAvailable() throws Exception {
+			assertThat(replica.isAvailable(), is(true));
+		}
+
+		@Test
+		public void itReturnsTheConnectionToThePool() throws Exception {
+			verify(statement).close();
+			verify(connections).closeConnection(connection);
+		}
+	}
+
+	public static class Checking_A_Replica_Beyond_The_Maximum_Lag extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			when(results.next()).thenReturn(true);
+			when(results.getInt("Seconds_Behind_Master")).thenReturn(31);
+			when(results.wasNull()).thenReturn(false);
+			replica.checkLag();
+		}
+
+		@Test
+		public void itIsUnavailable() throws Exception {
+			assertThat(replica.isAvailable(), is(false));
+		}
+	}
+
+	public static class Checking_A_Replica_Which_Has_Stopped_Replicating extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			when(results.next()).thenReturn(true);
+			when(results.getInt("Seconds_Behind_Master")).thenReturn(0);
+			when(results.wasNull()).thenReturn(true);
+			replica.checkLag();
+		}
+
+		@Test
+		public void itIsUnavailable() throws Exception {
+			assertThat(replica.getLag(), is(-1));
+			assertThat(replica.isAvailable(), is(false));
+		}
+	}
+
+	public static class Checking_A_Database_Which_Is_Not_A_Replica extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			when(results.next()).thenReturn(false);
+			replica.checkLag();
+		}
+
+		@Test
+		public void itIsAvailable() throws Exception {
+			assertThat(replica.getLag(), is(0));
+			assertThat(replica.isAvailable(), is(true));
+		}
+	}
+
+	public static class Failing_To_Check_A_Replica extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			when(results.next()).thenReturn(true);
+			when(results.getInt("Seconds_Behind_Master")).thenReturn(3);
+			replica.checkLag();
+			when(statement.executeQuery("SHOW SLAVE STATUS")).thenThrow(new SQLException("gone"));
+		}
+
+		@Test
+		public void itIsUnavailable() throws Exception {
+			try {
+				replica.checkLag();
+				fail("should have thrown an SQLException but didn't");
+			} catch (SQLException e) {
+				assertThat(replica.isAvailable(), is(false));
+			}
+		}
+	}
+
+	public static class An_Unconfigured_Replica {
+		private ReplicaDatabase replica;
+
+		@Before
+		public void setup() throws Exception {
+			this.replica = new ReplicaDatabase(null, 30);
+			replica.checkLag();
+		}
+
+		@Test
+		public void itIsNotConfigured() throws Exception {
+			assertThat(replica.isConfigured(), is(false));
+		}
+
+		@Test
+		public void itIsUnavailable() throws Exception {
+			assertThat(replica.isAvailable(), is(false));
+		}
+	}
+}
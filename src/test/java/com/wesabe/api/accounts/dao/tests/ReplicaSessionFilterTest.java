@@ -0,0 +1,135 @@
+package com.wesabe.api.accounts.dao.tests;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.wesabe.api.accounts.dao.ReplicaSessionFilter;
+import com.wesabe.api.accounts.dao.ReplicaSessionProvider;
+
+@RunWith(Enclosed.class)
+public class ReplicaSessionFilterTest {
+	private static abstract class Context {
+		protected HttpServletRequest request;
+		protected HttpServletResponse response;
+		protected FilterChain chain;
+		protected ReplicaSessionFilter filter;
+		protected Boolean readOnlyDuringRequest;
+
+		public void setup() throws Exception {
+			this.request = mock(HttpServletRequest.class);
+			this.response = mock(HttpServletResponse.class);
+
+			this.chain = mock(FilterChain.class);
+			doAnswer(new Answer<Object>() {
+				@Override
+				public Object answer(InvocationOnMock invocation) throws Throwable {
+					readOnlyDuringRequest = ReplicaSessionProvider.isReadOnlyRequest();
+					return null;
+				}
+			}).when(chain).doFilter(Mockito.any(ServletRequest.class), Mockito.any(ServletResponse.class));
+
+			this.filter = new ReplicaSessionFilter();
+		}
+	}
+
+	public static class Filtering_A_GET_Request extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			when(request.getMethod()).thenReturn("GET");
+			filter.doFilter(request, response, chain);
+		}
+
+		@Test
+		public void itPassesTheRequestOn() throws Exception {
+			verify(chain).doFilter(request, response);
+		}
+
+		@Test
+		public void itMakesTheRequestReadOnly() throws Exception {
+			assertThat(readOnlyDuringRequest, is(true));
+		}
+
+		@Test
+		public void itEndsTheReadOnlyRequest() throws Exception {
+			assertThat(ReplicaSessionProvider.isReadOnlyRequest(), is(false));
+		}
+	}
+
+	public static class Filtering_A_HEAD_Request extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			when(request.getMethod()).thenReturn("HEAD");
+			filter.doFilter(request, response, chain);
+		}
+
+		@Test
+		public void itMakesTheRequestReadOnly() throws Exception {
+			assertThat(readOnlyDuringRequest, is(true));
+		}
+	}
+
+	public static class Filtering_A_PUT_Request extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			when(request.getMethod()).thenReturn("PUT");
+			filter.doFilter(request, response, chain);
+		}
+
+		@Test
+		public void itPassesTheRequestOn() throws Exception {
+			verify(chain).doFilter(request, response);
+		}
+
+		@Test
+		public void itDoesNotMakeTheRequestReadOnly() throws Exception {
+			assertThat(readOnlyDuringRequest, is(false));
+		}
+	}
+
+	public static class Filtering_A_Failing_GET_Request extends Context {
+		private ServletException exception;
+
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			when(request.getMethod()).thenReturn("GET");
+			this.exception = new ServletException("oops");
+			doThrow(exception).when(chain).doFilter(request, response);
+		}
+
+		@Test
+		public void itEndsTheReadOnlyRequest() throws Exception {
+			try {
+				filter.doFilter(request, response, chain);
+				fail("should have thrown a ServletException but didn't");
+			} catch (ServletException e) {
+				assertThat(e, is(sameInstance(exception)));
+			}
+
+			assertThat(ReplicaSessionProvider.isReadOnlyRequest(), is(false));
+		}
+	}
+}
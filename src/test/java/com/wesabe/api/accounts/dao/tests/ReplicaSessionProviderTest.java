@@ -0,0 +1,251 @@
+package com.wesabe.api.accounts.dao.tests;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import org.hibernate.CacheMode;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.cfg.Environment;
+import org.hibernate.connection.ConnectionProvider;
+import org.hibernate.connection.ConnectionProviderFactory;
+import org.hibernate.dialect.HSQLDialect;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.google.inject.Provider;
+import com.wesabe.api.accounts.dao.ReplicaDatabase;
+import com.wesabe.api.accounts.dao.ReplicaSessionProvider;
+
+/**
+ * Routes sessions between two in-memory HSQLDB databases, each of which knows
+ * its own name.
+ */
+@RunWith(Enclosed.class)
+public class ReplicaSessionProviderTest {
+	private static class FakeReplicaDatabase extends ReplicaDatabase {
+		private int lag = 0;
+
+		public FakeReplicaDatabase(ConnectionProvider connections) {
+			super(connections, 30);
+		}
+
+		public void setLag(int lag) throws SQLException {
+			this.lag = lag;
+			checkLag();
+		}
+
+		@Override
+		protected int measureLag(Connection connection) throws SQLException {
+			return lag;
+		}
+	}
+
+	private static abstract class Context {
+		protected ConnectionProvider replicaConnections;
+		protected SessionFactory sessionFactory;
+		protected Session primarySession;
+		protected FakeReplicaDatabase replica;
+		protected ReplicaSessionProvider provider;
+
+		public void setup() throws Exception {
+			final Properties primaryProperties = databaseProperties("primary");
+			final Properties replicaProperties = databaseProperties("replica");
+
+			this.sessionFactory = new Configuration().addProperties(primaryProperties).buildSessionFactory();
+			this.primarySession = sessionFactory.openSession();
+
+			this.replicaConnections = ConnectionProviderFactory.newConnectionProvider(replicaProperties);
+			this.replica = new FakeReplicaDatabase(replicaConnections);
+
+			this.provider = new ReplicaSessionProvider(sessionFactory, new Provider<Session>() {
+				@Override
+				public Session get() {
+					return primarySession;
+				}
+			}, replica, mock(Logger.class));
+		}
+
+		@After
+		public void teardown() throws Exception {
+			ReplicaSessionProvider.endReadOnlyRequest();
+			primarySession.close();
+			sessionFactory.close();
+			replicaConnections.close();
+		}
+
+		protected String databaseName(Session session) {
+			return (String) session.createSQLQuery("SELECT name FROM database_names").uniqueResult();
+		}
+
+		private Properties databaseProperties(String name) throws SQLException {
+			final Properties properties = new Properties();
+			properties.setProperty(Environment.DIALECT, HSQLDialect.class.getName());
+			properties.setProperty(Environment.DRIVER, "org.hsqldb.jdbcDriver");
+			properties.setProperty(Environment.URL, "jdbc:hsqldb:mem:" + name);
+			properties.setProperty(Environment.USER, "sa");
+			properties.setProperty(Environment.PASS, "");
+
+			try {
+				Class.forName("org.hsqldb.jdbcDriver");
+			} catch (ClassNotFoundException e) {
+				throw new SQLException(e.getMessage());
+			}
+
+			final Connection connection = DriverManager.getConnection("jdbc:hsqldb:mem:" + name, "sa", "");
+			try {
+				final Statement statement = connection.createStatement();
+				statement.execute("DROP TABLE database_names IF EXISTS");
+				statement.execute("CREATE TABLE database_names (name VARCHAR(20))");
+				statement.execute("INSERT INTO database_names VALUES ('" + name + "')");
+				statement.close();
+			} finally {
+				connection.close();
+			}
+
+			return properties;
+		}
+	}
+
+	public static class Getting_A_Session_Outside_A_Read_Only_Request extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			replica.setLag(0);
+		}
+
+		@Test
+		public void itReadsFromThePrimary() throws Exception {
+			assertThat(databaseName(provider.get()), is("primary"));
+		}
+
+		@Test
+		public void itIsNotAReplicaSession() throws Exception {
+			assertThat(ReplicaSessionProvider.isReplicaSession(provider.get()), is(false));
+		}
+	}
+
+	public static class Getting_A_Session_With_An_Available_Replica extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			replica.setLag(5);
+			ReplicaSessionProvider.beginReadOnlyRequest();
+		}
+
+		@Test
+		public void itReadsFromTheReplica() throws Exception {
+			assertThat(databaseName(provider.get()), is("replica"));
+		}
+
+		@Test
+		public void itUsesOneSessionForTheWholeRequest() throws Exception {
+			assertThat(provider.get(), is(sameInstance(provider.get())));
+		}
+
+		@Test
+		public void itNeverFlushes() throws Exception {
+			assertThat(provider.get().getFlushMode(), is(FlushMode.MANUAL));
+		}
+
+		@Test
+		public void itNeverWritesToTheSecondLevelCache() throws Exception {
+			assertThat(provider.get().getCacheMode(), is(CacheMode.GET));
+		}
+
+		@Test
+		public void itIsAReplicaSession() throws Exception {
+			assertThat(ReplicaSessionProvider.isReplicaSession(provider.get()), is(true));
+			assertThat(ReplicaSessionProvider.isReplicaSession(primarySession), is(false));
+		}
+
+		@Test
+		public void itKeepsReadingFromTheReplicaIfItStartsLagging() throws Exception {
+			provider.get();
+			replica.setLag(60);
+
+			assertThat(databaseName(provider.get()), is("replica"));
+		}
+
+		@Test
+		public void itClosesTheSessionAtTheEndOfTheRequest() throws Exception {
+			final Session session = provider.get();
+			ReplicaSessionProvider.endReadOnlyRequest();
+
+			assertThat(session.isOpen(), is(false));
+			assertThat(databaseName(provider.get()), is("primary"));
+		}
+	}
+
+	public static class Getting_A_Session_With_A_Lagging_Replica extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			replica.setLag(31);
+			ReplicaSessionProvider.beginReadOnlyRequest();
+		}
+
+		@Test
+		public void itReadsFromThePrimary() throws Exception {
+			assertThat(databaseName(provider.get()), is("primary"));
+		}
+
+		@Test
+		public void itKeepsReadingFromThePrimaryIfTheReplicaCatchesUp() throws Exception {
+			provider.get();
+			replica.setLag(0);
+
+			assertThat(databaseName(provider.get()), is("primary"));
+		}
+	}
+
+	public static class Getting_A_Session_With_An_Unchecked_Replica extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			ReplicaSessionProvider.beginReadOnlyRequest();
+		}
+
+		@Test
+		public void itReadsFromThePrimary() throws Exception {
+			assertThat(databaseName(provider.get()), is("primary"));
+		}
+	}
+
+	public static class Getting_A_Session_Without_A_Replica extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			this.provider = new ReplicaSessionProvider(sessionFactory, new Provider<Session>() {
+				@Override
+				public Session get() {
+					return primarySession;
+				}
+			}, new ReplicaDatabase(null, 30), mock(Logger.class));
+			ReplicaSessionProvider.beginReadOnlyRequest();
+		}
+
+		@Test
+		public void itReadsFromThePrimary() throws Exception {
+			assertThat(databaseName(provider.get()), is("primary"));
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package com.wesabe.api.accounts.dao.tests;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.NoSuchElementException;
+
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+
+import com.google.common.collect.ImmutableList;
+import com.wesabe.api.accounts.dao.ScrollableTxactions;
+import com.wesabe.api.accounts.entities.TaggedAmount;
+import com.wesabe.api.accounts.entities.Txaction;
+
+@RunWith(Enclosed.class)
+public class ScrollableTxactionsTest {
+	private static abstract class Context {
+		protected Session session;
+		protected ScrollableResults results;
+		protected Txaction first, second, third, transfer;
+		protected TaggedAmount taggedAmount;
+		protected ScrollableTxactions txactions;
+
+		public void setup() throws Exception {
+			this.session = mock(Session.class);
+
+			this.taggedAmount = mock(TaggedAmount.class);
+			this.transfer = mock(Txaction.class);
+
+			this.first = mock(Txaction.class);
+			when(first.getTaggedAmounts()).thenReturn(ImmutableList.of(taggedAmount));
+			when(first.getTransferTxaction()).thenReturn(transfer);
+			this.second = mock(Txaction.class);
+			this.third = mock(Txaction.class);
+
+			this.results = mock(ScrollableResults.class);
+			when(results.next()).thenReturn(true, true, true, false);
+			when(results.get(0)).thenReturn(first, second, third);
+
+			this.txactions = new ScrollableTxactions(session, results, 2);
+		}
+	}
+
+	public static class Iterating_Through_Scrolled_Txactions extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+		}
+
+		@Test
+		public void itReturnsTheTxactionsInOrder() throws Exception {
+			assertThat(ImmutableList.copyOf(txactions), is(ImmutableList.of(first, second, third)));
+		}
+
+		@Test
+		public void itKeepsTheCurrentPageInTheSession() throws Exception {
+			txactions.next();
+			txactions.next();
+
+			verify(session, never()).evict(Mockito.anyObject());
+		}
+
+		@Test
+		public void itEvictsEachPageOnceItHasMovedPastIt() throws Exception {
+			txactions.next();
+			txactions.next();
+			txactions.next();
+
+			verify(session).evict(first);
+			verify(session).evict(taggedAmount);
+			verify(session).evict(transfer);
+			verify(session).evict(second);
+			verify(session, never()).evict(third);
+		}
+
+		@Test
+		public void itThrowsAnExceptionAfterTheLastTxaction() throws Exception {
+			ImmutableList.copyOf(txactions);
+
+			try {
+				txactions.next();
+				fail("should have thrown a NoSuchElementException but didn't");
+			} catch (NoSuchElementException e) {
+				assertThat(txactions.hasNext(), is(false));
+			}
+		}
+
+		@Test
+		public void itDoesNotRemoveTxactions() throws Exception {
+			txactions.next();
+
+			try {
+				txactions.remove();
+				fail("should have thrown an UnsupportedOperationException but didn't");
+			} catch (UnsupportedOperationException e) {
+				assertTrue(true);
+			}
+		}
+	}
+
+	public static class Closing_Scrolled_Txactions extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			txactions.next();
+			txactions.close();
+		}
+
+		@Test
+		public void itEvictsTheCurrentPage() throws Exception {
+			verify(session).evict(first);
+			verify(session).evict(second);
+		}
+
+		@Test
+		public void itClosesTheResults() throws Exception {
+			verify(results).close();
+		}
+
+		@Test
+		public void itHasNoMoreTxactions() throws Exception {
+			assertThat(txactions.hasNext(), is(false));
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package com.wesabe.api.accounts.dao.tests;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.wesabe.api.accounts.dao.TxactionCursor;
+import com.wesabe.api.accounts.entities.Txaction;
+
+@RunWith(Enclosed.class)
+public class TxactionCursorTest {
+	public static class A_Cursor_For_A_Txaction {
+		private Txaction txaction;
+		private TxactionCursor cursor;
+		
+		@Before
+		public void setup() throws Exception {
+			this.txaction = mock(Txaction.class);
+			when(txaction.getDatePosted()).thenReturn(new DateTime(2009, 6, 14, 0, 0, 0, 0));
+			when(txaction.getSequence()).thenReturn(3);
+			when(txaction.getCreatedAt()).thenReturn(new DateTime(2009, 6, 15, 12, 30, 0, 0));
+			when(txaction.getId()).thenReturn(400);
+			
+			this.cursor = TxactionCursor.of(txaction);
+		}
+		
+		@Test
+		public void itHasTheTxactionsSortKey() throws Exception {
+			assertThat(cursor.getDatePosted(), is(new DateTime(2009, 6, 14, 0, 0, 0, 0)));
+			assertThat(cursor.getSequence(), is(3));
+			assertThat(cursor.getCreatedAt(), is(new DateTime(2009, 6, 15, 12, 30, 0, 0)));
+			assertThat(cursor.getId(), is(400));
+		}
+		
+		@Test
+		public void itCanBeParsedFromItsStringRepresentation() throws Exception {
+			assertThat(TxactionCursor.parse(cursor.toString()), is(cursor));
+		}
+	}
+	
+	public static class A_Cursor_For_A_Txaction_Without_A_Sequence_Or_Creation_Date {
+		@Test
+		public void itSortsThemAsZero() throws Exception {
+			final Txaction txaction = mock(Txaction.class);
+			when(txaction.getDatePosted()).thenReturn(new DateTime(2009, 6, 14, 0, 0, 0, 0));
+			when(txaction.getId()).thenReturn(400);
+			
+			final TxactionCursor cursor = TxactionCursor.of(txaction);
+			
+			assertThat(cursor.getSequence(), is(0));
+			assertThat(cursor.getCreatedAt().getMillis(), is(0L));
+		}
+	}
+	
+	public static class A_Cursor_At_The_Start_Of_A_Date {
+		private final DateTime date = new DateTime(2009, 6, 14, 0, 0, 0, 0);
+		private final TxactionCursor cursor = TxactionCursor.startOf(date);
+		
+		@Test
+		public void itSortsBeforeTxactionsPostedOnTheDate() throws Exception {
+			assertThat(cursor.compareTo(new TxactionCursor(date.getMillis(), 0, 0L, 1)) < 0, is(true));
+			assertThat(cursor.compareTo(new TxactionCursor(date.getMillis(), 3, new DateTime(2009, 6, 15, 12, 30, 0, 0).getMillis(), 400)) < 0, is(true));
+		}
+		
+		@Test
+		public void itSortsAfterTxactionsPostedBeforeTheDate() throws Exception {
+			assertThat(cursor.compareTo(new TxactionCursor(date.getMillis() - 1, 0, 0L, 1)) > 0, is(true));
+		}
+	}
+	
+	public static class Parsing_A_Malformed_Cursor {
+		@Test
+		public void itThrowsAnIllegalArgumentException() throws Exception {
+			for (String malformed : new String[] { "", "1.2.3", "1.2.3.4.5", "1.2.3.#" }) {
+				try {
+					TxactionCursor.parse(malformed);
+					fail("should have thrown an IllegalArgumentException for " + malformed + " but didn't");
+				} catch (IllegalArgumentException e) {
+					assertThat(e.getMessage(), is("not a valid cursor"));
+				}
+			}
+		}
+	}
+	
+	public static class Comparing_Cursors {
+		private TxactionCursor cursor(long datePosted, int sequence, long createdAt, int id) {
+			return new TxactionCursor(datePosted, sequence, createdAt, id);
+		}
+		
+		@Test
+		public void itOrdersThemChronologically() throws Exception {
+			assertThat(cursor(1, 9, 9, 9).compareTo(cursor(2, 0, 0, 0)), is(-1));
+			assertThat(cursor(1, 2, 0, 0).compareTo(cursor(1, 1, 9, 9)), is(-1));
+			assertThat(cursor(1, 1, 1, 9).compareTo(cursor(1, 1, 2, 0)), is(-1));
+			assertThat(cursor(1, 1, 1, 1).compareTo(cursor(1, 1, 1, 2)), is(-1));
+			assertThat(cursor(1, 1, 1, 2).compareTo(cursor(1, 1, 1, 1)), is(1));
+			assertThat(cursor(1, 1, 1, 1).compareTo(cursor(1, 1, 1, 1)), is(0));
+		}
+	}
+}
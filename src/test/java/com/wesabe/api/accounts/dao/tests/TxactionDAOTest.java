@@ -4,12 +4,20 @@ import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.math.BigDecimal;
+import java.util.Currency;
 import java.util.List;
+import java.util.Set;
 
 import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.type.Type;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
@@ -17,10 +25,20 @@ import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.inject.Provider;
+import com.wesabe.api.accounts.dao.BalanceCheckpoint;
+import com.wesabe.api.accounts.dao.ScrollableTxactions;
+import com.wesabe.api.accounts.dao.TxactionCursor;
 import com.wesabe.api.accounts.dao.TxactionDAO;
+import com.wesabe.api.accounts.dao.TxactionFilter;
 import com.wesabe.api.accounts.entities.Account;
+import com.wesabe.api.accounts.entities.Tag;
 import com.wesabe.api.accounts.entities.Txaction;
+import com.wesabe.api.tests.util.HibernateHelper;
+import com.wesabe.api.tests.util.InjectionHelper;
 
 @RunWith(Enclosed.class)
 public class TxactionDAOTest {
@@ -39,11 +57,15 @@ public class TxactionDAOTest {
 			
 			this.query = mock(Query.class);
 			when(query.setParameter(Mockito.anyString(), Mockito.anyObject())).thenReturn(query);
+			when(query.setParameter(Mockito.anyString(), Mockito.anyObject(), Mockito.any(Type.class))).thenReturn(query);
 			when(query.setParameterList(Mockito.anyString(), Mockito.anyCollection())).thenReturn(query);
+			when(query.setMaxResults(Mockito.anyInt())).thenReturn(query);
+			when(query.setParameter(Mockito.anyString(), Mockito.anyInt())).thenReturn(query);
 			when(query.list()).thenReturn(ImmutableList.of(txaction));
 			
 			this.session = mock(Session.class);
 			when(session.getNamedQuery(Mockito.anyString())).thenReturn(query);
+			when(session.createQuery(Mockito.anyString())).thenReturn(query);
 			
 			this.dao = new TxactionDAO(new Provider<Session>() {
 				@Override
@@ -219,4 +241,565 @@ public class TxactionDAOTest {
 			assertThat(dao.findTxactionsInDateRange(ImmutableList.of(account), interval), is((List<Txaction>) ImmutableList.of(txaction)));
 		}
 	}
+	
+	public static class Selecting_Filtered_Txactions_In_A_Set_Of_Accounts extends Context {
+		private TxactionFilter filter;
+		
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			this.filter = new TxactionFilter();
+		}
+		
+		@Test
+		public void itReturnsAnEmptyListIfThereAreNoAccounts() throws Exception {
+			assertThat(dao.findTxactions(ImmutableList.<Account>of(), filter).isEmpty(), is(true));
+			
+			verify(session, never()).createQuery(Mockito.anyString());
+		}
+		
+		@Test
+		public void itExcludesHiddenTransactionsAndKeepsTheChronologicalOrder() throws Exception {
+			dao.findTxactions(ImmutableList.of(account), filter);
+			
+			verify(session).createQuery(
+					"SELECT t FROM Txaction t" +
+					" LEFT OUTER JOIN FETCH t.merchant AS m" +
+					" LEFT OUTER JOIN FETCH t.transferTxaction AS tt" +
+					" LEFT OUTER JOIN FETCH tt.merchant" +
+					" WHERE t.account IN (:accounts) AND t.status NOT IN (:hiddenStatuses)" +
+					" ORDER BY t.datePosted ASC, t.sequence DESC, t.createdAt ASC"
+			);
+			verify(query).setParameterList("accounts", ImmutableList.of(account));
+			verify(query).setParameterList("hiddenStatuses", ImmutableList.of(1, 5));
+		}
+		
+		@Test
+		public void itScopesTheQueryToTheDates() throws Exception {
+			final DateTime startDate = new DateTime(2009, 6, 1, 0, 0, 0, 0);
+			final DateTime endDate = new DateTime(2009, 7, 1, 0, 0, 0, 0);
+			
+			dao.findTxactions(ImmutableList.of(account), filter.setStartDate(startDate).setEndDate(endDate));
+			
+			verify(session).createQuery(Mockito.contains(" AND t.datePosted >= :startDate AND t.datePosted < :endDate"));
+			verify(query).setParameter("startDate", startDate);
+			verify(query).setParameter("endDate", endDate);
+		}
+		
+		@Test
+		public void itScopesTheQueryToTheAmount() throws Exception {
+			dao.findTxactions(ImmutableList.of(account), filter.setAmount(new BigDecimal("-20.00")));
+			
+			verify(session).createQuery(Mockito.contains(" AND t.amount = :amount"));
+			verify(query).setParameter("amount", new BigDecimal("-20.00"));
+		}
+		
+		@Test
+		public void itScopesTheQueryToTheMerchants() throws Exception {
+			dao.findTxactions(ImmutableList.of(account), filter.setMerchantNames(ImmutableSet.of("Starbucks")));
+			
+			verify(session).createQuery(Mockito.contains(" AND m.name IN (:merchantNames)"));
+			verify(query).setParameterList("merchantNames", ImmutableSet.of("Starbucks"));
+		}
+		
+		@Test
+		public void itScopesTheQueryToUneditedTransactions() throws Exception {
+			dao.findTxactions(ImmutableList.of(account), filter.setUnedited(true));
+			
+			verify(session).createQuery(Mockito.contains(" AND (m IS NULL OR (t.tagged = false AND t.transferTxaction IS NULL))"));
+		}
+		
+		@Test
+		public void itReturnsAListOfTransactionsInTheAccounts() throws Exception {
+			assertThat(dao.findTxactions(ImmutableList.of(account), filter), is((List<Txaction>) ImmutableList.of(txaction)));
+		}
+	}
+	
+	public static class Selecting_Txactions_With_A_Set_Of_Tags extends Context {
+		private Query tagNameQuery;
+		private TxactionFilter filter;
+		
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			
+			this.tagNameQuery = mock(Query.class);
+			when(tagNameQuery.setParameterList(Mockito.anyString(), Mockito.anyCollection())).thenReturn(tagNameQuery);
+			when(tagNameQuery.list()).thenReturn(ImmutableList.of("Food", "foods:12.00", "rent"));
+			when(session.getNamedQuery("com.wesabe.api.accounts.TaggedAmount.findTagNamesInAccounts")).thenReturn(tagNameQuery);
+			
+			this.filter = new TxactionFilter().setTags(ImmutableSet.of(new Tag("food")));
+		}
+		
+		@Test
+		public void itLooksUpTheTagNamesUsedInTheAccounts() throws Exception {
+			dao.findTxactions(ImmutableList.of(account), filter);
+			
+			verify(tagNameQuery).setParameterList("accounts", ImmutableList.of(account));
+		}
+		
+		@Test
+		public void itScopesTheQueryToEveryTagNameEqualToTheTags() throws Exception {
+			dao.findTxactions(ImmutableList.of(account), filter);
+			
+			verify(session).createQuery(Mockito.contains(" AND t.id IN (SELECT ta.txaction.id FROM TaggedAmount ta WHERE ta.tagName IN (:tagNames))"));
+			verify(query).setParameterList("tagNames", ImmutableSet.of("Food", "foods:12.00"));
+		}
+		
+		@Test
+		public void itReturnsAnEmptyListIfNoTagNamesMatch() throws Exception {
+			filter.setTags(ImmutableSet.of(new Tag("travel")));
+			
+			assertThat(dao.findTxactions(ImmutableList.of(account), filter).isEmpty(), is(true));
+			
+			verify(session, never()).createQuery(Mockito.anyString());
+		}
+	}
+	
+	public static class Selecting_Txactions_Matching_A_Query extends Context {
+		private Query tagNameQuery;
+		private TxactionFilter filter;
+		
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			
+			this.tagNameQuery = mock(Query.class);
+			when(tagNameQuery.setParameterList(Mockito.anyString(), Mockito.anyCollection())).thenReturn(tagNameQuery);
+			when(tagNameQuery.list()).thenReturn(ImmutableList.of("Food", "foods:12.00", "fast food", "rent"));
+			when(session.getNamedQuery("com.wesabe.api.accounts.TaggedAmount.findTagNamesInAccounts")).thenReturn(tagNameQuery);
+			
+			this.filter = new TxactionFilter().setQuery("FOO");
+		}
+		
+		@Test
+		public void itScopesTheQueryToTransactionsWhoseTextContainsTheQuery() throws Exception {
+			dao.findTxactions(ImmutableList.of(account), filter);
+			
+			verify(session).createQuery(Mockito.contains(
+					" AND (LOWER(m.name) LIKE :query ESCAPE '!'" +
+					" OR LOWER(t.filteredName) LIKE :query ESCAPE '!'" +
+					" OR LOWER(t.note) LIKE :query ESCAPE '!'" +
+					" OR t.id IN (SELECT ta.txaction.id FROM TaggedAmount ta WHERE ta.tagName IN (:queryTagNames)))"
+			));
+			verify(query).setParameter("query", "%foo%");
+		}
+		
+		@Test
+		public void itScopesTheQueryToEveryTagNameContainingTheQuery() throws Exception {
+			dao.findTxactions(ImmutableList.of(account), filter);
+			
+			verify(query).setParameterList("queryTagNames", ImmutableSet.of("Food", "foods:12.00", "fast food"));
+		}
+		
+		@Test
+		public void itEscapesWildcardsInTheQuery() throws Exception {
+			dao.findTxactions(ImmutableList.of(account), filter.setQuery("100%_!"));
+			
+			verify(query).setParameter("query", "%100!%!_!!%");
+		}
+		
+		@Test
+		public void itDoesNotMatchTagsIfNoTagNamesContainTheQuery() throws Exception {
+			dao.findTxactions(ImmutableList.of(account), filter.setQuery("Chevron"));
+			
+			verify(session).createQuery(Mockito.contains(" OR LOWER(t.note) LIKE :query ESCAPE '!') ORDER BY"));
+			verify(query, never()).setParameterList(Mockito.eq("queryTagNames"), Mockito.anyCollection());
+		}
+	}
+	
+	public static class Selecting_A_Page_Of_Txactions_After_A_Cursor extends Context {
+		private TxactionFilter filter;
+		private TxactionCursor cursor;
+		
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			this.filter = new TxactionFilter();
+			this.cursor = new TxactionCursor(new DateTime(2009, 6, 14, 0, 0, 0, 0).getMillis(), 3, new DateTime(2009, 6, 15, 0, 0, 0, 0).getMillis(), 400);
+		}
+		
+		@Test
+		public void itReturnsAnEmptyListIfThereAreNoAccounts() throws Exception {
+			assertThat(dao.findTxactionsAfterCursor(ImmutableList.<Account>of(), filter, cursor, 50).isEmpty(), is(true));
+		}
+		
+		@Test
+		public void itOrdersTheTxactionsNewestFirstByTheFullSortKey() throws Exception {
+			dao.findTxactionsAfterCursor(ImmutableList.of(account), filter, null, 50);
+			
+			verify(session).createQuery(
+					"SELECT t FROM Txaction t" +
+					" LEFT OUTER JOIN FETCH t.merchant AS m" +
+					" LEFT OUTER JOIN FETCH t.transferTxaction AS tt" +
+					" LEFT OUTER JOIN FETCH tt.merchant" +
+					" WHERE t.account IN (:accounts) AND t.status NOT IN (:hiddenStatuses)" +
+					" AND t.datePosted IS NOT NULL" +
+					" ORDER BY t.datePosted DESC, COALESCE(t.sequence, 0) ASC," +
+					" COALESCE(t.createdAt, :epoch) DESC, t.id DESC"
+			);
+			verify(query).setParameter(Mockito.eq("epoch"), Mockito.eq(new DateTime(0L)), Mockito.any(Type.class));
+		}
+		
+		@Test
+		public void itLoadsOneMoreThanTheLimit() throws Exception {
+			dao.findTxactionsAfterCursor(ImmutableList.of(account), filter, cursor, 50);
+			
+			verify(query).setMaxResults(51);
+		}
+		
+		@Test
+		public void itScopesTheQueryToTxactionsAfterTheCursor() throws Exception {
+			dao.findTxactionsAfterCursor(ImmutableList.of(account), filter, cursor, 50);
+			
+			verify(session).createQuery(Mockito.contains(" AND t.datePosted <= :cursorDatePosted AND (t.datePosted < :cursorDatePosted"));
+			verify(query).setParameter(Mockito.eq("cursorDatePosted"), Mockito.eq(cursor.getDatePosted()), Mockito.any(Type.class));
+			verify(query).setParameter("cursorSequence", 3);
+			verify(query).setParameter(Mockito.eq("cursorCreatedAt"), Mockito.eq(cursor.getCreatedAt()), Mockito.any(Type.class));
+			verify(query).setParameter("cursorId", 400);
+		}
+		
+		@Test
+		public void itAppliesTheFilter() throws Exception {
+			dao.findTxactionsAfterCursor(ImmutableList.of(account), filter.setAmount(new BigDecimal("-20.00")), cursor, 50);
+			
+			verify(query).setParameter("amount", new BigDecimal("-20.00"));
+		}
+		
+		@Test
+		public void itReturnsAListOfTransactionsInTheAccounts() throws Exception {
+			assertThat(dao.findTxactionsAfterCursor(ImmutableList.of(account), filter, cursor, 50), is((List<Txaction>) ImmutableList.of(txaction)));
+		}
+	}
+	
+	public static class Finding_Balance_Checkpoints_For_An_Account extends Context {
+		private ScrollableResults results;
+		
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			when(query.setReadOnly(Mockito.anyBoolean())).thenReturn(query);
+			when(query.setFetchSize(Mockito.anyInt())).thenReturn(query);
+			
+			this.results = mock(ScrollableResults.class);
+			when(results.next()).thenReturn(true, true, true, false);
+			when(results.get(0)).thenReturn(new DateTime(1000L), new DateTime(2000L), new DateTime(3000L));
+			when(results.get(1)).thenReturn(null, 2, null);
+			when(results.get(2)).thenReturn(new DateTime(10L), null, new DateTime(30L));
+			when(results.get(3)).thenReturn(1, 2, 3);
+			when(results.get(4)).thenReturn(new BigDecimal("10.00"), new BigDecimal("-2.50"), new BigDecimal("4.00"));
+			when(query.scroll(ScrollMode.FORWARD_ONLY)).thenReturn(results);
+		}
+		
+		@Test
+		public void itScrollsThroughTheVisibleTxactionsInTheAccountOldestFirst() throws Exception {
+			dao.findBalanceCheckpoints(account, 2);
+			
+			verify(session).createQuery(
+					"SELECT t.datePosted, t.sequence, t.createdAt, t.id, t.amount FROM Txaction t" +
+					" WHERE t.account = :account AND t.status NOT IN (:hiddenStatuses)" +
+					" AND t.datePosted IS NOT NULL" +
+					" ORDER BY t.datePosted ASC, COALESCE(t.sequence, 0) DESC," +
+					" COALESCE(t.createdAt, :epoch) ASC, t.id ASC"
+			);
+			verify(query).setParameter("account", account);
+			verify(query).scroll(ScrollMode.FORWARD_ONLY);
+		}
+		
+		@Test
+		public void itReturnsACheckpointEveryIntervalAndAtTheNewestTxaction() throws Exception {
+			assertThat(dao.findBalanceCheckpoints(account, 2), is((List<BalanceCheckpoint>) ImmutableList.of(
+					new BalanceCheckpoint(new TxactionCursor(2000L, 2, 0L, 2), new BigDecimal("7.50")),
+					new BalanceCheckpoint(new TxactionCursor(3000L, 0, 30L, 3), new BigDecimal("11.50"))
+			)));
+		}
+		
+		@Test
+		public void itClosesTheResults() throws Exception {
+			dao.findBalanceCheckpoints(account, 2);
+			
+			verify(results).close();
+		}
+	}
+	
+	public static class Scrolling_Through_All_Txactions_In_A_Set_Of_Accounts extends Context {
+		private ScrollableResults results;
+		
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			when(query.setReadOnly(Mockito.anyBoolean())).thenReturn(query);
+			when(query.setFetchSize(Mockito.anyInt())).thenReturn(query);
+			
+			this.results = mock(ScrollableResults.class);
+			when(results.next()).thenReturn(true, false);
+			when(results.get(0)).thenReturn(txaction);
+			when(query.scroll(ScrollMode.FORWARD_ONLY)).thenReturn(results);
+		}
+		
+		@Test
+		public void itScrollsThroughTheTxactionsInTheAccounts() throws Exception {
+			final ScrollableTxactions txactions = dao.scrollTxactions(ImmutableList.of(account));
+			
+			verify(session).getNamedQuery("com.wesabe.api.accounts.Txaction.findInAccounts");
+			verify(query).setParameterList("accounts", ImmutableList.of(account));
+			verify(query).setReadOnly(true);
+			verify(query).setFetchSize(200);
+			verify(query).scroll(ScrollMode.FORWARD_ONLY);
+			
+			assertThat(ImmutableList.copyOf(txactions), is(ImmutableList.of(txaction)));
+		}
+		
+		@Test
+		public void itDoesNotQueryTheDatabaseForAnEmptySetOfAccounts() throws Exception {
+			final ScrollableTxactions txactions = dao.scrollTxactions(ImmutableList.<Account>of());
+			
+			assertThat(txactions.hasNext(), is(false));
+			verify(session, never()).getNamedQuery(Mockito.anyString());
+		}
+	}
+	
+	public static class Scrolling_Through_The_Amounts_Posted_In_A_Set_Of_Accounts extends Context {
+		private ScrollableResults results;
+		private Interval dateRange;
+		
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			when(query.setReadOnly(Mockito.anyBoolean())).thenReturn(query);
+			when(query.setFetchSize(Mockito.anyInt())).thenReturn(query);
+			
+			this.results = mock(ScrollableResults.class);
+			when(query.scroll(ScrollMode.FORWARD_ONLY)).thenReturn(results);
+			
+			this.dateRange = new Interval(new DateTime(2000, 1, 1, 0, 0, 0, 0), new DateTime(2010, 1, 1, 0, 0, 0, 0));
+		}
+		
+		@Test
+		public void itScrollsThroughTheAmountsNewestFirst() throws Exception {
+			assertThat(dao.scrollPostedAmounts(ImmutableList.of(account), dateRange), is(results));
+			
+			verify(session).createQuery(
+					"SELECT t.account.id, t.datePosted, t.amount FROM Txaction t" +
+					" WHERE t.account IN (:accounts) AND t.status NOT IN (:hiddenStatuses)" +
+					" AND t.datePosted >= :startDate AND t.datePosted < :endDate" +
+					" ORDER BY t.datePosted DESC");
+			verify(query).setParameterList("accounts", ImmutableList.of(account));
+			verify(query).setParameterList("hiddenStatuses", ImmutableList.of(1, 5));
+			verify(query).setParameter("startDate", dateRange.getStart());
+			verify(query).setParameter("endDate", dateRange.getEnd());
+			verify(query).setReadOnly(true);
+			verify(query).scroll(ScrollMode.FORWARD_ONLY);
+		}
+		
+		@Test
+		public void itNeverLoadsTheTxactions() throws Exception {
+			dao.scrollPostedAmounts(ImmutableList.of(account), dateRange);
+			
+			verify(query, never()).list();
+		}
+	}
+	
+	public static class Prefetching_A_Page_Of_Txactions extends Context {
+		private List<Txaction> page;
+		private Txaction transfer;
+		
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			this.transfer = mock(Txaction.class);
+			when(txaction.getTransferTxaction()).thenReturn(transfer);
+			this.page = Lists.newArrayList(txaction);
+			for (int i = 1; i < 500; i++) {
+				page.add(mock(Txaction.class));
+			}
+		}
+		
+		@Test
+		public void itLoadsTaggedAmountsAndAttachmentsForTheWholePageInTwoQueries() throws Exception {
+			dao.prefetch(page);
+			
+			verify(session).getNamedQuery("com.wesabe.api.accounts.Txaction.fetchTaggedAmounts");
+			verify(session).getNamedQuery("com.wesabe.api.accounts.Txaction.fetchAttachments");
+			verify(session, never()).createQuery(Mockito.anyString());
+			verify(query, times(2)).list();
+		}
+		
+		@Test
+		public void itTakesAsManyQueriesForASmallPageAsForALargeOne() throws Exception {
+			dao.prefetch(page.subList(0, 5));
+			
+			verify(query, times(2)).list();
+		}
+		
+		@Test
+		public void itIncludesThePairedTransfers() throws Exception {
+			dao.prefetch(page);
+			
+			final Set<Txaction> txactions = Sets.newLinkedHashSet(page);
+			txactions.add(transfer);
+			verify(query, times(2)).setParameterList("txactions", txactions);
+		}
+		
+		@Test
+		public void itDoesNotQueryTheDatabaseForAnEmptyPage() throws Exception {
+			dao.prefetch(ImmutableList.<Txaction>of());
+			
+			verify(session, never()).getNamedQuery(Mockito.anyString());
+		}
+	}
+	
+	public static class Summing_The_Amounts_Between_Two_Cursors extends Context {
+		private TxactionCursor after, before;
+		
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			this.after = new TxactionCursor(1000L, 0, 0L, 1);
+			this.before = new TxactionCursor(2000L, 0, 0L, 2);
+			when(query.uniqueResult()).thenReturn(new BigDecimal("12.00"));
+		}
+		
+		@Test
+		public void itScopesTheQueryToTheCursors() throws Exception {
+			dao.sumAmountsBetween(account, after, before);
+			
+			verify(session).createQuery(Mockito.startsWith(
+					"SELECT SUM(t.amount) FROM Txaction t" +
+					" WHERE t.account = :account AND t.status NOT IN (:hiddenStatuses)" +
+					" AND t.datePosted IS NOT NULL" +
+					" AND t.datePosted >= :afterDatePosted AND (t.datePosted > :afterDatePosted"
+			));
+			verify(session).createQuery(Mockito.contains(" AND t.datePosted <= :beforeDatePosted AND (t.datePosted < :beforeDatePosted"));
+			verify(query).setParameter("afterId", 1);
+			verify(query).setParameter("beforeId", 2);
+		}
+		
+		@Test
+		public void itReturnsTheSum() throws Exception {
+			assertThat(dao.sumAmountsBetween(account, after, before), is(new BigDecimal("12.00")));
+		}
+		
+		@Test
+		public void itReturnsZeroIfThereAreNoTxactions() throws Exception {
+			when(query.uniqueResult()).thenReturn(null);
+			
+			assertThat(dao.sumAmountsBetween(account, null, null), is(BigDecimal.ZERO));
+			verify(session).createQuery(Mockito.endsWith(" AND t.datePosted IS NOT NULL"));
+		}
+	}
+	
+	private static abstract class DatabaseContext {
+		protected SessionFactory sessionFactory;
+		protected Session session;
+		protected Account account;
+		protected TxactionDAO dao;
+		
+		public void setup() throws Exception {
+			this.sessionFactory = HibernateHelper.buildInMemorySessionFactory(getClass().getSimpleName());
+			this.session = sessionFactory.openSession();
+			session.beginTransaction();
+			
+			this.account = new Account("Checking", Currency.getInstance("USD"));
+			account.setAccountKey("abc123");
+			session.save(account);
+			
+			this.dao = new TxactionDAO(new Provider<Session>() {
+				@Override
+				public Session get() {
+					return session;
+				}
+			});
+		}
+		
+		@After
+		public void teardown() throws Exception {
+			session.getTransaction().rollback();
+			session.close();
+			sessionFactory.close();
+		}
+		
+		protected Txaction save(String amount, DateTime datePosted, DateTime createdAt) throws Exception {
+			final Txaction txaction = new Txaction(account, new BigDecimal(amount), datePosted);
+			InjectionHelper.inject(Txaction.class, txaction, "createdAt", createdAt);
+			session.save(txaction);
+			return txaction;
+		}
+	}
+	
+	public static class Selecting_A_Page_Of_Txactions_From_A_Database extends DatabaseContext {
+		private Txaction first, second, third, fourth;
+		
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			this.first = save("-1.00", new DateTime(2009, 6, 14, 0, 0, 0, 0), null);
+			this.second = save("-2.00", new DateTime(2009, 6, 15, 0, 0, 0, 0), null);
+			this.third = save("-3.00", new DateTime(2009, 6, 15, 0, 0, 0, 0), new DateTime(2009, 6, 15, 12, 0, 0, 0));
+			this.fourth = save("-4.00", new DateTime(2009, 6, 16, 0, 0, 0, 0), new DateTime(2009, 6, 16, 12, 0, 0, 0));
+			session.flush();
+		}
+		
+		@Test
+		public void itReturnsTheNewestTxactionsFirst() throws Exception {
+			assertThat(dao.findTxactionsAfterCursor(ImmutableList.of(account), new TxactionFilter(), null, 2),
+					is((List<Txaction>) ImmutableList.of(fourth, third, second)));
+		}
+		
+		@Test
+		public void itReturnsTheTxactionsAfterTheCursor() throws Exception {
+			assertThat(dao.findTxactionsAfterCursor(ImmutableList.of(account), new TxactionFilter(), TxactionCursor.of(third), 2),
+					is((List<Txaction>) ImmutableList.of(second, first)));
+		}
+		
+		@Test
+		public void itOrdersTxactionsWithoutACreationDateAfterThoseWithOne() throws Exception {
+			assertThat(dao.findTxactionsAfterCursor(ImmutableList.of(account), new TxactionFilter(), TxactionCursor.of(second), 2),
+					is((List<Txaction>) ImmutableList.of(first)));
+		}
+	}
+	
+	public static class Finding_Balance_Checkpoints_In_A_Database extends DatabaseContext {
+		private Txaction first, second, third;
+		
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			this.first = save("10.00", new DateTime(2009, 6, 14, 0, 0, 0, 0), null);
+			this.second = save("-2.00", new DateTime(2009, 6, 15, 0, 0, 0, 0), new DateTime(2009, 6, 15, 12, 0, 0, 0));
+			this.third = save("-3.00", new DateTime(2009, 6, 15, 0, 0, 0, 0), null);
+			session.flush();
+		}
+		
+		@Test
+		public void itReturnsTheRunningSumsInChronologicalOrder() throws Exception {
+			assertThat(dao.findBalanceCheckpoints(account, 2), is((List<BalanceCheckpoint>) ImmutableList.of(
+					new BalanceCheckpoint(TxactionCursor.of(third), new BigDecimal("7.00")),
+					new BalanceCheckpoint(TxactionCursor.of(second), new BigDecimal("5.00"))
+			)));
+		}
+		
+		@Test
+		public void itSumsTheAmountsBetweenTwoCheckpoints() throws Exception {
+			assertThat(dao.sumAmountsBetween(account, TxactionCursor.of(first), TxactionCursor.of(second)),
+					is(new BigDecimal("-3.00")));
+		}
+		
+		@Test
+		public void itSumsTheAmountsAfterACheckpoint() throws Exception {
+			assertThat(dao.sumAmountsBetween(account, TxactionCursor.of(third), null),
+					is(new BigDecimal("-2.00")));
+		}
+	}
 }
@@ -19,6 +19,7 @@ import com.google.common.collect.Lists;
 import com.wesabe.api.accounts.entities.Account;
 import com.wesabe.api.accounts.entities.AccountGroup;
 import com.wesabe.api.accounts.entities.AccountList;
+import com.wesabe.api.accounts.entities.AccountListSummary;
 import com.wesabe.api.accounts.entities.AccountStatus;
 import com.wesabe.api.accounts.entities.AccountType;
 import com.wesabe.api.util.money.CurrencyExchangeRateMap;
@@ -120,4 +121,69 @@ public class AccountListTest {
 			);
 		}
 	}
+	
+	public static class Summarizing_Accounts {
+		private Account checking = new Account("Checking", USD);
+		private Account otherChecking = new Account("Other Checking", USD);
+		private Account cash = new Account("Cash", USD);
+		private Account manual = new Account("Manual", EUR);
+		private Account oldChecking = new Account("Old Checking", USD);
+		private CurrencyExchangeRateMap exchangeRates = new CurrencyExchangeRateMap();
+		private AccountListSummary summary;
+		
+		@Before
+		public void setup() throws Exception {
+			inject(Account.class, checking, "balance", decimal("300.12"));
+			checking.setAccountType(AccountType.CHECKING);
+			
+			inject(Account.class, otherChecking, "balance", decimal("100.00"));
+			otherChecking.setAccountType(AccountType.CHECKING);
+			
+			cash.setAccountType(AccountType.CASH);
+			
+			inject(Account.class, manual, "balance", decimal("254.19"));
+			manual.setAccountType(AccountType.MANUAL);
+			
+			inject(Account.class, oldChecking, "balance", decimal("40.00"));
+			oldChecking.setAccountType(AccountType.CHECKING);
+			oldChecking.setStatus(AccountStatus.ARCHIVED);
+			
+			exchangeRates.addExchangeRate(EUR, USD, new DateTime(), decimal("0.79"));
+			
+			this.summary = new AccountList(checking, otherChecking, cash, manual, oldChecking)
+								.summarize(USD, exchangeRates);
+		}
+		
+		@Test
+		public void itSumsTheActiveAccountsIntoASingleTotal() throws Exception {
+			assertEquals(money("600.93", USD), summary.getTotal());
+		}
+		
+		@Test
+		public void itSumsTheActiveAccountsOfEachGroup() throws Exception {
+			assertEquals(money("400.12", USD), summary.getTotal(new AccountGroup("Checking", "checking", new AccountList())));
+			assertEquals(money("200.81", USD), summary.getTotal(new AccountGroup("Cash", "cash", new AccountList())));
+		}
+		
+		@Test
+		public void itHasAZeroTotalForGroupsOfArchivedAccountsWithBalances() throws Exception {
+			assertEquals(money("0.00", USD), summary.getTotal(new AccountGroup("Archived", "archived", new AccountList())));
+		}
+		
+		@Test
+		public void itHasNoTotalForGroupsWithoutBalances() throws Exception {
+			final AccountListSummary cashSummary = new AccountList(cash).summarize(USD, exchangeRates);
+			
+			assertNull(cashSummary.getTotal(new AccountGroup("Cash", "cash", new AccountList())));
+			assertEquals(money("0.00", USD), cashSummary.getTotal());
+		}
+		
+		@Test
+		public void itMatchesTheTotalOfEachGroupsAccounts() throws Exception {
+			final AccountList accounts = new AccountList(checking, otherChecking, cash, manual);
+			for (AccountGroup group : accounts.getAccountGroups()) {
+				assertEquals(group.getAccounts().getTotal(USD, exchangeRates), summary.getTotal(group));
+			}
+		}
+	}
 }
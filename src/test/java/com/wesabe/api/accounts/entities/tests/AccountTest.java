@@ -7,6 +7,7 @@ import static com.wesabe.api.tests.util.InjectionHelper.*;
 import static com.wesabe.api.tests.util.MoneyHelper.*;
 import static com.wesabe.api.tests.util.NumberHelper.*;
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
 
 import java.util.Set;
 
@@ -296,6 +297,34 @@ public class AccountTest {
 		}
 	}
 	
+	public static class An_Account_With_A_Projected_Balance {
+		private Account account;
+		private Set<Txaction> txactions;
+		
+		@Before
+		@SuppressWarnings("unchecked")
+		public void setup() throws Exception {
+			this.account = Account.ofType(AccountType.CHECKING);
+			this.txactions = mock(Set.class);
+			inject(Account.class, account, "txactions", txactions);
+			account.setCachedBalance(decimal("123.45"));
+		}
+		
+		@Test
+		public void itHasTheProjectedBalance() throws Exception {
+			assertTrue(account.hasBalance());
+			assertEquals(money("123.45", USD), account.getBalance());
+		}
+		
+		@Test
+		public void itDoesNotLoadItsTransactions() throws Exception {
+			account.hasBalance();
+			account.getBalance();
+			
+			verifyZeroInteractions(txactions);
+		}
+	}
+	
 	public static class A_Manual_Account {
 		private static Account account;
 		
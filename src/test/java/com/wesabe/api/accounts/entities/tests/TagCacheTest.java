@@ -0,0 +1,104 @@
+package com.wesabe.api.accounts.entities.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.wesabe.api.accounts.entities.Tag;
+import com.wesabe.api.accounts.entities.TagCache;
+
+@RunWith(Enclosed.class)
+public class TagCacheTest {
+	private static abstract class Context {
+		protected TagCache cache;
+		
+		public void setup() throws Exception {
+			this.cache = new TagCache(3);
+		}
+	}
+	
+	public static class Getting_A_Tag extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+		}
+		
+		@Test
+		public void itReturnsATagForTheName() throws Exception {
+			assertEquals(new Tag("foods"), cache.get("food"));
+			assertEquals("food", cache.get("food").toString());
+		}
+		
+		@Test
+		public void itReturnsTheSameTagForTheSameName() throws Exception {
+			assertSame(cache.get("food"), cache.get("food"));
+		}
+		
+		@Test
+		public void itReturnsDifferentTagsForDifferentNames() throws Exception {
+			final Tag food = cache.get("food");
+			final Tag foods = cache.get("foods");
+			
+			assertNotSame(food, foods);
+			assertEquals("foods", foods.toString());
+			assertEquals(food, foods);
+		}
+		
+		@Test
+		public void itCountsHitsAndMisses() throws Exception {
+			assertEquals(0.0, cache.getHitRate(), 0.0001);
+			
+			cache.get("food");
+			cache.get("food");
+			cache.get("food");
+			cache.get("rent");
+			
+			assertEquals(2, cache.getMissCount());
+			assertEquals(2, cache.getHitCount());
+			assertEquals(0.5, cache.getHitRate(), 0.0001);
+			assertEquals(2, cache.getSize());
+		}
+	}
+	
+	public static class Getting_More_Tags_Than_The_Cache_Holds extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			cache.get("food");
+			cache.get("rent");
+			cache.get("gas");
+		}
+		
+		@Test
+		public void itStartsOver() throws Exception {
+			assertEquals(3, cache.getSize());
+			
+			assertEquals("coffee", cache.get("coffee").toString());
+			
+			assertEquals(1, cache.getSize());
+		}
+	}
+	
+	public static class Clearing_The_Cache extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			cache.get("food");
+			cache.get("food");
+			cache.clear();
+		}
+		
+		@Test
+		public void itDiscardsTagsAndCounts() throws Exception {
+			assertEquals(0, cache.getSize());
+			assertEquals(0, cache.getHitCount());
+			assertEquals(0, cache.getMissCount());
+		}
+	}
+}
@@ -124,4 +124,18 @@ public class TagTest {
 			assertEquals(tag.hashCode(), other.hashCode());
 		}
 	}
+	
+	public static class A_Cached_Tag {
+		@Test
+		public void itIsTheSameAsABuiltTag() throws Exception {
+			final Tag tag = Tag.of("Cars: 40");
+			assertEquals(new Tag("Cars: 40"), tag);
+			assertEquals("Cars", tag.toString());
+		}
+		
+		@Test
+		public void itIsReused() throws Exception {
+			assertSame(Tag.of("cars"), Tag.of("cars"));
+		}
+	}
 }
@@ -52,6 +52,11 @@ public class TaggedAmountTest {
 		private Txaction txaction = new Txaction(account, decimal("300.00"), jun15th);
 		private TaggedAmount taggedAmount = txaction.addTag(food);
 		
+		@Test
+		public void itReusesItsTag() throws Exception {
+			assertSame(taggedAmount.getTag(), taggedAmount.getTag());
+		}
+		
 		@Test
 		public void itHasTheSameAmountAsTheTransaction() throws Exception {
 			assertEquals(txaction.getAmount(), taggedAmount.getAmount());
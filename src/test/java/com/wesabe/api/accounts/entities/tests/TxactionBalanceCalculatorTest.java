@@ -6,8 +6,10 @@ import static com.wesabe.api.tests.util.MoneyHelper.*;
 import static com.wesabe.api.tests.util.DateHelper.*;
 import static com.wesabe.api.tests.util.InjectionHelper.*;
 
+import java.math.BigDecimal;
 import java.util.Currency;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.Assert.*;
@@ -18,6 +20,7 @@ import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.wesabe.api.accounts.entities.Account;
@@ -230,4 +233,81 @@ public class TxactionBalanceCalculatorTest {
 			// adjust savings balance: 800 EUR - (100 EUR) => 700 EUR => 560 USD (total 260)
 		}
 	}
+	
+	public static class Calculating_Balances_From_Starting_Balances {
+		private Account account = Account.ofType(AccountType.CHECKING);
+		private Txaction newer = new Txaction(account, decimal("-5.00"), now().minusDays(300));
+		private Txaction older = new Txaction(account, decimal("-10.00"), now().minusDays(301));
+		private CurrencyExchangeRateMap exchangeRates = new CurrencyExchangeRateMap();
+		private TxactionBalanceCalculator calculator;
+		
+		@Before
+		public void setup() throws Exception {
+			account.setCurrency(USD);
+			inject(Account.class, account, "accountBalances", Sets.newHashSet(new AccountBalance(account, decimal("100.00"), now())));
+			inject(Account.class, account, "txactions", Sets.newHashSet(older, newer));
+			
+			final Map<Account, AccountBalance> startingBalances = ImmutableMap.of(
+					account, new AccountBalance(account, decimal("40.00"), now().minusDays(300))
+			);
+			this.calculator = new TxactionBalanceCalculator(startingBalances, Lists.newArrayList(older, newer), USD, exchangeRates);
+		}
+		
+		@Test
+		public void itUsesTheStartingBalanceInsteadOfTheAccountBalance() throws Exception {
+			assertEquals(money("40.00", USD), calculator.getBalance(newer));
+			assertEquals(money("45.00", USD), calculator.getBalance(older));
+		}
+	}
+	
+	public static class Converting_Balances_From_Many_Accounts {
+		private List<Account> accounts = Lists.newArrayList();
+		private List<Txaction> txactions = Lists.newArrayList();
+		private int conversions = 0;
+		private CurrencyExchangeRateMap exchangeRates = new CurrencyExchangeRateMap() {
+			@Override
+			public BigDecimal getExchangeRate(Currency source, Currency target, DateTime date) {
+				conversions++;
+				return super.getExchangeRate(source, target, date);
+			}
+		};
+		private TxactionBalanceCalculator calculator;
+		
+		@Before
+		public void setup() throws Exception {
+			exchangeRates.addExchangeRate(EUR, USD, now().minusDays(10), decimal("0.5"));
+			exchangeRates.addExchangeRate(EUR, USD, now(), decimal("0.8"));
+			
+			for (int i = 0; i < 5; i++) {
+				final Account account = Account.ofType(AccountType.SAVINGS);
+				account.setCurrency(EUR);
+				inject(Account.class, account, "accountBalances", Sets.newHashSet(new AccountBalance(account, decimal("100.00"), now())));
+				accounts.add(account);
+			}
+			
+			final Account account = accounts.get(0);
+			for (int i = 1; i <= 20; i++) {
+				txactions.add(new Txaction(account, decimal("1.00"), now().minusDays(i)));
+			}
+			inject(Account.class, account, "txactions", Sets.newHashSet(txactions));
+			
+			this.calculator = new TxactionBalanceCalculator(accounts, txactions, USD, exchangeRates);
+		}
+		
+		@Test
+		public void itOnlyConvertsTheBalanceOfTheAccountWhichChanged() throws Exception {
+			// one for each account's starting balance, and one per txaction
+			assertEquals(5 + 20, conversions);
+		}
+		
+		@Test
+		public void itConvertsEachChangedBalanceAtTheRateForItsNewDate() throws Exception {
+			// 500 EUR * 0.8 USD / EUR
+			assertEquals(money("400.00", USD), calculator.getBalance(txactions.get(0)));
+			// 400 EUR * 0.8 USD / EUR + 99 EUR * 0.8 USD / EUR
+			assertEquals(money("399.20", USD), calculator.getBalance(txactions.get(1)));
+			// 400 EUR * 0.8 USD / EUR + 92 EUR * 0.5 USD / EUR
+			assertEquals(money("366.00", USD), calculator.getBalance(txactions.get(8)));
+		}
+	}
 }
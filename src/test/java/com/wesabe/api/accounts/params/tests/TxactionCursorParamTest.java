@@ -0,0 +1,45 @@
+package com.wesabe.api.accounts.params.tests;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import javax.ws.rs.WebApplicationException;
+
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.wesabe.api.accounts.dao.TxactionCursor;
+import com.wesabe.api.accounts.params.TxactionCursorParam;
+
+@RunWith(Enclosed.class)
+public class TxactionCursorParamTest {
+	public static class Parsing_A_Valid_Cursor {
+		@Test
+		public void itHasAValue() throws Exception {
+			final TxactionCursor cursor = new TxactionCursor(1244937600000L, 2, 1245024000000L, 9001);
+			
+			assertThat(new TxactionCursorParam(cursor.toString()).getValue(), is(cursor));
+		}
+	}
+	
+	public static class Parsing_An_Empty_Cursor {
+		@Test
+		public void itHasNoValue() throws Exception {
+			assertThat(new TxactionCursorParam("").getValue(), is(nullValue()));
+		}
+	}
+	
+	public static class Parsing_An_Invalid_Cursor {
+		@Test
+		public void itThrowsA400BadRequestWebApplicationException() throws Exception {
+			try {
+				new TxactionCursorParam("X#H");
+				fail("should have thrown a WebApplicationException but didn't");
+			} catch (WebApplicationException e) {
+				assertEquals(400, e.getResponse().getStatus());
+				assertEquals("Invalid parameter: X#H (not a valid cursor).", e.getResponse().getEntity());
+			}
+		}
+	}
+}
@@ -6,14 +6,12 @@ import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
-import java.util.Currency;
 import java.util.Locale;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
-import org.mockito.Mockito;
 
 import com.google.common.collect.ImmutableList;
 import com.wesabe.api.accounts.entities.Account;
@@ -22,7 +20,6 @@ import com.wesabe.api.accounts.entities.AccountList;
 import com.wesabe.api.accounts.presenters.AccountGroupPresenter;
 import com.wesabe.api.accounts.presenters.AccountReferencePresenter;
 import com.wesabe.api.accounts.presenters.MoneyPresenter;
-import com.wesabe.api.util.money.CurrencyExchangeRateMap;
 import com.wesabe.xmlson.XmlsonArray;
 import com.wesabe.xmlson.XmlsonObject;
 
@@ -32,7 +29,6 @@ public class AccountGroupPresenterTest {
 		private AccountGroup group;
 		private AccountList accountList;
 		private Account account;
-		private CurrencyExchangeRateMap exchangeRateMap;
 		private MoneyPresenter moneyPresenter;
 		private AccountReferencePresenter accountReferencePresenter;
 		private AccountGroupPresenter presenter;
@@ -50,31 +46,29 @@ public class AccountGroupPresenterTest {
 			when(group.getId()).thenReturn("checking");
 			when(group.getAccounts()).thenReturn(accountList);
 			
-			this.exchangeRateMap = mock(CurrencyExchangeRateMap.class);
-			
 			this.moneyPresenter = new MoneyPresenter();
 			this.accountReferencePresenter = new AccountReferencePresenter();
 			
-			this.presenter = new AccountGroupPresenter(exchangeRateMap, moneyPresenter, accountReferencePresenter);
+			this.presenter = new AccountGroupPresenter(moneyPresenter, accountReferencePresenter);
 		}
 		
 		@Test
 		public void itHasTheGroupsName() throws Exception {
-			final XmlsonObject representation = presenter.present(group, USD, Locale.KOREA);
+			final XmlsonObject representation = presenter.present(group, null, Locale.KOREA);
 			
 			assertThat(representation.getString("name"), is("Checking"));
 		}
 		
 		@Test
 		public void itHasTheGroupsUri() throws Exception {
-			final XmlsonObject representation = presenter.present(group, USD, Locale.KOREA);
+			final XmlsonObject representation = presenter.present(group, null, Locale.KOREA);
 			
 			assertThat(representation.getString("uri"), is("/account-groups/checking"));
 		}
 		
 		@Test
 		public void itHasTheGroupsAccountsAsReferences() throws Exception {
-			final XmlsonObject representation = presenter.present(group, USD, Locale.KOREA);
+			final XmlsonObject representation = presenter.present(group, null, Locale.KOREA);
 			
 			final XmlsonArray accounts = (XmlsonArray) representation.get("accounts");
 			assertThat(accounts.getMembers().size(), is(1));
@@ -85,19 +79,14 @@ public class AccountGroupPresenterTest {
 		
 		@Test
 		public void itDoesNotListATotalIfNoAccountsHaveBalances() throws Exception {
-			when(account.hasBalance()).thenReturn(false);
-			
-			presenter.present(group, USD, Locale.KOREA);
+			final XmlsonObject representation = presenter.present(group, null, Locale.KOREA);
 			
-			verify(accountList, never()).getTotal(Mockito.any(Currency.class), Mockito.any(CurrencyExchangeRateMap.class));
+			assertThat(representation.get("total"), is(nullValue()));
 		}
 		
 		@Test
 		public void itDoesListATotalIfAnAccountHasABalance() throws Exception {
-			when(account.hasBalance()).thenReturn(true);
-			when(accountList.getTotal(USD, exchangeRateMap)).thenReturn(money("345.12", USD));
-			
-			final XmlsonObject representation = presenter.present(group, USD, Locale.KOREA);
+			final XmlsonObject representation = presenter.present(group, money("345.12", USD), Locale.KOREA);
 			
 			final XmlsonObject total = (XmlsonObject) representation.get("total");
 			assertThat(total.getString("display"), is("US$345.12"));
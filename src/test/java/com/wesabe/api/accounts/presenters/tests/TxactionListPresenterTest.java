@@ -62,5 +62,30 @@ public class TxactionListPresenterTest {
 			final XmlsonObject count = (XmlsonObject) representation.get("count");
 			assertThat(count.getInteger("total"), is(20));
 		}
+		
+		@Test
+		public void itHasNoNextCursor() throws Exception {
+			final XmlsonObject representation = presenter.present(txactions, Locale.CHINA);
+			
+			assertThat(representation.get("next-cursor"), is(nullValue()));
+		}
+		
+		@Test
+		public void itHasNoCountIfTheTotalIsUnknown() throws Exception {
+			when(txactions.getTotalCount()).thenReturn(TxactionList.UNKNOWN_COUNT);
+			
+			final XmlsonObject representation = presenter.present(txactions, Locale.CHINA);
+			
+			assertThat(representation.get("count"), is(nullValue()));
+		}
+		
+		@Test
+		public void itHasTheNextCursorIfThereIsAnotherPage() throws Exception {
+			when(txactions.getNextCursor()).thenReturn("abc.1.def.2");
+			
+			final XmlsonObject representation = presenter.present(txactions, Locale.CHINA);
+			
+			assertThat(representation.getString("next-cursor"), is("abc.1.def.2"));
+		}
 	}
 }
@@ -15,6 +15,9 @@ import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
 
 import com.wesabe.api.accounts.providers.XmlsonWriterProvider;
+import com.wesabe.xmlson.JsonFormatter;
+import com.wesabe.xmlson.XmlFormatter;
+import com.wesabe.xmlson.XmlsonArray;
 import com.wesabe.xmlson.XmlsonObject;
 
 @RunWith(Enclosed.class)
@@ -128,5 +131,44 @@ public class XmlsonWriterProviderTest {
 			assertThat(entityStream.toString()).isEqualTo("<?xml version='1.0' encoding='UTF-8'?><doc><object><awesome>true</awesome></object></doc>");
 		}
 	}
-
+	
+	public static class Outputting_A_Large_Document {
+		private XmlsonObject doc;
+		private XmlsonWriterProvider provider;
+		private Type genericType;
+		private Annotation[] annotations;
+		private MultivaluedMap<String, Object> httpHeaders;
+		
+		@Before
+		public void setup() throws Exception {
+			this.doc = new XmlsonObject("doc");
+			final XmlsonArray items = new XmlsonArray("items");
+			for (int i = 0; i < 2000; i++) {
+				items.add(new XmlsonObject("item").addProperty("name", "caf\u00e9 \u2615 #" + i));
+			}
+			doc.add(items);
+			
+			this.provider = new XmlsonWriterProvider();
+		}
+		
+		@Test
+		public void itEncodesTheWholeDocumentAsUTF8() throws Exception {
+			final ByteArrayOutputStream entityStream = new ByteArrayOutputStream();
+			provider.writeTo(doc, XmlsonObject.class, genericType, annotations, MediaType.APPLICATION_JSON_TYPE, httpHeaders, entityStream);
+			
+			assertThat(entityStream.toByteArray()).isEqualTo(new JsonFormatter().format(doc).getBytes("UTF-8"));
+		}
+		
+		@Test
+		public void itCanBeWrittenRepeatedly() throws Exception {
+			final ByteArrayOutputStream first = new ByteArrayOutputStream();
+			provider.writeTo(doc, XmlsonObject.class, genericType, annotations, MediaType.APPLICATION_XML_TYPE, httpHeaders, first);
+			
+			final ByteArrayOutputStream second = new ByteArrayOutputStream();
+			provider.writeTo(doc, XmlsonObject.class, genericType, annotations, MediaType.APPLICATION_XML_TYPE, httpHeaders, second);
+			
+			assertThat(second.toByteArray()).isEqualTo(first.toByteArray());
+			assertThat(first.toByteArray()).isEqualTo(new XmlFormatter().format(doc).getBytes("UTF-8"));
+		}
+	}
 }
@@ -116,6 +116,12 @@ public class AccountResourceTest {
 			verify(account).setName("New Name");
 			verify(accountDAO).update(account);
 		}
+		
+		@Test
+		public void itEvictsTheAccountFromTheCache() {
+			accountResource.update(user, Locale.ENGLISH, new IntegerParam("1"), "New Name", null, null);
+			verify(accountDAO).evict(account);
+		}
 	}
 	
 	public static class Updating_An_Account_Currency extends Setup {
@@ -161,6 +167,7 @@ public class AccountResourceTest {
 			accountResource.update(user, Locale.ENGLISH, new IntegerParam("1"), null, null, new BooleanParam("true"));
 			verify(account, never()).setStatus(AccountStatus.ARCHIVED);
 			verify(accountDAO, never()).update(account);
+			verify(accountDAO, never()).evict(account);
 		}
 	}
 	
@@ -5,6 +5,7 @@ import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.SecondLevelCacheStatistics;
 import org.hibernate.stat.Statistics;
 import org.junit.Before;
 import org.junit.Test;
@@ -20,6 +21,7 @@ public class HibernateStatsResourceTest {
 		private MockResourceContext context;
 		private Statistics statistics;
 		private QueryStatistics queryStats;
+		private SecondLevelCacheStatistics cacheStats;
 		private HibernateStatsResource resource;
 
 		@Before
@@ -33,9 +35,17 @@ public class HibernateStatsResourceTest {
 			when(queryStats.getExecutionMinTime()).thenReturn(4L);
 			when(queryStats.getExecutionRowCount()).thenReturn(5L);
 
+			this.cacheStats = mock(SecondLevelCacheStatistics.class);
+			when(cacheStats.getHitCount()).thenReturn(6L);
+			when(cacheStats.getMissCount()).thenReturn(7L);
+			when(cacheStats.getPutCount()).thenReturn(8L);
+			when(cacheStats.getElementCountInMemory()).thenReturn(9L);
+			
 			this.statistics = mock(Statistics.class);
 			when(statistics.getQueryStatistics("SELECT o FROM Object o")).thenReturn(queryStats);
 			when(statistics.getQueries()).thenReturn(new String[] { "SELECT o FROM Object o" });
+			when(statistics.getSecondLevelCacheStatistics("com.example.Object")).thenReturn(cacheStats);
+			when(statistics.getSecondLevelCacheRegionNames()).thenReturn(new String[] { "com.example.Object" });
 
 			when(context.getSessionFactory().getStatistics()).thenReturn(statistics);
 
@@ -79,6 +89,25 @@ public class HibernateStatsResourceTest {
 				"			<td>3</td>\n" +
 				"		</tr>\n" +
 				"	</table>\n" +
+				"	<h2>Second-Level Cache</h2>\n" +
+				"	<table style=\"width:50em; font-family: 'Consolas', monospace; text-align: right;\">\n" +
+				"		<thead>\n" +
+				"			<tr>\n" +
+				"				<th style=\"text-align: left;\">Region</th>\n" +
+				"				<th>hits</th>\n" +
+				"				<th>misses</th>\n" +
+				"				<th>puts</th>\n" +
+				"				<th>elements</th>\n" +
+				"			</tr>\n" +
+				"		</thead>\n" +
+				"		<tr>\n" +
+				"			<td style=\"text-align: left;\">com.example.Object</td>\n" +
+				"			<td>6</td>\n" +
+				"			<td>7</td>\n" +
+				"			<td>8</td>\n" +
+				"			<td>9</td>\n" +
+				"		</tr>\n" +
+				"	</table>\n" +
 				"</body>\n" +
 				"</html>"
 			));
@@ -8,9 +8,7 @@ import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 import java.util.Currency;
-import java.util.List;
 import java.util.Locale;
-import java.util.Set;
 
 import javax.ws.rs.WebApplicationException;
 
@@ -21,14 +19,12 @@ import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.wesabe.api.accounts.analytics.IntervalType;
 import com.wesabe.api.accounts.entities.Account;
 import com.wesabe.api.accounts.entities.AccountList;
 import com.wesabe.api.accounts.entities.Tag;
-import com.wesabe.api.accounts.entities.Txaction;
 import com.wesabe.api.accounts.params.CurrencyParam;
 import com.wesabe.api.accounts.params.ISODateParam;
 import com.wesabe.api.accounts.params.IntervalTypeParam;
@@ -45,9 +41,7 @@ public class NetWorthSummaryResourceTest {
 		private NetWorthSummaryResource resource;
 		private Account account;
 		private AccountList accounts;
-		private Txaction txaction, filteredTxaction;
 		private ImmutableMap<Interval, Money> summaries;
-		private List<Txaction> txactions;
 		private XmlsonObject representation;
 		
 		@SuppressWarnings("unchecked")
@@ -60,13 +54,8 @@ public class NetWorthSummaryResourceTest {
 			this.accounts = new AccountList(account);
 			when(context.getAccountDAO().findVisibleAccounts(Mockito.anyString())).thenReturn(accounts);
 			
-			this.txaction = mock(Txaction.class);
-			this.filteredTxaction = mock(Txaction.class);
-			this.txactions = ImmutableList.of(txaction, filteredTxaction);
-			when(context.getTxactionDAO().findTxactionsInDateRange(Mockito.anyCollection(), Mockito.any(Interval.class))).thenReturn(txactions);
-			
 			this.summaries = mock(ImmutableMap.class);
-			when(context.getNetWorthSummarizer().summarize(Mockito.anyCollection(), Mockito.anyCollection(), Mockito.any(Interval.class), Mockito.any(IntervalType.class), Mockito.any(Currency.class), Mockito.any(Set.class))).thenReturn(summaries);
+			when(context.getNetWorthSummarizer().summarize(Mockito.anyCollection(), Mockito.any(Interval.class), Mockito.any(IntervalType.class), Mockito.any(Currency.class))).thenReturn(summaries);
 			
 			this.representation = mock(XmlsonObject.class);
 			when(context.getNetWorthSummaryPresenter().present(Mockito.any(ImmutableMap.class), Mockito.any(Locale.class))).thenReturn(representation);
@@ -82,17 +71,17 @@ public class NetWorthSummaryResourceTest {
 		}
 		
 		@Test
-		public void itFindsAllTransactionsInTheAccounts() throws Exception {
+		public void itNeverLoadsTheTransactionsInTheAccounts() throws Exception {
 			handleGet();
 
-			verify(context.getTxactionDAO()).findTxactionsInDateRange(accounts, new Interval(date(2009, 7, 27), date(2009, 9, 7)));
+			verify(context.getTxactionDAO(), never()).findTxactionsInDateRange(Mockito.anyCollection(), Mockito.any(Interval.class));
 		}
 		
 		@Test
-		public void itSummarizesTheTxactions() throws Exception {
+		public void itSummarizesTheAccounts() throws Exception {
 			handleGet();
 			
-			verify(context.getNetWorthSummarizer()).summarize(accounts, txactions, new Interval(date(2009, 7, 27), date(2009, 9, 7)), IntervalType.WEEKLY, USD, ImmutableSet.<Tag>of());
+			verify(context.getNetWorthSummarizer()).summarize(accounts, new Interval(date(2009, 7, 27), date(2009, 9, 7)), IntervalType.WEEKLY, USD);
 		}
 		
 		@Test
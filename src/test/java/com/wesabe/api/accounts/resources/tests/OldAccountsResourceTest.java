@@ -17,14 +17,17 @@ import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.inject.internal.Lists;
 import com.wesabe.api.accounts.entities.Account;
 import com.wesabe.api.accounts.entities.AccountList;
+import com.wesabe.api.accounts.entities.AccountListSummary;
 import com.wesabe.api.accounts.entities.AccountStatus;
 import com.wesabe.api.accounts.params.BooleanParam;
 import com.wesabe.api.accounts.params.CurrencyParam;
 import com.wesabe.api.accounts.resources.OldAccountsResource;
 import com.wesabe.api.tests.util.MockResourceContext;
+import com.wesabe.api.util.money.Money;
 import com.wesabe.xmlson.XmlsonObject;
 
 @RunWith(Enclosed.class)
@@ -35,6 +38,7 @@ public class OldAccountsResourceTest {
 		protected CurrencyParam currency;
 		protected List<Account> accounts;
 		protected BooleanParam includeArchived;
+		protected AccountListSummary summary;
 		protected XmlsonObject xmlson;
 		
 		@SuppressWarnings("unchecked")
@@ -50,12 +54,22 @@ public class OldAccountsResourceTest {
 				)
 			).thenReturn(accounts);
 			
+			this.summary = new AccountListSummary(Money.zero(USD), ImmutableMap.<String, Money>of());
+			
+			when(
+				context.getAccountListSummaryCache().getSummary(
+					Mockito.anyString(),
+					Mockito.any(AccountList.class),
+					Mockito.any(Currency.class)
+				)
+			).thenReturn(summary);
+			
 			this.xmlson = mock(XmlsonObject.class);
 			
 			when(
 				context.getAccountListPresenter().present(
 					Mockito.any(AccountList.class),
-					Mockito.any(Currency.class),
+					Mockito.any(AccountListSummary.class),
 					Mockito.any(Locale.class)
 				)
 			).thenReturn(xmlson);
@@ -88,7 +102,14 @@ public class OldAccountsResourceTest {
 			
 			assertThat(representation, is(sameInstance(xmlson)));
 			
-			verify(context.getAccountListPresenter()).present(new AccountList(accounts), USD, Locale.CANADA_FRENCH);
+			verify(context.getAccountListPresenter()).present(new AccountList(accounts), summary, Locale.CANADA_FRENCH);
+		}
+		
+		@Test
+		public void itSummarizesTheAccountListInTheRequestedCurrency() throws Exception {
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, includeArchived);
+			
+			verify(context.getAccountListSummaryCache()).getSummary("0123456789", new AccountList(accounts), USD);
 		}
 	}
 	
@@ -2,12 +2,15 @@ package com.wesabe.api.accounts.resources.tests;
 
 import static com.wesabe.api.tests.util.CurrencyHelper.*;
 import static com.wesabe.api.tests.util.DateHelper.*;
+import static com.wesabe.api.tests.util.NumberHelper.*;
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
+import java.util.BitSet;
 import java.util.Currency;
+import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 
@@ -19,17 +22,20 @@ import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.wesabe.api.accounts.analytics.IntervalSummarizer;
 import com.wesabe.api.accounts.analytics.IntervalType;
 import com.wesabe.api.accounts.analytics.MonetarySummaryWithSplits;
+import com.wesabe.api.accounts.analytics.TxactionFrame;
 import com.wesabe.api.accounts.entities.Account;
 import com.wesabe.api.accounts.entities.AccountList;
 import com.wesabe.api.accounts.entities.Tag;
 import com.wesabe.api.accounts.entities.Txaction;
-import com.wesabe.api.accounts.entities.TxactionList;
 import com.wesabe.api.accounts.params.BooleanParam;
 import com.wesabe.api.accounts.params.CurrencyParam;
 import com.wesabe.api.accounts.params.ISODateParam;
@@ -55,7 +61,8 @@ public class OldIntervalSummaryResourceTest {
 		private Account account;
 		private AccountList accounts;
 		private Txaction txaction, filteredTxaction;
-		private TxactionList txactionList;
+		private TxactionFrame frame;
+		private BitSet rows;
 		private ImmutableMap<Interval, MonetarySummaryWithSplits> results;
 		private XmlsonObject representation;
 		private OldIntervalSummaryResource resource;
@@ -79,17 +86,23 @@ public class OldIntervalSummaryResourceTest {
 			this.accounts = new AccountList(account);
 			when(context.getAccountDAO().findVisibleAccounts(Mockito.anyString())).thenReturn(accounts);
 
-			this.txaction = mock(Txaction.class);
-			this.filteredTxaction = mock(Txaction.class);
+			final Account checking = new Account("Checking", USD);
+			this.txaction = new Txaction(checking, decimal("-12.00"), date(2007, 8, 1));
+			this.filteredTxaction = new Txaction(checking, decimal("-3.00"), date(2007, 8, 2));
 			when(context.getTxactionDAO().findTxactionsInDateRange(Mockito.anyCollection(), Mockito.any(Interval.class))).thenReturn(ImmutableList.of(txaction, filteredTxaction));
 			
-			this.txactionList = mock(TxactionList.class);
-			when(context.getTxactionListBuilder().build(anyList())).thenReturn(txactionList);
-			
-			when(txactionList.getTxactions()).thenReturn(ImmutableList.of(txaction));
+			this.rows = new BitSet();
+			rows.set(0);
+			when(context.getTxactionListBuilder().filter(Mockito.any(TxactionFrame.class))).thenAnswer(new Answer<BitSet>() {
+				@Override
+				public BitSet answer(InvocationOnMock invocation) throws Throwable {
+					frame = (TxactionFrame) invocation.getArguments()[0];
+					return rows;
+				}
+			});
 			
 			this.results = mock(ImmutableMap.class);
-			when(context.getIntervalSummarizer().summarize(Mockito.any(Iterable.class), Mockito.any(Interval.class), Mockito.any(IntervalType.class), Mockito.any(Currency.class), Mockito.any(Set.class))).thenReturn(results);
+			when(context.getIntervalSummarizer().summarize(Mockito.any(TxactionFrame.class), Mockito.any(BitSet.class), Mockito.any(Interval.class), Mockito.any(IntervalType.class), Mockito.any(Currency.class), Mockito.any(Set.class))).thenReturn(results);
 
 			this.representation = mock(XmlsonObject.class);
 			when(context.getIntervalSummaryPresenter().present(Mockito.any(ImmutableMap.class), Mockito.any(Locale.class))).thenReturn(representation);
@@ -135,14 +148,16 @@ public class OldIntervalSummaryResourceTest {
 			verify(context.getTxactionListBuilder()).setAccounts(accounts);
 			verify(context.getTxactionListBuilder()).setMerchantNames(merchantNames);
 			verify(context.getTxactionListBuilder()).setQuery(query);
-			verify(context.getTxactionListBuilder()).build(ImmutableList.of(txaction, filteredTxaction));
+			verify(context.getTxactionListBuilder()).filter(frame);
+			
+			assertThat(frame.getTxactions(frame.all()), is((List<Txaction>) ImmutableList.of(txaction, filteredTxaction)));
 		}
 
 		@Test
-		public void itSummarizesTheTransactions() throws Exception {
+		public void itSummarizesTheFilteredTransactions() throws Exception {
 			handleGet();
 			
-			verify(context.getIntervalSummarizer()).summarize(ImmutableList.of(txaction), new Interval(date(2007, 7, 30), date(2007, 9, 3)), IntervalType.WEEKLY, GBP, filteredTags);
+			verify(context.getIntervalSummarizer()).summarize(frame, rows, new Interval(date(2007, 7, 30), date(2007, 9, 3)), IntervalType.WEEKLY, GBP, filteredTags);
 		}
 
 		@Test
@@ -153,6 +168,64 @@ public class OldIntervalSummaryResourceTest {
 		}
 	}
 	
+	public static class Building_An_Unfiltered_Interval_Summary {
+		private MockResourceContext context;
+		private Account account;
+		private AccountList accounts;
+		private Set<Tag> ignoredTags;
+		private ImmutableMap<Interval, MonetarySummaryWithSplits> results;
+		private XmlsonObject representation;
+		private OldIntervalSummaryResource resource;
+
+		@SuppressWarnings("unchecked")
+		@Before
+		public void setup() throws Exception {
+			this.context = new MockResourceContext();
+			
+			this.account = mock(Account.class);
+			this.accounts = new AccountList(account);
+			when(context.getAccountDAO().findVisibleAccounts(Mockito.anyString())).thenReturn(accounts);
+			
+			this.ignoredTags = ImmutableSet.of(new Tag("transfer"));
+			
+			this.results = mock(ImmutableMap.class);
+			when(context.getIntervalSummaryRollup().summarize(Mockito.anyCollection(), Mockito.any(Interval.class), Mockito.any(IntervalType.class), Mockito.any(Currency.class), Mockito.any(Set.class), Mockito.any(IntervalSummarizer.class))).thenReturn(results);
+			
+			this.representation = mock(XmlsonObject.class);
+			when(context.getIntervalSummaryPresenter().present(Mockito.any(ImmutableMap.class), Mockito.any(Locale.class))).thenReturn(representation);
+			
+			this.resource = context.getInstance(OldIntervalSummaryResource.class);
+		}
+		
+		private XmlsonObject handleGet() {
+			return resource.show(context.getUser(), Locale.TAIWAN, new IntervalTypeParam("monthly"),
+					new CurrencyParam("GBP"), new ISODateParam("20070801"), new ISODateParam("20070901"),
+					new BooleanParam("false"), ImmutableSet.<UriParam>of(), ImmutableSet.<String>of(),
+					ImmutableSet.<String>of(), ignoredTags, null);
+		}
+		
+		@Test
+		public void itSummarizesTheAccountsFromTheRollup() throws Exception {
+			handleGet();
+			
+			verify(context.getIntervalSummaryRollup()).summarize(accounts, new Interval(date(2007, 8, 1), date(2007, 10, 1)), IntervalType.MONTHLY, GBP, ignoredTags, context.getIntervalSummarizer());
+		}
+		
+		@Test
+		public void itDoesNotLoadTheTransactions() throws Exception {
+			handleGet();
+			
+			verify(context.getTxactionDAO(), never()).findTxactionsInDateRange(Mockito.anyCollection(), Mockito.any(Interval.class));
+		}
+		
+		@Test
+		public void itPresentsTheSummaries() throws Exception {
+			assertThat(handleGet(), is(representation));
+			
+			verify(context.getIntervalSummaryPresenter()).present(results, Locale.TAIWAN);
+		}
+	}
+	
 	public static class Given_An_Invalid_Interval {
 		private MockResourceContext context;
 		private OldIntervalSummaryResource resource;
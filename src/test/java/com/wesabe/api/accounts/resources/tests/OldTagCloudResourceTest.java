@@ -6,6 +6,7 @@ import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 import java.util.Currency;
+import java.util.Iterator;
 import java.util.Locale;
 
 import org.junit.Before;
@@ -14,12 +15,11 @@ import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.wesabe.api.accounts.analytics.MonetarySummary;
+import com.wesabe.api.accounts.dao.ScrollableTxactions;
 import com.wesabe.api.accounts.entities.AccountList;
 import com.wesabe.api.accounts.entities.Tag;
-import com.wesabe.api.accounts.entities.Txaction;
 import com.wesabe.api.accounts.params.CurrencyParam;
 import com.wesabe.api.accounts.resources.OldTagCloudResource;
 import com.wesabe.api.tests.util.MockResourceContext;
@@ -31,7 +31,7 @@ public class OldTagCloudResourceTest {
 		private CurrencyParam currency;
 		private MockResourceContext context;
 		private AccountList accounts;
-		private Txaction txaction;
+		private ScrollableTxactions txactions;
 		private ImmutableMap<Tag, MonetarySummary> results;
 		private XmlsonObject representation;
 		private OldTagCloudResource resource;
@@ -46,11 +46,11 @@ public class OldTagCloudResourceTest {
 			this.accounts = mock(AccountList.class);
 			when(context.getAccountDAO().findVisibleAccounts(Mockito.anyString())).thenReturn(accounts);
 			
-			this.txaction = mock(Txaction.class);
-			when(context.getTxactionDAO().findTxactions(Mockito.anyCollection())).thenReturn(ImmutableList.of(txaction));
+			this.txactions = mock(ScrollableTxactions.class);
+			when(context.getTxactionDAO().scrollTxactions(Mockito.anyCollection())).thenReturn(txactions);
 			
 			this.results = mock(ImmutableMap.class);
-			when(context.getTagSummarizer().summarize(Mockito.any(Iterable.class), Mockito.any(Currency.class))).thenReturn(results);
+			when(context.getTagSummarizer().summarize(Mockito.any(Iterator.class), Mockito.any(Currency.class))).thenReturn(results);
 			
 			this.representation = mock(XmlsonObject.class);
 			when(context.getTagSummaryPresenter().present(Mockito.any(ImmutableMap.class), Mockito.any(Locale.class))).thenReturn(representation);
@@ -66,17 +66,24 @@ public class OldTagCloudResourceTest {
 		}
 		
 		@Test
-		public void itFindsAllTransactionsInTheAccounts() throws Exception {
+		public void itScrollsThroughAllTransactionsInTheAccounts() throws Exception {
 			resource.show(context.getUser(), Locale.TAIWAN, currency);
 			
-			verify(context.getTxactionDAO()).findTxactions(accounts);
+			verify(context.getTxactionDAO()).scrollTxactions(accounts);
 		}
 		
 		@Test
-		public void itSummarizesTheTransactions() throws Exception {
+		public void itSummarizesTheTransactionsAsTheyAreScrolled() throws Exception {
 			resource.show(context.getUser(), Locale.TAIWAN, currency);
 			
-			verify(context.getTagSummarizer()).summarize(ImmutableList.of(txaction), GBP);
+			verify(context.getTagSummarizer()).summarize(txactions, GBP);
+		}
+		
+		@Test
+		public void itClosesTheTransactions() throws Exception {
+			resource.show(context.getUser(), Locale.TAIWAN, currency);
+			
+			verify(txactions).close();
 		}
 		
 		@Test
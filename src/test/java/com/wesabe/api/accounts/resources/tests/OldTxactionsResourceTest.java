@@ -11,19 +11,24 @@ import static org.mockito.Mockito.*;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 import javax.ws.rs.WebApplicationException;
 
-import org.joda.time.Interval;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.wesabe.api.accounts.dao.TxactionCursor;
+import com.wesabe.api.accounts.dao.TxactionFilter;
 import com.wesabe.api.accounts.entities.Account;
+import com.wesabe.api.accounts.entities.AccountBalance;
 import com.wesabe.api.accounts.entities.AccountList;
 import com.wesabe.api.accounts.entities.Tag;
 import com.wesabe.api.accounts.entities.Txaction;
@@ -32,6 +37,7 @@ import com.wesabe.api.accounts.params.BooleanParam;
 import com.wesabe.api.accounts.params.CurrencyParam;
 import com.wesabe.api.accounts.params.ISODateParam;
 import com.wesabe.api.accounts.params.IntegerParam;
+import com.wesabe.api.accounts.params.TxactionCursorParam;
 import com.wesabe.api.accounts.params.UriParam;
 import com.wesabe.api.accounts.resources.OldTxactionsResource;
 import com.wesabe.api.tests.util.MockResourceContext;
@@ -54,6 +60,7 @@ public class OldTxactionsResourceTest {
 		protected Set<String> merchantNames;
 		protected BigDecimal amount;
 		protected String query;
+		protected TxactionCursorParam cursor;
 		
 		protected AccountList accounts;
 		protected List<Txaction> txactions;
@@ -73,6 +80,7 @@ public class OldTxactionsResourceTest {
 			this.endDate = null;
 			this.amount = null;
 			this.query = null;
+			this.cursor = null;
 			this.accountUris = ImmutableSet.of();
 			this.tagUris = ImmutableSet.of();
 			this.merchantNames = ImmutableSet.of();
@@ -81,7 +89,7 @@ public class OldTxactionsResourceTest {
 			when(context.getAccountDAO().findVisibleAccounts(anyString())).thenReturn(accounts);
 			
 			this.txactions = mock(List.class);
-			when(context.getTxactionDAO().findTxactions(anyCollection())).thenReturn(txactions);
+			when(context.getTxactionDAO().findTxactions(anyCollection(), Mockito.any(TxactionFilter.class))).thenReturn(txactions);
 			
 			this.txactionList = mock(TxactionList.class);
 			when(context.getTxactionListBuilder().build(anyList())).thenReturn(txactionList);
@@ -101,33 +109,42 @@ public class OldTxactionsResourceTest {
 		
 		@Test
 		public void itLoadsTheUsersAccounts() throws Exception {
-			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query);
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
 			
 			verify(context.getAccountDAO()).findVisibleAccounts(context.getUser().getAccountKey());
 		}
 		
 		@Test
 		public void itLoadsAllTransactionsForTheAccounts() throws Exception {
-			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query);
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
 			
-			verify(context.getTxactionDAO()).findTxactions(accounts);
+			verify(context.getTxactionDAO()).findTxactions(accounts, new TxactionFilter());
 		}
 		
 		@Test
 		public void itBuildsATransactionList() throws Exception {
-			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query);
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
 			
 			verify(context.getTxactionListBuilderProvider()).get();
 			verify(context.getTxactionListBuilder()).setCurrency(GBP);
 			verify(context.getTxactionListBuilder()).setUnedited(false);
-			verify(context.getTxactionListBuilder()).setTags(ImmutableSet.<Tag>of());
 			verify(context.getTxactionListBuilder()).setAccounts(accounts);
 			verify(context.getTxactionListBuilder()).build(txactions);
 		}
 		
+		@Test
+		public void itPrefetchesTheListedTransactions() throws Exception {
+			final List<Txaction> listed = ImmutableList.of(mock(Txaction.class));
+			when(txactionList.getTxactions()).thenReturn(listed);
+			
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
+			
+			verify(context.getTxactionDAO()).prefetch(listed);
+		}
+		
 		@Test
 		public void itPresentsTheTxactionListAsXmlson() throws Exception {
-			final XmlsonObject result = resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query);
+			final XmlsonObject result = resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
 			
 			verify(context.getTxactionListPresenter()).present(txactionList, Locale.CANADA_FRENCH);
 			
@@ -145,10 +162,17 @@ public class OldTxactionsResourceTest {
 		
 		@Test
 		public void itLimitsTheTransactionListToThoseMerchants() throws Exception {
-			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query);
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
 			
 			verify(context.getTxactionListBuilder()).setMerchantNames(merchantNames);
 		}
+		
+		@Test
+		public void itLoadsOnlyTransactionsFromThoseMerchants() throws Exception {
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
+			
+			verify(context.getTxactionDAO()).findTxactions(accounts, new TxactionFilter().setMerchantNames(merchantNames));
+		}
 	}
 	
 	public static class Building_A_Transactions_List_With_An_Offset extends Context {
@@ -161,7 +185,7 @@ public class OldTxactionsResourceTest {
 		
 		@Test
 		public void itOffsetsTheTransactionListByTheGivenNumber() throws Exception {
-			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query);
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
 			
 			verify(context.getTxactionListBuilder()).setOffset(200);
 		}
@@ -177,7 +201,7 @@ public class OldTxactionsResourceTest {
 		
 		@Test
 		public void itLimitsTheTransactionListToTheGivenNumber() throws Exception {
-			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query);
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
 			
 			verify(context.getTxactionListBuilder()).setLimit(10);
 		}
@@ -192,10 +216,24 @@ public class OldTxactionsResourceTest {
 		}
 		
 		@Test
-		public void itLimitsTheTransactionListToThoseTags() throws Exception {
-			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query);
+		public void itDoesNotCalculateRunningBalances() throws Exception {
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
+			
+			verify(context.getTxactionListBuilder()).setCalculateBalances(false);
+		}
+		
+		@Test
+		public void itDoesNotFilterTheTransactionsByTagAgain() throws Exception {
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
+			
+			verify(context.getTxactionListBuilder(), never()).setTags(Mockito.anyCollection());
+		}
+		
+		@Test
+		public void itLoadsOnlyTransactionsWithThoseTags() throws Exception {
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
 			
-			verify(context.getTxactionListBuilder()).setTags(ImmutableSet.of(new Tag("food")));
+			verify(context.getTxactionDAO()).findTxactions(accounts, new TxactionFilter().setTags(ImmutableSet.of(new Tag("food"))));
 		}
 	}
 	
@@ -209,9 +247,9 @@ public class OldTxactionsResourceTest {
 		
 		@Test
 		public void itLimitsTheTransactionListToThoseTags() throws Exception {
-			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query);
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
 			
-			verify(context.getTxactionListBuilder()).setTags(ImmutableSet.of(new Tag("either/or")));
+			verify(context.getTxactionDAO()).findTxactions(accounts, new TxactionFilter().setTags(ImmutableSet.of(new Tag("either/or"))));
 		}
 	}
 	
@@ -225,9 +263,9 @@ public class OldTxactionsResourceTest {
 		
 		@Test
 		public void itIgnoresMalformedTagURIs() throws Exception {
-			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query);
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
 			
-			verify(context.getTxactionListBuilder()).setTags(ImmutableSet.of(new Tag("food")));
+			verify(context.getTxactionDAO()).findTxactions(accounts, new TxactionFilter().setTags(ImmutableSet.of(new Tag("food"))));
 		}
 	}
 	
@@ -255,7 +293,7 @@ public class OldTxactionsResourceTest {
 		
 		@Test
 		public void itLimitsTheTransactionListToThoseAccounts() throws Exception {
-			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query);
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
 			
 			verify(context.getTxactionListBuilder()).setAccounts(new AccountList(checking, weirdOne));
 		}
@@ -282,7 +320,7 @@ public class OldTxactionsResourceTest {
 		
 		@Test
 		public void itIgnoresMalformedAccountURIs() throws Exception {
-			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query);
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
 			
 			verify(context.getTxactionListBuilder()).setAccounts(new AccountList(checking));
 		}
@@ -298,9 +336,9 @@ public class OldTxactionsResourceTest {
 		
 		@Test
 		public void itLimitsTheTransactionListToTxactionsAfterTheStartDate() throws Exception {
-			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query);
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
 			
-			verify(context.getTxactionDAO()).findTxactionsAfterDate(accounts, date(2006, 8, 9));
+			verify(context.getTxactionDAO()).findTxactions(accounts, new TxactionFilter().setStartDate(date(2006, 8, 9)));
 		}
 	}
 	
@@ -314,9 +352,9 @@ public class OldTxactionsResourceTest {
 		
 		@Test
 		public void itLimitsTheTransactionListToTxactionsBeforeTheEndDate() throws Exception {
-			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query);
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
 			
-			verify(context.getTxactionDAO()).findTxactionsBeforeDate(accounts, date(2006, 9, 9));
+			verify(context.getTxactionDAO()).findTxactions(accounts, new TxactionFilter().setEndDate(date(2006, 9, 9)));
 		}
 	}
 	
@@ -331,9 +369,9 @@ public class OldTxactionsResourceTest {
 		
 		@Test
 		public void itLimitsTheTransactionListToTxactionsBeforeTheEndDate() throws Exception {
-			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query);
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
 			
-			verify(context.getTxactionDAO()).findTxactionsInDateRange(accounts, new Interval(date(2006, 8, 9), date(2006, 9, 9)));
+			verify(context.getTxactionDAO()).findTxactions(accounts, new TxactionFilter().setStartDate(date(2006, 8, 9)).setEndDate(date(2006, 9, 9)));
 		}
 	}
 	
@@ -349,7 +387,7 @@ public class OldTxactionsResourceTest {
 		@Test
 		public void itReturns400BadRequest() throws Exception {
 			try {
-				resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query);
+				resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
 				fail("should have raised a WebApplicationException but didn't");
 			} catch (WebApplicationException e) {
 				assertThat(e.getResponse().getStatus(), is(400));
@@ -367,10 +405,17 @@ public class OldTxactionsResourceTest {
 		
 		@Test
 		public void itFindsOnlyTransactionsWithTheGivenAmount() throws Exception {
-			resource.show(context.getUser(), Locale.CANADA, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query);
+			resource.show(context.getUser(), Locale.CANADA, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
 			
 			verify(context.getTxactionListBuilder()).setAmount(amount);
 		}
+		
+		@Test
+		public void itLoadsOnlyTransactionsWithTheGivenAmount() throws Exception {
+			resource.show(context.getUser(), Locale.CANADA, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
+			
+			verify(context.getTxactionDAO()).findTxactions(accounts, new TxactionFilter().setAmount(amount));
+		}
 	}
 	
 	public static class Building_A_Transaction_List_With_A_Query extends Context {
@@ -382,10 +427,178 @@ public class OldTxactionsResourceTest {
 		}
 		
 		@Test
-		public void itFindsTransactionsThatIncludeTheQueryInItsText() throws Exception {
-			resource.show(context.getUser(), Locale.CANADA, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query);
+		public void itDoesNotFilterTheTransactionsByTheQueryAgain() throws Exception {
+			resource.show(context.getUser(), Locale.CANADA, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
+			
+			verify(context.getTxactionListBuilder(), never()).setQuery(anyString());
+		}
+		
+		@Test
+		public void itLoadsOnlyTransactionsWhichIncludeTheQuery() throws Exception {
+			resource.show(context.getUser(), Locale.CANADA, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
+			
+			verify(context.getTxactionDAO()).findTxactions(accounts, new TxactionFilter().setQuery(query));
+		}
+	}
+	
+	public static class Building_The_First_Page_Of_A_Transactions_List_By_Cursor extends Context {
+		private Txaction first, second, third;
+		
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			this.cursor = new TxactionCursorParam("");
+			this.limit = new IntegerParam("2");
+			
+			this.first = mock(Txaction.class);
+			this.second = mock(Txaction.class);
+			when(second.getDatePosted()).thenReturn(date(2009, 6, 14));
+			when(second.getSequence()).thenReturn(3);
+			when(second.getCreatedAt()).thenReturn(date(2009, 6, 15));
+			when(second.getId()).thenReturn(400);
+			this.third = mock(Txaction.class);
+			
+			when(context.getTxactionDAO().findTxactionsAfterCursor(anyCollection(), Mockito.any(TxactionFilter.class), (TxactionCursor) anyObject(), anyInt()))
+				.thenReturn(ImmutableList.of(first, second, third));
+		}
+		
+		@Test
+		public void itLoadsOnlyOneMoreThanAPageOfTransactions() throws Exception {
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
+			
+			verify(context.getTxactionDAO()).findTxactionsAfterCursor(accounts, new TxactionFilter(), null, 2);
+			verify(context.getTxactionDAO(), never()).findTxactions(anyCollection(), Mockito.any(TxactionFilter.class));
+		}
+		
+		@Test
+		public void itBuildsATransactionListOfThePage() throws Exception {
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
+			
+			verify(context.getTxactionListBuilder(), never()).setLimit(anyInt());
+			verify(context.getTxactionListBuilder()).build(ImmutableList.of(first, second));
+		}
+		
+		@Test
+		public void itPrefetchesThePage() throws Exception {
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
+			
+			verify(context.getTxactionDAO()).prefetch(ImmutableList.of(first, second));
+		}
+		
+		@Test
+		public void itCalculatesBalancesFromTheCurrentAccountBalances() throws Exception {
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
+			
+			verify(context.getTxactionListBuilder(), never()).setCalculateBalances(false);
+			verify(context.getTxactionListBuilder(), never()).setStartingBalances(Mockito.anyMap());
+			verify(context.getBalanceCheckpointIndex(), never()).getBalancesAfter(anyCollection(), (TxactionCursor) anyObject());
+		}
+		
+		@Test
+		public void itReturnsACursorForTheNextPage() throws Exception {
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
+			
+			verify(txactionList).setNextCursor(new TxactionCursor(date(2009, 6, 14).getMillis(), 3, date(2009, 6, 15).getMillis(), 400).toString());
+		}
+		
+		@Test
+		public void itDoesNotCountEveryTransaction() throws Exception {
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
+			
+			verify(txactionList).setTotalCount(TxactionList.UNKNOWN_COUNT);
+		}
+	}
+	
+	public static class Building_The_Last_Page_Of_A_Transactions_List_By_Cursor extends Context {
+		private TxactionCursor position;
+		
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			this.position = new TxactionCursor(date(2009, 6, 14).getMillis(), 3, date(2009, 6, 15).getMillis(), 400);
+			this.cursor = new TxactionCursorParam(position.toString());
+			
+			final Txaction last = mock(Txaction.class);
+			when(context.getTxactionDAO().findTxactionsAfterCursor(anyCollection(), Mockito.any(TxactionFilter.class), (TxactionCursor) anyObject(), anyInt()))
+				.thenReturn(ImmutableList.of(last));
+		}
+		
+		@Test
+		public void itLoadsTheDefaultPageSizeAfterTheCursor() throws Exception {
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
+			
+			verify(context.getTxactionDAO()).findTxactionsAfterCursor(accounts, new TxactionFilter(), position, 100);
+		}
+		
+		@Test
+		public void itCalculatesBalancesFromTheBalancesAtTheCursor() throws Exception {
+			final Map<Account, AccountBalance> balances = ImmutableMap.of();
+			when(context.getBalanceCheckpointIndex().getBalancesAfter(accounts, position)).thenReturn(balances);
+			
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
+			
+			verify(context.getTxactionListBuilder()).setStartingBalances(balances);
+		}
+		
+		@Test
+		public void itDoesNotReturnACursor() throws Exception {
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
+			
+			verify(txactionList).setNextCursor(null);
+		}
+	}
+	
+	public static class Building_A_Page_Of_A_Transactions_List_With_A_Bad_Limit extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			this.cursor = new TxactionCursorParam("");
+			this.limit = new IntegerParam("0");
+		}
+		
+		@Test
+		public void itReturns400BadRequest() throws Exception {
+			try {
+				resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
+				fail("should have raised a WebApplicationException but didn't");
+			} catch (WebApplicationException e) {
+				assertThat(e.getResponse().getStatus(), is(400));
+			}
+		}
+	}
+	
+	public static class Building_A_Filtered_Page_Of_A_Transactions_List_By_Cursor extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			this.cursor = new TxactionCursorParam(new TxactionCursor(1244937600000L, 3, 1245024000000L, 400).toString());
+			this.query = "Chevron";
+		}
+		
+		@Test
+		public void itDoesNotCalculateBalances() throws Exception {
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
+			
+			verify(context.getTxactionListBuilder()).setCalculateBalances(false);
+			verify(context.getBalanceCheckpointIndex(), never()).getBalancesAfter(anyCollection(), (TxactionCursor) anyObject());
+		}
+		
+		@Test
+		public void itLoadsOnlyTransactionsWhichMatchTheFilters() throws Exception {
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
+			
+			verify(context.getTxactionDAO()).findTxactionsAfterCursor(accounts, new TxactionFilter().setQuery("Chevron"), cursor.getValue(), 100);
+		}
+		
+		@Test
+		public void itDoesNotFilterThePageAgain() throws Exception {
+			resource.show(context.getUser(), Locale.CANADA_FRENCH, currency, uneditedOnly, limit, offset, startDate, endDate, accountUris, tagUris, merchantNames, amount, query, cursor);
 			
-			verify(context.getTxactionListBuilder()).setQuery(query);
+			verify(context.getTxactionListBuilder(), never()).setQuery(anyString());
 		}
 	}
 }
@@ -0,0 +1,108 @@
+package com.wesabe.api.accounts.stats.tests;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.wesabe.api.accounts.stats.InstrumentedThreadPool;
+
+@RunWith(Enclosed.class)
+public class InstrumentedThreadPoolTest {
+	public static class A_New_Thread_Pool {
+		private InstrumentedThreadPool threadPool = new InstrumentedThreadPool("test", 1, 2, 10);
+		
+		@Test
+		public void itHasAName() throws Exception {
+			assertEquals("test", threadPool.getName());
+		}
+		
+		@Test
+		public void itIsBounded() throws Exception {
+			assertEquals(1, threadPool.getMinThreads());
+			assertEquals(2, threadPool.getMaxThreads());
+			assertEquals(10, threadPool.getMaxQueued());
+		}
+		
+		@Test
+		public void itIsIdle() throws Exception {
+			assertEquals(0, threadPool.getQueueDepth());
+			assertEquals(0, threadPool.getActiveThreads());
+			assertEquals(0, threadPool.getRejectedCount());
+		}
+	}
+	
+	public static class A_Busy_Thread_Pool {
+		private InstrumentedThreadPool threadPool;
+		private CountDownLatch started, finish;
+		
+		@Before
+		public void setup() throws Exception {
+			this.threadPool = new InstrumentedThreadPool("busy-test", 1, 1, 1);
+			threadPool.start();
+			
+			this.started = new CountDownLatch(1);
+			this.finish = new CountDownLatch(1);
+		}
+		
+		@After
+		public void teardown() throws Exception {
+			finish.countDown();
+			threadPool.stop();
+		}
+		
+		@Test
+		public void itReportsQueuedAndRejectedRequests() throws Exception {
+			assertTrue(threadPool.dispatch(new Runnable() {
+				@Override
+				public void run() {
+					started.countDown();
+					try {
+						finish.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			
+			final Runnable nothing = new Runnable() {
+				@Override
+				public void run() {
+				}
+			};
+			
+			assertTrue(threadPool.dispatch(nothing));
+			assertFalse(threadPool.dispatch(nothing));
+			
+			assertEquals(1, threadPool.getActiveThreads());
+			assertEquals(1, threadPool.getQueueDepth());
+			assertEquals(1, threadPool.getRejectedCount());
+		}
+		
+		@Test
+		public void itIsRegisteredWithJMX() throws Exception {
+			assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName("com.wesabe.api:type=ThreadPool")));
+		}
+	}
+	
+	public static class A_Stopped_Thread_Pool {
+		@Test
+		public void itIsNotRegisteredWithJMX() throws Exception {
+			final InstrumentedThreadPool threadPool = new InstrumentedThreadPool("stopped-test", 1, 1, 1);
+			threadPool.start();
+			threadPool.stop();
+			
+			assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName("com.wesabe.api:type=ThreadPool")));
+		}
+	}
+}
@@ -7,15 +7,21 @@ import static org.junit.matchers.JUnitMatchers.*;
 import org.eclipse.jetty.security.ConstraintMapping;
 import org.eclipse.jetty.security.ConstraintSecurityHandler;
 import org.eclipse.jetty.security.SecurityHandler;
+import org.eclipse.jetty.server.AbstractConnector;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.bio.SocketConnector;
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
 import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.hibernate.cache.EhCacheProvider;
+import org.hibernate.cfg.Environment;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
 
 import com.wesabe.api.accounts.Configuration;
+import com.wesabe.api.accounts.stats.InstrumentedThreadPool;
 import com.wesabe.api.util.auth.WesabeAuthenticator;
 
 @RunWith(Enclosed.class)
@@ -62,9 +68,109 @@ public class ConfigurationTest {
 		}
 		
 		@Test
-		public void itUsesASocketConnector() throws Exception {
+		public void itUsesASelectChannelConnector() throws Exception {
+			assertThat(config.getConnector(), is(SelectChannelConnector.class));
+		}
+		
+		@Test
+		public void itUsesABoundedInstrumentedThreadPool() throws Exception {
+			final AbstractConnector connector = (AbstractConnector) config.getConnector();
+			assertThat(connector.getThreadPool(), is(InstrumentedThreadPool.class));
+			
+			final InstrumentedThreadPool threadPool = (InstrumentedThreadPool) connector.getThreadPool();
+			assertThat(threadPool.getMinThreads(), is(Configuration.DEFAULT_MIN_THREADS));
+			assertThat(threadPool.getMaxThreads(), is(Configuration.DEFAULT_MAX_THREADS));
+			assertThat(threadPool.getMaxQueued(), is(Configuration.DEFAULT_MAX_QUEUED));
+		}
+		
+		@Test
+		public void itUsesTheDefaultNumberOfAcceptors() throws Exception {
+			final AbstractConnector connector = (AbstractConnector) config.getConnector();
+			assertThat(connector.getAcceptors(), is(Configuration.DEFAULT_ACCEPTORS));
+			assertThat(connector.getMaxIdleTime(), is(Configuration.DEFAULT_MAX_IDLE_TIME));
+		}
+	}
+	
+	public static class Configuring_The_Cache_Provider {
+		private TestConfiguration config;
+		private String provider;
+		
+		@Before
+		public void setup() throws Exception {
+			this.provider = System.clearProperty(Environment.CACHE_PROVIDER);
+			this.config = new TestConfiguration();
+		}
+		
+		@After
+		public void teardown() throws Exception {
+			if (provider == null) {
+				System.clearProperty(Environment.CACHE_PROVIDER);
+			} else {
+				System.setProperty(Environment.CACHE_PROVIDER, provider);
+			}
+			System.clearProperty(Environment.CACHE_REGION_FACTORY);
+		}
+		
+		@Test
+		public void itDefaultsToEhcache() throws Exception {
+			config.configure();
+			
+			assertThat(System.getProperty(Environment.CACHE_PROVIDER), is(EhCacheProvider.class.getName()));
+		}
+		
+		@Test
+		public void itKeepsAConfiguredProvider() throws Exception {
+			System.setProperty(Environment.CACHE_PROVIDER, "org.hibernate.cache.HashtableCacheProvider");
+			config.configure();
+			
+			assertThat(System.getProperty(Environment.CACHE_PROVIDER), is("org.hibernate.cache.HashtableCacheProvider"));
+		}
+		
+		@Test
+		public void itKeepsAConfiguredRegionFactory() throws Exception {
+			System.setProperty(Environment.CACHE_REGION_FACTORY, "org.hibernate.cache.impl.NoCachingRegionFactory");
+			config.configure();
+			
+			assertThat(System.getProperty(Environment.CACHE_PROVIDER), is(nullValue()));
+		}
+	}
+	
+	public static class Configuring_The_Connector {
+		private TestConfiguration config;
+		
+		@Before
+		public void setup() throws Exception {
+			System.setProperty(Configuration.CONNECTOR_PROPERTY, "bio");
+			System.setProperty(Configuration.ACCEPTORS_PROPERTY, "4");
+			System.setProperty(Configuration.MAX_THREADS_PROPERTY, "50");
+			System.setProperty(Configuration.MAX_QUEUED_PROPERTY, "20");
+			
+			this.config = new TestConfiguration();
+			config.configure();
+		}
+		
+		@After
+		public void teardown() throws Exception {
+			System.clearProperty(Configuration.CONNECTOR_PROPERTY);
+			System.clearProperty(Configuration.ACCEPTORS_PROPERTY);
+			System.clearProperty(Configuration.MAX_THREADS_PROPERTY);
+			System.clearProperty(Configuration.MAX_QUEUED_PROPERTY);
+		}
+		
+		@Test
+		public void itUsesASocketConnectorInBlockingMode() throws Exception {
 			assertThat(config.getConnector(), is(SocketConnector.class));
 		}
+		
+		@Test
+		public void itUsesTheConfiguredSettings() throws Exception {
+			final AbstractConnector connector = (AbstractConnector) config.getConnector();
+			assertThat(connector.getAcceptors(), is(4));
+			
+			final InstrumentedThreadPool threadPool = (InstrumentedThreadPool) connector.getThreadPool();
+			assertThat(threadPool.getMaxThreads(), is(50));
+			assertThat(threadPool.getMaxQueued(), is(20));
+		}
 	}
 	
 	public static class Configuring_The_Servlet_Context {
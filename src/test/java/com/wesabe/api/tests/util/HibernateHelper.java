@@ -2,11 +2,74 @@ package com.wesabe.api.tests.util;
 
 import static org.mockito.Mockito.*;
 
+import java.util.Set;
+
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
+import org.hibernate.cfg.AnnotationConfiguration;
+import org.hibernate.cfg.EJB3NamingStrategy;
+import org.hibernate.cfg.Environment;
 import org.hibernate.classic.Session;
+import org.hibernate.dialect.HSQLDialect;
+
+import com.google.common.collect.ImmutableSet;
+import com.wesabe.api.accounts.entities.Account;
+import com.wesabe.api.accounts.entities.AccountBalance;
+import com.wesabe.api.accounts.entities.Attachment;
+import com.wesabe.api.accounts.entities.CurrencyExchangeRate;
+import com.wesabe.api.accounts.entities.FinancialInst;
+import com.wesabe.api.accounts.entities.InvestmentAccount;
+import com.wesabe.api.accounts.entities.InvestmentAccountBalance;
+import com.wesabe.api.accounts.entities.InvestmentPosition;
+import com.wesabe.api.accounts.entities.InvestmentSecurity;
+import com.wesabe.api.accounts.entities.InvestmentTxaction;
+import com.wesabe.api.accounts.entities.Merchant;
+import com.wesabe.api.accounts.entities.Stock;
+import com.wesabe.api.accounts.entities.TaggedAmount;
+import com.wesabe.api.accounts.entities.Txaction;
 
 public class HibernateHelper {
+	private static final Set<String> HSQLDB_RESERVED_WORDS = ImmutableSet.of("position");
+	
+	/**
+	 * Returns a session factory for a fresh in-memory HSQLDB database called
+	 * {@code name}, with a schema generated from the entities, so HQL can be
+	 * run against a real database. Columns named after HSQLDB reserved words
+	 * (e.g., {@code accounts.position}) are quoted.
+	 */
+	public static SessionFactory buildInMemorySessionFactory(String name) {
+		final AnnotationConfiguration configuration = new AnnotationConfiguration();
+		configuration.setProperty(Environment.DIALECT, HSQLDialect.class.getName());
+		configuration.setProperty(Environment.DRIVER, "org.hsqldb.jdbcDriver");
+		configuration.setProperty(Environment.URL, "jdbc:hsqldb:mem:" + name);
+		configuration.setProperty(Environment.USER, "sa");
+		configuration.setProperty(Environment.PASS, "");
+		configuration.setProperty(Environment.HBM2DDL_AUTO, "create-drop");
+		configuration.setProperty(Environment.USE_SECOND_LEVEL_CACHE, "false");
+		configuration.setNamingStrategy(new EJB3NamingStrategy() {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			public String columnName(String columnName) {
+				final String name = super.columnName(columnName);
+				return HSQLDB_RESERVED_WORDS.contains(name) ? "`" + name + "`" : name;
+			}
+		});
+		
+		final Class<?>[] entities = {
+			Account.class, AccountBalance.class, Attachment.class,
+			CurrencyExchangeRate.class, FinancialInst.class,
+			InvestmentAccount.class, InvestmentAccountBalance.class,
+			InvestmentPosition.class, InvestmentSecurity.class,
+			InvestmentTxaction.class, Merchant.class, Stock.class,
+			TaggedAmount.class, Txaction.class
+		};
+		for (Class<?> entity : entities) {
+			configuration.addAnnotatedClass(entity);
+		}
+		
+		return configuration.buildSessionFactory();
+	}
 
 	public static Transaction mockTransaction() {
 		return mock(Transaction.class);
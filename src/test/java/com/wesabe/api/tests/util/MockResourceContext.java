@@ -7,13 +7,16 @@ import org.hibernate.SessionFactory;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.wesabe.api.accounts.analytics.BalanceCheckpointIndex;
 import com.wesabe.api.accounts.analytics.IntervalSummarizer;
+import com.wesabe.api.accounts.analytics.IntervalSummaryRollup;
 import com.wesabe.api.accounts.analytics.NetWorthSummarizer;
 import com.wesabe.api.accounts.analytics.TagHierarchyBuilder;
 import com.wesabe.api.accounts.analytics.TagSummarizer;
 import com.wesabe.api.accounts.analytics.TxactionListBuilder;
 import com.wesabe.api.accounts.analytics.TxactionListBuilderProvider;
 import com.wesabe.api.accounts.dao.AccountDAO;
+import com.wesabe.api.accounts.dao.AccountListSummaryCache;
 import com.wesabe.api.accounts.dao.TxactionDAO;
 import com.wesabe.api.accounts.presenters.AccountListPresenter;
 import com.wesabe.api.accounts.presenters.IntervalSummaryPresenter;
@@ -26,14 +29,17 @@ import com.wesabe.api.util.auth.WesabeUser;
 public class MockResourceContext {
 	private SessionFactory sessionFactory;
 	private AccountDAO accountDAO;
+	private AccountListSummaryCache accountListSummaryCache;
 	private TxactionDAO txactionDAO;
 	private IntervalSummarizer intervalSummarizer;
+	private IntervalSummaryRollup intervalSummaryRollup;
 	private IntervalSummaryPresenter intervalSummaryPresenter;
 	private TagSummarizer tagSummarizer;
 	private TagSummaryPresenter tagSummaryPresenter;
 	private TxactionListBuilder txactionListBuilder;
 	private TxactionListBuilderProvider txactionListBuilderProvider;
 	private TxactionListPresenter txactionListPresenter;
+	private BalanceCheckpointIndex balanceCheckpointIndex;
 	private AccountListPresenter accountListPresenter;
 	private TagHierarchyBuilder tagHierarchyBuilder;
 	private TagHierarchyPresenter tagHierarchyPresenter;
@@ -46,8 +52,10 @@ public class MockResourceContext {
 		this.sessionFactory = mock(SessionFactory.class);
 		
 		this.accountDAO = mock(AccountDAO.class);
+		this.accountListSummaryCache = mock(AccountListSummaryCache.class);
 		this.txactionDAO = mock(TxactionDAO.class);
 		this.intervalSummarizer = mock(IntervalSummarizer.class);
+		this.intervalSummaryRollup = mock(IntervalSummaryRollup.class);
 		this.intervalSummaryPresenter = mock(IntervalSummaryPresenter.class);
 		this.tagSummarizer = mock(TagSummarizer.class);
 		this.tagSummaryPresenter = mock(TagSummaryPresenter.class);
@@ -56,6 +64,7 @@ public class MockResourceContext {
 		this.txactionListBuilderProvider = mock(TxactionListBuilderProvider.class);
 		when(txactionListBuilderProvider.get()).thenReturn(txactionListBuilder);
 		this.txactionListPresenter = mock(TxactionListPresenter.class);
+		this.balanceCheckpointIndex = mock(BalanceCheckpointIndex.class);
 		
 		this.accountListPresenter = mock(AccountListPresenter.class);
 		
@@ -74,13 +83,16 @@ public class MockResourceContext {
 			protected void configure() {
 				bind(SessionFactory.class).toInstance(sessionFactory);
 				bind(AccountDAO.class).toInstance(accountDAO);
+				bind(AccountListSummaryCache.class).toInstance(accountListSummaryCache);
 				bind(TxactionDAO.class).toInstance(txactionDAO);
 				bind(IntervalSummarizer.class).toInstance(intervalSummarizer);
+				bind(IntervalSummaryRollup.class).toInstance(intervalSummaryRollup);
 				bind(IntervalSummaryPresenter.class).toInstance(intervalSummaryPresenter);
 				bind(TagSummarizer.class).toInstance(tagSummarizer);
 				bind(TagSummaryPresenter.class).toInstance(tagSummaryPresenter);
 				bind(TxactionListBuilder.class).toProvider(txactionListBuilderProvider);
 				bind(TxactionListPresenter.class).toInstance(txactionListPresenter);
+				bind(BalanceCheckpointIndex.class).toInstance(balanceCheckpointIndex);
 				bind(AccountListPresenter.class).toInstance(accountListPresenter);
 				bind(TagHierarchyBuilder.class).toInstance(tagHierarchyBuilder);
 				bind(TagHierarchyPresenter.class).toInstance(tagHierarchyPresenter);
@@ -102,6 +114,10 @@ public class MockResourceContext {
 		return accountDAO;
 	}
 
+	public AccountListSummaryCache getAccountListSummaryCache() {
+		return accountListSummaryCache;
+	}
+
 	public TxactionDAO getTxactionDAO() {
 		return txactionDAO;
 	}
@@ -110,6 +126,10 @@ public class MockResourceContext {
 		return intervalSummarizer;
 	}
 	
+	public IntervalSummaryRollup getIntervalSummaryRollup() {
+		return intervalSummaryRollup;
+	}
+	
 	public IntervalSummaryPresenter getIntervalSummaryPresenter() {
 		return intervalSummaryPresenter;
 	}
@@ -134,6 +154,10 @@ public class MockResourceContext {
 		return txactionListPresenter;
 	}
 
+	public BalanceCheckpointIndex getBalanceCheckpointIndex() {
+		return balanceCheckpointIndex;
+	}
+
 	public AccountListPresenter getAccountListPresenter() {
 		return accountListPresenter;
 	}
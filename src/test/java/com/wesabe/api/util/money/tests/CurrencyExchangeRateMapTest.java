@@ -18,6 +18,7 @@ import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
 
 import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+import com.wesabe.api.util.money.CurrencyExchangeRates;
 import com.wesabe.api.util.money.ExchangeRateNotFoundException;
 
 @RunWith(Enclosed.class)
@@ -247,6 +248,130 @@ public class CurrencyExchangeRateMapTest {
 		}
 	}
 	
+	public static class Adding_A_Batch_Of_Rates {
+		private CurrencyExchangeRateMap rates;
+		private CurrencyExchangeRateMap.Batch batch;
+		
+		@Before
+		public void setRates() {
+			this.rates = singleRateMap(USD, EUR, jun14th, decimal("0.8901"));
+			this.batch = rates.newBatch()
+				.addExchangeRate(USD, EUR, jun15th, decimal("0.9031"))
+				.addExchangeRate(USD, NOK, jun15th, decimal("6.7258"));
+		}
+		
+		@Test
+		public void shouldNotHaveTheRatesUntilTheBatchIsCommitted() throws Exception {
+			assertEquals(decimal("0.8901"), rates.getExchangeRate(USD, EUR, jun15th));
+			assertFalse(rates.isSupported(NOK));
+		}
+		
+		@Test
+		public void shouldHaveTheRatesOnceTheBatchIsCommitted() throws Exception {
+			batch.commit();
+			
+			assertEquals(decimal("0.8901"), rates.getExchangeRate(USD, EUR, jun14th));
+			assertEquals(decimal("0.9031"), rates.getExchangeRate(USD, EUR, jun15th));
+			assertEquals(decimal("6.7258"), rates.getExchangeRate(USD, NOK, jun15th));
+			assertTrue(rates.isSupported(NOK));
+		}
+	}
+	
+	public static class Replacing_A_Rate {
+		private CurrencyExchangeRateMap rates;
+		
+		@Before
+		public void setRates() {
+			this.rates = singleRateMap(USD, EUR, jun15th, decimal("0.8901"));
+			this.rates.addExchangeRate(USD, EUR, jun15th, decimal("0.9031"));
+		}
+		
+		@Test
+		public void shouldHaveTheNewerRate() throws Exception {
+			assertEquals(decimal("0.9031"), rates.getExchangeRate(USD, EUR, jun15th));
+		}
+	}
+	
+	public static class Reading_The_Current_Epoch {
+		private CurrencyExchangeRateMap rates;
+		private CurrencyExchangeRates epoch;
+		
+		@Before
+		public void setRates() {
+			this.rates = singleRateMap(USD, EUR, jun15th, decimal("0.8901"));
+			this.epoch = rates.getCurrentEpoch();
+			rates.newBatch()
+				.addExchangeRate(USD, EUR, jun15th, decimal("0.9031"))
+				.addExchangeRate(USD, NOK, jun15th, decimal("6.7258"))
+				.commit();
+		}
+		
+		@Test
+		public void shouldNotSeeLaterRates() throws Exception {
+			assertEquals(decimal("0.8901"), epoch.getExchangeRate(USD, EUR, jun15th));
+			assertFalse(epoch.isSupported(NOK));
+			assertEquals(decimal("0.9031"), rates.getExchangeRate(USD, EUR, jun15th));
+		}
+		
+		@Test
+		public void shouldBeReadOnly() throws Exception {
+			assertFalse(epoch instanceof CurrencyExchangeRateMap);
+		}
+	}
+	
+	public static class Versioning_The_Rates {
+		@Test
+		public void shouldIncrementTheVersionForEachUpdate() throws Exception {
+			final CurrencyExchangeRateMap rates = new CurrencyExchangeRateMap();
+			assertEquals(0L, rates.getVersion());
+			
+			rates.addExchangeRate(USD, EUR, jun15th, decimal("0.8901"));
+			assertEquals(1L, rates.getVersion());
+			
+			rates.newBatch()
+				.addExchangeRate(USD, EUR, jun15th, decimal("0.9031"))
+				.addExchangeRate(USD, NOK, jun15th, decimal("6.7258"))
+				.commit();
+			assertEquals(2L, rates.getVersion());
+		}
+		
+		@Test
+		public void shouldNotIncrementTheVersionForAnEmptyBatch() throws Exception {
+			final CurrencyExchangeRateMap rates = new CurrencyExchangeRateMap();
+			rates.newBatch().commit();
+			
+			assertEquals(0L, rates.getVersion());
+		}
+	}
+	
+	public static class Getting_Rates_From_A_Long_History {
+		private CurrencyExchangeRateMap rates;
+		
+		@Before
+		public void setRates() {
+			this.rates = new CurrencyExchangeRateMap();
+			final CurrencyExchangeRateMap.Batch batch = rates.newBatch();
+			for (int day = 0; day < 3650; day++) {
+				batch.addExchangeRate(USD, EUR, jan1st.plusDays(day), BigDecimal.valueOf(day + 1));
+			}
+			batch.commit();
+		}
+		
+		@Test
+		public void shouldFindTheRateOnEachDay() throws Exception {
+			assertEquals(BigDecimal.valueOf(1), rates.getExchangeRate(USD, EUR, jan1st));
+			assertEquals(BigDecimal.valueOf(1000), rates.getExchangeRate(USD, EUR, jan1st.plusDays(999)));
+			assertEquals(BigDecimal.valueOf(3650), rates.getExchangeRate(USD, EUR, jan1st.plusDays(5000)));
+			assertEquals(BigDecimal.valueOf(1), rates.getExchangeRate(USD, EUR, jan1st.minusDays(5000)));
+		}
+		
+		@Test
+		public void shouldFindTheClosestRateBetweenDays() throws Exception {
+			assertEquals(BigDecimal.valueOf(11), rates.getExchangeRate(USD, EUR, jan1st.plusDays(10).plusHours(11)));
+			assertEquals(BigDecimal.valueOf(12), rates.getExchangeRate(USD, EUR, jan1st.plusDays(10).plusHours(13)));
+		}
+	}
+	
 	public static CurrencyExchangeRateMap singleRateMap(Currency source,
 			Currency target, DateTime date, BigDecimal rate) {
 		CurrencyExchangeRateMap map = new CurrencyExchangeRateMap();
@@ -0,0 +1,141 @@
+package com.wesabe.api.util.money.tests;
+
+import static com.wesabe.api.tests.util.CurrencyHelper.*;
+import static com.wesabe.api.tests.util.DateHelper.*;
+import static com.wesabe.api.tests.util.NumberHelper.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.google.common.collect.ImmutableSet;
+import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+import com.wesabe.api.util.money.CurrencyExchangeRateSnapshot;
+import com.wesabe.api.util.money.DollarPivotCurrencyExchangeRateMap;
+import com.wesabe.api.util.money.ExchangeRateNotFoundException;
+
+@RunWith(Enclosed.class)
+public class CurrencyExchangeRateSnapshotTest {
+	private static abstract class Context {
+		protected CurrencyExchangeRateMap exchangeRates;
+		protected CurrencyExchangeRateSnapshot snapshot;
+
+		public void setup() throws Exception {
+			this.exchangeRates = mock(CurrencyExchangeRateMap.class);
+			when(exchangeRates.getCurrentEpoch()).thenReturn(exchangeRates);
+			when(exchangeRates.getVersion()).thenReturn(4L);
+			when(exchangeRates.getExchangeRate(USD, EUR, jun15th)).thenReturn(decimal("0.8901"));
+			when(exchangeRates.getExchangeRate(USD, EUR, jun14th)).thenReturn(decimal("0.8800"));
+
+			this.snapshot = new CurrencyExchangeRateSnapshot(exchangeRates);
+		}
+	}
+
+	public static class Getting_An_Exchange_Rate extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+		}
+
+		@Test
+		public void itReturnsTheRateFromTheUnderlyingMap() throws Exception {
+			assertEquals(decimal("0.8901"), snapshot.getExchangeRate(USD, EUR, jun15th));
+			assertEquals(decimal("0.8800"), snapshot.getExchangeRate(USD, EUR, jun14th));
+		}
+
+		@Test
+		public void itOnlyLooksUpEachRateOnce() throws Exception {
+			snapshot.getExchangeRate(USD, EUR, jun15th);
+			snapshot.getExchangeRate(USD, EUR, jun15th);
+			snapshot.getExchangeRate(USD, EUR, jun15th);
+
+			verify(exchangeRates, times(1)).getExchangeRate(USD, EUR, jun15th);
+			assertEquals(1, snapshot.size());
+		}
+
+		@Test
+		public void itHasTheVersionOfTheMapsRates() throws Exception {
+			assertEquals(4L, snapshot.getVersion());
+		}
+
+		@Test
+		public void itDoesNotLookUpRatesBetweenTheSameCurrency() throws Exception {
+			assertEquals(BigDecimal.ONE, snapshot.getExchangeRate(EUR, EUR, jun15th));
+
+			verify(exchangeRates, never()).getExchangeRate(EUR, EUR, jun15th);
+		}
+
+		@Test
+		public void itKeepsReturningTheSameRateAfterTheUnderlyingMapChanges() throws Exception {
+			snapshot.getExchangeRate(USD, EUR, jun15th);
+			when(exchangeRates.getExchangeRate(USD, EUR, jun15th)).thenReturn(decimal("0.9"));
+
+			assertEquals(decimal("0.8901"), snapshot.getExchangeRate(USD, EUR, jun15th));
+		}
+	}
+
+	public static class Getting_A_Missing_Exchange_Rate extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			when(exchangeRates.getExchangeRate(USD, NOK, jun15th))
+				.thenThrow(new ExchangeRateNotFoundException(USD, NOK, jun15th));
+		}
+
+		@Test
+		public void itThrowsAnException() throws Exception {
+			try {
+				snapshot.getExchangeRate(USD, NOK, jun15th);
+				fail("should have thrown an ExchangeRateNotFoundException but didn't");
+			} catch (ExchangeRateNotFoundException e) {
+				assertEquals(0, snapshot.size());
+			}
+		}
+	}
+
+	public static class Getting_Supported_Currencies extends Context {
+		@Before
+		@Override
+		public void setup() throws Exception {
+			super.setup();
+			when(exchangeRates.getCurrencies()).thenReturn(ImmutableSet.of(USD, EUR));
+			when(exchangeRates.isSupported(EUR)).thenReturn(true);
+		}
+
+		@Test
+		public void itUsesTheUnderlyingMap() throws Exception {
+			assertEquals(ImmutableSet.of(USD, EUR), snapshot.getCurrencies());
+			assertTrue(snapshot.isSupported(EUR));
+			assertFalse(snapshot.isSupported(NOK));
+		}
+	}
+
+	public static class Adding_An_Exchange_Rate {
+		@Test
+		public void itIsNotPossible() throws Exception {
+			assertFalse(CurrencyExchangeRateMap.class.isAssignableFrom(CurrencyExchangeRateSnapshot.class));
+		}
+	}
+
+	@SuppressWarnings("deprecation")
+	public static class Snapshotting_A_Dollar_Pivot_Map {
+		@Test
+		public void itReturnsThePivotedRate() throws Exception {
+			final DollarPivotCurrencyExchangeRateMap exchangeRates = new DollarPivotCurrencyExchangeRateMap();
+			exchangeRates.addExchangeRate(USD, EUR, jun14th, decimal("0.7656"));
+			exchangeRates.addExchangeRate(USD, NOK, jun14th, decimal("6.7258"));
+
+			final CurrencyExchangeRateSnapshot snapshot = new CurrencyExchangeRateSnapshot(exchangeRates);
+
+			assertEquals(exchangeRates.getExchangeRate(EUR, NOK, jun14th), snapshot.getExchangeRate(EUR, NOK, jun14th));
+			assertEquals(exchangeRates.getExchangeRate(NOK, EUR, jun14th), snapshot.getExchangeRate(NOK, EUR, jun14th));
+		}
+	}
+}
@@ -5,13 +5,20 @@ import static com.wesabe.api.tests.util.DateHelper.*;
 import static com.wesabe.api.tests.util.NumberHelper.*;
 import static org.junit.Assert.*;
 
+import java.math.BigDecimal;
+import java.math.MathContext;
 import java.util.Currency;
 
+import org.joda.time.DateTime;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
 
+import com.wesabe.api.util.money.CurrencyExchangeRateMap;
+import com.wesabe.api.util.money.CurrencyExchangeRates;
 import com.wesabe.api.util.money.DollarPivotCurrencyExchangeRateMap;
+import com.wesabe.api.util.money.ExchangeRateNotFoundException;
 
 @RunWith(Enclosed.class)
 @SuppressWarnings("deprecation")
@@ -42,6 +49,97 @@ public class DollarPivotCurrencyExchangeRateMapTest {
 		}
 	}
 	
+	public static class Adding_A_Batch_Of_Exchange_Rates_To_Other_Currencies {
+		@Test
+		public void itThrowsAnException() throws Exception {
+			DollarPivotCurrencyExchangeRateMap exchangeRates = new DollarPivotCurrencyExchangeRateMap();
+			
+			boolean exceptionThrown = false;
+			try {
+				exchangeRates.newBatch().addExchangeRate(EUR, NOK, jun14th, decimal("1.76"));
+			} catch (IllegalArgumentException e) {
+				exceptionThrown = true;
+			}
+			
+			assertTrue("should have thrown an exception, but didn't", exceptionThrown);
+		}
+	}
+	
+	public static class Calculating_Cross_Rates {
+		private CurrencyExchangeRateMap directRates;
+		private DollarPivotCurrencyExchangeRateMap exchangeRates;
+		
+		@Before
+		public void setup() throws Exception {
+			this.directRates = new CurrencyExchangeRateMap();
+			this.exchangeRates = new DollarPivotCurrencyExchangeRateMap();
+			add(EUR, date(2008, 1, 1), "0.6801");
+			add(EUR, date(2008, 1, 4), "0.6790");
+			add(EUR, date(2008, 1, 4).plusMillis(1), "0.6795");
+			add(EUR, date(2008, 3, 17), "0.6312");
+			add(NOK, date(2008, 1, 2), "5.4210");
+			add(NOK, date(2008, 2, 29), "5.1101");
+			add(NOK, date(2008, 3, 17), "5.0123");
+		}
+		
+		@Test
+		public void itMatchesDividingTheClosestDollarRates() throws Exception {
+			for (DateTime date = date(2007, 12, 20); date.isBefore(date(2008, 4, 10)); date = date.plusMinutes(90)) {
+				assertCrossRate(EUR, NOK, date);
+				assertCrossRate(NOK, EUR, date);
+				assertCrossRate(USD, EUR, date);
+				assertCrossRate(NOK, USD, date);
+			}
+		}
+		
+		@Test
+		public void itMatchesDividingTheClosestDollarRatesAroundMidpoints() throws Exception {
+			final DateTime midpoint = date(2008, 1, 1).plus((date(2008, 1, 4).getMillis() - date(2008, 1, 1).getMillis()) / 2);
+			for (DateTime date = midpoint.minusMillis(2); date.isBefore(midpoint.plusMillis(3)); date = date.plusMillis(1)) {
+				assertCrossRate(EUR, NOK, date);
+			}
+		}
+		
+		@Test
+		public void itStillThrowsAnExceptionForUnsupportedCurrencies() throws Exception {
+			boolean exceptionThrown = false;
+			try {
+				exchangeRates.getExchangeRate(EUR, GBP, jun14th);
+			} catch (ExchangeRateNotFoundException e) {
+				exceptionThrown = true;
+				assertEquals(GBP, e.getSourceCurrency());
+				assertEquals(USD, e.getTargetCurrency());
+			}
+			
+			assertTrue("should have thrown an exception, but didn't", exceptionThrown);
+		}
+		
+		private void assertCrossRate(Currency source, Currency target, DateTime date) throws Exception {
+			final BigDecimal expected = directRates.getExchangeRate(source, USD, date)
+					.divide(directRates.getExchangeRate(target, USD, date), MathContext.DECIMAL32);
+			assertEquals(source + "->" + target + " on " + date, expected, exchangeRates.getExchangeRate(source, target, date));
+		}
+		
+		private void add(Currency currency, DateTime date, String rate) {
+			directRates.addExchangeRate(USD, currency, date, decimal(rate));
+			exchangeRates.addExchangeRate(USD, currency, date, decimal(rate));
+		}
+	}
+	
+	public static class Calculating_Exchange_Rates_From_An_Epoch {
+		@Test
+		public void itUsesUSDAsAPivotValueFromTheSameEpoch() throws Exception {
+			DollarPivotCurrencyExchangeRateMap exchangeRates = new DollarPivotCurrencyExchangeRateMap();
+			exchangeRates.addExchangeRate(USD, EUR, jun14th, decimal("0.7656"));
+			exchangeRates.addExchangeRate(USD, NOK, jun14th, decimal("6.7258"));
+			
+			final CurrencyExchangeRates epoch = exchangeRates.getCurrentEpoch();
+			exchangeRates.addExchangeRate(USD, NOK, jun14th, decimal("7.0"));
+
+			assertEquals(decimal("8.785004"), epoch.getExchangeRate(EUR, NOK, jun14th));
+		}
+	}
+	
 	public static class Calculating_Exchange_Rates {
 		@Test
 		public void itUsesUSDAsAPivotValue() throws Exception {
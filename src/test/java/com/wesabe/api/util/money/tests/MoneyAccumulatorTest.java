@@ -0,0 +1,152 @@
+package com.wesabe.api.util.money.tests;
+
+import static com.wesabe.api.tests.util.CurrencyHelper.*;
+import static com.wesabe.api.tests.util.MoneyHelper.*;
+import static com.wesabe.api.tests.util.NumberHelper.*;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.wesabe.api.util.money.CurrencyMismatchException;
+import com.wesabe.api.util.money.Money;
+import com.wesabe.api.util.money.MoneyAccumulator;
+
+@RunWith(Enclosed.class)
+public class MoneyAccumulatorTest {
+	public static class An_Empty_Accumulator {
+		private MoneyAccumulator accumulator;
+		
+		@Before
+		public void setup() throws Exception {
+			this.accumulator = new MoneyAccumulator(USD);
+		}
+		
+		@Test
+		public void itIsZero() throws Exception {
+			assertThat(accumulator.signum(), is(0));
+			assertThat(accumulator.toMoney(), is(zeroDollars));
+		}
+		
+		@Test
+		public void itHasACurrency() throws Exception {
+			assertThat(accumulator.getCurrency(), is(USD));
+		}
+	}
+	
+	public static class Accumulating_Amounts {
+		private MoneyAccumulator accumulator;
+		
+		@Before
+		public void setup() throws Exception {
+			this.accumulator = new MoneyAccumulator(USD);
+		}
+		
+		@Test
+		public void itAddsAmounts() throws Exception {
+			accumulator.add(money("10.25", USD)).add(money("-0.50", USD));
+			
+			assertThat(accumulator.toMoney(), is(money("9.75", USD)));
+		}
+		
+		@Test
+		public void itSubtractsAmounts() throws Exception {
+			accumulator.add(money("10.25", USD)).subtract(money("20.00", USD));
+			
+			assertThat(accumulator.toMoney(), is(money("-9.75", USD)));
+			assertThat(accumulator.signum(), is(-1));
+		}
+		
+		@Test
+		public void itAddsAbsoluteValues() throws Exception {
+			accumulator.addAbsolute(money("10.25", USD)).addAbsolute(money("-0.50", USD));
+			
+			assertThat(accumulator.toMoney(), is(money("10.75", USD)));
+		}
+		
+		@Test
+		public void itMatchesMoneyArithmetic() throws Exception {
+			Money expected = Money.zero(USD);
+			for (int i = -500; i < 1000; i += 7) {
+				final Money amount = new Money(new BigDecimal(i).movePointLeft(2), USD);
+				expected = expected.add(amount);
+				accumulator.add(amount);
+			}
+			
+			assertThat(accumulator.toMoney(), is(expected));
+		}
+		
+		@Test
+		public void itAddsMinorUnits() throws Exception {
+			accumulator.addMinorUnits(1025).addMinorUnits(-50);
+			
+			assertThat(accumulator.toMoney(), is(money("9.75", USD)));
+		}
+		
+		@Test(expected=CurrencyMismatchException.class)
+		public void itDoesNotAddOtherCurrencies() throws Exception {
+			accumulator.add(oneEuro);
+		}
+		
+		@Test
+		public void itUsesTheCurrencysScale() throws Exception {
+			final MoneyAccumulator yen = new MoneyAccumulator(Currency.getInstance("JPY"));
+			yen.add(new Money(decimal("100"), Currency.getInstance("JPY")));
+			
+			assertThat(yen.toMoney(), is(new Money(decimal("100"), Currency.getInstance("JPY"))));
+		}
+	}
+	
+	public static class Accumulating_Amounts_Which_Overflow_A_Long {
+		private MoneyAccumulator accumulator;
+		private Money huge;
+		
+		@Before
+		public void setup() throws Exception {
+			this.accumulator = new MoneyAccumulator(USD);
+			this.huge = new Money(BigDecimal.valueOf(Long.MAX_VALUE / 4, 2), USD);
+		}
+		
+		@Test
+		public void itFallsBackToExactArithmetic() throws Exception {
+			for (int i = 0; i < 8; i++) {
+				accumulator.add(huge);
+			}
+			accumulator.subtract(oneDollar);
+			
+			final BigDecimal expected = huge.getValue().multiply(new BigDecimal(8)).subtract(decimal("1.00"));
+			assertThat(accumulator.toMoney().getValue(), is(expected));
+			assertThat(accumulator.signum(), is(1));
+		}
+		
+		@Test
+		public void itFallsBackToExactArithmeticForMinorUnits() throws Exception {
+			accumulator.addMinorUnits(Long.MAX_VALUE).addMinorUnits(Long.MAX_VALUE);
+			
+			final BigDecimal expected = BigDecimal.valueOf(Long.MAX_VALUE, 2).multiply(new BigDecimal(2));
+			assertThat(accumulator.toMoney().getValue(), is(expected));
+		}
+		
+		@Test
+		public void itAddsTheLargestCompactAmountsExactly() throws Exception {
+			final Money largest = new Money(new BigDecimal("9999999999999999.99"), USD);
+			accumulator.add(largest).add(largest).subtract(oneDollar);
+			
+			assertThat(accumulator.toMoney().getValue(), is(new BigDecimal("19999999999999998.98")));
+		}
+		
+		@Test
+		public void itHandlesAmountsLargerThanALong() throws Exception {
+			final Money enormous = new Money(new BigDecimal("123456789012345678901234567890.00"), USD);
+			accumulator.add(oneDollar).add(enormous);
+			
+			assertThat(accumulator.toMoney().getValue(), is(new BigDecimal("123456789012345678901234567891.00")));
+		}
+	}
+}
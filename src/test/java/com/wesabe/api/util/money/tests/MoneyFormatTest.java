@@ -4,12 +4,21 @@ import static com.wesabe.api.tests.util.CurrencyHelper.*;
 import static com.wesabe.api.tests.util.NumberHelper.*;
 import static org.junit.Assert.*;
 
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Test;
 import org.junit.experimental.runners.Enclosed;
 import org.junit.runner.RunWith;
 
+import com.google.common.collect.Lists;
+import com.ibm.icu.text.NumberFormat;
 import com.wesabe.api.util.money.MoneyFormat;
 
 @RunWith(Enclosed.class)
@@ -50,4 +59,123 @@ public class MoneyFormatTest {
 	    assertEquals("-Fr.426.62", MoneyFormat.of(CHF, Locale.US).format(decimal("-426.62")));
 	  }
 	}
+	
+	public static class Formatting_Amounts_Of_Every_Size {
+		@Test
+		public void itGroupsThousands() throws Exception {
+			assertEquals("$1,234,567.89", MoneyFormat.of(USD, Locale.US).format(decimal("1234567.89")));
+			assertEquals("-$123,456.00", MoneyFormat.of(USD, Locale.US).format(decimal("-123456.00")));
+		}
+		
+		@Test
+		public void itPadsFractionsOfADollar() throws Exception {
+			assertEquals("$0.05", MoneyFormat.of(USD, Locale.US).format(decimal("0.05")));
+			assertEquals("$0.50", MoneyFormat.of(USD, Locale.US).format(decimal("0.5")));
+			assertEquals("$0.00", MoneyFormat.of(USD, Locale.US).format(decimal("0")));
+		}
+		
+		@Test
+		public void itPadsWholeAmounts() throws Exception {
+			assertEquals("$12.00", MoneyFormat.of(USD, Locale.US).format(decimal("12")));
+			assertEquals("$1,000.00", MoneyFormat.of(USD, Locale.US).format(new BigDecimal("1E+3")));
+		}
+		
+		@Test
+		public void itRoundsAmountsWithTooManyDigits() throws Exception {
+			assertEquals("$1.23", MoneyFormat.of(USD, Locale.US).format(decimal("1.2345")));
+			assertEquals("-$1,000.00", MoneyFormat.of(USD, Locale.US).format(decimal("-999.999")));
+		}
+	}
+	
+	public static class Formatting_Money_Like_ICU {
+		private final Locale[] locales = {
+			Locale.UK, Locale.GERMANY, Locale.FRANCE, Locale.JAPAN, new Locale("nb", "NO")
+		};
+		private final Currency[] currencies = { USD, EUR, GBP, NOK, CHF, Currency.getInstance("JPY") };
+		private final String[] amounts = {
+			"0", "0.01", "-0.10", "7", "999.99", "-1000", "12345.67", "-9876543.21", "1.005"
+		};
+		
+		@Test
+		public void itFormatsEveryAmountTheWayICUDoes() throws Exception {
+			for (Locale locale : locales) {
+				for (Currency currency : currencies) {
+					final NumberFormat expected = NumberFormat.getCurrencyInstance(locale);
+					expected.setCurrency(com.ibm.icu.util.Currency.getInstance(currency.getCurrencyCode()));
+					
+					for (String amount : amounts) {
+						assertEquals(
+							locale + " " + currency + " " + amount,
+							expected.format(decimal(amount)).replace('\u00A0', ' '),
+							MoneyFormat.of(currency, locale).format(decimal(amount))
+						);
+					}
+				}
+			}
+		}
+	}
+	
+	public static class Reusing_Formats {
+		@Test
+		public void itReturnsTheSameFormatForTheSameCurrencyAndLocale() throws Exception {
+			assertSame(MoneyFormat.of(USD, Locale.US), MoneyFormat.of(USD, Locale.US));
+			assertSame(MoneyFormat.of(EUR, Locale.ITALY), MoneyFormat.of(EUR, Locale.ITALY));
+		}
+		
+		@Test
+		public void itReturnsDifferentFormatsForDifferentCurrenciesAndLocales() throws Exception {
+			assertNotSame(MoneyFormat.of(USD, Locale.US), MoneyFormat.of(EUR, Locale.US));
+			assertNotSame(MoneyFormat.of(EUR, Locale.US), MoneyFormat.of(EUR, Locale.ITALY));
+		}
+		
+		@Test
+		public void itSharesFormatsBetweenLocalesWithTheSameData() throws Exception {
+			assertSame(MoneyFormat.of(EUR, new Locale("it")), MoneyFormat.of(EUR, new Locale("it", "ZZ")));
+			assertSame(MoneyFormat.of(EUR, Locale.ITALY), MoneyFormat.of(EUR, new Locale("it", "IT", "NOPE")));
+			assertEquals(MoneyFormat.of(EUR, Locale.ITALY).format(decimal("1234.50")),
+					MoneyFormat.of(EUR, new Locale("it", "IT", "NOPE")).format(decimal("1234.50")));
+		}
+		
+		@Test
+		public void itDoesNotCacheLocalesWithoutAnyData() throws Exception {
+			final Locale unknown = new Locale("zz", "ZZ");
+			final NumberFormat icuFormat = NumberFormat.getCurrencyInstance(unknown);
+			icuFormat.setCurrency(com.ibm.icu.util.Currency.getInstance("USD"));
+			
+			assertNotSame(MoneyFormat.of(USD, unknown), MoneyFormat.of(USD, unknown));
+			assertEquals(icuFormat.format(decimal("12.00")).replace('\u00a0', ' '),
+					MoneyFormat.of(USD, unknown).format(decimal("12.00")));
+		}
+		
+		@Test
+		public void itIsSafeToShareBetweenThreads() throws Exception {
+			final MoneyFormat format = MoneyFormat.of(EUR, Locale.ITALY);
+			final ExecutorService executor = Executors.newFixedThreadPool(8);
+			try {
+				final List<Future<Boolean>> results = Lists.newArrayList();
+				for (int i = 0; i < 8; i++) {
+					final int thread = i;
+					results.add(executor.submit(new Callable<Boolean>() {
+						@Override
+						public Boolean call() throws Exception {
+							for (int j = 0; j < 2000; j++) {
+								final String rounded = format.format(decimal(thread + ".995"));
+								final String exact = format.format(decimal(thread + ".25"));
+								if (!rounded.equals("€ " + (thread + 1) + ",00") || !exact.equals("€ " + thread + ",25")) {
+									return false;
+								}
+							}
+							return true;
+						}
+					}));
+				}
+				
+				for (Future<Boolean> result : results) {
+					assertTrue(result.get());
+				}
+			} finally {
+				executor.shutdown();
+			}
+		}
+	}
 }
@@ -0,0 +1,224 @@
+package com.wesabe.api.util.rails.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.runners.Enclosed;
+import org.junit.runner.RunWith;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.wesabe.api.util.rails.Inflector;
+
+/**
+ * Compares {@link Inflector} against the original regular expression-based
+ * implementation over a large corpus of generated words.
+ */
+@RunWith(Enclosed.class)
+public class InflectorDifferentialTest {
+	/**
+	 * The original implementation of {@link Inflector}, kept verbatim.
+	 */
+	private static class RegexInflector {
+		private static class Rule {
+			private final Pattern pattern;
+			private final String replacement;
+
+			public Rule(Pattern pattern, String replacement) {
+				this.pattern = pattern;
+				this.replacement = replacement;
+			}
+
+			public boolean matches(String input) {
+				return pattern.matcher(input).find();
+			}
+
+			public String replace(String input) {
+				return pattern.matcher(input).replaceFirst(replacement);
+			}
+		}
+
+		private static Rule rule(String pattern, String replacement) {
+			return new Rule(Pattern.compile(pattern), replacement);
+		}
+
+		private final List<Rule> pluralizationRules, singularizationRules;
+		private final Set<String> uncountableWords;
+
+		public RegexInflector() {
+			this.pluralizationRules = ImmutableList.copyOf(Iterables.reverse(ImmutableList.of(
+				rule("(?-mix:(.)$)", "$1s"),
+				rule("(?i-mx:s$)", "s"),
+				rule("(?i-mx:x$)", "xes"),
+				rule("(?i-mx:z$)", "zzes"),
+				rule("(?i-mx:(ax|test)is$)", "$1es"),
+				rule("(?i-mx:(octop)us$)", "$1i"),
+				rule("(?i-mx:(alias|status|virus)$)", "$1es"),
+				rule("(?i-mx:(bu)s$)", "$1ses"),
+				rule("(?i-mx:(buffal|tomat)o$)", "$1oes"),
+				rule("(?i-mx:([ti])um$)", "$1a"),
+				rule("(?i-mx:sis$)", "ses"),
+				rule("(?i-mx:(?:([^f])fe|([lr])f)$)", "$1$2ves"),
+				rule("(?i-mx:([^aeiouy]|qu)y$)", "$1ies"),
+				rule("(?i-mx:(x|ch|ss|sh)$)", "$1es"),
+				rule("(?i-mx:(matr|vert|ind)(?:ix|ex)$)", "$1ices"),
+				rule("(?i-mx:([m|l])ouse$)", "$1ice"),
+				rule("(?i-mx:^(ox)$)", "$1en"),
+				rule("(?i-mx:^(gas)$)", "$1es"),
+				rule("(?i-mx:(p)erson$)", "$1eople"),
+				rule("(?i-mx:(m)an$)", "$1en"),
+				rule("(?i-mx:(c)hild$)", "$1hildren")
+			)));
+			this.singularizationRules = ImmutableList.copyOf(Iterables.reverse(ImmutableList.of(
+				rule("(?i-mx:s$)", ""),
+				rule("(?-mix:(\\w)\\1es$)", "$1"),
+				rule("(?i-mx:(new|ga|serie)s$)", "$1s"),
+				rule("(?i-mx:([ti])a$)", "$1um"),
+				rule("(?i-mx:((a)naly|(b)a|(d)iagno|(p)arenthe|(p)rogno|(s)ynop|(t)he)ses$)", "$1$2sis"),
+				rule("(?i-mx:^(analy)ses$)", "$1sis"),
+				rule("(?i-mx:([^f])ves$)", "$1fe"),
+				rule("(?i-mx:([lr])ves$)", "$1f"),
+				rule("(?i-mx:oves$)", "ove"),
+				rule("(?i-mx:([^aeiouy]|qu)ies$)", "$1y"),
+				rule("(?i-mx:(x|ch|ss|sh)es$)", "$1"),
+				rule("(?i-mx:([m|l])ice$)", "$1ouse"),
+				rule("(?i-mx:(bus)es$)", "$1"),
+				rule("(?i-mx:(o)es$)", "$1"),
+				rule("(?i-mx:^(cris|ax|test)es$)", "$1is"),
+				rule("(?i-mx:(octop)i$)", "$1us"),
+				rule("(?i-mx:(alias|status|virus)es$)", "$1"),
+				rule("(?i-mx:^(ox)en)", "$1"),
+				rule("(?i-mx:(vert|ind)ices$)", "$1ex"),
+				rule("(?i-mx:(matr)ices$)", "$1ix"),
+				rule("(?i-mx:(quiz)zes$)", "$1"),
+				rule("(?i-mx:(hive|tive|movie|shoe)s$)", "$1"),
+				rule("(?i-mx:(p)eople$)", "$1erson"),
+				rule("(?i-mx:(m)en$)", "$1an"),
+				rule("(?i-mx:(c)hildren$)", "$1hild")
+			)));
+			this.uncountableWords = ImmutableSet.of(
+				"equipment information rice money species series fish sheep feedback".split(" "));
+		}
+
+		private String processRules(String word, List<Rule> rules) {
+			if (uncountableWords.contains(word.toLowerCase())) {
+				return word;
+			}
+
+			for (Rule rule : rules) {
+				if (rule.matches(word)) {
+					return rule.replace(word);
+				}
+			}
+
+			return word;
+		}
+
+		public String pluralize(String singular) {
+			return processRules(singular, pluralizationRules);
+		}
+
+		public String singularize(String plural) {
+			return processRules(plural, singularizationRules);
+		}
+	}
+
+	private static final String[] WORDS = (
+		"analyses analysis axes axis basis bases box boxes buffalo buffaloes bus buses " +
+		"child children crises crisis data datum diagnoses equipment fish gas gases " +
+		"half halves hive hives index indices knife knives life lives man men matrix " +
+		"matrices medium media mouse mice louse lice move moves movie movies news " +
+		"octopus octopi ox oxen oxenfree parentheses people person prognoses quiz " +
+		"quizzes query queries safe saves series shoe shoes status statuses synopses " +
+		"test testes theses tomato tomatoes vertex vertices virus viruses wife wives " +
+		"woman women wolf wolves alias aliases games soliloquy soliloquies sheep"
+	).split(" ");
+
+	private static final String PREFIXES[] = { "", "a", "x", "Ox", "QU", "é", "_" };
+	private static final String TAIL_CHARS = "aeiouysxzfchtlmrnpqvwdA|ESXZFYCHQ_1";
+	private static final String RANDOM_CHARS = TAIL_CHARS + "AIOUTLMRNPVWDbgk- éÉK\n\r\u0085 ";
+
+	private static RegexInflector reference;
+	private static Inflector inflector;
+	private static List<String> corpus;
+
+	@BeforeClass
+	public static void setup() {
+		reference = new RegexInflector();
+		inflector = new Inflector();
+		corpus = Lists.newArrayList();
+
+		for (String word : WORDS) {
+			for (String prefix : PREFIXES) {
+				corpus.add(prefix + word);
+				corpus.add(prefix + word.toUpperCase());
+				corpus.add(prefix + Character.toUpperCase(word.charAt(0)) + word.substring(1));
+				corpus.add(prefix + word + "\n");
+				corpus.add(prefix + word + "\r\n");
+				corpus.add(prefix + word + "s");
+			}
+		}
+
+		final int n = TAIL_CHARS.length();
+		for (String prefix : PREFIXES) {
+			corpus.add(prefix);
+			for (int i = 0; i < n; i++) {
+				for (int j = 0; j < n; j++) {
+					for (int k = 0; k < n; k++) {
+						corpus.add(prefix + TAIL_CHARS.charAt(i) + TAIL_CHARS.charAt(j) + TAIL_CHARS.charAt(k));
+					}
+				}
+			}
+		}
+
+		final Random random = new Random(8675309);
+		for (int i = 0; i < 20000; i++) {
+			final StringBuilder word = new StringBuilder();
+			final int length = random.nextInt(10);
+			for (int j = 0; j < length; j++) {
+				if (random.nextInt(40) == 0) {
+					word.appendCodePoint(0x1F600 + random.nextInt(16));
+				} else {
+					word.append(RANDOM_CHARS.charAt(random.nextInt(RANDOM_CHARS.length())));
+				}
+			}
+
+			if (random.nextBoolean()) {
+				word.append(WORDS[random.nextInt(WORDS.length)]);
+			}
+
+			if (random.nextInt(20) == 0) {
+				word.append('\uD83D');
+			}
+
+			corpus.add(word.toString());
+		}
+	}
+
+	public static class Singularizing_Words {
+		@Test
+		public void itMatchesTheRegularExpressions() throws Exception {
+			assertTrue(corpus.size() > 100000);
+			for (String word : corpus) {
+				assertEquals("singularizing [" + word + "]", reference.singularize(word), inflector.singularize(word));
+			}
+		}
+	}
+
+	public static class Pluralizing_Words {
+		@Test
+		public void itMatchesTheRegularExpressions() throws Exception {
+			for (String word : corpus) {
+				assertEquals("pluralizing [" + word + "]", reference.pluralize(word), inflector.pluralize(word));
+			}
+		}
+	}
+}